@@ -39,8 +39,12 @@ import com.uservoice.uservoicesdk.UserVoice;
 import org.gnucash.android.BuildConfig;
 import org.gnucash.android.R;
 import org.gnucash.android.db.BookDbHelper;
+import org.gnucash.android.db.BookSnapshot;
+import org.gnucash.android.db.DatabaseChange;
+import org.gnucash.android.db.DatabaseChangeNotifier;
 import org.gnucash.android.db.DatabaseHelper;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
 import org.gnucash.android.db.adapter.BudgetAmountsDbAdapter;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
@@ -53,6 +57,7 @@ import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
 import org.gnucash.android.service.ScheduledActionService;
+import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 import org.gnucash.android.ui.settings.PreferenceActivity;
 
 import java.util.Currency;
@@ -128,22 +133,40 @@ public class GnuCashApplication extends MultiDexApplication {
         setUpUserVoice();
 
         BookDbHelper bookDbHelper = new BookDbHelper(getApplicationContext());
-        mBooksDbAdapter = new BooksDbAdapter(bookDbHelper.getWritableDatabase());
+        mBooksDbAdapter = AdapterRegistry.of(bookDbHelper.getWritableDatabase()).getBooksDbAdapter();
 
         initializeDatabaseAdapters();
         setDefaultCurrencyCode(getDefaultCurrencyCode());
 
+        //keep the widgets up to date with changes from anywhere in the app
+        DatabaseChangeNotifier.registerListener(new DatabaseChange.Listener() {
+            @Override
+            public void onDatabaseChanged(@NonNull DatabaseChange change) {
+                WidgetConfigurationActivity.updateWidgets(getApplicationContext(), change);
+            }
+        });
+
         StethoUtils.install(this);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) //the reports are no longer visible
+            BookSnapshot.release();
+    }
+
     /**
      * Initialize database adapter singletons for use in the application
      * This method should be called every time a new book is opened
      */
     public static void initializeDatabaseAdapters() {
         if (mDbHelper != null){ //close if open
-            mDbHelper.getReadableDatabase().close();
+            SQLiteDatabase db = mDbHelper.getReadableDatabase();
+            AdapterRegistry.release(db);
+            db.close();
         }
+        BookSnapshot.release();
 
         mDbHelper = new DatabaseHelper(getAppContext(),
                 mBooksDbAdapter.getActiveBookUID());
@@ -156,15 +179,16 @@ public class GnuCashApplication extends MultiDexApplication {
             mainDb = mDbHelper.getReadableDatabase();
         }
 
-        mSplitsDbAdapter            = new SplitsDbAdapter(mainDb);
-        mTransactionsDbAdapter      = new TransactionsDbAdapter(mainDb, mSplitsDbAdapter);
-        mAccountsDbAdapter          = new AccountsDbAdapter(mainDb, mTransactionsDbAdapter);
-        mRecurrenceDbAdapter        = new RecurrenceDbAdapter(mainDb);
-        mScheduledActionDbAdapter   = new ScheduledActionDbAdapter(mainDb, mRecurrenceDbAdapter);
-        mPricesDbAdapter            = new PricesDbAdapter(mainDb);
-        mCommoditiesDbAdapter       = new CommoditiesDbAdapter(mainDb);
-        mBudgetAmountsDbAdapter     = new BudgetAmountsDbAdapter(mainDb);
-        mBudgetsDbAdapter           = new BudgetsDbAdapter(mainDb, mBudgetAmountsDbAdapter, mRecurrenceDbAdapter);
+        AdapterRegistry adapters = AdapterRegistry.of(mainDb);
+        mSplitsDbAdapter            = adapters.getSplitsDbAdapter();
+        mTransactionsDbAdapter      = adapters.getTransactionsDbAdapter();
+        mAccountsDbAdapter          = adapters.getAccountsDbAdapter();
+        mRecurrenceDbAdapter        = adapters.getRecurrenceDbAdapter();
+        mScheduledActionDbAdapter   = adapters.getScheduledActionDbAdapter();
+        mPricesDbAdapter            = adapters.getPricesDbAdapter();
+        mCommoditiesDbAdapter       = adapters.getCommoditiesDbAdapter();
+        mBudgetAmountsDbAdapter     = adapters.getBudgetAmountsDbAdapter();
+        mBudgetsDbAdapter           = adapters.getBudgetsDbAdapter();
     }
 
     public static AccountsDbAdapter getAccountsDbAdapter() {
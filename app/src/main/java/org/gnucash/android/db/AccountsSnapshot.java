@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.BooksDbAdapter;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.util.AccountNameIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the accounts of a book, with what is needed for listing and selecting them.
+ * <p>The accounts are read once, sorted by full name, and shared by the account pickers, so that opening
+ * a form or dialog does not query the accounts table or keep a cursor open.
+ * The snapshot of the active book is cached. When the accounts table changes, a new snapshot is built
+ * in the background, and the previous one is served until it is ready.</p>
+ */
+public final class AccountsSnapshot {
+
+    private static final String LOG_TAG = "AccountsSnapshot";
+
+    private static final Object sCacheLock = new Object();
+
+    /**
+     * Latest snapshot which was read. It is served until a newer snapshot is ready, even when it is out of date
+     */
+    private static AccountsSnapshot sCachedSnapshot;
+
+    /**
+     * Incremented whenever the cache is invalidated
+     */
+    private static int sCacheGeneration;
+
+    /**
+     * Value of {@link #sCacheGeneration} when the cached snapshot was read.
+     * The cached snapshot is up to date if it is still the current generation
+     */
+    private static int sCachedGeneration;
+
+    /**
+     * {@code true} while a rebuild of the cached snapshot is waiting to run
+     */
+    private static boolean sRebuildScheduled;
+
+    private static final Runnable sRebuild = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (sCacheLock) {
+                sRebuildScheduled = false;
+            }
+            try {
+                getCurrentInstance();
+            } catch (RuntimeException e) { //e.g. the database was closed in the meantime
+                Log.w(LOG_TAG, "Could not rebuild the accounts snapshot", e);
+            }
+        }
+    };
+
+    private static final DatabaseChange.Listener sCacheInvalidator = new DatabaseChange.Listener() {
+        @Override
+        public void onDatabaseChanged(@NonNull DatabaseChange change) {
+            if (change.affectsTable(AccountEntry.TABLE_NAME))
+                invalidateCache();
+        }
+    };
+
+    static {
+        DatabaseChangeNotifier.registerListener(sCacheInvalidator);
+    }
+
+    /**
+     * Columns of the cursors returned by {@link #toCursor(List)}
+     */
+    public static final String[] CURSOR_COLUMNS = {
+            AccountEntry._ID,
+            AccountEntry.COLUMN_UID,
+            AccountEntry.COLUMN_NAME,
+            AccountEntry.COLUMN_FULL_NAME,
+            AccountEntry.COLUMN_FAVORITE,
+            AccountEntry.COLUMN_PLACEHOLDER,
+            AccountEntry.COLUMN_HIDDEN,
+            AccountEntry.COLUMN_TYPE,
+            AccountEntry.COLUMN_CURRENCY,
+            AccountEntry.COLUMN_PARENT_ACCOUNT_UID,
+            AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID,
+            AccountEntry.COLUMN_COLOR_CODE,
+            AccountEntry.COLUMN_MODIFIED_AT
+    };
+
+    /**
+     * Accepts the accounts which are listed by default, which are all accounts except hidden and root accounts
+     */
+    public static final Filter VISIBLE_ACCOUNTS = new Filter() {
+        @Override
+        public boolean accept(@NonNull Entry account) {
+            return !account.mHidden && account.mAccountType != AccountType.ROOT;
+        }
+    };
+
+    private final String mBookUID;
+
+    private final List<Entry> mAccounts;
+
+    private final List<Entry> mAccountsByFavorite;
+
+    private final Map<String, Entry> mAccountsByUID;
+
+    private volatile AccountNameIndex mNameIndex;
+
+    private AccountsSnapshot(@NonNull String bookUID, @NonNull List<Entry> accounts) {
+        mBookUID = bookUID;
+        mAccounts = Collections.unmodifiableList(accounts);
+
+        List<Entry> byFavorite = new ArrayList<>(accounts.size());
+        mAccountsByUID = new HashMap<>(accounts.size());
+        for (Entry account : accounts) {
+            if (account.mFavorite)
+                byFavorite.add(account);
+            mAccountsByUID.put(account.mUID, account);
+        }
+        for (Entry account : accounts) {
+            if (!account.mFavorite)
+                byFavorite.add(account);
+        }
+        mAccountsByFavorite = Collections.unmodifiableList(byFavorite);
+    }
+
+    /**
+     * Returns the snapshot of the accounts of the active book, without waiting for the database if possible.
+     * <p>After the accounts changed, the previous snapshot is returned until the new one has been read
+     * in the background. Only if there is no snapshot of the active book yet, it is read in the calling thread.
+     * Use {@link #getCurrentInstance()} in background threads which must see the latest changes</p>
+     * @return Snapshot of the accounts, which may briefly be out of date
+     */
+    public static AccountsSnapshot getInstance() {
+        String bookUID = BooksDbAdapter.getInstance().getActiveBookUID();
+        synchronized (sCacheLock) {
+            if (sCachedSnapshot != null && sCachedSnapshot.mBookUID.equals(bookUID))
+                return sCachedSnapshot;
+        }
+        return getCurrentInstance();
+    }
+
+    /**
+     * Returns an up-to-date snapshot of the accounts of the active book.
+     * <p>If the cached snapshot is out of date, the accounts are read in the calling thread,
+     * so this should not be called from the main thread</p>
+     * @return Snapshot of the accounts
+     */
+    public static AccountsSnapshot getCurrentInstance() {
+        String bookUID = BooksDbAdapter.getInstance().getActiveBookUID();
+        int generation;
+        synchronized (sCacheLock) {
+            if (sCachedSnapshot != null && sCachedSnapshot.mBookUID.equals(bookUID)
+                    && sCachedGeneration == sCacheGeneration)
+                return sCachedSnapshot;
+            generation = sCacheGeneration;
+        }
+
+        AccountsSnapshot snapshot = build(AccountsDbAdapter.getInstance(), bookUID);
+        synchronized (sCacheLock) {
+            //keep the cached snapshot if it is newer, i.e. it was read by another thread in the meantime
+            if (sCachedSnapshot == null || !sCachedSnapshot.mBookUID.equals(bookUID) || generation >= sCachedGeneration) {
+                sCachedSnapshot = snapshot;
+                sCachedGeneration = generation;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Marks the cached snapshot as out of date and reads it again in the background.
+     * Until then, {@link #getInstance()} keeps returning the previous snapshot
+     */
+    public static void invalidateCache() {
+        synchronized (sCacheLock) {
+            sCacheGeneration++;
+            if (sCachedSnapshot == null || sRebuildScheduled)
+                return;
+            sRebuildScheduled = true;
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(sRebuild);
+    }
+
+    /**
+     * Reads the accounts of a book. The snapshot is not cached
+     * @param accountsDbAdapter Accounts adapter of the book
+     * @param bookUID GUID of the book
+     * @return Snapshot of the accounts
+     */
+    public static AccountsSnapshot build(@NonNull AccountsDbAdapter accountsDbAdapter, @NonNull String bookUID) {
+        Cursor cursor = accountsDbAdapter.fetchAccountsOrderedByFullName(null, null);
+        List<Entry> accounts = new ArrayList<>(cursor.getCount());
+        try {
+            int idColumn = cursor.getColumnIndexOrThrow(AccountEntry._ID);
+            int uidColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_UID);
+            int nameColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_NAME);
+            int fullNameColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_FULL_NAME);
+            int favoriteColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_FAVORITE);
+            int placeholderColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_PLACEHOLDER);
+            int hiddenColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_HIDDEN);
+            int typeColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_TYPE);
+            int currencyColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_CURRENCY);
+            int parentColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_PARENT_ACCOUNT_UID);
+            int defaultTransferColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID);
+            int colorColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_COLOR_CODE);
+            int modifiedColumn = cursor.getColumnIndexOrThrow(AccountEntry.COLUMN_MODIFIED_AT);
+            while (cursor.moveToNext()) {
+                accounts.add(new Entry(
+                        cursor.getLong(idColumn),
+                        cursor.getString(uidColumn),
+                        cursor.getString(nameColumn),
+                        cursor.getString(fullNameColumn),
+                        cursor.getInt(favoriteColumn) == 1,
+                        cursor.getInt(placeholderColumn) == 1,
+                        cursor.getInt(hiddenColumn) == 1,
+                        AccountType.valueOf(cursor.getString(typeColumn)),
+                        cursor.getString(currencyColumn),
+                        cursor.getString(parentColumn),
+                        cursor.getString(defaultTransferColumn),
+                        cursor.getString(colorColumn),
+                        cursor.getString(modifiedColumn)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return new AccountsSnapshot(bookUID, accounts);
+    }
+
+    /**
+     * Returns the GUID of the book of the accounts
+     * @return GUID of the book
+     */
+    public String getBookUID() {
+        return mBookUID;
+    }
+
+    /**
+     * Returns all accounts of the book, including the root and hidden accounts
+     * @return Accounts sorted by full name
+     */
+    public List<Entry> getAccounts() {
+        return mAccounts;
+    }
+
+    /**
+     * Returns the account with a GUID
+     * @param accountUID GUID of the account
+     * @return Account, or {@code null} if there is no such account
+     */
+    @Nullable
+    public Entry getAccount(@NonNull String accountUID) {
+        return mAccountsByUID.get(accountUID);
+    }
+
+    /**
+     * Returns the accounts accepted by a filter
+     * @param filter Filter for the accounts, or {@code null} to return all accounts
+     * @param favoritesFirst {@code true} if favorite accounts should be listed before the others
+     * @return Accounts sorted by full name, and by favorite status first if requested
+     */
+    public List<Entry> select(@Nullable Filter filter, boolean favoritesFirst) {
+        List<Entry> accounts = favoritesFirst ? mAccountsByFavorite : mAccounts;
+        if (filter == null)
+            return accounts;
+        List<Entry> selected = new ArrayList<>();
+        for (Entry account : accounts) {
+            if (filter.accept(account))
+                selected.add(account);
+        }
+        return selected;
+    }
+
+    /**
+     * Returns a cursor to some accounts of the snapshot, like a query of the accounts table would.
+     * <p>The cursor only has the {@link #CURSOR_COLUMNS} and does not access the database</p>
+     * @param accountUIDs GUIDs of the accounts. Accounts which are not in the snapshot are skipped
+     * @return Cursor to the accounts, sorted by name
+     */
+    public Cursor toCursor(@NonNull List<String> accountUIDs) {
+        List<Entry> accounts = new ArrayList<>(accountUIDs.size());
+        for (String accountUID : accountUIDs) {
+            Entry account = mAccountsByUID.get(accountUID);
+            if (account != null)
+                accounts.add(account);
+        }
+        Collections.sort(accounts, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return lhs.mName.compareTo(rhs.mName);
+            }
+        });
+
+        MatrixCursor cursor = new MatrixCursor(CURSOR_COLUMNS, accounts.size());
+        for (Entry account : accounts) {
+            cursor.addRow(new Object[]{
+                    account.mId,
+                    account.mUID,
+                    account.mName,
+                    account.mFullName,
+                    account.mFavorite ? 1 : 0,
+                    account.mPlaceholder ? 1 : 0,
+                    account.mHidden ? 1 : 0,
+                    account.mAccountType.name(),
+                    account.mCurrencyCode,
+                    account.mParentUID,
+                    account.mDefaultTransferAccountUID,
+                    account.mColorCode,
+                    account.mModifiedAt});
+        }
+        return cursor;
+    }
+
+    /**
+     * Returns the index of the names of the {@link #VISIBLE_ACCOUNTS visible accounts}.
+     * The index is built the first time it is needed
+     * @return Index of account names, ordered by full name
+     */
+    public AccountNameIndex getNameIndex() {
+        AccountNameIndex index = mNameIndex;
+        if (index == null) {
+            List<String> uids = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<String> fullNames = new ArrayList<>();
+            for (Entry account : select(VISIBLE_ACCOUNTS, false)) {
+                uids.add(account.mUID);
+                names.add(account.mName);
+                fullNames.add(account.mFullName);
+            }
+            index = new AccountNameIndex(uids, names, fullNames);
+            mNameIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Selects accounts of a snapshot
+     */
+    public interface Filter {
+        /**
+         * Checks if an account is selected
+         * @param account Account of the snapshot
+         * @return {@code true} if the account is selected
+         */
+        boolean accept(@NonNull Entry account);
+    }
+
+    /**
+     * Account of a snapshot
+     */
+    public static final class Entry {
+        private final long mId;
+        private final String mUID;
+        private final String mName;
+        private final String mFullName;
+        private final boolean mFavorite;
+        private final boolean mPlaceholder;
+        private final boolean mHidden;
+        private final AccountType mAccountType;
+        private final String mCurrencyCode;
+        private final String mParentUID;
+        private final String mDefaultTransferAccountUID;
+        private final String mColorCode;
+        private final String mModifiedAt;
+
+        Entry(long id, String uid, String name, String fullName, boolean favorite, boolean placeholder,
+              boolean hidden, AccountType accountType, String currencyCode, String parentUID,
+              String defaultTransferAccountUID, String colorCode, String modifiedAt) {
+            mId = id;
+            mUID = uid;
+            mName = name;
+            mFullName = fullName;
+            mFavorite = favorite;
+            mPlaceholder = placeholder;
+            mHidden = hidden;
+            mAccountType = accountType;
+            mCurrencyCode = currencyCode;
+            mParentUID = parentUID;
+            mDefaultTransferAccountUID = defaultTransferAccountUID;
+            mColorCode = colorCode;
+            mModifiedAt = modifiedAt;
+        }
+
+        /**
+         * Returns the database record ID of the account
+         * @return Record ID
+         */
+        public long getId() {
+            return mId;
+        }
+
+        public String getUID() {
+            return mUID;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public String getFullName() {
+            return mFullName;
+        }
+
+        public boolean isFavorite() {
+            return mFavorite;
+        }
+
+        public boolean isPlaceholder() {
+            return mPlaceholder;
+        }
+
+        public boolean isHidden() {
+            return mHidden;
+        }
+
+        public AccountType getAccountType() {
+            return mAccountType;
+        }
+
+        /**
+         * Returns the currency code of the commodity of the account
+         * @return ISO 4217 currency code
+         */
+        public String getCurrencyCode() {
+            return mCurrencyCode;
+        }
+
+        @Nullable
+        public String getParentUID() {
+            return mParentUID;
+        }
+
+        @Nullable
+        public String getDefaultTransferAccountUID() {
+            return mDefaultTransferAccountUID;
+        }
+
+        /**
+         * Returns the color of the account
+         * @return Color code like {@code #1469EB}, or {@code null} if the account has no color
+         */
+        @Nullable
+        public String getColorCode() {
+            return mColorCode;
+        }
+    }
+}
@@ -28,15 +28,15 @@ import com.crashlytics.android.Crashlytics;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.DatabaseSchema.BookEntry;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
-import org.gnucash.android.db.adapter.BooksDbAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
-import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.export.Exporter;
 import org.gnucash.android.model.Book;
 import org.gnucash.android.util.RecursiveMoveFiles;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Database helper for managing database which stores information about the books in the application
@@ -50,6 +50,11 @@ public class BookDbHelper extends SQLiteOpenHelper {
 
     private Context mContext;
 
+    /**
+     * Databases opened by {@link #getDatabase(String)}, by book GUID
+     */
+    private static final Map<String, SQLiteDatabase> sDatabases = new HashMap<>();
+
     /**
      * Create the books table
      */
@@ -80,8 +85,7 @@ public class BookDbHelper extends SQLiteOpenHelper {
             DatabaseHelper helper = new DatabaseHelper(GnuCashApplication.getAppContext(),
                     DatabaseSchema.LEGACY_DATABASE_NAME);
             SQLiteDatabase mainDb = helper.getWritableDatabase();
-            AccountsDbAdapter accountsDbAdapter = new AccountsDbAdapter(mainDb,
-                    new TransactionsDbAdapter(mainDb, new SplitsDbAdapter(mainDb)));
+            AccountsDbAdapter accountsDbAdapter = AdapterRegistry.of(mainDb).getAccountsDbAdapter();
 
             String rootAccountUID = accountsDbAdapter.getOrCreateGnuCashRootAccountUID();
 
@@ -90,6 +94,7 @@ public class BookDbHelper extends SQLiteOpenHelper {
             insertBook(db, book);
 
             String mainDbPath = mainDb.getPath();
+            AdapterRegistry.release(mainDb);
             helper.close();
 
             File src = new File(mainDbPath);
@@ -113,8 +118,7 @@ public class BookDbHelper extends SQLiteOpenHelper {
             Book book = new Book();
             DatabaseHelper helper = new DatabaseHelper(GnuCashApplication.getAppContext(), book.getUID());
             SQLiteDatabase mainDb = helper.getWritableDatabase(); //actually create the db
-            AccountsDbAdapter accountsDbAdapter = new AccountsDbAdapter(mainDb,
-                    new TransactionsDbAdapter(mainDb, new SplitsDbAdapter(mainDb)));
+            AccountsDbAdapter accountsDbAdapter = AdapterRegistry.of(mainDb).getAccountsDbAdapter();
 
             String rootAccountUID = accountsDbAdapter.getOrCreateGnuCashRootAccountUID();
             book.setRootAccountUID(rootAccountUID);
@@ -125,13 +129,56 @@ public class BookDbHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * Returns the database for the book
+     * Returns the database for the book.
+     * <p>The database of the active book is the one used by the app, see {@link GnuCashApplication#getActiveDb()}.
+     * The databases of the other books are opened once and then shared, together with their adapters
+     * in the {@link AdapterRegistry}, until they are closed with {@link #closeDatabase(String)}
+     * or {@link #closeDatabases()}</p>
      * @param bookUID GUID of the book
      * @return SQLiteDatabase of the book
      */
     public static SQLiteDatabase getDatabase(String bookUID){
-        DatabaseHelper dbHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
-        return dbHelper.getWritableDatabase();
+        SQLiteDatabase activeDb = GnuCashApplication.getActiveDb();
+        if (bookUID.equals(new File(activeDb.getPath()).getName())) //database files are named after the book GUID
+            return activeDb;
+
+        synchronized (sDatabases) {
+            SQLiteDatabase db = sDatabases.get(bookUID);
+            if (db == null || !db.isOpen()) {
+                DatabaseHelper dbHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
+                db = dbHelper.getWritableDatabase();
+                sDatabases.put(bookUID, db);
+            }
+            return db;
+        }
+    }
+
+    /**
+     * Closes the database of the book if it was opened with {@link #getDatabase(String)}
+     * @param bookUID GUID of the book
+     */
+    public static void closeDatabase(String bookUID){
+        synchronized (sDatabases) {
+            SQLiteDatabase db = sDatabases.remove(bookUID);
+            if (db != null) {
+                AdapterRegistry.release(db);
+                db.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the databases of the books which were opened with {@link #getDatabase(String)}.
+     * <p>The database of the active book is not affected</p>
+     */
+    public static void closeDatabases(){
+        synchronized (sDatabases) {
+            for (SQLiteDatabase db : sDatabases.values()) {
+                AdapterRegistry.release(db);
+                db.close();
+            }
+            sDatabases.clear();
+        }
     }
 
     /**
@@ -144,7 +191,7 @@ public class BookDbHelper extends SQLiteOpenHelper {
         contentValues.put(BookEntry.COLUMN_UID, book.getUID());
         contentValues.put(BookEntry.COLUMN_ROOT_GUID, book.getRootAccountUID());
         contentValues.put(BookEntry.COLUMN_TEMPLATE_GUID, Book.generateUID());
-        contentValues.put(BookEntry.COLUMN_DISPLAY_NAME, new BooksDbAdapter(db).generateDefaultBookName());
+        contentValues.put(BookEntry.COLUMN_DISPLAY_NAME, AdapterRegistry.of(db).getBooksDbAdapter().generateDefaultBookName());
         contentValues.put(BookEntry.COLUMN_ACTIVE, book.isActive() ? 1 : 0);
 
         db.insert(BookEntry.TABLE_NAME, null, contentValues);
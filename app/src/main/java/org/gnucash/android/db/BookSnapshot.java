@@ -0,0 +1,1025 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.AsyncTask;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.Pair;
+
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.DatabaseSchema.CommodityEntry;
+import org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.adapter.BooksDbAdapter;
+import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
+import org.gnucash.android.db.adapter.DatabaseAdapter;
+import org.gnucash.android.db.adapter.PricesDbAdapter;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.MoneyAccumulator;
+import org.gnucash.android.util.HashHelper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Immutable in-memory copy of the splits of a book, for computing balances without querying the database.
+ * <p>All splits of non-template transactions are read once into parallel primitive arrays: account index,
+ * transaction timestamp and signed quantity amount. The balances of the reports are then computed by scanning
+ * these arrays, which is much faster than one query per account and period. The quantity amounts of the splits
+ * of an account are all in units of the smallest fraction of its commodity, so they are added up as integers.
+ * Only the quantities finer than the smallest fraction are kept as fractions and added up exactly,
+ * like {@link org.gnucash.android.db.adapter.SplitsDbAdapter} does in the database.</p>
+ * <p>Using the snapshot is optional. It is only built for books whose splits fit into {@link #getMemoryBudget()},
+ * otherwise {@link #getInstance()} returns {@code null} and the callers use the database.
+ * The snapshot of the active book is cached until the app is no longer visible. When transactions change,
+ * the cached snapshot is refreshed with the transactions modified since it was read,
+ * and it is read again when the accounts change.</p>
+ */
+public final class BookSnapshot {
+
+    private static final String LOG_TAG = "BookSnapshot";
+
+    /**
+     * Size of the arrays for one split in bytes
+     */
+    private static final int BYTES_PER_SPLIT = 4 + 8 + 8 + 8 + 8;
+
+    /**
+     * Number of threads which add up the splits of large books, including the calling thread
+     */
+    private static final int THREAD_COUNT = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Minimum number of splits for which another thread is used
+     */
+    private static final int MIN_SPLITS_PER_PARTITION = 20000;
+
+    private static ExecutorService sExecutor;
+
+    private static final String SPLITS_QUERY = "SELECT s." + SplitEntry.COLUMN_ACCOUNT_UID
+            + ", t." + TransactionEntry.COLUMN_TIMESTAMP
+            + ", s." + SplitEntry.COLUMN_QUANTITY_AMOUNT
+            + ", s." + SplitEntry.COLUMN_TRANSACTION_UID
+            + ", CASE WHEN s." + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN s." + SplitEntry.COLUMN_QUANTITY_NUM
+            + " ELSE - s." + SplitEntry.COLUMN_QUANTITY_NUM + " END"
+            + ", s." + SplitEntry.COLUMN_QUANTITY_DENOM
+            + " FROM " + SplitEntry.TABLE_NAME + " s INNER JOIN " + TransactionEntry.TABLE_NAME + " t"
+            + " ON t." + TransactionEntry.COLUMN_UID + " = s." + SplitEntry.COLUMN_TRANSACTION_UID
+            + " WHERE t." + TransactionEntry.COLUMN_TEMPLATE + " = 0";
+
+    private static final Object sCacheLock = new Object();
+
+    /**
+     * Held while a snapshot is built, so that several threads do not read the same splits at once
+     */
+    private static final Object sBuildLock = new Object();
+
+    private static BookSnapshot sCachedSnapshot;
+
+    /**
+     * Incremented when the cache is released, so that a snapshot read before is not cached
+     */
+    private static int sCacheGeneration;
+
+    private static boolean sAccountsChanged;
+
+    /**
+     * Whether the snapshot is already being read in the background for {@link #getCachedInstance()}
+     */
+    private static boolean sReadScheduled;
+
+    private static boolean sTransactionsChanged;
+
+    /**
+     * GUIDs of the transactions changed since the cached snapshot was read, including deleted ones
+     */
+    private static final Set<String> sChangedTransactionUIDs = new HashSet<>();
+
+    private static final DatabaseChange.Listener sChangeListener = new DatabaseChange.Listener() {
+        @Override
+        public void onDatabaseChanged(@NonNull DatabaseChange change) {
+            synchronized (sCacheLock) {
+                if (change.affectsTable(AccountEntry.TABLE_NAME))
+                    sAccountsChanged = true;
+                if (change.affectsTable(TransactionEntry.TABLE_NAME) || change.affectsTable(SplitEntry.TABLE_NAME)) {
+                    sTransactionsChanged = true;
+                    sChangedTransactionUIDs.addAll(change.getTransactionUIDs());
+                }
+            }
+        }
+    };
+
+    static {
+        DatabaseChangeNotifier.registerListener(sChangeListener);
+    }
+
+    private final String mBookUID;
+
+    private final String[] mAccountUIDs;
+
+    private final Map<String, Integer> mAccountIndexes;
+
+    /**
+     * Index of the parent of each account, or -1 for accounts without parent
+     */
+    private final int[] mAccountParents;
+
+    private final AccountType[] mAccountTypes;
+
+    /**
+     * Index of the currency code of each account in {@link #mCurrencyCodes}
+     */
+    private final int[] mAccountCurrencies;
+
+    private final String[] mCurrencyCodes;
+
+    /**
+     * Smallest fraction of each currency in {@link #mCurrencyCodes}, which is the unit of the quantity amounts
+     */
+    private final long[] mCurrencyFractions;
+
+    private final Splits mSplits;
+
+    /**
+     * Latest modification time of the transactions and splits when the snapshot was read
+     */
+    private final String mLastModified;
+
+    private BookSnapshot(String bookUID, String[] accountUIDs, Map<String, Integer> accountIndexes,
+                         int[] accountParents, AccountType[] accountTypes, int[] accountCurrencies,
+                         String[] currencyCodes, long[] currencyFractions, Splits splits, String lastModified) {
+        mBookUID = bookUID;
+        mAccountUIDs = accountUIDs;
+        mAccountIndexes = accountIndexes;
+        mAccountParents = accountParents;
+        mAccountTypes = accountTypes;
+        mAccountCurrencies = accountCurrencies;
+        mCurrencyCodes = currencyCodes;
+        mCurrencyFractions = currencyFractions;
+        mSplits = splits;
+        mLastModified = lastModified;
+    }
+
+    /**
+     * Returns the maximum memory which the splits of a snapshot may use
+     * @return Memory budget in bytes
+     */
+    public static long getMemoryBudget() {
+        return Runtime.getRuntime().maxMemory() / 8;
+    }
+
+    /**
+     * Returns the snapshot of the active book. If the cached snapshot is outdated, it is refreshed
+     * in the calling thread, so this should not be called from the main thread
+     * @return Snapshot of the book, or {@code null} if the splits of the book do not fit into the memory budget
+     */
+    @Nullable
+    public static BookSnapshot getInstance() {
+        String bookUID = BooksDbAdapter.getInstance().getActiveBookUID();
+        synchronized (sBuildLock) {
+            BookSnapshot cached;
+            boolean accountsChanged;
+            Set<String> changedTransactionUIDs;
+            int generation;
+            synchronized (sCacheLock) {
+                cached = sCachedSnapshot;
+                if (cached != null && !cached.mBookUID.equals(bookUID))
+                    cached = null;
+                if (cached != null && !sAccountsChanged && !sTransactionsChanged)
+                    return cached;
+
+                accountsChanged = sAccountsChanged;
+                changedTransactionUIDs = new HashSet<>(sChangedTransactionUIDs);
+                sCachedSnapshot = null; //if reading fails, the next call reads the whole book
+                sAccountsChanged = false;
+                sTransactionsChanged = false;
+                sChangedTransactionUIDs.clear();
+                generation = sCacheGeneration;
+            }
+
+            SQLiteDatabase db = GnuCashApplication.getActiveDb();
+            BookSnapshot snapshot = cached == null || accountsChanged
+                    ? build(db, bookUID)
+                    : cached.refresh(db, changedTransactionUIDs);
+            synchronized (sCacheLock) {
+                if (generation == sCacheGeneration)
+                    sCachedSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the cached snapshot of the active book without reading the database, for use in the main thread.
+     * <p>If there is no up-to-date snapshot, it is read in the background for later calls</p>
+     * @return Snapshot of the book, or {@code null} if it is not cached or outdated
+     */
+    @Nullable
+    public static BookSnapshot getCachedInstance() {
+        String bookUID = BooksDbAdapter.getInstance().getActiveBookUID();
+        synchronized (sCacheLock) {
+            if (sCachedSnapshot != null && sCachedSnapshot.mBookUID.equals(bookUID)
+                    && !sAccountsChanged && !sTransactionsChanged)
+                return sCachedSnapshot;
+            if (sReadScheduled)
+                return null;
+            sReadScheduled = true;
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getInstance();
+                } catch (RuntimeException e) { //e.g. the database was closed in the meantime
+                    Log.w(LOG_TAG, "Could not read the book snapshot", e);
+                } finally {
+                    synchronized (sCacheLock) {
+                        sReadScheduled = false;
+                    }
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Discards the cached snapshot to free its memory. It is read again the next time it is needed
+     */
+    public static void release() {
+        synchronized (sCacheLock) {
+            sCachedSnapshot = null;
+            sAccountsChanged = false;
+            sTransactionsChanged = false;
+            sChangedTransactionUIDs.clear();
+            sCacheGeneration++;
+        }
+    }
+
+    /**
+     * Reads the accounts and splits of a book. The snapshot is not cached
+     * @param db Database of the book
+     * @param bookUID GUID of the book
+     * @return Snapshot of the book, or {@code null} if the splits do not fit into the memory budget
+     */
+    @Nullable
+    public static BookSnapshot build(@NonNull SQLiteDatabase db, @NonNull String bookUID) {
+        long splitCount = countSplits(db);
+        if (splitCount * BYTES_PER_SPLIT > getMemoryBudget()) {
+            Log.i(LOG_TAG, "Not reading " + splitCount + " splits into memory");
+            return null;
+        }
+
+        String[] accountUIDs;
+        String[] parentUIDs;
+        AccountType[] accountTypes;
+        String[] accountCurrencyCodes;
+        long[] accountFractions;
+        Cursor cursor = db.rawQuery("SELECT a." + AccountEntry.COLUMN_UID
+                + ", a." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID
+                + ", a." + AccountEntry.COLUMN_TYPE
+                + ", a." + AccountEntry.COLUMN_CURRENCY
+                + ", c." + CommodityEntry.COLUMN_SMALLEST_FRACTION
+                + " FROM " + AccountEntry.TABLE_NAME + " a LEFT JOIN " + CommodityEntry.TABLE_NAME + " c"
+                + " ON c." + CommodityEntry.COLUMN_UID + " = a." + AccountEntry.COLUMN_COMMODITY_UID, null);
+        try {
+            int count = cursor.getCount();
+            accountUIDs = new String[count];
+            parentUIDs = new String[count];
+            accountTypes = new AccountType[count];
+            accountCurrencyCodes = new String[count];
+            accountFractions = new long[count];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                accountUIDs[i] = cursor.getString(0);
+                parentUIDs[i] = cursor.getString(1);
+                accountTypes[i] = AccountType.valueOf(cursor.getString(2));
+                accountCurrencyCodes[i] = cursor.getString(3);
+                accountFractions[i] = cursor.isNull(4)
+                        ? Commodity.getInstance(accountCurrencyCodes[i]).getSmallestFraction() : cursor.getLong(4);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<String, Integer> accountIndexes = new HashMap<>(accountUIDs.length * 2);
+        for (int i = 0; i < accountUIDs.length; i++) {
+            accountIndexes.put(accountUIDs[i], i);
+        }
+        int[] accountParents = new int[accountUIDs.length];
+        int[] accountCurrencies = new int[accountUIDs.length];
+        List<String> currencyCodes = new ArrayList<>();
+        List<Long> currencyFractions = new ArrayList<>();
+        for (int i = 0; i < accountUIDs.length; i++) {
+            Integer parent = parentUIDs[i] == null ? null : accountIndexes.get(parentUIDs[i]);
+            accountParents[i] = parent == null ? -1 : parent;
+            int currency = currencyCodes.indexOf(accountCurrencyCodes[i]);
+            if (currency < 0) {
+                currency = currencyCodes.size();
+                currencyCodes.add(accountCurrencyCodes[i]);
+                currencyFractions.add(accountFractions[i]);
+            }
+            accountCurrencies[i] = currency;
+        }
+        long[] fractions = new long[currencyFractions.size()];
+        for (int i = 0; i < fractions.length; i++) {
+            fractions[i] = currencyFractions.get(i);
+        }
+
+        String lastModified = getLastModified(db); //before reading, so that changes in the meantime are read again
+        Splits splits = new Splits((int) splitCount);
+        splits.read(db.rawQuery(SPLITS_QUERY, null), accountIndexes, getAccountFractions(accountCurrencies, fractions));
+
+        return new BookSnapshot(bookUID, accountUIDs, accountIndexes, accountParents, accountTypes,
+                accountCurrencies, currencyCodes.toArray(new String[currencyCodes.size()]), fractions,
+                splits, lastModified);
+    }
+
+    /**
+     * Returns a snapshot with the changes of the transactions since this snapshot was read.
+     * <p>The splits of the transactions modified since then and of the given transactions are read again.
+     * If the number of splits then differs from the database, because transactions were deleted without
+     * being reported, the whole book is read again</p>
+     * @param db Database of the book
+     * @param changedTransactionUIDs GUIDs of transactions which are known to have changed or been deleted
+     * @return Updated snapshot, or {@code null} if the splits no longer fit into the memory budget
+     */
+    @Nullable
+    public BookSnapshot refresh(@NonNull SQLiteDatabase db, @NonNull Collection<String> changedTransactionUIDs) {
+        String lastModified = getLastModified(db);
+        Set<String> transactionUIDs = new HashSet<>(changedTransactionUIDs);
+        if (mLastModified != null) {
+            Cursor cursor = db.rawQuery("SELECT " + TransactionEntry.COLUMN_UID + " FROM " + TransactionEntry.TABLE_NAME
+                            + " WHERE " + TransactionEntry.COLUMN_MODIFIED_AT + " >= ?"
+                            + " UNION SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME
+                            + " WHERE " + SplitEntry.COLUMN_MODIFIED_AT + " >= ?",
+                    new String[]{mLastModified, mLastModified});
+            try {
+                while (cursor.moveToNext()) {
+                    transactionUIDs.add(cursor.getString(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        Splits splits = mSplits;
+        if (!transactionUIDs.isEmpty()) {
+            Set<Long> transactionKeys = new HashSet<>(transactionUIDs.size() * 2);
+            for (String transactionUID : transactionUIDs) {
+                transactionKeys.add(transactionKey(transactionUID));
+            }
+            splits = mSplits.copyWithout(transactionKeys);
+
+            long[] accountFractions = getAccountFractions(mAccountCurrencies, mCurrencyFractions);
+            List<String> uids = new ArrayList<>(transactionUIDs);
+            for (int start = 0; start < uids.size(); start += DatabaseAdapter.MAX_QUERY_ARGS) {
+                List<String> args = uids.subList(start, Math.min(start + DatabaseAdapter.MAX_QUERY_ARGS, uids.size()));
+                splits.read(db.rawQuery(SPLITS_QUERY + " AND t." + TransactionEntry.COLUMN_UID
+                        + " IN (" + DatabaseAdapter.makePlaceholders(args.size()) + ")",
+                        args.toArray(new String[args.size()])), mAccountIndexes, accountFractions);
+            }
+        }
+
+        if (splits.getLiveCount() != countSplits(db)) {
+            Log.d(LOG_TAG, "Splits were removed, reading the whole book");
+            return build(db, mBookUID);
+        }
+        if (splits == mSplits && TextUtils.equals(lastModified, mLastModified))
+            return this;
+        if ((long) splits.mSize * BYTES_PER_SPLIT > getMemoryBudget()) {
+            if ((long) splits.getLiveCount() * BYTES_PER_SPLIT > getMemoryBudget())
+                return null;
+            splits = splits.compact();
+        }
+        return new BookSnapshot(mBookUID, mAccountUIDs, mAccountIndexes, mAccountParents, mAccountTypes,
+                mAccountCurrencies, mCurrencyCodes, mCurrencyFractions, splits, lastModified);
+    }
+
+    /**
+     * Returns the smallest fraction of the currency of each account, which is the unit of its quantity amounts
+     */
+    private static long[] getAccountFractions(int[] accountCurrencies, long[] currencyFractions) {
+        long[] accountFractions = new long[accountCurrencies.length];
+        for (int i = 0; i < accountFractions.length; i++) {
+            accountFractions[i] = currencyFractions[accountCurrencies[i]];
+        }
+        return accountFractions;
+    }
+
+    private static long countSplits(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + SplitEntry.TABLE_NAME + " s INNER JOIN "
+                + TransactionEntry.TABLE_NAME + " t ON t." + TransactionEntry.COLUMN_UID
+                + " = s." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " WHERE t." + TransactionEntry.COLUMN_TEMPLATE + " = 0", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Nullable
+    private static String getLastModified(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT MAX(modified) FROM ("
+                + "SELECT MAX(" + TransactionEntry.COLUMN_MODIFIED_AT + ") AS modified FROM " + TransactionEntry.TABLE_NAME
+                + " UNION ALL SELECT MAX(" + SplitEntry.COLUMN_MODIFIED_AT + ") FROM " + SplitEntry.TABLE_NAME + ")", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns a 64-bit hash of a transaction GUID, which is kept for every split instead of the GUID
+     */
+    private static long transactionKey(String transactionUID) {
+        return HashHelper.fnv1a64(transactionUID);
+    }
+
+    /**
+     * Returns the GUID of the book of the snapshot
+     * @return GUID of the book
+     */
+    public String getBookUID() {
+        return mBookUID;
+    }
+
+    /**
+     * Returns the number of splits in the snapshot
+     * @return Number of splits
+     */
+    public int getSplitCount() {
+        return mSplits.getLiveCount();
+    }
+
+    /**
+     * Returns the sum of the splits of several accounts within a time range, like
+     * {@link org.gnucash.android.db.adapter.SplitsDbAdapter#computeSplitBalance(List, String, boolean, long, long)}.
+     * Splits in other currencies are converted with the latest price, and ignored if there is none
+     * @param accountUIDList GUIDs of the accounts. Sub-accounts are not included
+     * @param currencyCode Currency of the balance
+     * @param hasDebitNormalBalance {@code true} if debits should be positive
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Balance of the splits
+     */
+    public Money getAccountsBalance(@NonNull List<String> accountUIDList, @NonNull String currencyCode,
+                                    boolean hasDebitNormalBalance, long startTimestamp, long endTimestamp) {
+        boolean[] selected = new boolean[mAccountUIDs.length];
+        for (String accountUID : accountUIDList) {
+            Integer index = mAccountIndexes.get(accountUID);
+            if (index != null)
+                selected[index] = true;
+        }
+        MoneyAccumulator total = new MoneyAccumulator(Commodity.getInstance(currencyCode));
+        addBalance(total, selected, hasDebitNormalBalance, startTimestamp, endTimestamp);
+        return total.toMoney();
+    }
+
+    /**
+     * Returns the balance of several accounts within a time range in the default currency, like
+     * {@link org.gnucash.android.db.adapter.AccountsDbAdapter#getAccountsBalance(List, long, long)}
+     * @param accountUIDList GUIDs of the accounts. Sub-accounts are not included
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Balance of the accounts
+     */
+    public Money getAccountsBalance(@NonNull List<String> accountUIDList, long startTimestamp, long endTimestamp) {
+        String currencyCode = GnuCashApplication.getDefaultCurrencyCode();
+        if (accountUIDList.isEmpty())
+            return Money.createZeroInstance(currencyCode);
+        boolean hasDebitNormalBalance = mAccountTypes[getAccountIndex(accountUIDList.get(0))].hasDebitNormalBalance();
+        return getAccountsBalance(accountUIDList, currencyCode, hasDebitNormalBalance, startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Returns the balance of an account including its sub-accounts in the currency of the account, like
+     * {@link org.gnucash.android.db.adapter.AccountsDbAdapter#getAccountBalance(String, long, long)}
+     * @param accountUID GUID of the account
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Balance of the account
+     */
+    public Money getAccountBalance(@NonNull String accountUID, long startTimestamp, long endTimestamp) {
+        int account = getAccountIndex(accountUID);
+        boolean[] selected = new boolean[mAccountUIDs.length];
+        for (int i = 0; i < selected.length; i++) {
+            for (int ancestor = i; ancestor >= 0 && !selected[i]; ancestor = mAccountParents[ancestor]) {
+                selected[i] = ancestor == account;
+            }
+        }
+        MoneyAccumulator total = new MoneyAccumulator(Commodity.getInstance(mCurrencyCodes[mAccountCurrencies[account]]));
+        addBalance(total, selected, mAccountTypes[account].hasDebitNormalBalance(), startTimestamp, endTimestamp);
+        return total.toMoney();
+    }
+
+    /**
+     * Returns the balance of all accounts of some types in the default currency, like
+     * {@link org.gnucash.android.db.adapter.AccountsDbAdapter#getAccountBalance(List, long, long)}
+     * @param accountTypes Types of the accounts
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Balance of the accounts
+     */
+    public Money getAccountBalance(@NonNull List<AccountType> accountTypes, long startTimestamp, long endTimestamp) {
+        MoneyAccumulator total = new MoneyAccumulator(Commodity.getInstance(GnuCashApplication.getDefaultCurrencyCode()));
+        for (AccountType accountType : accountTypes) {
+            boolean[] selected = new boolean[mAccountUIDs.length];
+            for (int i = 0; i < selected.length; i++) {
+                selected[i] = mAccountTypes[i] == accountType;
+            }
+            MoneyAccumulator typeTotal = new MoneyAccumulator(total.getCommodity());
+            addBalance(typeTotal, selected, accountType.hasDebitNormalBalance(), startTimestamp, endTimestamp);
+            total.add(typeTotal.toMoney()); //rounded per type like the database query
+        }
+        return total.toMoney();
+    }
+
+    private int getAccountIndex(String accountUID) {
+        Integer index = mAccountIndexes.get(accountUID);
+        if (index == null)
+            throw new IllegalArgumentException("Account record with UID " + accountUID + " does not exist in the db");
+        return index;
+    }
+
+    /**
+     * Adds the splits of the selected accounts within a time range to a total,
+     * converting the sums of other currencies than that of the total
+     */
+    private void addBalance(MoneyAccumulator total, boolean[] selectedAccounts, boolean hasDebitNormalBalance,
+                            long startTimestamp, long endTimestamp) {
+        for (int i = 0; i < selectedAccounts.length; i++) {
+            if (selectedAccounts[i] && mCurrencyCodes[mAccountCurrencies[i]].equals("XXX"))
+                selectedAccounts[i] = false; //ignore custom currency
+        }
+        long start = startTimestamp == -1 ? Long.MIN_VALUE : startTimestamp;
+        long end = endTimestamp == -1 ? Long.MAX_VALUE : endTimestamp;
+        MoneyAccumulator[] currencySums = new MoneyAccumulator[mCurrencyCodes.length];
+        for (int currency = 0; currency < currencySums.length; currency++) {
+            currencySums[currency] = new MoneyAccumulator(Commodity.getInstance(mCurrencyCodes[currency]));
+        }
+        long[] sums = mSplits.sum(selectedAccounts, mAccountCurrencies, start, end, !hasDebitNormalBalance, currencySums);
+
+        PriceConverter converter = new PriceConverter(total.getCommodity());
+        for (int currency = 0; currency < sums.length; currency++) {
+            long sum = hasDebitNormalBalance ? sums[currency] : -sums[currency];
+            converter.addConverted(total, currencySums[currency].add(sum, mCurrencyFractions[currency]));
+        }
+    }
+
+    /**
+     * Returns the balances of several accounts for several time ranges in the default currency.
+     * <p>The balance of each account and range is the same as that of
+     * {@link #getAccountsBalance(List, long, long)} for the account alone. All balances are computed in one pass
+     * over the splits. For large books, the splits are divided into partitions which are added up by
+     * a thread pool, and the sums of the partitions are added up at the end</p>
+     * @param accountUIDList GUIDs of the accounts. Sub-accounts are not included
+     * @param startTimestamps Start timestamps of the time ranges, or -1 for no lower bound
+     * @param endTimestamps End timestamps of the time ranges, or -1 for no upper bound
+     * @return Balances indexed by account and then by time range
+     */
+    public Money[][] getAccountsBalances(@NonNull List<String> accountUIDList,
+                                        @NonNull long[] startTimestamps, @NonNull long[] endTimestamps) {
+        int partitionCount = Math.max(1, Math.min(THREAD_COUNT, mSplits.mSize / MIN_SPLITS_PER_PARTITION));
+        return getAccountsBalances(accountUIDList, startTimestamps, endTimestamps, partitionCount);
+    }
+
+    /**
+     * Returns the balances of several accounts for several time ranges in the default currency,
+     * adding up the splits in the given number of partitions.
+     * <p>The result does not depend on the number of partitions</p>
+     * @param partitionCount Number of partitions of the splits, at least 1
+     * @see #getAccountsBalances(List, long[], long[])
+     */
+    //made public for testing. Use getAccountsBalances(List, long[], long[]) instead
+    @VisibleForTesting
+    public Money[][] getAccountsBalances(@NonNull List<String> accountUIDList,
+                                        @NonNull long[] startTimestamps, @NonNull long[] endTimestamps,
+                                        int partitionCount) {
+        int periodCount = startTimestamps.length;
+        long[] starts = new long[periodCount];
+        long[] ends = new long[periodCount];
+        for (int p = 0; p < periodCount; p++) {
+            starts[p] = startTimestamps[p] == -1 ? Long.MIN_VALUE : startTimestamps[p];
+            ends[p] = endTimestamps[p] == -1 ? Long.MAX_VALUE : endTimestamps[p];
+        }
+
+        final SumTable table = new SumTable(mAccountUIDs.length, accountUIDList.size(), starts, ends);
+        for (int column = 0; column < accountUIDList.size(); column++) {
+            Integer account = mAccountIndexes.get(accountUIDList.get(column));
+            if (account == null || mCurrencyCodes[mAccountCurrencies[account]].equals("XXX"))
+                continue; //unknown account or custom currency
+            table.mColumns[account] = column;
+            table.mNegated[column] = !mAccountTypes[account].hasDebitNormalBalance();
+            table.mCommodities[column] = Commodity.getInstance(mCurrencyCodes[mAccountCurrencies[account]]);
+            table.mFractions[column] = mCurrencyFractions[mAccountCurrencies[account]];
+        }
+
+        int size = mSplits.mSize;
+        int sumCount = accountUIDList.size() * periodCount;
+        List<Future<long[]>> partitions = new ArrayList<>(partitionCount - 1);
+        List<MoneyAccumulator[]> partitionFractionalSums = new ArrayList<>(partitionCount - 1);
+        for (int i = 1; i < partitionCount; i++) {
+            final int from = (int) ((long) size * i / partitionCount);
+            final int to = (int) ((long) size * (i + 1) / partitionCount);
+            final MoneyAccumulator[] fractionalSums = new MoneyAccumulator[sumCount];
+            partitionFractionalSums.add(fractionalSums);
+            partitions.add(getExecutor().submit(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    return mSplits.sum(from, to, table, fractionalSums);
+                }
+            }));
+        }
+        MoneyAccumulator[] fractionalSums = new MoneyAccumulator[sumCount];
+        long[] sums = mSplits.sum(0, size / partitionCount, table, fractionalSums);
+        for (int partition = 0; partition < partitions.size(); partition++) {
+            long[] partitionSums = getUninterruptibly(partitions.get(partition));
+            MoneyAccumulator[] partitionFractions = partitionFractionalSums.get(partition);
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += partitionSums[i];
+                if (partitionFractions[i] == null)
+                    continue;
+                if (fractionalSums[i] == null)
+                    fractionalSums[i] = partitionFractions[i];
+                else
+                    fractionalSums[i].add(partitionFractions[i]);
+            }
+        }
+
+        Commodity currency = Commodity.getInstance(GnuCashApplication.getDefaultCurrencyCode());
+        PriceConverter converter = new PriceConverter(currency);
+        Money[][] balances = new Money[accountUIDList.size()][periodCount];
+        for (int column = 0; column < balances.length; column++) {
+            for (int p = 0; p < periodCount; p++) {
+                MoneyAccumulator balance = new MoneyAccumulator(currency);
+                int index = column * periodCount + p;
+                long sum = sums[index];
+                if (sum != 0 || fractionalSums[index] != null) {
+                    MoneyAccumulator columnSum = fractionalSums[index] != null
+                            ? fractionalSums[index] : new MoneyAccumulator(table.mCommodities[column]);
+                    converter.addConverted(balance,
+                            columnSum.add(table.mNegated[column] ? -sum : sum, table.mFractions[column]));
+                }
+                balances[column][p] = balance.toMoney();
+            }
+        }
+        return balances;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(Math.max(1, THREAD_COUNT - 1), new ThreadFactory() {
+                private int mThreadCount;
+
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "BookSnapshot #" + ++mThreadCount);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * Waits for the sums of a partition. The partitions take only milliseconds,
+     * so the calling thread keeps waiting if it is interrupted and is interrupted again afterwards
+     */
+    private static long[] getUninterruptibly(Future<long[]> partition) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return partition.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds sums to a total in another currency, with the latest price between the currencies
+     */
+    private static final class PriceConverter {
+        private final Commodity mCurrency;
+        private CommoditiesDbAdapter mCommoditiesDbAdapter;
+        private PricesDbAdapter mPricesDbAdapter;
+        private String mCurrencyUID;
+        private final Map<String, Pair<Long, Long>> mPrices = new HashMap<>();
+
+        PriceConverter(Commodity currency) {
+            mCurrency = currency;
+        }
+
+        void addConverted(MoneyAccumulator total, MoneyAccumulator sum) {
+            if (sum.isZero())
+                return;
+            String currencyCode = sum.getCommodity().getCurrencyCode();
+            if (currencyCode.equals(mCurrency.getCurrencyCode())) {
+                total.add(sum);
+                return;
+            }
+
+            Pair<Long, Long> price = mPrices.get(currencyCode);
+            if (price == null) {
+                if (mCommoditiesDbAdapter == null) {
+                    mCommoditiesDbAdapter = CommoditiesDbAdapter.getInstance();
+                    mPricesDbAdapter = PricesDbAdapter.getInstance();
+                    mCurrencyUID = mCommoditiesDbAdapter.getCommodityUID(mCurrency.getCurrencyCode());
+                }
+                String commodityUID = mCommoditiesDbAdapter.getCommodityUID(currencyCode);
+                price = mPricesDbAdapter.getPrice(commodityUID, mCurrencyUID);
+                mPrices.put(currencyCode, price);
+            }
+            if (price.first <= 0 || price.second <= 0) {
+                // no price exists, just ignore it
+                return;
+            }
+            BigDecimal amountConverted = sum.asBigDecimal().multiply(new BigDecimal(price.first))
+                    .divide(new BigDecimal(price.second), mCurrency.getSmallestFractionDigits(),
+                            BigDecimal.ROUND_HALF_EVEN);
+            total.add(new Money(amountConverted, mCurrency));
+        }
+    }
+
+    /**
+     * Layout of the sums of {@link #getAccountsBalances(List, long[], long[])}:
+     * one sum per selected account (column) and time range
+     */
+    private static final class SumTable {
+        /**
+         * Column of each account of the snapshot, or -1 if the account is not selected
+         */
+        final int[] mColumns;
+        /**
+         * Whether the sums of each column are negated, because the account does not have a debit normal balance
+         */
+        final boolean[] mNegated;
+        final Commodity[] mCommodities;
+        final long[] mFractions;
+        final long[] mStarts;
+        final long[] mEnds;
+
+        SumTable(int accountCount, int columnCount, long[] starts, long[] ends) {
+            mColumns = new int[accountCount];
+            Arrays.fill(mColumns, -1);
+            mNegated = new boolean[columnCount];
+            mCommodities = new Commodity[columnCount];
+            mFractions = new long[columnCount];
+            mStarts = starts;
+            mEnds = ends;
+        }
+    }
+
+    /**
+     * Parallel arrays of splits. Only modified while the snapshot is built
+     */
+    private static final class Splits {
+        private int[] mAccounts;
+        private long[] mTimestamps;
+        /**
+         * Quantity amounts in units of the smallest fraction of the commodity of the account,
+         * debits being positive and credits negative. For the splits with a denominator, the quantity numerator
+         */
+        private long[] mAmounts;
+        /**
+         * Denominators of the quantities which are finer than the smallest fraction of the commodity
+         * of the account, and 0 for all other splits
+         */
+        private long[] mDenominators;
+        private long[] mTransactions;
+
+        /**
+         * Number of splits including removed ones
+         */
+        private int mSize;
+
+        /**
+         * Number of removed splits, whose account index is -1
+         */
+        private int mRemovedCount;
+
+        Splits(int capacity) {
+            mAccounts = new int[capacity];
+            mTimestamps = new long[capacity];
+            mAmounts = new long[capacity];
+            mDenominators = new long[capacity];
+            mTransactions = new long[capacity];
+        }
+
+        int getLiveCount() {
+            return mSize - mRemovedCount;
+        }
+
+        /**
+         * Returns a copy without the splits of some transactions. The splits are removed
+         * by marking them, unless there are more removed than remaining splits
+         */
+        Splits copyWithout(Set<Long> transactionKeys) {
+            int removedCount = mRemovedCount;
+            boolean[] removed = new boolean[mSize];
+            for (int i = 0; i < mSize; i++) {
+                if (mAccounts[i] >= 0 && transactionKeys.contains(mTransactions[i])) {
+                    removed[i] = true;
+                    removedCount++;
+                }
+            }
+
+            if (removedCount * 2 > mSize)
+                return compact(removed, removedCount);
+
+            Splits copy = new Splits(0);
+            copy.mAccounts = Arrays.copyOf(mAccounts, mSize);
+            copy.mTimestamps = Arrays.copyOf(mTimestamps, mSize);
+            copy.mAmounts = Arrays.copyOf(mAmounts, mSize);
+            copy.mDenominators = Arrays.copyOf(mDenominators, mSize);
+            copy.mTransactions = Arrays.copyOf(mTransactions, mSize);
+            copy.mSize = mSize;
+            copy.mRemovedCount = removedCount;
+            for (int i = 0; i < mSize; i++) {
+                if (removed[i])
+                    copy.mAccounts[i] = -1;
+            }
+            return copy;
+        }
+
+        /**
+         * Returns a copy without removed splits
+         */
+        Splits compact() {
+            return compact(new boolean[mSize], mRemovedCount);
+        }
+
+        private Splits compact(boolean[] removed, int removedCount) {
+            Splits copy = new Splits(mSize - removedCount);
+            for (int i = 0; i < mSize; i++) {
+                if (mAccounts[i] < 0 || removed[i])
+                    continue;
+                int j = copy.mSize++;
+                copy.mAccounts[j] = mAccounts[i];
+                copy.mTimestamps[j] = mTimestamps[i];
+                copy.mAmounts[j] = mAmounts[i];
+                copy.mDenominators[j] = mDenominators[i];
+                copy.mTransactions[j] = mTransactions[i];
+            }
+            return copy;
+        }
+
+        /**
+         * Appends the splits of a cursor of {@link #SPLITS_QUERY} and closes it
+         * @param accountFractions Smallest fraction of the currency of each account
+         */
+        void read(Cursor cursor, Map<String, Integer> accountIndexes, long[] accountFractions) {
+            try {
+                ensureCapacity(mSize + cursor.getCount());
+                while (cursor.moveToNext()) {
+                    Integer account = accountIndexes.get(cursor.getString(0));
+                    if (account == null)
+                        continue;
+                    int i = mSize++;
+                    mAccounts[i] = account;
+                    mTimestamps[i] = cursor.getLong(1);
+                    long denominator = cursor.getLong(5);
+                    if (denominator > 0 && accountFractions[account] % denominator != 0) {
+                        mAmounts[i] = cursor.getLong(4);
+                        mDenominators[i] = denominator;
+                    } else {
+                        mAmounts[i] = cursor.getLong(2);
+                        mDenominators[i] = 0;
+                    }
+                    mTransactions[i] = transactionKey(cursor.getString(3));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= mAccounts.length)
+                return;
+            mAccounts = Arrays.copyOf(mAccounts, capacity);
+            mTimestamps = Arrays.copyOf(mTimestamps, capacity);
+            mAmounts = Arrays.copyOf(mAmounts, capacity);
+            mDenominators = Arrays.copyOf(mDenominators, capacity);
+            mTransactions = Arrays.copyOf(mTransactions, capacity);
+        }
+
+        /**
+         * Adds up the splits of a range of indexes for the columns and time ranges of a table
+         * @param fractionalSums Receives the sums of the quantities finer than the smallest fraction,
+         *                       already negated for the negated columns. The sums are created when needed
+         * @return Sums by column and then by time range, in units of the smallest fraction of each column
+         */
+        long[] sum(int from, int to, SumTable table, MoneyAccumulator[] fractionalSums) {
+            int periodCount = table.mStarts.length;
+            long[] sums = new long[table.mCommodities.length * periodCount];
+            for (int i = from; i < to; i++) {
+                int account = mAccounts[i];
+                if (account < 0)
+                    continue;
+                int column = table.mColumns[account];
+                if (column < 0)
+                    continue;
+
+                long timestamp = mTimestamps[i];
+                long denominator = mDenominators[i];
+                for (int p = 0; p < periodCount; p++) {
+                    if (timestamp < table.mStarts[p] || timestamp > table.mEnds[p])
+                        continue;
+                    int index = column * periodCount + p;
+                    if (denominator == 0) {
+                        sums[index] += mAmounts[i];
+                        continue;
+                    }
+                    if (fractionalSums[index] == null)
+                        fractionalSums[index] = new MoneyAccumulator(table.mCommodities[column]);
+                    if (table.mNegated[column])
+                        fractionalSums[index].subtract(mAmounts[i], denominator);
+                    else
+                        fractionalSums[index].add(mAmounts[i], denominator);
+                }
+            }
+            return sums;
+        }
+
+        /**
+         * Adds up the splits of the selected accounts within a time range
+         * @param negated Whether the quantities finer than the smallest fraction are subtracted
+         * @param fractionalSums Receives the sums of the quantities finer than the smallest fraction, by currency index
+         * @return Sums by currency index, in units of the smallest fraction of each currency
+         */
+        long[] sum(boolean[] selectedAccounts, int[] accountCurrencies, long start, long end,
+                   boolean negated, MoneyAccumulator[] fractionalSums) {
+            long[] sums = new long[fractionalSums.length];
+            for (int i = 0; i < mSize; i++) {
+                int account = mAccounts[i];
+                if (account < 0 || !selectedAccounts[account])
+                    continue;
+                long timestamp = mTimestamps[i];
+                if (timestamp < start || timestamp > end)
+                    continue;
+                long denominator = mDenominators[i];
+                if (denominator == 0)
+                    sums[accountCurrencies[account]] += mAmounts[i];
+                else if (negated)
+                    fractionalSums[accountCurrencies[account]].subtract(mAmounts[i], denominator);
+                else
+                    fractionalSums[accountCurrencies[account]].add(mAmounts[i], denominator);
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes a change of the data in the database, for listeners which only need to refresh
+ * when the data they display has changed.
+ * <p>A change records the tables which were written, the accounts whose transactions or balances
+ * may have changed and the transactions which were written, if they are known.
+ * When the affected accounts are not known, the change affects all accounts.</p>
+ * @see DatabaseChangeNotifier
+ */
+public final class DatabaseChange {
+
+    private final Set<String> mTables;
+
+    /**
+     * GUIDs of the affected accounts, or {@code null} if all accounts may be affected
+     */
+    private final Set<String> mAccountUIDs;
+
+    private final Set<String> mTransactionUIDs;
+
+    private DatabaseChange(@NonNull Set<String> tables, @Nullable Set<String> accountUIDs,
+                           @NonNull Set<String> transactionUIDs) {
+        mTables = Collections.unmodifiableSet(tables);
+        mAccountUIDs = accountUIDs == null ? null : Collections.unmodifiableSet(accountUIDs);
+        mTransactionUIDs = Collections.unmodifiableSet(transactionUIDs);
+    }
+
+    /**
+     * Creates a change of a table which may affect all accounts
+     * @param tableName Name of the table
+     * @return Database change
+     */
+    public static DatabaseChange ofTable(@NonNull String tableName) {
+        return new DatabaseChange(Collections.singleton(tableName), null, Collections.<String>emptySet());
+    }
+
+    /**
+     * Creates a change of a table which affects only some accounts
+     * @param tableName Name of the table
+     * @param accountUIDs GUIDs of the affected accounts
+     * @return Database change
+     */
+    public static DatabaseChange ofAccounts(@NonNull String tableName, @NonNull Collection<String> accountUIDs) {
+        return new DatabaseChange(Collections.singleton(tableName), withoutNull(accountUIDs),
+                Collections.<String>emptySet());
+    }
+
+    /**
+     * Creates a change of a transaction
+     * @param tableName Name of the table
+     * @param transactionUID GUID of the transaction
+     * @param accountUIDs GUIDs of the accounts of the splits of the transaction, before and after the change
+     * @return Database change
+     */
+    public static DatabaseChange ofTransaction(@NonNull String tableName, @NonNull String transactionUID,
+                                               @NonNull Collection<String> accountUIDs) {
+        return new DatabaseChange(Collections.singleton(tableName), withoutNull(accountUIDs),
+                Collections.singleton(transactionUID));
+    }
+
+    /**
+     * Creates a change of several transactions
+     * @param tableName Name of the table
+     * @param transactionUIDs GUIDs of the transactions
+     * @param accountUIDs GUIDs of the accounts of the splits of the transactions, before and after the change
+     * @return Database change
+     */
+    public static DatabaseChange ofTransactions(@NonNull String tableName, @NonNull Collection<String> transactionUIDs,
+                                                @NonNull Collection<String> accountUIDs) {
+        return new DatabaseChange(Collections.singleton(tableName), withoutNull(accountUIDs),
+                new HashSet<>(transactionUIDs));
+    }
+
+    private static Set<String> withoutNull(Collection<String> uids) {
+        Set<String> set = new HashSet<>(uids);
+        set.remove(null);
+        return set;
+    }
+
+    /**
+     * Combines this change with another one
+     * @param other Other change
+     * @return Change which affects everything affected by either change
+     */
+    public DatabaseChange merge(@NonNull DatabaseChange other) {
+        Set<String> tables = new HashSet<>(mTables);
+        tables.addAll(other.mTables);
+
+        Set<String> accountUIDs = null;
+        if (mAccountUIDs != null && other.mAccountUIDs != null) {
+            accountUIDs = new HashSet<>(mAccountUIDs);
+            accountUIDs.addAll(other.mAccountUIDs);
+        }
+
+        Set<String> transactionUIDs = new HashSet<>(mTransactionUIDs);
+        transactionUIDs.addAll(other.mTransactionUIDs);
+        return new DatabaseChange(tables, accountUIDs, transactionUIDs);
+    }
+
+    /**
+     * Returns the names of the changed tables
+     * @return Set of table names
+     */
+    public Set<String> getTables() {
+        return mTables;
+    }
+
+    /**
+     * Checks if a table was changed
+     * @param tableName Name of the table
+     * @return {@code true} if the table was changed
+     */
+    public boolean affectsTable(@NonNull String tableName) {
+        return mTables.contains(tableName);
+    }
+
+    /**
+     * Checks if the affected accounts are unknown, so that all accounts have to be considered changed
+     * @return {@code true} if all accounts may be affected
+     */
+    public boolean affectsAllAccounts() {
+        return mAccountUIDs == null;
+    }
+
+    /**
+     * Returns the GUIDs of the affected accounts
+     * @return Set of account GUIDs, empty if all accounts may be affected
+     * @see #affectsAllAccounts()
+     */
+    public Set<String> getAccountUIDs() {
+        return mAccountUIDs == null ? Collections.<String>emptySet() : mAccountUIDs;
+    }
+
+    /**
+     * Checks if an account may be affected by the change
+     * @param accountUID GUID of the account
+     * @return {@code true} if the account is affected
+     */
+    public boolean affectsAccount(@NonNull String accountUID) {
+        return mAccountUIDs == null || mAccountUIDs.contains(accountUID);
+    }
+
+    /**
+     * Checks if any one of some accounts may be affected by the change
+     * @param accountUIDs GUIDs of the accounts
+     * @return {@code true} if at least one of the accounts is affected
+     */
+    public boolean affectsAnyAccount(@NonNull Collection<String> accountUIDs) {
+        if (mAccountUIDs == null)
+            return true;
+        for (String accountUID : accountUIDs) {
+            if (mAccountUIDs.contains(accountUID))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the GUIDs of the transactions which are known to be changed
+     * @return Set of transaction GUIDs
+     */
+    public Set<String> getTransactionUIDs() {
+        return mTransactionUIDs;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseChange{tables=" + mTables
+                + ", accounts=" + (mAccountUIDs == null ? "all" : mAccountUIDs.size())
+                + ", transactions=" + mTransactionUIDs.size() + "}";
+    }
+
+    /**
+     * Listener for changes of the database
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread after the database has been changed
+         * @param change Description of the change
+         */
+        void onDatabaseChanged(@NonNull DatabaseChange change);
+    }
+}
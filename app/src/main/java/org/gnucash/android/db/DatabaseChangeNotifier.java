@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes changes of the database to the registered listeners.
+ * <p>Changes are published by the database adapters from any thread. They are delivered to the listeners
+ * on the main thread, and all changes published before the listeners are called are merged into one,
+ * so that writing a transaction with its splits causes only one notification.</p>
+ * <p>Changes published inside a database transaction started with {@link #beginTransaction(SQLiteDatabase)}
+ * are held back until the transaction has been committed, and dropped if it is rolled back.</p>
+ * @see DatabaseChange
+ */
+public final class DatabaseChangeNotifier {
+
+    private static final CopyOnWriteArrayList<DatabaseChange.Listener> sListeners = new CopyOnWriteArrayList<>();
+
+    private static final Object sLock = new Object();
+
+    /**
+     * Change which was published but not yet delivered
+     */
+    private static DatabaseChange sPendingChange;
+
+    private static final Runnable sDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            DatabaseChange change;
+            synchronized (sLock) {
+                change = sPendingChange;
+                sPendingChange = null;
+            }
+            if (change == null)
+                return;
+            for (DatabaseChange.Listener listener : sListeners) {
+                listener.onDatabaseChanged(change);
+            }
+        }
+    };
+
+    /**
+     * Outermost database transaction of the current thread started with {@link #beginTransaction(SQLiteDatabase)}
+     */
+    private static final ThreadLocal<PendingTransaction> sTransactions = new ThreadLocal<>();
+
+    /**
+     * Database transaction with the changes published inside it
+     */
+    private static final class PendingTransaction implements SQLiteTransactionListener {
+        final SQLiteDatabase mDb;
+        DatabaseChange mChange;
+        boolean mCommitted;
+
+        PendingTransaction(SQLiteDatabase db) {
+            mDb = db;
+        }
+
+        @Override
+        public void onBegin() {
+            //nothing to do
+        }
+
+        @Override
+        public void onCommit() {
+            mCommitted = true;
+        }
+
+        @Override
+        public void onRollback() {
+            mCommitted = false;
+        }
+    }
+
+    private DatabaseChangeNotifier() {
+        //prevent instantiation
+    }
+
+    /**
+     * Registers a listener for database changes. Registering the same listener again has no effect
+     * @param listener Listener to be notified
+     */
+    public static void registerListener(@NonNull DatabaseChange.Listener listener) {
+        sListeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Unregisters a listener for database changes
+     * @param listener Listener which should no longer be notified
+     */
+    public static void unregisterListener(@NonNull DatabaseChange.Listener listener) {
+        sListeners.remove(listener);
+    }
+
+    /**
+     * Begins a transaction on {@code db}, like {@link SQLiteDatabase#beginTransaction()}.
+     * <p>If it is the outermost transaction of the thread, the changes published for {@code db}
+     * are only delivered after {@link #endTransaction(SQLiteDatabase)} has committed it</p>
+     * @param db Database on which to begin the transaction
+     */
+    public static void beginTransaction(@NonNull SQLiteDatabase db) {
+        if (db.inTransaction()) {
+            db.beginTransaction();
+            return;
+        }
+        PendingTransaction transaction = new PendingTransaction(db);
+        db.beginTransactionWithListener(transaction);
+        sTransactions.set(transaction);
+    }
+
+    /**
+     * Ends a transaction on {@code db}, like {@link SQLiteDatabase#endTransaction()}.
+     * <p>When the outermost transaction started with {@link #beginTransaction(SQLiteDatabase)} ends,
+     * the changes published inside it are delivered if it was committed, and dropped otherwise</p>
+     * @param db Database on which to end the transaction
+     */
+    public static void endTransaction(@NonNull SQLiteDatabase db) {
+        boolean ended = false;
+        try {
+            db.endTransaction();
+            ended = true;
+        } finally {
+            PendingTransaction transaction = sTransactions.get();
+            if (transaction != null && transaction.mDb == db && !db.inTransaction()) {
+                sTransactions.remove();
+                if (ended && transaction.mCommitted && transaction.mChange != null)
+                    publish(transaction.mChange);
+            }
+        }
+    }
+
+    /**
+     * Publishes a change of {@code db}. The listeners are notified later on the main thread.
+     * <p>Inside a transaction started with {@link #beginTransaction(SQLiteDatabase)}, the change is only
+     * published once the transaction has been committed</p>
+     * @param db Database which was changed
+     * @param change Description of the change
+     */
+    public static void notifyChange(@NonNull SQLiteDatabase db, @NonNull DatabaseChange change) {
+        PendingTransaction transaction = sTransactions.get();
+        if (transaction != null && transaction.mDb == db) {
+            transaction.mChange = transaction.mChange == null ? change : transaction.mChange.merge(change);
+            return;
+        }
+        publish(change);
+    }
+
+    /**
+     * Schedules the delivery of {@code change} to the listeners on the main thread
+     * @param change Description of the change
+     */
+    private static void publish(@NonNull DatabaseChange change) {
+        if (sListeners.isEmpty())
+            return;
+
+        synchronized (sLock) {
+            boolean isScheduled = sPendingChange != null;
+            sPendingChange = isScheduled ? sPendingChange.merge(change) : change;
+            if (isScheduled)
+                return;
+        }
+        new Handler(Looper.getMainLooper()).post(sDispatcher);
+    }
+}
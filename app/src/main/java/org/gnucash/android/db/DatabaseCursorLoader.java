@@ -18,6 +18,7 @@ package org.gnucash.android.db;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.support.annotation.NonNull;
 import android.support.v4.content.AsyncTaskLoader;
 import android.support.v4.content.Loader;
 
@@ -29,6 +30,8 @@ import org.gnucash.android.db.adapter.DatabaseAdapter;
  * {@link #loadInBackground()} method to load the particular records from the database.
  * Ideally, the database has {@link DatabaseAdapter} which is used for managing access to the
  * records from the database
+ * <p>Subclasses can override {@link #isAffectedBy(DatabaseChange)} to be reloaded automatically
+ * when the records they load are changed in the database.</p>
  * @author Ngewi Fet <ngewif@gmail.com>
  * @see DatabaseAdapter
  */
@@ -50,6 +53,17 @@ public abstract class DatabaseCursorLoader extends AsyncTaskLoader<Cursor> {
 	 * your cursor using {@link #registerContentObserver(Cursor)}
 	 */
 	protected final Loader.ForceLoadContentObserver mObserver;
+
+	/**
+	 * Listener which reloads the data when a change of the database affects it
+	 */
+	private final DatabaseChange.Listener mChangeListener = new DatabaseChange.Listener() {
+		@Override
+		public void onDatabaseChanged(@NonNull DatabaseChange change) {
+			if (isAffectedBy(change))
+				onContentChanged();
+		}
+	};
 	
 	/**
 	 * Constructor
@@ -66,6 +80,18 @@ public abstract class DatabaseCursorLoader extends AsyncTaskLoader<Cursor> {
 	 */
 	public abstract Cursor loadInBackground();
 
+	/**
+	 * Checks if a change of the database affects the records loaded by this loader.
+	 * If it does, the records are loaded again.
+	 * <p>This method is called on the main thread and should not access the database.
+	 * By default, the loader is not reloaded on database changes</p>
+	 * @param change Description of the change
+	 * @return {@code true} if the loader should be reloaded, {@code false} otherwise
+	 */
+	protected boolean isAffectedBy(@NonNull DatabaseChange change) {
+		return false;
+	}
+
 	/**
 	 * Registers the content observer for the cursor. 
 	 * @param cursor {@link Cursor} whose content is to be observed for changes
@@ -97,6 +123,7 @@ public abstract class DatabaseCursorLoader extends AsyncTaskLoader<Cursor> {
 
 	@Override
 	protected void onStartLoading() {
+		DatabaseChangeNotifier.registerListener(mChangeListener);
 		if (mCursor != null){
 			deliverResult(mCursor);
 		}
@@ -127,6 +154,7 @@ public abstract class DatabaseCursorLoader extends AsyncTaskLoader<Cursor> {
 		super.onReset();
 		
 		onStopLoading();
+		DatabaseChangeNotifier.unregisterListener(mChangeListener);
 
         // At this point we can release the resources associated with 'mCursor'
         // if needed.
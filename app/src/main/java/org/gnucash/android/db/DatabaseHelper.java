@@ -43,7 +43,9 @@ import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
 import static org.gnucash.android.db.DatabaseSchema.RecurrenceEntry;
 import static org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitSearchEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionSearchEntry;
 /**
  * Helper class for managing the SQLite database.
  * Creates the database and handles upgrades
@@ -113,6 +115,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + SplitEntry.COLUMN_VALUE_DENOM     + " integer not null, "
             + SplitEntry.COLUMN_QUANTITY_NUM    + " integer not null, "
             + SplitEntry.COLUMN_QUANTITY_DENOM  + " integer not null, "
+            + SplitEntry.COLUMN_VALUE_AMOUNT    + " integer not null default 0, "
+            + SplitEntry.COLUMN_QUANTITY_AMOUNT + " integer not null default 0, "
             + SplitEntry.COLUMN_ACCOUNT_UID 	+ " varchar(255) not null, "
             + SplitEntry.COLUMN_TRANSACTION_UID + " varchar(255) not null, "
             + SplitEntry.COLUMN_RECONCILE_STATE + " varchar(1) not null default 'n', "
@@ -229,6 +233,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 	 */
 	public DatabaseHelper(Context context, String databaseName){
 		super(context, databaseName, null, DatabaseSchema.DATABASE_VERSION);
+        //readers use their own connections and are not blocked by writes
+        setWriteAheadLoggingEnabled(true);
 
 	}
 
@@ -247,6 +253,207 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + "  END;";
     }
 
+    /**
+     * Creates the statements for the full-text index of the transactions and the triggers which maintain it.
+     * <p>Rows which are replaced with {@code INSERT OR REPLACE} do not fire delete triggers,
+     * so the entries of replaced transactions are removed by GUID when the new row is inserted</p>
+     * @return SQL statements to be executed in order
+     */
+    static String[] createTransactionSearchTableAndTriggers(){
+        String fts = TransactionSearchEntry.TABLE_NAME;
+        String columns = TransactionSearchEntry.COLUMN_UID + ", "
+                + TransactionSearchEntry.COLUMN_DESCRIPTION + ", "
+                + TransactionSearchEntry.COLUMN_NOTES;
+        String newValues = "NEW." + TransactionEntry.COLUMN_UID + ", "
+                + "NEW." + TransactionEntry.COLUMN_DESCRIPTION + ", "
+                + "NEW." + TransactionEntry.COLUMN_NOTES;
+        return new String[]{
+                "CREATE VIRTUAL TABLE " + fts + " USING fts4(" + columns + ")",
+
+                "CREATE TRIGGER transactions_fts_insert_trigger AFTER INSERT ON " + TransactionEntry.TABLE_NAME
+                        + " FOR EACH ROW BEGIN "
+                        + "DELETE FROM " + fts + " WHERE " + fts + " MATCH ('" + TransactionSearchEntry.COLUMN_UID
+                        + ":' || NEW." + TransactionEntry.COLUMN_UID + "); "
+                        + "INSERT INTO " + fts + "(docid, " + columns + ") VALUES (NEW." + TransactionEntry._ID + ", " + newValues + "); "
+                        + "END;",
+
+                "CREATE TRIGGER transactions_fts_update_trigger AFTER UPDATE OF "
+                        + TransactionEntry.COLUMN_DESCRIPTION + ", " + TransactionEntry.COLUMN_NOTES
+                        + " ON " + TransactionEntry.TABLE_NAME + " FOR EACH ROW BEGIN "
+                        + "UPDATE " + fts + " SET "
+                        + TransactionSearchEntry.COLUMN_DESCRIPTION + " = NEW." + TransactionEntry.COLUMN_DESCRIPTION + ", "
+                        + TransactionSearchEntry.COLUMN_NOTES + " = NEW." + TransactionEntry.COLUMN_NOTES
+                        + " WHERE docid = NEW." + TransactionEntry._ID + "; "
+                        + "END;",
+
+                "CREATE TRIGGER transactions_fts_delete_trigger AFTER DELETE ON " + TransactionEntry.TABLE_NAME
+                        + " FOR EACH ROW BEGIN "
+                        + "DELETE FROM " + fts + " WHERE docid = OLD." + TransactionEntry._ID + "; "
+                        + "END;"
+        };
+    }
+
+    /**
+     * Creates the statements for the full-text index of the split memos and the triggers which maintain it.
+     * <p>Splits are saved with {@code INSERT OR REPLACE} too, so the entries are removed by GUID
+     * when the new row is inserted, as in {@link #createTransactionSearchTableAndTriggers()}</p>
+     * @return SQL statements to be executed in order
+     */
+    static String[] createSplitSearchTableAndTriggers(){
+        String fts = SplitSearchEntry.TABLE_NAME;
+        String columns = SplitSearchEntry.COLUMN_UID + ", " + SplitSearchEntry.COLUMN_MEMO;
+        return new String[]{
+                "CREATE VIRTUAL TABLE " + fts + " USING fts4(" + columns + ")",
+
+                "CREATE TRIGGER splits_fts_insert_trigger AFTER INSERT ON " + SplitEntry.TABLE_NAME
+                        + " FOR EACH ROW BEGIN "
+                        + "DELETE FROM " + fts + " WHERE " + fts + " MATCH ('" + SplitSearchEntry.COLUMN_UID
+                        + ":' || NEW." + SplitEntry.COLUMN_UID + "); "
+                        + "INSERT INTO " + fts + "(docid, " + columns + ") VALUES (NEW." + SplitEntry._ID + ", "
+                        + "NEW." + SplitEntry.COLUMN_UID + ", NEW." + SplitEntry.COLUMN_MEMO + "); "
+                        + "END;",
+
+                "CREATE TRIGGER splits_fts_update_trigger AFTER UPDATE OF " + SplitEntry.COLUMN_MEMO
+                        + " ON " + SplitEntry.TABLE_NAME + " FOR EACH ROW BEGIN "
+                        + "UPDATE " + fts + " SET " + SplitSearchEntry.COLUMN_MEMO + " = NEW." + SplitEntry.COLUMN_MEMO
+                        + " WHERE docid = NEW." + SplitEntry._ID + "; "
+                        + "END;",
+
+                "CREATE TRIGGER splits_fts_delete_trigger AFTER DELETE ON " + SplitEntry.TABLE_NAME
+                        + " FOR EACH ROW BEGIN "
+                        + "DELETE FROM " + fts + " WHERE docid = OLD." + SplitEntry._ID + "; "
+                        + "END;"
+        };
+    }
+
+    /**
+     * Creates the statements for the indexes used for searching splits by amount
+     * @return SQL statements to be executed in order
+     */
+    static String[] createSplitAmountIndexes(){
+        return new String[]{
+                "CREATE INDEX '" + SplitEntry.INDEX_VALUE_NUM + "' ON "
+                        + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_VALUE_NUM + ")",
+                "CREATE INDEX '" + SplitEntry.INDEX_QUANTITY_NUM + "' ON "
+                        + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_QUANTITY_NUM + ")"
+        };
+    }
+
+    /**
+     * Creates the statements for the views which combine transactions, splits and accounts for the queries of the adapters.
+     * <p>The views are stored in the database instead of being created as temporary views by each adapter,
+     * because temporary views only exist in one connection, and reads use any connection of the pool</p>
+     * @return SQL statements to be executed in order
+     */
+    static String[] createViews(){
+        //the multiplication by 1.0 is to cause sqlite to handle the value as REAL and not to round off
+
+        // create a view, combining accounts, transactions and splits, as this is often used
+        // in the queries
+
+        //todo: would it be useful to add the split reconciled_state and reconciled_date to this view?
+        String createTransSplitAcctView = "CREATE VIEW IF NOT EXISTS trans_split_acct AS SELECT "
+                        + TransactionEntry.TABLE_NAME + "." + CommonColumns.COLUMN_MODIFIED_AT + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + CommonColumns.COLUMN_MODIFIED_AT + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_DESCRIPTION + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_DESCRIPTION + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_NOTES + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_NOTES + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_CURRENCY + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_CURRENCY + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_EXPORTED + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_EXPORTED + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " , "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_COMMODITY_UID + " AS "
+                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_COMMODITY_UID + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_UID + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_NUM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_NUM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_DENOM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_DENOM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_AMOUNT + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_AMOUNT + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_AMOUNT + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_AMOUNT + " , "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_MEMO + " AS "
+                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_MEMO + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_NAME + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_NAME + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PLACEHOLDER + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PLACEHOLDER + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_COLOR_CODE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_COLOR_CODE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FAVORITE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FAVORITE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FULL_NAME + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FULL_NAME + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_TYPE + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_TYPE + " , "
+                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " AS "
+                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
+                        + " FROM " + TransactionEntry.TABLE_NAME + " , " + SplitEntry.TABLE_NAME + " ON "
+                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + "=" + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
+                        + " , " + AccountEntry.TABLE_NAME + " ON "
+                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + "=" + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID;
+
+        // SELECT transactions_uid AS trans_acct_t_uid ,
+        //      SUBSTR (
+        //          MIN (
+        //              ( CASE WHEN IFNULL ( splits_memo , '' ) == '' THEN 'a' ELSE 'b' END ) || accounts_uid
+        //          ) ,
+        //          2
+        //      ) as trans_acct_a_uid ,
+        //   SUM ( splits_value_amount ) * 1.0 / commodities.fraction AS trans_acct_balance,
+        //   COUNT ( DISTINCT accounts_currency ) as trans_currency_count
+        //   FROM trans_split_acct LEFT JOIN commodities ON commodities.uid = transactions_commodity_uid
+        //   GROUP BY transactions_uid
+        //
+        // This view would pick one Account_UID for each
+        // Transaction, which can be used to order all transactions. If possible, account_uid of a split whose
+        // memo is null is select.
+        //
+        // Transaction balance is also picked out by this view
+        //
+        // a split without split memo is chosen if possible, in the following manner:
+        //   if the splits memo is null or empty string, attach an 'a' in front of the split account uid,
+        //   if not, attach a 'b' to the split account uid
+        //   pick the minimal value of the modified account uid (one of the ones begins with 'a', if exists)
+        //   use substr to get account uid
+
+        String createTransExtraInfoView = "CREATE VIEW IF NOT EXISTS trans_extra_info AS SELECT " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID +
+                " AS trans_acct_t_uid , SUBSTR ( MIN ( ( CASE WHEN IFNULL ( " + SplitEntry.TABLE_NAME + "_" +
+                SplitEntry.COLUMN_MEMO + " , '' ) == '' THEN 'a' ELSE 'b' END ) || " +
+                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID +
+                " ) , 2 ) AS trans_acct_a_uid , SUM ( " + SplitEntry.TABLE_NAME + "_" +
+                SplitEntry.COLUMN_VALUE_AMOUNT + " ) * 1.0 / " + CommodityEntry.TABLE_NAME + "." +
+                CommodityEntry.COLUMN_SMALLEST_FRACTION + " AS trans_acct_balance , COUNT ( DISTINCT " +
+                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY +
+                " ) AS trans_currency_count , COUNT (*) AS trans_split_count FROM trans_split_acct " +
+                " LEFT JOIN " + CommodityEntry.TABLE_NAME + " ON " + CommodityEntry.TABLE_NAME + "." +
+                CommodityEntry.COLUMN_UID + " = " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_COMMODITY_UID +
+                " GROUP BY " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID;
+
+        return new String[]{createTransSplitAcctView, createTransExtraInfoView};
+    }
+
 	@Override
 	public void onCreate(SQLiteDatabase db) {
 		createDatabaseTables(db);
@@ -256,7 +463,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onOpen(SQLiteDatabase db) {
         super.onOpen(db);
-        db.execSQL("PRAGMA foreign_keys=ON");
+        //not in onConfigure: the migrations rename and drop parent tables, which must not cascade to the splits
+        db.setForeignKeyConstraintsEnabled(true);
     }
 
     @Override
@@ -316,6 +524,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(RECURRENCE_TABLE_CREATE);
         db.execSQL(BUDGETS_TABLE_CREATE);
         db.execSQL(BUDGET_AMOUNTS_TABLE_CREATE);
+        for (String statement : createTransactionSearchTableAndTriggers()) {
+            db.execSQL(statement);
+        }
+        for (String statement : createSplitSearchTableAndTriggers()) {
+            db.execSQL(statement);
+        }
 
 
         String createAccountUidIndex = "CREATE UNIQUE INDEX '" + AccountEntry.INDEX_UID + "' ON "
@@ -324,9 +538,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String createTransactionUidIndex = "CREATE UNIQUE INDEX '" + TransactionEntry.INDEX_UID + "' ON "
                 + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_UID + ")";
 
+        String createTransactionTimestampIndex = "CREATE INDEX '" + TransactionEntry.INDEX_TIMESTAMP_UID + "' ON "
+                + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_TIMESTAMP + ", " + TransactionEntry.COLUMN_UID + ")";
+
+        String createTransactionModifiedIndex = "CREATE INDEX '" + TransactionEntry.INDEX_MODIFIED_AT + "' ON "
+                + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_MODIFIED_AT + ")";
+
         String createSplitUidIndex = "CREATE UNIQUE INDEX '" + SplitEntry.INDEX_UID + "' ON "
                 + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_UID + ")";
 
+        String createSplitTransactionIndex = "CREATE INDEX '" + SplitEntry.INDEX_TRANSACTION_ACCOUNT + "' ON "
+                + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_TRANSACTION_UID + ", " + SplitEntry.COLUMN_ACCOUNT_UID + ")";
+
+        String createSplitAccountIndex = "CREATE INDEX '" + SplitEntry.INDEX_ACCOUNT_TRANSACTION + "' ON "
+                + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_ACCOUNT_UID + ", " + SplitEntry.COLUMN_TRANSACTION_UID + ")";
+
+        String createSplitModifiedIndex = "CREATE INDEX '" + SplitEntry.INDEX_MODIFIED_AT + "' ON "
+                + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_MODIFIED_AT + ")";
+
         String createScheduledEventUidIndex = "CREATE UNIQUE INDEX '" + ScheduledActionEntry.INDEX_UID
                 + "' ON " + ScheduledActionEntry.TABLE_NAME + "(" + ScheduledActionEntry.COLUMN_UID + ")";
 
@@ -347,13 +576,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         db.execSQL(createAccountUidIndex);
         db.execSQL(createTransactionUidIndex);
+        db.execSQL(createTransactionTimestampIndex);
+        db.execSQL(createTransactionModifiedIndex);
         db.execSQL(createSplitUidIndex);
+        db.execSQL(createSplitTransactionIndex);
+        db.execSQL(createSplitAccountIndex);
+        db.execSQL(createSplitModifiedIndex);
+        for (String statement : createSplitAmountIndexes()) {
+            db.execSQL(statement);
+        }
         db.execSQL(createScheduledEventUidIndex);
         db.execSQL(createCommodityUidIndex);
         db.execSQL(createPriceUidIndex);
         db.execSQL(createBudgetUidIndex);
         db.execSQL(createRecurrenceUidIndex);
         db.execSQL(createBudgetAmountUidIndex);
+        for (String statement : createViews()) {
+            db.execSQL(statement);
+        }
 
         try {
             MigrationHelper.importCommodities(db);
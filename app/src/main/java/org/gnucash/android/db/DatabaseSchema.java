@@ -39,7 +39,7 @@ public class DatabaseSchema {
      * Version number of database containing accounts and transactions info.
      * With any change to the database schema, this number must increase
      */
-    public static final int DATABASE_VERSION = 15;
+    public static final int DATABASE_VERSION = 23;
 
     /**
      * Name of the database
@@ -118,6 +118,25 @@ public class DatabaseSchema {
         public static final String COLUMN_SCHEDX_ACTION_UID     = "scheduled_action_uid";
 
         public static final String INDEX_UID                    = "transaction_uid_index";
+        public static final String INDEX_TIMESTAMP_UID          = "transaction_timestamp_uid_index";
+        public static final String INDEX_MODIFIED_AT            = "transaction_modified_at_index";
+    }
+
+    /**
+     * Column schema for the full-text index of the transactions.
+     * <p>This is an FTS4 virtual table whose {@code docid} is the {@code _id} of the transaction.
+     * It is maintained by triggers on the transactions table.</p>
+     */
+    public static abstract class TransactionSearchEntry {
+
+        public static final String TABLE_NAME                   = "transactions_fts";
+
+        /**
+         * Column holding the GUID of the transaction, used for removing entries of transactions which were replaced
+         */
+        public static final String COLUMN_UID                   = TransactionEntry.COLUMN_UID;
+        public static final String COLUMN_DESCRIPTION           = TransactionEntry.COLUMN_DESCRIPTION;
+        public static final String COLUMN_NOTES                 = TransactionEntry.COLUMN_NOTES;
     }
 
     /**
@@ -139,6 +158,14 @@ public class DatabaseSchema {
          */
         public static final String COLUMN_QUANTITY_NUM          = "quantity_num";
         public static final String COLUMN_QUANTITY_DENOM        = "quantity_denom";
+        /**
+         * The amount columns hold the value and the quantity as signed integers in units of the smallest fraction
+         * of their commodity, debits being positive and credits negative. They are written together with the
+         * num and denom columns, so that sums of splits need neither the split type nor the denominators.
+         * Only amounts finer than the smallest fraction are rounded half up, and sums use their num and denom instead
+         */
+        public static final String COLUMN_VALUE_AMOUNT          = "value_amount";
+        public static final String COLUMN_QUANTITY_AMOUNT       = "quantity_amount";
         public static final String COLUMN_MEMO                  = "memo";
         public static final String COLUMN_ACCOUNT_UID           = "account_uid";
         public static final String COLUMN_TRANSACTION_UID       = "transaction_uid";
@@ -147,6 +174,31 @@ public class DatabaseSchema {
         public static final String COLUMN_RECONCILE_DATE        = "reconcile_date";
 
         public static final String INDEX_UID                    = "split_uid_index";
+        public static final String INDEX_TRANSACTION_ACCOUNT    = "split_transaction_account_index";
+        public static final String INDEX_ACCOUNT_TRANSACTION    = "split_account_transaction_index";
+        public static final String INDEX_MODIFIED_AT            = "split_modified_at_index";
+
+        /**
+         * Indexes for looking up splits by amount when searching transactions
+         */
+        public static final String INDEX_VALUE_NUM              = "split_value_num_index";
+        public static final String INDEX_QUANTITY_NUM           = "split_quantity_num_index";
+    }
+
+    /**
+     * Column schema for the full-text index of the split memos.
+     * <p>This is an FTS4 virtual table whose {@code docid} is the {@code _id} of the split.
+     * It is maintained by triggers on the splits table.</p>
+     */
+    public static abstract class SplitSearchEntry {
+
+        public static final String TABLE_NAME                   = "splits_fts";
+
+        /**
+         * Column holding the GUID of the split, used for removing entries of splits which were replaced
+         */
+        public static final String COLUMN_UID                   = SplitEntry.COLUMN_UID;
+        public static final String COLUMN_MEMO                  = SplitEntry.COLUMN_MEMO;
     }
 
     public static abstract class ScheduledActionEntry implements CommonColumns {
@@ -24,6 +24,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Environment;
 import android.support.v7.preference.PreferenceManager;
 import android.text.TextUtils;
@@ -60,6 +61,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.channels.FileChannel;
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -82,7 +84,9 @@ import static org.gnucash.android.db.DatabaseSchema.PriceEntry;
 import static org.gnucash.android.db.DatabaseSchema.RecurrenceEntry;
 import static org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitSearchEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionSearchEntry;
 
 /**
  * Collection of helper methods which are used during database migrations
@@ -1628,4 +1632,296 @@ public class MigrationHelper {
         rescheduleServiceAlarm();
         return dbVersion;
     }
+
+    /**
+     * Upgrades the database to version 16.
+     * <p>Version 16 used to add a hash for detecting duplicate transactions to the transactions table.
+     * Nothing reads the hash, so the migration does not change the database any more.
+     * The version is kept so that databases which already have it continue with the next migration.</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 16
+     */
+    static int upgradeDbToVersion16(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 16");
+        return 16;
+    }
+
+    /**
+     * Upgrades the database to version 17.
+     * <p>This migration adds the indexes used for loading the transactions of an account page by page:
+     * <ul>
+     *     <li>An index on the timestamp and GUID of transactions, which is the sort order of the pages</li>
+     *     <li>An index on the transaction and account GUID of splits</li>
+     * </ul>
+     * </p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 17 if migration succeeds, 16 otherwise
+     */
+    static int upgradeDbToVersion17(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 17");
+        int dbVersion = 16;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE INDEX IF NOT EXISTS '" + TransactionEntry.INDEX_TIMESTAMP_UID + "' ON "
+                    + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_TIMESTAMP + ", "
+                    + TransactionEntry.COLUMN_UID + ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS '" + SplitEntry.INDEX_TRANSACTION_ACCOUNT + "' ON "
+                    + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_TRANSACTION_UID + ", "
+                    + SplitEntry.COLUMN_ACCOUNT_UID + ")");
+            db.setTransactionSuccessful();
+            dbVersion = 17;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Upgrades the database to version 18.
+     * <p>This migration adds the full-text index of the transaction descriptions and notes,
+     * with the triggers which keep it up to date, and indexes the existing transactions</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 18 if migration succeeds, 17 otherwise
+     */
+    static int upgradeDbToVersion18(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 18");
+        int dbVersion = 17;
+
+        db.beginTransaction();
+        try {
+            for (String statement : DatabaseHelper.createTransactionSearchTableAndTriggers()) {
+                db.execSQL(statement);
+            }
+            db.execSQL("INSERT INTO " + TransactionSearchEntry.TABLE_NAME + "(docid, "
+                    + TransactionSearchEntry.COLUMN_UID + ", "
+                    + TransactionSearchEntry.COLUMN_DESCRIPTION + ", "
+                    + TransactionSearchEntry.COLUMN_NOTES + ") SELECT "
+                    + TransactionEntry._ID + ", " + TransactionEntry.COLUMN_UID + ", "
+                    + TransactionEntry.COLUMN_DESCRIPTION + ", " + TransactionEntry.COLUMN_NOTES
+                    + " FROM " + TransactionEntry.TABLE_NAME);
+            db.setTransactionSuccessful();
+            dbVersion = 18;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Upgrades the database to version 19.
+     * <p>This migration adds the full-text index of the split memos, with the triggers which keep it up to date,
+     * and the indexes of the split amounts used for searching transactions. The existing splits are indexed.</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 19 if migration succeeds, 18 otherwise
+     */
+    static int upgradeDbToVersion19(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 19");
+        int dbVersion = 18;
+
+        db.beginTransaction();
+        try {
+            for (String statement : DatabaseHelper.createSplitSearchTableAndTriggers()) {
+                db.execSQL(statement);
+            }
+            for (String statement : DatabaseHelper.createSplitAmountIndexes()) {
+                db.execSQL(statement);
+            }
+            db.execSQL("INSERT INTO " + SplitSearchEntry.TABLE_NAME + "(docid, "
+                    + SplitSearchEntry.COLUMN_UID + ", " + SplitSearchEntry.COLUMN_MEMO + ") SELECT "
+                    + SplitEntry._ID + ", " + SplitEntry.COLUMN_UID + ", " + SplitEntry.COLUMN_MEMO
+                    + " FROM " + SplitEntry.TABLE_NAME);
+            db.setTransactionSuccessful();
+            dbVersion = 19;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Upgrades the database to version 20.
+     * <p>This migration stores the views of transactions, splits and accounts in the database.
+     * Before, they were temporary views created by the adapters, which only exist in the connection
+     * which created them, and not in the read connections used with write-ahead logging</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 20 if migration succeeds, 19 otherwise
+     */
+    static int upgradeDbToVersion20(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 20");
+        int dbVersion = 19;
+
+        db.beginTransaction();
+        try {
+            for (String statement : DatabaseHelper.createViews()) {
+                db.execSQL(statement);
+            }
+            db.setTransactionSuccessful();
+            dbVersion = 20;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Upgrades the database to version 21.
+     * <p>This migration adds the signed amount columns of the splits and computes them for the existing splits.
+     * The value is normalized to the smallest fraction of the commodity of the transaction, and the quantity to
+     * the one of the commodity of the account. Amounts which cannot be represented exactly are rounded half up.
+     * The views are dropped before the columns are added and created again afterwards, since they select the new columns</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 21 if migration succeeds, 20 otherwise
+     */
+    static int upgradeDbToVersion21(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 21");
+        int dbVersion = 20;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("DROP VIEW IF EXISTS trans_extra_info");
+            db.execSQL("DROP VIEW IF EXISTS trans_split_acct");
+            db.execSQL("ALTER TABLE " + SplitEntry.TABLE_NAME
+                    + " ADD COLUMN " + SplitEntry.COLUMN_VALUE_AMOUNT + " integer not null default 0");
+            db.execSQL("ALTER TABLE " + SplitEntry.TABLE_NAME
+                    + " ADD COLUMN " + SplitEntry.COLUMN_QUANTITY_AMOUNT + " integer not null default 0");
+
+            computeSplitAmounts(db);
+
+            for (String statement : DatabaseHelper.createViews()) {
+                db.execSQL(statement);
+            }
+            db.setTransactionSuccessful();
+            dbVersion = 21;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Computes the signed amount columns of all splits from their numerators and denominators.
+     * <p>The amounts are computed in Java with exact integer arithmetic, since SQLite would round
+     * the quotients through floating point. Splits with an invalid denominator of 0 get amounts of 0.
+     * The amounts which do not fit in the columns are also set to 0 and reported, their numerators
+     * and denominators are kept unchanged</p>
+     * @param db SQLite database, within the transaction of the migration
+     */
+    private static void computeSplitAmounts(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT s." + SplitEntry._ID + " , s." + SplitEntry.COLUMN_TYPE
+                + " , s." + SplitEntry.COLUMN_VALUE_NUM + " , s." + SplitEntry.COLUMN_VALUE_DENOM
+                + " , s." + SplitEntry.COLUMN_QUANTITY_NUM + " , s." + SplitEntry.COLUMN_QUANTITY_DENOM
+                + " , tc." + CommodityEntry.COLUMN_SMALLEST_FRACTION + " , ac." + CommodityEntry.COLUMN_SMALLEST_FRACTION
+                + " FROM " + SplitEntry.TABLE_NAME + " s"
+                + " LEFT JOIN " + TransactionEntry.TABLE_NAME + " t ON t." + TransactionEntry.COLUMN_UID + " = s." + SplitEntry.COLUMN_TRANSACTION_UID
+                + " LEFT JOIN " + CommodityEntry.TABLE_NAME + " tc ON tc." + CommodityEntry.COLUMN_UID + " = t." + TransactionEntry.COLUMN_COMMODITY_UID
+                + " LEFT JOIN " + AccountEntry.TABLE_NAME + " a ON a." + AccountEntry.COLUMN_UID + " = s." + SplitEntry.COLUMN_ACCOUNT_UID
+                + " LEFT JOIN " + CommodityEntry.TABLE_NAME + " ac ON ac." + CommodityEntry.COLUMN_UID + " = a." + AccountEntry.COLUMN_COMMODITY_UID
+                + " ORDER BY s." + SplitEntry._ID, null);
+        SQLiteStatement update = db.compileStatement("UPDATE " + SplitEntry.TABLE_NAME + " SET "
+                + SplitEntry.COLUMN_VALUE_AMOUNT + " = ? , " + SplitEntry.COLUMN_QUANTITY_AMOUNT + " = ?"
+                + " WHERE " + SplitEntry._ID + " = ?");
+        int overflowCount = 0;
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                boolean debit = "DEBIT".equals(cursor.getString(1));
+                long valueDenom = cursor.getLong(3);
+                long quantityDenom = cursor.getLong(5);
+                //without a commodity, the amount is kept in units of its own denominator
+                long valueFraction = cursor.isNull(6) ? valueDenom : cursor.getLong(6);
+                long quantityFraction = cursor.isNull(7) ? quantityDenom : cursor.getLong(7);
+                long valueAmount;
+                long quantityAmount;
+                try {
+                    valueAmount = toFractionUnits(cursor.getLong(2), valueDenom, valueFraction, debit);
+                    quantityAmount = toFractionUnits(cursor.getLong(4), quantityDenom, quantityFraction, debit);
+                } catch (ArithmeticException e) {
+                    overflowCount++;
+                    Log.e(DatabaseHelper.LOG_TAG, "Amounts of split " + id + " are out of range", e);
+                    valueAmount = 0;
+                    quantityAmount = 0;
+                }
+                update.bindLong(1, valueAmount);
+                update.bindLong(2, quantityAmount);
+                update.bindLong(3, id);
+                update.executeUpdateDelete();
+            }
+        } finally {
+            update.close();
+            cursor.close();
+        }
+        if (overflowCount > 0) {
+            String msg = String.format(Locale.US, "Amounts of %d splits are out of range and were set to 0", overflowCount);
+            Log.e(DatabaseHelper.LOG_TAG, msg);
+            Crashlytics.log(msg);
+        }
+    }
+
+    /**
+     * Converts an amount to signed units of a smallest fraction, rounded half up
+     * @param num Numerator of the amount
+     * @param denom Denominator of the amount. An amount with a denominator of 0 is converted to 0
+     * @param fraction Smallest fraction of the commodity
+     * @param debit {@code true} if the amount is a debit, which is positive, or {@code false} for a credit
+     * @return Amount in units of the fraction
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    private static long toFractionUnits(long num, long denom, long fraction, boolean debit) {
+        if (denom == 0) {
+            return 0;
+        }
+        BigDecimal units = BigDecimal.valueOf(num).multiply(BigDecimal.valueOf(fraction))
+                .divide(BigDecimal.valueOf(denom), 0, RoundingMode.HALF_UP);
+        return (debit ? units : units.negate()).longValueExact();
+    }
+
+    /**
+     * Upgrades the database to version 22.
+     * <p>This migration adds an index on the account and transaction GUID of splits,
+     * so that the transactions of an account can be found from its splits</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 22 if migration succeeds, 21 otherwise
+     */
+    static int upgradeDbToVersion22(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 22");
+        int dbVersion = 21;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE INDEX IF NOT EXISTS '" + SplitEntry.INDEX_ACCOUNT_TRANSACTION + "' ON "
+                    + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_ACCOUNT_UID + ", "
+                    + SplitEntry.COLUMN_TRANSACTION_UID + ")");
+            db.setTransactionSuccessful();
+            dbVersion = 22;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
+
+    /**
+     * Upgrades the database to version 23.
+     * <p>This migration indexes the modification time of transactions and splits,
+     * which is used to find the transactions changed since a book snapshot was read</p>
+     * @param db SQLite database to be upgraded
+     * @return New database version, 23 if migration succeeds, 22 otherwise
+     */
+    static int upgradeDbToVersion23(SQLiteDatabase db) {
+        Log.i(DatabaseHelper.LOG_TAG, "Upgrading database to version 23");
+        int dbVersion = 22;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE INDEX IF NOT EXISTS '" + TransactionEntry.INDEX_MODIFIED_AT + "' ON "
+                    + TransactionEntry.TABLE_NAME + "(" + TransactionEntry.COLUMN_MODIFIED_AT + ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS '" + SplitEntry.INDEX_MODIFIED_AT + "' ON "
+                    + SplitEntry.TABLE_NAME + "(" + SplitEntry.COLUMN_MODIFIED_AT + ")");
+            db.setTransactionSuccessful();
+            dbVersion = 23;
+        } finally {
+            db.endTransaction();
+        }
+        return dbVersion;
+    }
 }
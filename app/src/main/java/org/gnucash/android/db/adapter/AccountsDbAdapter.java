@@ -27,14 +27,17 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.Pair;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseChange;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
+import org.gnucash.android.model.MoneyAccumulator;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.model.TransactionType;
@@ -43,9 +46,11 @@ import org.gnucash.android.util.TimestampHelper;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
@@ -102,14 +107,13 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
                 AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
         });
         mTransactionsAdapter = transactionsDbAdapter;
-        mCommoditiesDbAdapter = new CommoditiesDbAdapter(db);
+        mCommoditiesDbAdapter = AdapterRegistry.of(db).getCommoditiesDbAdapter();
     }
 
     /**
      * Convenience overloaded constructor. 
-     * This is used when an AccountsDbAdapter object is needed quickly. Otherwise, the other 
-     * constructor {@link #AccountsDbAdapter(SQLiteDatabase, TransactionsDbAdapter)}
-     * should be used whenever possible
+     * This is used when an AccountsDbAdapter object is needed quickly. Otherwise, the shared adapter
+     * of the {@link AdapterRegistry} of the database should be used whenever possible
      * @param db Database to create an adapter for
      */
     public AccountsDbAdapter(SQLiteDatabase db){
@@ -129,8 +133,8 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
                 AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
         });
 
-        mTransactionsAdapter = new TransactionsDbAdapter(db, new SplitsDbAdapter(db));
-        mCommoditiesDbAdapter = new CommoditiesDbAdapter(db);
+        mTransactionsAdapter = AdapterRegistry.of(db).getTransactionsDbAdapter();
+        mCommoditiesDbAdapter = AdapterRegistry.of(db).getCommoditiesDbAdapter();
     }
 
     /**
@@ -156,7 +160,10 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
 		//now add transactions if there are any
 		if (account.getAccountType() != AccountType.ROOT){
             //update the fully qualified account name
-            updateRecord(accountUID, AccountEntry.COLUMN_FULL_NAME, getFullyQualifiedAccountName(accountUID));
+            //the change of the account has already been published, so the table is updated directly
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(AccountEntry.COLUMN_FULL_NAME, getFullyQualifiedAccountName(accountUID));
+            mDb.update(mTableName, contentValues, AccountEntry.COLUMN_UID + "=?", new String[]{accountUID});
             for (Transaction t : account.getTransactions()) {
                 t.setCommodity(account.getCommodity());
 		        mTransactionsAdapter.addRecord(t, updateMethod);
@@ -167,6 +174,18 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         }
 	}
 
+    /**
+     * Describes the change of an account, which affects the account itself and its previous and new parent accounts,
+     * whose lists of sub-accounts change
+     * @param account Account which is about to be written
+     * @return Description of the change
+     */
+    @Override
+    protected DatabaseChange describeChange(@NonNull Account account) {
+        return DatabaseChange.ofAccounts(mTableName, Arrays.asList(account.getUID(),
+                account.getParentUID(), getParentAccountUID(account.getUID())));
+    }
+
     /**
      * Adds some accounts and their transactions to the database in bulk.
      * <p>If an account already exists in the database with the same GUID, it is replaced.
@@ -285,7 +304,10 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
      * @return Number of records affected
      */
     public int updateAccount(long accountId, String columnKey, String newValue){
-        return updateRecord(AccountEntry.TABLE_NAME, accountId, columnKey, newValue);
+        int count = updateRecord(AccountEntry.TABLE_NAME, accountId, columnKey, newValue);
+        if (count > 0)
+            notifyTableChanged(AccountEntry.TABLE_NAME);
+        return count;
     }
 
     /**
@@ -374,7 +396,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         Log.d(LOG_TAG, "Delete account with rowId with its transactions and sub-accounts: " + accountId);
 
         List<String> descendantAccountUIDs = getDescendantAccountUIDs(accountUID, null, null);
-        mDb.beginTransaction();
+        beginTransaction();
         try {
             descendantAccountUIDs.add(accountUID); //add account to descendants list just for convenience
             for (String descendantAccountUID : descendantAccountUIDs) {
@@ -404,7 +426,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
             return true;
         }
         finally {
-            mDb.endTransaction();
+            endTransaction();
         }
     }
 
@@ -870,6 +892,127 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         return balance.add(splitSum);
     }
 
+    /**
+     * Returns the balances of several accounts, including their sub-accounts, within the specified time range.
+     * <p>The result is the same as calling {@link #getAccountBalance(String, long, long)} for each account,
+     * but the splits of all accounts are summed in a single query and the account tree is only read once</p>
+     * @param accountUIDList GUIDs of the accounts
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Map of account GUIDs to their balances in the account currency
+     */
+    public Map<String, Money> getAccountBalances(@NonNull List<String> accountUIDList, long startTimestamp, long endTimestamp) {
+        Map<String, Money> balances = new HashMap<>();
+        if (accountUIDList.isEmpty())
+            return balances;
+
+        Map<String, List<String>> childrenMap = new HashMap<>();
+        Map<String, String> currencyCodes = new HashMap<>();
+        Map<String, AccountType> accountTypes = new HashMap<>();
+        Cursor cursor = mDb.query(AccountEntry.TABLE_NAME,
+                new String[]{AccountEntry.COLUMN_UID, AccountEntry.COLUMN_PARENT_ACCOUNT_UID,
+                        AccountEntry.COLUMN_CURRENCY, AccountEntry.COLUMN_TYPE},
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                String accountUID = cursor.getString(0);
+                String parentUID = cursor.getString(1);
+                currencyCodes.put(accountUID, cursor.getString(2));
+                accountTypes.put(accountUID, AccountType.valueOf(cursor.getString(3)));
+                if (parentUID == null)
+                    continue;
+                List<String> children = childrenMap.get(parentUID);
+                if (children == null) {
+                    children = new ArrayList<>();
+                    childrenMap.put(parentUID, children);
+                }
+                children.add(accountUID);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<String, Money> splitSums = mTransactionsAdapter.getSplitDbAdapter()
+                .computeSplitSumsPerAccount(startTimestamp, endTimestamp);
+        PricesDbAdapter pricesDbAdapter = null;
+        for (String accountUID : accountUIDList) {
+            String currencyCode = currencyCodes.get(accountUID);
+            if (currencyCode == null)
+                continue;
+
+            //sum the splits of the account and its descendants per currency, then convert them like computeBalance()
+            Map<String, MoneyAccumulator> sumsPerCurrency = new HashMap<>();
+            LinkedList<String> pending = new LinkedList<>();
+            pending.add(accountUID);
+            while (!pending.isEmpty()) {
+                String uid = pending.removeFirst();
+                List<String> children = childrenMap.get(uid);
+                if (children != null)
+                    pending.addAll(children);
+                Money sum = splitSums.get(uid);
+                if (sum == null)
+                    continue;
+                String sumCurrencyCode = sum.getCommodity().getCurrencyCode();
+                MoneyAccumulator currencySum = sumsPerCurrency.get(sumCurrencyCode);
+                if (currencySum == null) {
+                    currencySum = new MoneyAccumulator(sum.getCommodity());
+                    sumsPerCurrency.put(sumCurrencyCode, currencySum);
+                }
+                currencySum.add(sum);
+            }
+
+            Commodity commodity = mCommoditiesDbAdapter.getCommodity(currencyCode);
+            MoneyAccumulator balance = new MoneyAccumulator(Commodity.getInstance(currencyCode));
+            for (MoneyAccumulator currencySum : sumsPerCurrency.values()) {
+                if (currencySum.isZero())
+                    continue;
+                Money sum = currencySum.toMoney();
+                if (!accountTypes.get(accountUID).hasDebitNormalBalance())
+                    sum = sum.negate();
+                String sumCurrencyCode = sum.getCommodity().getCurrencyCode();
+                if (sumCurrencyCode.equals(currencyCode)) {
+                    balance.add(sum);
+                    continue;
+                }
+                if (pricesDbAdapter == null)
+                    pricesDbAdapter = AdapterRegistry.of(mDb).getPricesDbAdapter();
+                Pair<Long, Long> price = pricesDbAdapter.getPrice(mCommoditiesDbAdapter.getCommodityUID(sumCurrencyCode),
+                        mCommoditiesDbAdapter.getCommodityUID(currencyCode));
+                if (price.first <= 0 || price.second <= 0) // no price exists, just ignore it
+                    continue;
+                BigDecimal amountConverted = sum.asBigDecimal().multiply(new BigDecimal(price.first))
+                        .divide(new BigDecimal(price.second), commodity.getSmallestFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
+                balance.add(new Money(amountConverted, commodity));
+            }
+            balances.put(accountUID, balance.toMoney());
+        }
+        return balances;
+    }
+
+    /**
+     * Returns the number of direct sub-accounts of several accounts in one query
+     * @param accountUIDList GUIDs of the parent accounts
+     * @return Map of account GUIDs to their number of sub-accounts. Accounts without sub-accounts are not included
+     */
+    public Map<String, Integer> getSubAccountCounts(@NonNull List<String> accountUIDList) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int start = 0; start < accountUIDList.size(); start += MAX_QUERY_ARGS) {
+            List<String> args = accountUIDList.subList(start, Math.min(start + MAX_QUERY_ARGS, accountUIDList.size()));
+            Cursor cursor = mDb.query(AccountEntry.TABLE_NAME,
+                    new String[]{AccountEntry.COLUMN_PARENT_ACCOUNT_UID, "COUNT(*)"},
+                    AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " IN (" + makePlaceholders(args.size()) + ")",
+                    args.toArray(new String[args.size()]), AccountEntry.COLUMN_PARENT_ACCOUNT_UID, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    counts.put(cursor.getString(0), cursor.getInt(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return counts;
+    }
+
     /**
      * Retrieve all descendant accounts of an account
      * Note, in filtering, once an account is filtered out, all its descendants
@@ -991,7 +1134,7 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
             cursor.close();
         }
         // No ROOT exits, create a new one
-        Account rootAccount = new Account("ROOT Account", new CommoditiesDbAdapter(mDb).getCommodity("USD"));
+        Account rootAccount = new Account("ROOT Account", mCommoditiesDbAdapter.getCommodity("USD"));
         rootAccount.setAccountType(AccountType.ROOT);
         rootAccount.setFullName(ROOT_ACCOUNT_FULL_NAME);
         rootAccount.setHidden(true);
@@ -1016,15 +1159,8 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
      * @return Number of sub accounts
      */
     public int getSubAccountCount(String accountUID){
-        //TODO: at some point when API level 11 and above only is supported, use DatabaseUtils.queryNumEntries
-
-        String queryCount = "SELECT COUNT(*) FROM " + AccountEntry.TABLE_NAME + " WHERE "
-                + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " = ?";
-        Cursor cursor = mDb.rawQuery(queryCount, new String[]{accountUID});
-        cursor.moveToFirst();
-        int count = cursor.getInt(0);
-        cursor.close();
-        return count;
+        return (int) simpleQueryForLong("SELECT COUNT(*) FROM " + AccountEntry.TABLE_NAME + " WHERE "
+                + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " = ?", accountUID);
     }
 
     /**
@@ -1280,7 +1416,9 @@ public class AccountsDbAdapter extends DatabaseAdapter<Account> {
         mDb.delete(DatabaseSchema.BudgetEntry.TABLE_NAME, null, null);
         mDb.delete(DatabaseSchema.RecurrenceEntry.TABLE_NAME, null, null);
 
-        return mDb.delete(AccountEntry.TABLE_NAME, null, null);
+        int count = mDb.delete(AccountEntry.TABLE_NAME, null, null);
+        notifyTableChanged(AccountEntry.TABLE_NAME);
+        return count;
     }
 
     @Override
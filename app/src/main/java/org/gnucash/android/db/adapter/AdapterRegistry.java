@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db.adapter;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Shared database adapters of an open database.
+ * <p>Creating an adapter is not free: the commodities adapter looks up the common commodities and every adapter
+ * compiles and caches its own statements. Code which needs an adapter for a database should get it from the
+ * registry of the database instead of creating a new one, so that all adapters of a database are created once
+ * and reused until the database is closed.</p>
+ * <p>Adapters are created when they are first requested. Code which closes a database should release its
+ * registry with {@link #release(SQLiteDatabase)} first, which closes the statements compiled by the adapters.
+ * The registries of databases which were closed without releasing them are dropped the next time a registry
+ * is created</p>
+ */
+public final class AdapterRegistry {
+
+    /**
+     * Registries by database. Databases are compared by identity, since a database file
+     * may be opened by several {@link SQLiteDatabase} instances
+     */
+    private static final Map<SQLiteDatabase, AdapterRegistry> sRegistries = new IdentityHashMap<>();
+
+    private final SQLiteDatabase mDb;
+
+    private SplitsDbAdapter mSplitsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private CommoditiesDbAdapter mCommoditiesDbAdapter;
+    private PricesDbAdapter mPricesDbAdapter;
+    private RecurrenceDbAdapter mRecurrenceDbAdapter;
+    private ScheduledActionDbAdapter mScheduledActionDbAdapter;
+    private BudgetAmountsDbAdapter mBudgetAmountsDbAdapter;
+    private BudgetsDbAdapter mBudgetsDbAdapter;
+    private BooksDbAdapter mBooksDbAdapter;
+
+    private AdapterRegistry(SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    /**
+     * Returns the registry of the adapters of a database
+     * @param db Open database
+     * @return Registry of the database
+     */
+    public static AdapterRegistry of(@NonNull SQLiteDatabase db) {
+        synchronized (sRegistries) {
+            AdapterRegistry registry = sRegistries.get(db);
+            if (registry == null) {
+                //drop the registries of closed databases, there are only a few databases open at any time
+                Iterator<Map.Entry<SQLiteDatabase, AdapterRegistry>> iterator = sRegistries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<SQLiteDatabase, AdapterRegistry> entry = iterator.next();
+                    if (!entry.getKey().isOpen()) {
+                        entry.getValue().close();
+                        iterator.remove();
+                    }
+                }
+                registry = new AdapterRegistry(db);
+                sRegistries.put(db, registry);
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * Drops the registry of a database and closes the statements of its adapters.
+     * <p>Call this before closing the database. The adapters of the registry must not be used afterwards</p>
+     * @param db Database which is about to be closed
+     */
+    public static void release(@NonNull SQLiteDatabase db) {
+        AdapterRegistry registry;
+        synchronized (sRegistries) {
+            registry = sRegistries.remove(db);
+        }
+        if (registry != null)
+            registry.close();
+    }
+
+    /**
+     * Closes the statements of the adapters which were created by this registry
+     */
+    private synchronized void close() {
+        DatabaseAdapter<?>[] adapters = {mSplitsDbAdapter, mTransactionsDbAdapter, mAccountsDbAdapter,
+                mCommoditiesDbAdapter, mPricesDbAdapter, mRecurrenceDbAdapter, mScheduledActionDbAdapter,
+                mBudgetAmountsDbAdapter, mBudgetsDbAdapter, mBooksDbAdapter};
+        for (DatabaseAdapter<?> adapter : adapters) {
+            if (adapter != null)
+                adapter.close();
+        }
+    }
+
+    /**
+     * Returns the database of the adapters
+     * @return Database
+     */
+    public SQLiteDatabase getDatabase() {
+        return mDb;
+    }
+
+    public synchronized SplitsDbAdapter getSplitsDbAdapter() {
+        if (mSplitsDbAdapter == null)
+            mSplitsDbAdapter = new SplitsDbAdapter(mDb);
+        return mSplitsDbAdapter;
+    }
+
+    public synchronized TransactionsDbAdapter getTransactionsDbAdapter() {
+        if (mTransactionsDbAdapter == null)
+            mTransactionsDbAdapter = new TransactionsDbAdapter(mDb, getSplitsDbAdapter());
+        return mTransactionsDbAdapter;
+    }
+
+    public synchronized AccountsDbAdapter getAccountsDbAdapter() {
+        if (mAccountsDbAdapter == null)
+            mAccountsDbAdapter = new AccountsDbAdapter(mDb, getTransactionsDbAdapter());
+        return mAccountsDbAdapter;
+    }
+
+    public synchronized CommoditiesDbAdapter getCommoditiesDbAdapter() {
+        if (mCommoditiesDbAdapter == null)
+            mCommoditiesDbAdapter = new CommoditiesDbAdapter(mDb);
+        return mCommoditiesDbAdapter;
+    }
+
+    public synchronized PricesDbAdapter getPricesDbAdapter() {
+        if (mPricesDbAdapter == null)
+            mPricesDbAdapter = new PricesDbAdapter(mDb);
+        return mPricesDbAdapter;
+    }
+
+    public synchronized RecurrenceDbAdapter getRecurrenceDbAdapter() {
+        if (mRecurrenceDbAdapter == null)
+            mRecurrenceDbAdapter = new RecurrenceDbAdapter(mDb);
+        return mRecurrenceDbAdapter;
+    }
+
+    public synchronized ScheduledActionDbAdapter getScheduledActionDbAdapter() {
+        if (mScheduledActionDbAdapter == null)
+            mScheduledActionDbAdapter = new ScheduledActionDbAdapter(mDb, getRecurrenceDbAdapter());
+        return mScheduledActionDbAdapter;
+    }
+
+    public synchronized BudgetAmountsDbAdapter getBudgetAmountsDbAdapter() {
+        if (mBudgetAmountsDbAdapter == null)
+            mBudgetAmountsDbAdapter = new BudgetAmountsDbAdapter(mDb);
+        return mBudgetAmountsDbAdapter;
+    }
+
+    public synchronized BudgetsDbAdapter getBudgetsDbAdapter() {
+        if (mBudgetsDbAdapter == null)
+            mBudgetsDbAdapter = new BudgetsDbAdapter(mDb, getBudgetAmountsDbAdapter(), getRecurrenceDbAdapter());
+        return mBudgetsDbAdapter;
+    }
+
+    /**
+     * Returns the books adapter. Only valid for the books database
+     * @return Books database adapter
+     */
+    public synchronized BooksDbAdapter getBooksDbAdapter() {
+        if (mBooksDbAdapter == null)
+            mBooksDbAdapter = new BooksDbAdapter(mDb);
+        return mBooksDbAdapter;
+    }
+}
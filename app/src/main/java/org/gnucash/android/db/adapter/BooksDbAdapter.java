@@ -26,6 +26,7 @@ import android.support.annotation.NonNull;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.BookDbHelper;
 import org.gnucash.android.db.DatabaseSchema.BookEntry;
 import org.gnucash.android.model.Book;
 import org.gnucash.android.ui.settings.PreferenceActivity;
@@ -107,6 +108,7 @@ public class BooksDbAdapter extends DatabaseAdapter<Book> {
      */
     public boolean deleteBook(@NonNull String bookUID){
         Context context = GnuCashApplication.getAppContext();
+        BookDbHelper.closeDatabase(bookUID);
         boolean result = context.deleteDatabase(bookUID);
         if (result) //delete the db entry only if the file deletion was successful
             result &= deleteRecord(bookUID);
@@ -31,7 +31,9 @@ import org.gnucash.android.model.Money;
 import org.gnucash.android.model.Recurrence;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -171,6 +173,45 @@ public class BudgetsDbAdapter extends DatabaseAdapter<Budget>{
         return budgets;
     }
 
+    /**
+     * Returns the budgets associated with each of several accounts.
+     * <p>The budget amounts are read in one query and each budget is only loaded once,
+     * even if it has amounts for several of the accounts</p>
+     * @param accountUIDList GUIDs of the accounts
+     * @return Map of account GUIDs to their budgets. Accounts without budgets are not included
+     */
+    public Map<String, List<Budget>> getAccountsBudgets(@NonNull List<String> accountUIDList) {
+        Map<String, List<Budget>> accountBudgets = new HashMap<>();
+        Map<String, Budget> budgets = new HashMap<>();
+        for (int start = 0; start < accountUIDList.size(); start += MAX_QUERY_ARGS) {
+            List<String> args = accountUIDList.subList(start, Math.min(start + MAX_QUERY_ARGS, accountUIDList.size()));
+            Cursor cursor = mDb.query(true, BudgetAmountEntry.TABLE_NAME,
+                    new String[]{BudgetAmountEntry.COLUMN_ACCOUNT_UID, BudgetAmountEntry.COLUMN_BUDGET_UID},
+                    BudgetAmountEntry.COLUMN_ACCOUNT_UID + " IN (" + makePlaceholders(args.size()) + ")",
+                    args.toArray(new String[args.size()]), null, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    String accountUID = cursor.getString(0);
+                    String budgetUID = cursor.getString(1);
+                    Budget budget = budgets.get(budgetUID);
+                    if (budget == null) {
+                        budget = getRecord(budgetUID);
+                        budgets.put(budgetUID, budget);
+                    }
+                    List<Budget> budgetList = accountBudgets.get(accountUID);
+                    if (budgetList == null) {
+                        budgetList = new ArrayList<>();
+                        accountBudgets.put(accountUID, budgetList);
+                    }
+                    budgetList.add(budget);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return accountBudgets;
+    }
+
     /**
      * Returns the sum of the account balances for all accounts in a budget for a specified time period
      * <p>This represents the total amount spent within the account of this budget in a given period</p>
@@ -186,6 +227,6 @@ public class BudgetsDbAdapter extends DatabaseAdapter<Budget>{
             accountUIDs.add(budgetAmount.getAccountUID());
         }
 
-        return new AccountsDbAdapter(mDb).getAccountsBalance(accountUIDs, periodStart, periodEnd);
+        return AdapterRegistry.of(mDb).getAccountsDbAdapter().getAccountsBalance(accountUIDs, periodStart, periodEnd);
     }
 }
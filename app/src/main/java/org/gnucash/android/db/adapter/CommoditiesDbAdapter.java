@@ -33,9 +33,15 @@ public class CommoditiesDbAdapter extends DatabaseAdapter<Commodity> {
                 CommodityEntry.COLUMN_SMALLEST_FRACTION,
                 CommodityEntry.COLUMN_QUOTE_FLAG
         });
-        /**
-         * initialize commonly used commodities
-         */
+        loadCommonCommodities();
+    }
+
+    /**
+     * Initializes the commonly used commodities, like {@link Commodity#USD}, from the database.
+     * <p>Adapters are shared, so this must be called again when the commodities are imported
+     * after the adapter was created</p>
+     */
+    public void loadCommonCommodities() {
         Commodity.USD = getCommodity("USD");
         Commodity.EUR = getCommodity("EUR");
         Commodity.GBP = getCommodity("GBP");
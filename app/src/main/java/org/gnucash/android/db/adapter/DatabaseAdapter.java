@@ -18,23 +18,28 @@ package org.gnucash.android.db.adapter;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.util.Log;
 
+import org.gnucash.android.db.DatabaseChange;
+import org.gnucash.android.db.DatabaseChangeNotifier;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import org.gnucash.android.db.DatabaseSchema.CommonColumns;
-import org.gnucash.android.db.DatabaseSchema.SplitEntry;
-import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.BaseModel;
 import org.gnucash.android.util.TimestampHelper;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter to be used for creating and opening the database for read/write operations.
@@ -64,6 +69,17 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
 
     protected volatile SQLiteStatement mInsertStatement;
 
+    /**
+     * Compiled statements of the single value queries of this adapter, by SQL.
+     * The SQL of these queries only depends on the table and column names, so the number of statements is bounded
+     */
+    private final Map<String, SQLiteStatement> mQueryStatements = new HashMap<>();
+
+    /**
+     * Maximum number of arguments bound in one query, below the limit of 999 of SQLite
+     */
+    public static final int MAX_QUERY_ARGS = 500;
+
     public enum UpdateMethod {
         insert, update, replace
     };
@@ -79,119 +95,9 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         if (!db.isOpen() || db.isReadOnly())
             throw new IllegalArgumentException("Database not open or is read-only. Require writeable database");
 
-        if (mDb.getVersion() >= 9) {
-            createTempView();
-        }
         LOG_TAG = getClass().getSimpleName();
     }
 
-    private void createTempView() {
-        //the multiplication by 1.0 is to cause sqlite to handle the value as REAL and not to round off
-
-        // Create some temporary views. Temporary views only exists in one DB session, and will not
-        // be saved in the DB
-        //
-        // TODO: Useful views should be add to the DB
-        //
-        // create a temporary view, combining accounts, transactions and splits, as this is often used
-        // in the queries
-
-        //todo: would it be useful to add the split reconciled_state and reconciled_date to this view?
-        mDb.execSQL("CREATE TEMP VIEW IF NOT EXISTS trans_split_acct AS SELECT "
-                        + TransactionEntry.TABLE_NAME + "." + CommonColumns.COLUMN_MODIFIED_AT + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + CommonColumns.COLUMN_MODIFIED_AT + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_DESCRIPTION + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_DESCRIPTION + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_NOTES + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_NOTES + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_CURRENCY + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_CURRENCY + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_EXPORTED + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_EXPORTED + " , "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + " AS "
-                        + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_UID + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_UID + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TYPE + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_NUM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_NUM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_VALUE_DENOM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_VALUE_DENOM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_NUM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_QUANTITY_DENOM + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM + " , "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_MEMO + " AS "
-                        + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_MEMO + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_NAME + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_NAME + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_CURRENCY + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_PLACEHOLDER + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_PLACEHOLDER + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_COLOR_CODE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_COLOR_CODE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FAVORITE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FAVORITE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_FULL_NAME + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_FULL_NAME + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_TYPE + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_TYPE + " , "
-                        + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " AS "
-                        + AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID
-                        + " FROM " + TransactionEntry.TABLE_NAME + " , " + SplitEntry.TABLE_NAME + " ON "
-                        + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + "=" + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID
-                        + " , " + AccountEntry.TABLE_NAME + " ON "
-                        + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + "=" + AccountEntry.TABLE_NAME + "." + AccountEntry.COLUMN_UID
-        );
-
-        // SELECT transactions_uid AS trans_acct_t_uid ,
-        //      SUBSTR (
-        //          MIN (
-        //              ( CASE WHEN IFNULL ( splits_memo , '' ) == '' THEN 'a' ELSE 'b' END ) || accounts_uid
-        //          ) ,
-        //          2
-        //      ) as trans_acct_a_uid ,
-        //   TOTAL ( CASE WHEN splits_type = 'DEBIT' THEN splits_amount ELSE - splits_amount END ) AS trans_acct_balance,
-        //   COUNT ( DISTINCT accounts_currency ) as trans_currency_count
-        //   FROM trans_split_acct GROUP BY transactions_uid
-        //
-        // This temporary view would pick one Account_UID for each
-        // Transaction, which can be used to order all transactions. If possible, account_uid of a split whose
-        // memo is null is select.
-        //
-        // Transaction balance is also picked out by this view
-        //
-        // a split without split memo is chosen if possible, in the following manner:
-        //   if the splits memo is null or empty string, attach an 'a' in front of the split account uid,
-        //   if not, attach a 'b' to the split account uid
-        //   pick the minimal value of the modified account uid (one of the ones begins with 'a', if exists)
-        //   use substr to get account uid
-
-        mDb.execSQL("CREATE TEMP VIEW IF NOT EXISTS trans_extra_info AS SELECT " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID +
-                " AS trans_acct_t_uid , SUBSTR ( MIN ( ( CASE WHEN IFNULL ( " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_MEMO + " , '' ) == '' THEN 'a' ELSE 'b' END ) || " +
-                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_UID +
-                " ) , 2 ) AS trans_acct_a_uid , TOTAL ( CASE WHEN " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN "+ SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_NUM + " ELSE - " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_NUM + " END ) * 1.0 / " + SplitEntry.TABLE_NAME + "_" +
-                SplitEntry.COLUMN_VALUE_DENOM + " AS trans_acct_balance , COUNT ( DISTINCT " +
-                AccountEntry.TABLE_NAME + "_" + AccountEntry.COLUMN_CURRENCY +
-                " ) AS trans_currency_count , COUNT (*) AS trans_split_count FROM trans_split_acct " +
-                " GROUP BY " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_UID
-        );
-    }
-
     /**
      * Checks if the database is open
      * @return <code>true</code> if the database is open, <code>false</code> otherwise
@@ -218,6 +124,18 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      */
     public void addRecord(@NonNull final Model model, UpdateMethod updateMethod){
         Log.d(LOG_TAG, String.format("Adding %s record to database: ", model.getClass().getSimpleName()));
+        DatabaseChange change = describeChange(model);
+        writeRecord(model, updateMethod);
+        DatabaseChangeNotifier.notifyChange(mDb, change);
+    }
+
+    /**
+     * Writes a model record to the database without publishing a change.
+     * <p>Used by adapters which write several records as part of a single change</p>
+     * @param model Model to be written
+     * @param updateMethod Method to use for writing the record
+     */
+    protected void writeRecord(@NonNull final Model model, UpdateMethod updateMethod){
         switch(updateMethod){
             case insert:
                 synchronized(getInsertStatement()) {
@@ -237,6 +155,37 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         }
     }
 
+    /**
+     * Describes the change of the database caused by writing a model record.
+     * <p>The description is created before the record is written, so subclasses can look up
+     * the accounts which are affected by the previous version of the record.
+     * By default the whole table is considered changed</p>
+     * @param model Model which is about to be written
+     * @return Description of the change
+     * @see DatabaseChangeNotifier
+     */
+    protected DatabaseChange describeChange(@NonNull Model model) {
+        return DatabaseChange.ofTable(mTableName);
+    }
+
+    /**
+     * Describes the change of the database caused by deleting the record with ID {@code rowId}.
+     * <p>The description is created before the record is deleted. By default the whole table is considered changed</p>
+     * @param rowId Database ID of the record
+     * @return Description of the change
+     */
+    protected DatabaseChange describeDeletion(long rowId) {
+        return DatabaseChange.ofTable(mTableName);
+    }
+
+    /**
+     * Publishes a change of the whole table with {@code tableName}, which may affect all accounts
+     * @param tableName Name of the table
+     */
+    protected void notifyTableChanged(@NonNull String tableName) {
+        DatabaseChangeNotifier.notifyChange(mDb, DatabaseChange.ofTable(tableName));
+    }
+
     /**
      * Persist the model object to the database as records using the {@code updateMethod}
      * @param modelList List of records
@@ -294,13 +243,14 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
                 modelList.size() == 0 ? "null": modelList.get(0).getClass().getSimpleName()));
         long nRow = 0;
         try {
-            mDb.beginTransaction();
+            beginTransaction();
             nRow = doAddModels(modelList, updateMethod);
             mDb.setTransactionSuccessful();
         }
         finally {
-            mDb.endTransaction();
+            endTransaction();
         }
+        notifyTableChanged(mTableName);
 
         return nRow;
     }
@@ -511,7 +461,11 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
 	 */
 	public boolean deleteRecord(long rowId){
         Log.d(LOG_TAG, "Deleting record with id " + rowId + " from " + mTableName);
-		return mDb.delete(mTableName, DatabaseSchema.CommonColumns._ID + "=" + rowId, null) > 0;
+        DatabaseChange change = describeDeletion(rowId);
+		boolean result = mDb.delete(mTableName, DatabaseSchema.CommonColumns._ID + "=" + rowId, null) > 0;
+        if (result)
+            DatabaseChangeNotifier.notifyChange(mDb, change);
+        return result;
 	}
 
     /**
@@ -519,7 +473,9 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @return Number of deleted records
      */
     public int deleteAllRecords(){
-        return mDb.delete(mTableName, null, null);
+        int count = mDb.delete(mTableName, null, null);
+        notifyTableChanged(mTableName);
+        return count;
     }
 
     /**
@@ -529,22 +485,12 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @throws IllegalArgumentException if the GUID does not exist in the database
      */
     public long getID(@NonNull String uid){
-        Cursor cursor = mDb.query(mTableName,
-                new String[] {DatabaseSchema.CommonColumns._ID},
-                DatabaseSchema.CommonColumns.COLUMN_UID + " = ?",
-                new String[]{uid},
-                null, null, null);
-        long result = -1;
-        try{
-            if (cursor.moveToFirst()) {
-                result = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.CommonColumns._ID));
-            } else {
-                throw new IllegalArgumentException(mTableName + " with GUID " + uid + " does not exist in the db");
-            }
-        } finally {
-            cursor.close();
+        try {
+            return simpleQueryForLong("SELECT " + CommonColumns._ID + " FROM " + mTableName
+                    + " WHERE " + CommonColumns.COLUMN_UID + " = ?", uid);
+        } catch (SQLiteDoneException e) {
+            throw new IllegalArgumentException(mTableName + " with GUID " + uid + " does not exist in the db");
         }
-        return result;
     }
 
     /**
@@ -554,22 +500,12 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @throws IllegalArgumentException if the record ID does not exist in the database
      */
     public String getUID(long id){
-        Cursor cursor = mDb.query(mTableName,
-                new String[]{DatabaseSchema.CommonColumns.COLUMN_UID},
-                DatabaseSchema.CommonColumns._ID + " = " + id,
-                null, null, null, null);
-
-        String uid = null;
         try {
-            if (cursor.moveToFirst()) {
-                uid = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.CommonColumns.COLUMN_UID));
-            } else {
-                throw new IllegalArgumentException(mTableName + " Record ID " + id + " does not exist in the db");
-            }
-        } finally {
-            cursor.close();
+            return simpleQueryForString("SELECT " + CommonColumns.COLUMN_UID + " FROM " + mTableName
+                    + " WHERE " + CommonColumns._ID + " = ?", id);
+        } catch (SQLiteDoneException e) {
+            throw new IllegalArgumentException(mTableName + " Record ID " + id + " does not exist in the db");
         }
-        return uid;
     }
 
     /**
@@ -580,18 +516,11 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      *      does not exist in DB
      */
     public String getAccountCurrencyCode(@NonNull String accountUID) {
-        Cursor cursor = mDb.query(DatabaseSchema.AccountEntry.TABLE_NAME,
-                new String[] {DatabaseSchema.AccountEntry.COLUMN_CURRENCY},
-                DatabaseSchema.AccountEntry.COLUMN_UID + "= ?",
-                new String[]{accountUID}, null, null, null);
         try {
-            if (cursor.moveToFirst()) {
-                return cursor.getString(0);
-            } else {
-                throw new IllegalArgumentException("Account " + accountUID + " does not exist");
-            }
-        } finally {
-            cursor.close();
+            return simpleQueryForString("SELECT " + AccountEntry.COLUMN_CURRENCY + " FROM " + AccountEntry.TABLE_NAME
+                    + " WHERE " + AccountEntry.COLUMN_UID + " = ?", accountUID);
+        } catch (SQLiteDoneException e) {
+            throw new IllegalArgumentException("Account " + accountUID + " does not exist");
         }
     }
 
@@ -626,25 +555,19 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @throws java.lang.IllegalArgumentException if accountUID does not exist in DB,
      */
     public AccountType getAccountType(@NonNull String accountUID){
-        String type = "";
-        Cursor c = mDb.query(DatabaseSchema.AccountEntry.TABLE_NAME,
-                new String[]{DatabaseSchema.AccountEntry.COLUMN_TYPE},
-                DatabaseSchema.AccountEntry.COLUMN_UID + "=?",
-                new String[]{accountUID}, null, null, null);
+        String type;
         try {
-            if (c.moveToFirst()) {
-                type = c.getString(c.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_TYPE));
-            } else {
-                throw new IllegalArgumentException("account " + accountUID + " does not exist in DB");
-            }
-        } finally {
-            c.close();
+            type = simpleQueryForString("SELECT " + AccountEntry.COLUMN_TYPE + " FROM " + AccountEntry.TABLE_NAME
+                    + " WHERE " + AccountEntry.COLUMN_UID + " = ?", accountUID);
+        } catch (SQLiteDoneException e) {
+            throw new IllegalArgumentException("account " + accountUID + " does not exist in DB");
         }
         return AccountType.valueOf(type);
     }
 
     /**
      * Updates a record in the table
+     * <p>No change is published, callers have to publish the change with {@link DatabaseChangeNotifier}</p>
      * @param recordId Database ID of the record to be updated
      * @param columnKey Name of column to be updated
      * @param newValue  New value to be assigned to the columnKey
@@ -679,7 +602,10 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @return Number of records updated
      */
     public int updateRecord(@NonNull String uid, @NonNull ContentValues contentValues){
-        return mDb.update(mTableName, contentValues, CommonColumns.COLUMN_UID + "=?", new String[]{uid});
+        int count = mDb.update(mTableName, contentValues, CommonColumns.COLUMN_UID + "=?", new String[]{uid});
+        if (count > 0)
+            notifyTableChanged(mTableName);
+        return count;
     }
 
     /**
@@ -697,7 +623,10 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
         } else {
             contentValues.put(columnKey, newValue);
         }
-        return mDb.update(mTableName, contentValues, where, whereArgs);
+        int count = mDb.update(mTableName, contentValues, where, whereArgs);
+        if (count > 0)
+            notifyTableChanged(mTableName);
+        return count;
     }
 
     /**
@@ -738,19 +667,11 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @throws IllegalArgumentException if either the {@code recordUID} or {@code columnName} do not exist in the database
      */
     protected String getAttribute(@NonNull String tableName, @NonNull String recordUID, @NonNull String columnName){
-        Cursor cursor = mDb.query(tableName,
-                new String[]{columnName},
-                AccountEntry.COLUMN_UID + " = ?",
-                new String[]{recordUID}, null, null, null);
-
         try {
-            if (cursor.moveToFirst())
-                return cursor.getString(cursor.getColumnIndexOrThrow(columnName));
-            else {
-                throw new IllegalArgumentException(String.format("Record with GUID %s does not exist in the db", recordUID));
-            }
-        } finally {
-            cursor.close();
+            return simpleQueryForString("SELECT " + columnName + " FROM " + tableName
+                    + " WHERE " + CommonColumns.COLUMN_UID + " = ?", recordUID);
+        } catch (SQLiteDoneException e) {
+            throw new IllegalArgumentException(String.format("Record with GUID %s does not exist in the db", recordUID));
         }
     }
 
@@ -759,16 +680,107 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * @return Total number of records in the database
      */
     public long getRecordsCount(){
-        String sql = "SELECT COUNT(*) FROM " + mTableName;
-        SQLiteStatement statement = mDb.compileStatement(sql);
-        return statement.simpleQueryForLong();
+        return simpleQueryForLong("SELECT COUNT(*) FROM " + mTableName);
+    }
+
+    /**
+     * Returns the compiled statement for the query {@code sql}.
+     * <p>The statement is compiled the first time it is requested and then reused by this adapter.
+     * Statements keep their bindings, so they must only be used through
+     * {@link #simpleQueryForLong(String, Object...)} and {@link #simpleQueryForString(String, Object...)}</p>
+     * @param sql SQL query returning a single value. It must not contain any values, only placeholders
+     * @return Compiled statement
+     */
+    private SQLiteStatement getQueryStatement(@NonNull String sql) {
+        synchronized (mQueryStatements) {
+            SQLiteStatement statement = mQueryStatements.get(sql);
+            if (statement == null) {
+                statement = mDb.compileStatement(sql);
+                mQueryStatements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    /**
+     * Executes a query which returns a single number, using a cached compiled statement.
+     * <p>The statement is locked while its arguments are bound and it is executed,
+     * so the adapter can be used from several threads</p>
+     * @param sql SQL query with placeholders for the arguments
+     * @param bindArgs Arguments of the query. Numbers are bound as numbers and everything else as strings
+     * @return Value of the first column of the first row
+     * @throws SQLiteDoneException if the query returns no rows
+     */
+    protected long simpleQueryForLong(@NonNull String sql, Object... bindArgs) {
+        SQLiteStatement statement = getQueryStatement(sql);
+        synchronized (statement) {
+            try {
+                bindArgs(statement, bindArgs);
+                return statement.simpleQueryForLong();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    /**
+     * Executes a query which returns a single string, using a cached compiled statement.
+     * @param sql SQL query with placeholders for the arguments
+     * @param bindArgs Arguments of the query
+     * @return Value of the first column of the first row, may be {@code null}
+     * @throws SQLiteDoneException if the query returns no rows
+     * @see #simpleQueryForLong(String, Object...)
+     */
+    protected String simpleQueryForString(@NonNull String sql, Object... bindArgs) {
+        SQLiteStatement statement = getQueryStatement(sql);
+        synchronized (statement) {
+            try {
+                bindArgs(statement, bindArgs);
+                return statement.simpleQueryForString();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    private static void bindArgs(SQLiteStatement statement, Object[] bindArgs) {
+        for (int i = 0; i < bindArgs.length; i++) {
+            DatabaseUtils.bindObjectToProgram(statement, i + 1, bindArgs[i]);
+        }
+    }
+
+    /**
+     * Closes the statements which were compiled and cached by this adapter.
+     * <p>This must be called when the database of the adapter is closed, usually through
+     * {@link AdapterRegistry#release(SQLiteDatabase)}. The adapter must not be used afterwards</p>
+     */
+    public void close() {
+        synchronized (mQueryStatements) {
+            for (SQLiteStatement statement : mQueryStatements.values()) {
+                synchronized (statement) {
+                    statement.close();
+                }
+            }
+            mQueryStatements.clear();
+        }
+        synchronized (this) {
+            for (SQLiteStatement statement : new SQLiteStatement[]{mReplaceStatement, mUpdateStatement, mInsertStatement}) {
+                if (statement != null)
+                    statement.close();
+            }
+            mReplaceStatement = null;
+            mUpdateStatement = null;
+            mInsertStatement = null;
+        }
     }
 
     /**
      * Expose mDb.beginTransaction()
+     * <p>Changes published inside the transaction are only delivered after it has been committed</p>
+     * @see DatabaseChangeNotifier#beginTransaction(SQLiteDatabase)
      */
     public void beginTransaction() {
-        mDb.beginTransaction();
+        DatabaseChangeNotifier.beginTransaction(mDb);
     }
 
     /**
@@ -796,6 +808,15 @@ public abstract class DatabaseAdapter<Model extends BaseModel> {
      * Expose mDb.endTransaction()
      */
     public void endTransaction() {
-        mDb.endTransaction();
+        DatabaseChangeNotifier.endTransaction(mDb);
+    }
+
+    /**
+     * Returns the placeholders for binding arguments in an {@code IN} clause
+     * @param count Number of arguments, at most {@link #MAX_QUERY_ARGS}
+     * @return Comma separated list of {@code count} question marks
+     */
+    public static String makePlaceholders(int count) {
+        return TextUtils.join(",", Collections.nCopies(count, "?"));
     }
 }
@@ -104,12 +104,11 @@ public class ScheduledActionDbAdapter extends DatabaseAdapter<ScheduledAction> {
     public long updateRecurrenceAttributes(ScheduledAction scheduledAction){
         //since we are updating, first fetch the existing recurrence UID and set it to the object
         //so that it will be updated and not a new one created
-        RecurrenceDbAdapter recurrenceDbAdapter = new RecurrenceDbAdapter(mDb);
-        String recurrenceUID = recurrenceDbAdapter.getAttribute(scheduledAction.getUID(), ScheduledActionEntry.COLUMN_RECURRENCE_UID);
+        String recurrenceUID = mRecurrenceDbAdapter.getAttribute(scheduledAction.getUID(), ScheduledActionEntry.COLUMN_RECURRENCE_UID);
 
         Recurrence recurrence = scheduledAction.getRecurrence();
         recurrence.setUID(recurrenceUID);
-        recurrenceDbAdapter.addRecord(recurrence, UpdateMethod.update);
+        mRecurrenceDbAdapter.addRecord(recurrence, UpdateMethod.update);
 
         ContentValues contentValues = new ContentValues();
         extractBaseModelAttributes(contentValues, scheduledAction);
@@ -237,10 +236,7 @@ public class ScheduledActionDbAdapter extends DatabaseAdapter<ScheduledAction> {
      * @return Number of transactions created from scheduled action
      */
     public long getActionInstanceCount(String scheduledActionUID) {
-        String sql = "SELECT COUNT(*) FROM " + DatabaseSchema.TransactionEntry.TABLE_NAME
-                + " WHERE " + DatabaseSchema.TransactionEntry.COLUMN_SCHEDX_ACTION_UID + "=?";
-        SQLiteStatement statement = mDb.compileStatement(sql);
-        statement.bindString(1, scheduledActionUID);
-        return statement.simpleQueryForLong();
+        return simpleQueryForLong("SELECT COUNT(*) FROM " + DatabaseSchema.TransactionEntry.TABLE_NAME
+                + " WHERE " + DatabaseSchema.TransactionEntry.COLUMN_SCHEDX_ACTION_UID + "=?", scheduledActionUID);
     }
 }
@@ -27,17 +27,28 @@ import android.util.Log;
 import android.util.Pair;
 
 import org.gnucash.android.app.GnuCashApplication;
-import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.DatabaseChange;
+import org.gnucash.android.db.DatabaseChangeNotifier;
 import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
+import org.gnucash.android.model.MoneyAccumulator;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.TransactionType;
 import org.gnucash.android.util.TimestampHelper;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import static org.gnucash.android.db.DatabaseSchema.CommodityEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
 
@@ -50,6 +61,73 @@ import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
  */
 public class SplitsDbAdapter extends DatabaseAdapter<Split> {
 
+    /**
+     * Query for the GUIDs and the smallest fractions of the commodities of accounts, which are the units
+     * of the split quantities. The GUIDs of the accounts are appended as a list of arguments
+     */
+    private static final String ACCOUNT_FRACTIONS_QUERY = "SELECT a." + AccountEntry.COLUMN_UID
+            + " , c." + CommodityEntry.COLUMN_SMALLEST_FRACTION
+            + " FROM " + AccountEntry.TABLE_NAME + " a , " + CommodityEntry.TABLE_NAME + " c"
+            + " ON c." + CommodityEntry.COLUMN_UID + " = a." + AccountEntry.COLUMN_COMMODITY_UID
+            + " WHERE a." + AccountEntry.COLUMN_UID + " IN ";
+
+    /**
+     * Query for the GUIDs and the smallest fractions of the commodities of transactions, which are the units
+     * of the split values. The GUIDs of the transactions are appended as a list of arguments
+     */
+    private static final String TRANSACTION_FRACTIONS_QUERY = "SELECT t." + TransactionEntry.COLUMN_UID
+            + " , c." + CommodityEntry.COLUMN_SMALLEST_FRACTION
+            + " FROM " + TransactionEntry.TABLE_NAME + " t , " + CommodityEntry.TABLE_NAME + " c"
+            + " ON c." + CommodityEntry.COLUMN_UID + " = t." + TransactionEntry.COLUMN_COMMODITY_UID
+            + " WHERE t." + TransactionEntry.COLUMN_UID + " IN ";
+
+    /**
+     * Condition for splits whose quantity amount is exact, because the denominator of the quantity
+     * divides the smallest fraction of the commodity
+     */
+    private static final String EXACT_QUANTITY_AMOUNT = "s." + SplitEntry.COLUMN_QUANTITY_DENOM + " > 0 AND c."
+            + CommodityEntry.COLUMN_SMALLEST_FRACTION + " % s." + SplitEntry.COLUMN_QUANTITY_DENOM + " = 0";
+
+    /**
+     * Columns of the sums of the split quantities of a commodity: its mnemonic, the denominator and
+     * the sum of the numerators. Exact quantities are added up as quantity amounts, in units of the smallest fraction.
+     * The quantities finer than the smallest fraction are added up per denominator instead, so that none is rounded.
+     * The query must be grouped by {@code quantity_sum_denom} too
+     */
+    private static final String QUANTITY_SUM_COLUMNS = "c." + CommodityEntry.COLUMN_MNEMONIC
+            + " , CASE WHEN " + EXACT_QUANTITY_AMOUNT + " THEN c." + CommodityEntry.COLUMN_SMALLEST_FRACTION
+            + " ELSE s." + SplitEntry.COLUMN_QUANTITY_DENOM + " END AS quantity_sum_denom"
+            + " , SUM ( CASE WHEN " + EXACT_QUANTITY_AMOUNT + " THEN s." + SplitEntry.COLUMN_QUANTITY_AMOUNT
+            + " WHEN s." + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN s." + SplitEntry.COLUMN_QUANTITY_NUM
+            + " ELSE - s." + SplitEntry.COLUMN_QUANTITY_NUM + " END )";
+
+    /**
+     * Splits of non-template transactions with the commodities of their accounts, for adding up the split quantities
+     */
+    private static final String SPLITS_WITH_COMMODITIES = " FROM " + SplitEntry.TABLE_NAME + " s"
+            + " INNER JOIN " + TransactionEntry.TABLE_NAME + " t ON t." + TransactionEntry.COLUMN_UID
+            + " = s." + SplitEntry.COLUMN_TRANSACTION_UID
+            + " INNER JOIN " + AccountEntry.TABLE_NAME + " a ON a." + AccountEntry.COLUMN_UID
+            + " = s." + SplitEntry.COLUMN_ACCOUNT_UID
+            + " INNER JOIN " + CommodityEntry.TABLE_NAME + " c ON c." + CommodityEntry.COLUMN_UID
+            + " = a." + AccountEntry.COLUMN_COMMODITY_UID
+            + " WHERE t." + TransactionEntry.COLUMN_TEMPLATE + " = 0";
+
+    /**
+     * Smallest fractions of the commodities of the transactions of the splits which the current thread
+     * writes in a batch, by GUID of the transaction.
+     * <p>The batch is written in one database transaction, so the fractions cannot change while they are kept</p>
+     * @see #beginBatch(Map, Map)
+     */
+    private final ThreadLocal<Map<String, Long>> mBatchValueFractions = new ThreadLocal<>();
+
+    /**
+     * Smallest fractions of the commodities of the accounts of the splits which the current thread
+     * writes in a batch, by GUID of the account
+     * @see #beginBatch(Map, Map)
+     */
+    private final ThreadLocal<Map<String, Long>> mBatchQuantityFractions = new ThreadLocal<>();
+
     public SplitsDbAdapter(SQLiteDatabase db) {
         super(db, SplitEntry.TABLE_NAME, new String[]{
                 SplitEntry.COLUMN_MEMO,
@@ -62,7 +140,9 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
                 SplitEntry.COLUMN_RECONCILE_STATE,
                 SplitEntry.COLUMN_RECONCILE_DATE,
                 SplitEntry.COLUMN_ACCOUNT_UID,
-                SplitEntry.COLUMN_TRANSACTION_UID
+                SplitEntry.COLUMN_TRANSACTION_UID,
+                SplitEntry.COLUMN_VALUE_AMOUNT,
+                SplitEntry.COLUMN_QUANTITY_AMOUNT
         });
     }
 
@@ -93,6 +173,93 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
                 TransactionEntry.COLUMN_MODIFIED_AT, TimestampHelper.getUtcStringFromTimestamp(TimestampHelper.getTimestampFromNow()));
     }
 
+    /**
+     * Adds several splits in one database transaction, looking up the smallest fractions
+     * of their accounts and transactions beforehand with a few queries
+     */
+    @Override
+    public long bulkAddRecords(@NonNull List<Split> splitList, UpdateMethod updateMethod) {
+        Set<String> transactionUIDs = new HashSet<>();
+        Set<String> accountUIDs = new HashSet<>();
+        for (Split split : splitList) {
+            transactionUIDs.add(split.getTransactionUID());
+            accountUIDs.add(split.getAccountUID());
+        }
+        beginBatch(getSmallestFractions(TRANSACTION_FRACTIONS_QUERY, transactionUIDs), getAccountFractions(accountUIDs));
+        try {
+            return super.bulkAddRecords(splitList, updateMethod);
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Starts writing splits of the current thread with the smallest fractions of their transactions and accounts.
+     * <p>Must only be called before writing several splits in one database transaction,
+     * and must be followed by {@link #endBatch()}</p>
+     * @param transactionFractions Smallest fractions of the commodities of the transactions, by GUID
+     * @param accountFractions Smallest fractions of the commodities of the accounts, by GUID
+     */
+    void beginBatch(@NonNull Map<String, Long> transactionFractions, @NonNull Map<String, Long> accountFractions) {
+        mBatchValueFractions.set(transactionFractions);
+        mBatchQuantityFractions.set(accountFractions);
+    }
+
+    /**
+     * Drops the smallest fractions passed to {@link #beginBatch(Map, Map)}
+     */
+    void endBatch() {
+        mBatchValueFractions.remove();
+        mBatchQuantityFractions.remove();
+    }
+
+    /**
+     * Returns the smallest fractions of the commodities of accounts, which are the units of the split quantities
+     * @param accountUIDs GUIDs of the accounts
+     * @return Smallest fractions by GUID of the account. Accounts which do not exist are left out
+     */
+    Map<String, Long> getAccountFractions(@NonNull Collection<String> accountUIDs) {
+        return getSmallestFractions(ACCOUNT_FRACTIONS_QUERY, accountUIDs);
+    }
+
+    /**
+     * Looks up smallest fractions with one of the fraction queries, with at most {@link #MAX_QUERY_ARGS} GUIDs per query
+     * @param query Query for the GUIDs and fractions, without its list of arguments
+     * @param uids GUIDs of the accounts or transactions
+     * @return Smallest fractions by GUID
+     */
+    private Map<String, Long> getSmallestFractions(String query, Collection<String> uids) {
+        List<String> uidList = new ArrayList<>(uids);
+        uidList.removeAll(Collections.singleton((String) null));
+        Map<String, Long> fractions = new HashMap<>(uidList.size());
+        for (int start = 0; start < uidList.size(); start += MAX_QUERY_ARGS) {
+            List<String> args = uidList.subList(start, Math.min(start + MAX_QUERY_ARGS, uidList.size()));
+            Cursor cursor = mDb.rawQuery(query + "(" + makePlaceholders(args.size()) + ")",
+                    args.toArray(new String[args.size()]));
+            try {
+                while (cursor.moveToNext()) {
+                    fractions.put(cursor.getString(0), cursor.getLong(1));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return fractions;
+    }
+
+    /**
+     * Describes the change of a split, which affects its account and its transaction
+     * @param split Split which is about to be written
+     * @return Description of the change
+     */
+    @Override
+    protected DatabaseChange describeChange(@NonNull Split split) {
+        List<String> accountUIDs = Collections.singletonList(split.getAccountUID());
+        if (split.getTransactionUID() == null)
+            return DatabaseChange.ofAccounts(mTableName, accountUIDs);
+        return DatabaseChange.ofTransaction(mTableName, split.getTransactionUID(), accountUIDs);
+    }
+
     @Override
     protected @NonNull SQLiteStatement setBindings(@NonNull SQLiteStatement stmt, @NonNull final Split split) {
         stmt.clearBindings();
@@ -109,10 +276,50 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         stmt.bindString(9, split.getReconcileDate().toString());
         stmt.bindString(10, split.getAccountUID());
         stmt.bindString(11, split.getTransactionUID());
-        stmt.bindString(12, split.getUID());
+        stmt.bindLong(12, toAmountUnits(split.getValue(), split.getType(), getSmallestFraction(
+                mBatchValueFractions, TRANSACTION_FRACTIONS_QUERY, split.getTransactionUID(), split.getValue())));
+        stmt.bindLong(13, toAmountUnits(split.getQuantity(), split.getType(), getSmallestFraction(
+                mBatchQuantityFractions, ACCOUNT_FRACTIONS_QUERY, split.getAccountUID(), split.getQuantity())));
+        stmt.bindString(14, split.getUID());
 
         return stmt;
     }
+
+    /**
+     * Returns an amount of a split as stored in the amount columns
+     * @param amount Value or quantity of the split
+     * @param type Type of the split. Debits are positive and credits negative
+     * @param fraction Smallest fraction of the commodity in which the amount is stored
+     * @return Signed amount in units of the smallest fraction
+     * @throws ArithmeticException if the amount does not fit in the amount columns
+     */
+    private static long toAmountUnits(@NonNull Money amount, @NonNull TransactionType type, long fraction) {
+        //rounded like the migration of the existing splits
+        BigDecimal units = amount.asBigDecimal().multiply(BigDecimal.valueOf(fraction))
+                .setScale(0, RoundingMode.HALF_UP);
+        return (type == TransactionType.DEBIT ? units : units.negate()).longValueExact();
+    }
+
+    /**
+     * Returns the smallest fraction of a commodity of a split.
+     * <p>Within a batch, the fraction is taken from the fractions passed to {@link #beginBatch(Map, Map)},
+     * otherwise it is looked up</p>
+     * @param batchFractions Fractions of the current batch, either of the transactions or of the accounts
+     * @param query Query for the fraction if the split is not written in a batch
+     * @param uid GUID of the transaction or account of the split
+     * @param amount Amount whose denominator is used if the fraction is not found
+     * @return Smallest fraction of the commodity
+     */
+    private long getSmallestFraction(ThreadLocal<Map<String, Long>> batchFractions, String query,
+                                     String uid, Money amount) {
+        Map<String, Long> fractions = batchFractions.get();
+        if (fractions == null)
+            fractions = getSmallestFractions(query, Collections.singleton(uid));
+        Long fraction = fractions.get(uid);
+        //without a fraction, the write will fail because of the foreign keys anyway
+        return fraction != null ? fraction : amount.getDenominator();
+    }
+
     /**
      * Builds a split instance from the data pointed to by the cursor provided
      * <p>This method will not move the cursor in any way. So the cursor should already by pointing to the correct entry</p>
@@ -179,84 +386,135 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
     }
 
 
+    /**
+     * Adds up the splits of the accounts per commodity.
+     * <p>The database returns exact sums of the numerators per commodity and denominator, which are added up
+     * as fractions, so no split is rounded or converted to floating point.
+     * Only the sums of other commodities than the requested currency are converted, with the latest price</p>
+     */
     private Money calculateSplitBalance(List<String> accountUIDList, String currencyCode, boolean hasDebitNormalBalance,
                           long startTimestamp, long endTimestamp){
         if (accountUIDList.size() == 0){
             return new Money("0", currencyCode);
         }
 
-        Cursor cursor;
-        String[] selectionArgs = null;
-        String selection = DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.CommonColumns.COLUMN_UID + " in ( '" + TextUtils.join("' , '", accountUIDList) + "' ) AND " +
-                TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TEMPLATE + " = 0";
-
-        if (startTimestamp != -1 && endTimestamp != -1) {
-            selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " BETWEEN ? AND ? ";
-            selectionArgs = new String[]{String.valueOf(startTimestamp), String.valueOf(endTimestamp)};
-        } else if (startTimestamp == -1 && endTimestamp != -1) {
-            selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " <= ?";
-            selectionArgs = new String[]{String.valueOf(endTimestamp)};
-        } else if (startTimestamp != -1/* && endTimestamp == -1*/) {
-            selection += " AND " + TransactionEntry.TABLE_NAME + "_" + TransactionEntry.COLUMN_TIMESTAMP + " >= ?";
-            selectionArgs = new String[]{String.valueOf(startTimestamp)};
+        List<String> selectionArgs = new ArrayList<>();
+        String sql = "SELECT " + QUANTITY_SUM_COLUMNS + SPLITS_WITH_COMMODITIES + " AND a." + AccountEntry.COLUMN_UID
+                + " IN ( '" + TextUtils.join("' , '", accountUIDList) + "' )";
+        if (startTimestamp != -1) {
+            sql += " AND t." + TransactionEntry.COLUMN_TIMESTAMP + " >= ?";
+            selectionArgs.add(String.valueOf(startTimestamp));
         }
+        if (endTimestamp != -1) {
+            sql += " AND t." + TransactionEntry.COLUMN_TIMESTAMP + " <= ?";
+            selectionArgs.add(String.valueOf(endTimestamp));
+        }
+        sql += " GROUP BY a." + AccountEntry.COLUMN_COMMODITY_UID + " , quantity_sum_denom";
 
-        cursor = mDb.query("trans_split_acct",
-                new String[]{"TOTAL ( CASE WHEN " + SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_TYPE + " = 'DEBIT' THEN " +
-                        SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " ELSE - " +
-                        SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_NUM + " END )",
-                        SplitEntry.TABLE_NAME + "_" + SplitEntry.COLUMN_QUANTITY_DENOM,
-                        DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.AccountEntry.COLUMN_CURRENCY},
-                selection, selectionArgs, DatabaseSchema.AccountEntry.TABLE_NAME + "_" + DatabaseSchema.AccountEntry.COLUMN_CURRENCY, null, null);
-
+        MoneyAccumulator total = new MoneyAccumulator(Commodity.getInstance(currencyCode));
+        Map<String, MoneyAccumulator> otherSums = new HashMap<>();
+        CommoditiesDbAdapter commoditiesDbAdapter = null;
+        Cursor cursor = mDb.rawQuery(sql, selectionArgs.toArray(new String[selectionArgs.size()]));
         try {
-            Money total = Money.createZeroInstance(currencyCode);
-            CommoditiesDbAdapter commoditiesDbAdapter = null;
-            PricesDbAdapter pricesDbAdapter = null;
-            Commodity commodity = null;
-            String currencyUID = null;
             while (cursor.moveToNext()) {
-                long amount_num = cursor.getLong(0);
+                String commodityCode = cursor.getString(0);
                 long amount_denom = cursor.getLong(1);
-                String commodityCode = cursor.getString(2);
-                //Log.d(getClass().getName(), commodity + " " + amount_num + "/" + amount_denom);
-                if (commodityCode.equals("XXX") || amount_num == 0) {
-                    // ignore custom currency
+                long amount_num = cursor.getLong(2);
+                if (commodityCode.equals("XXX") || amount_num == 0 || amount_denom <= 0) {
+                    // ignore custom currency and quantities without a valid denominator
                     continue;
                 }
-                if (!hasDebitNormalBalance) {
-                    amount_num = -amount_num;
-                }
+                MoneyAccumulator sum;
                 if (commodityCode.equals(currencyCode)) {
                     // currency matches
-                    total = total.add(new Money(amount_num, amount_denom, currencyCode));
-                    //Log.d(getClass().getName(), "currency " + commodity + " sub - total " + total);
+                    sum = total;
                 } else {
                     // there is a second currency involved
-                    if (commoditiesDbAdapter == null) {
-                        commoditiesDbAdapter = new CommoditiesDbAdapter(mDb);
-                        pricesDbAdapter = new PricesDbAdapter(mDb);
-                        commodity = commoditiesDbAdapter.getCommodity(currencyCode);
-                        currencyUID = commoditiesDbAdapter.getCommodityUID(currencyCode);
-                    }
-                    // get price
-                    String commodityUID = commoditiesDbAdapter.getCommodityUID(commodityCode);
-                    Pair<Long, Long> price = pricesDbAdapter.getPrice(commodityUID, currencyUID);
-                    if (price.first <= 0 || price.second <= 0) {
-                        // no price exists, just ignore it
-                        continue;
+                    if (commoditiesDbAdapter == null)
+                        commoditiesDbAdapter = AdapterRegistry.of(mDb).getCommoditiesDbAdapter();
+                    sum = otherSums.get(commodityCode);
+                    if (sum == null) {
+                        sum = new MoneyAccumulator(commoditiesDbAdapter.getCommodity(commodityCode));
+                        otherSums.put(commodityCode, sum);
                     }
-                    BigDecimal amount = Money.getBigDecimal(amount_num, amount_denom);
-                    BigDecimal amountConverted = amount.multiply(new BigDecimal(price.first))
-                            .divide(new BigDecimal(price.second), commodity.getSmallestFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
-                    total = total.add(new Money(amountConverted, commodity));
-                    //Log.d(getClass().getName(), "currency " + commodity + " sub - total " + total);
                 }
+                if (hasDebitNormalBalance)
+                    sum.add(amount_num, amount_denom);
+                else
+                    sum.subtract(amount_num, amount_denom);
             }
-            return total;
         } finally {
             cursor.close();
         }
+
+        if (!otherSums.isEmpty()) {
+            PricesDbAdapter pricesDbAdapter = AdapterRegistry.of(mDb).getPricesDbAdapter();
+            Commodity commodity = commoditiesDbAdapter.getCommodity(currencyCode);
+            String currencyUID = commoditiesDbAdapter.getCommodityUID(currencyCode);
+            for (Map.Entry<String, MoneyAccumulator> entry : otherSums.entrySet()) {
+                // get price
+                String commodityUID = commoditiesDbAdapter.getCommodityUID(entry.getKey());
+                Pair<Long, Long> price = pricesDbAdapter.getPrice(commodityUID, currencyUID);
+                if (price.first <= 0 || price.second <= 0) {
+                    // no price exists, just ignore it
+                    continue;
+                }
+                BigDecimal amountConverted = entry.getValue().asBigDecimal().multiply(new BigDecimal(price.first))
+                        .divide(new BigDecimal(price.second), commodity.getSmallestFractionDigits(), BigDecimal.ROUND_HALF_EVEN);
+                total.add(new Money(amountConverted, commodity));
+            }
+        }
+        return total.toMoney();
+    }
+
+    /**
+     * Returns the sum of the split quantities of every account in one query.
+     * <p>Debits are counted as positive and credits as negative, without regard to the normal balance
+     * of the account. The sums are in the currency of each account and are not converted.
+     * Splits in accounts with the custom currency XXX are ignored.</p>
+     * @param startTimestamp the start timestamp of the time range, or -1 for no lower bound
+     * @param endTimestamp the end timestamp of the time range, or -1 for no upper bound
+     * @return Map of account GUIDs to the sum of their splits. Accounts without splits are not included
+     */
+    public Map<String, Money> computeSplitSumsPerAccount(long startTimestamp, long endTimestamp){
+        List<String> selectionArgs = new ArrayList<>();
+        String sql = "SELECT a." + AccountEntry.COLUMN_UID + " , " + QUANTITY_SUM_COLUMNS + SPLITS_WITH_COMMODITIES;
+        if (startTimestamp != -1) {
+            sql += " AND t." + TransactionEntry.COLUMN_TIMESTAMP + " >= ?";
+            selectionArgs.add(String.valueOf(startTimestamp));
+        }
+        if (endTimestamp != -1) {
+            sql += " AND t." + TransactionEntry.COLUMN_TIMESTAMP + " <= ?";
+            selectionArgs.add(String.valueOf(endTimestamp));
+        }
+        sql += " GROUP BY a." + AccountEntry.COLUMN_UID + " , quantity_sum_denom";
+
+        Map<String, MoneyAccumulator> accumulators = new HashMap<>();
+        Cursor cursor = mDb.rawQuery(sql, selectionArgs.toArray(new String[selectionArgs.size()]));
+        try {
+            while (cursor.moveToNext()) {
+                String accountUID = cursor.getString(0);
+                String currencyCode = cursor.getString(1);
+                if (currencyCode.equals("XXX")) //ignore custom currency
+                    continue;
+                MoneyAccumulator sum = accumulators.get(accountUID);
+                if (sum == null) {
+                    sum = new MoneyAccumulator(Commodity.getInstance(currencyCode));
+                    accumulators.put(accountUID, sum);
+                }
+                long denominator = cursor.getLong(2);
+                if (denominator > 0)
+                    sum.add(cursor.getLong(3), denominator);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Map<String, Money> sums = new HashMap<>();
+        for (Map.Entry<String, MoneyAccumulator> entry : accumulators.entrySet()) {
+            sums.put(entry.getKey(), entry.getValue().toMoney());
+        }
+        return sums;
     }
 
     /**
@@ -418,6 +676,7 @@ public class SplitsDbAdapter extends DatabaseAdapter<Split> {
         } finally {
             cursor.close();
         }
+        DatabaseChangeNotifier.notifyChange(mDb, describeChange(split));
         return result;
     }
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.db.adapter;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Restricts the transactions returned by {@link TransactionsDbAdapter#search(String, TransactionSearchFilter)}.
+ * <p>A new filter does not restrict anything, except that template transactions are excluded</p>
+ */
+public class TransactionSearchFilter {
+
+    private String mAccountUID;
+
+    private long mStartTime = -1;
+
+    private long mEndTime = -1;
+
+    private boolean mIncludeTemplates = false;
+
+    /**
+     * Only returns transactions with a split in the account
+     * @param accountUID GUID of the account, or {@code null} for all accounts
+     * @return This filter
+     */
+    public TransactionSearchFilter setAccountUID(@Nullable String accountUID) {
+        mAccountUID = accountUID;
+        return this;
+    }
+
+    /**
+     * Only returns transactions in a time period
+     * @param startTime Start of the period in milliseconds since the epoch, inclusive. -1 for no start
+     * @param endTime End of the period in milliseconds since the epoch, inclusive. -1 for no end
+     * @return This filter
+     */
+    public TransactionSearchFilter setTimePeriod(long startTime, long endTime) {
+        mStartTime = startTime;
+        mEndTime = endTime;
+        return this;
+    }
+
+    /**
+     * Sets if template transactions of scheduled actions are returned
+     * @param includeTemplates {@code true} if templates should be returned
+     * @return This filter
+     */
+    public TransactionSearchFilter setIncludeTemplates(boolean includeTemplates) {
+        mIncludeTemplates = includeTemplates;
+        return this;
+    }
+
+    @Nullable
+    public String getAccountUID() {
+        return mAccountUID;
+    }
+
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    public boolean isIncludeTemplates() {
+        return mIncludeTemplates;
+    }
+}
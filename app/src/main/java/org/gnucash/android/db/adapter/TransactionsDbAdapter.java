@@ -25,12 +25,13 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.text.TextUtils;
 import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
 
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseChange;
+import org.gnucash.android.db.DatabaseChangeNotifier;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
@@ -38,14 +39,22 @@ import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.util.TimestampHelper;
 
+import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.gnucash.android.db.DatabaseSchema.AccountEntry;
 import static org.gnucash.android.db.DatabaseSchema.ScheduledActionEntry;
 import static org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import static org.gnucash.android.db.DatabaseSchema.SplitSearchEntry;
 import static org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import static org.gnucash.android.db.DatabaseSchema.TransactionSearchEntry;
 
 /**
  * Manages persistence of {@link Transaction}s in the database
@@ -60,6 +69,83 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
 
     private final CommoditiesDbAdapter mCommoditiesDbAdapter;
 
+    /**
+     * Temporary tables with the GUIDs of the transactions and splits written by {@link #addRecords(List, UpdateMethod)}.
+     * They only exist on the connection of the write transaction and are emptied before it is committed
+     */
+    private static final String WRITTEN_TRANSACTIONS_TABLE = "temp.written_transactions";
+    private static final String WRITTEN_SPLITS_TABLE = "temp.written_splits";
+
+    /**
+     * Numerator of the amount of the transaction in the account, signed according to the account's normal balance.
+     * Column of the cursor returned by {@link #fetchTransactionsWithAmountsForAccount(String)}
+     */
+    public static final String COLUMN_ACCOUNT_AMOUNT_NUM    = "account_amount_num";
+
+    /**
+     * Denominator of the account amount, which is the smallest fraction of the currency of the account
+     */
+    public static final String COLUMN_ACCOUNT_AMOUNT_DENOM  = "account_amount_denom";
+
+    /**
+     * Currency code of the account
+     */
+    public static final String COLUMN_ACCOUNT_CURRENCY      = "account_currency";
+
+    /**
+     * Number of splits of the transaction
+     */
+    public static final String COLUMN_SPLIT_COUNT           = "split_count";
+
+    /**
+     * Full name of the other account, if the transaction consists of exactly one pair of splits, else null
+     */
+    public static final String COLUMN_COUNTERPART_FULL_NAME = "counterpart_full_name";
+
+    /**
+     * Number of transactions with the description of a suggestion
+     * @see #fetchTransactionSuggestions(String, String)
+     */
+    public static final String COLUMN_SUGGESTION_COUNT = "suggestion_count";
+
+    /**
+     * Number of days after its last use in which the rank of a suggestion is halved
+     * @see #fetchTransactionSuggestions(String, String)
+     */
+    public static final int SUGGESTION_RECENCY_DAYS = 30;
+
+    /**
+     * Minimum number of characters of the prefix for which descriptions are suggested.
+     * Shorter prefixes match too many transactions to be useful. This is also the default threshold of
+     * {@link android.widget.AutoCompleteTextView}
+     * @see #fetchTransactionSuggestions(String, String)
+     */
+    public static final int SUGGESTION_MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * Maximum number of matching transactions, most recently added first, from which suggestions are ranked
+     * @see #fetchTransactionSuggestions(String, String)
+     */
+    static final int SUGGESTION_CANDIDATE_LIMIT = 3000;
+
+    /**
+     * GUID of the account in which a search result should be opened. Column of the cursor returned by
+     * {@link #search(String, TransactionSearchFilter)}
+     */
+    public static final String COLUMN_SEARCH_ACCOUNT_UID = "search_account_uid";
+
+    /**
+     * Number of transactions in a page of search results
+     * @see #search(String, TransactionSearchFilter, long, String, int)
+     */
+    public static final int SEARCH_PAGE_SIZE = 50;
+
+    /**
+     * Largest number of decimal places of the amounts which are searched.
+     * Amounts are looked up for every denominator from the decimal places of the search term up to this one
+     */
+    private static final int MAX_SEARCH_AMOUNT_SCALE = 9;
+
     /**
      * Overloaded constructor. Creates adapter for already open db
      * @param db SQlite db instance
@@ -77,7 +163,7 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
                 TransactionEntry.COLUMN_TEMPLATE
         });
         mSplitsDbAdapter = splitsDbAdapter;
-        mCommoditiesDbAdapter = new CommoditiesDbAdapter(db);
+        mCommoditiesDbAdapter = AdapterRegistry.of(db).getCommoditiesDbAdapter();
     }
 
     /**
@@ -92,52 +178,156 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         return mSplitsDbAdapter;
     }
 
+    @Override
+    protected DatabaseChange describeDeletion(long rowId) {
+        return DatabaseChange.ofAccounts(mTableName, getSplitAccountUIDs(
+                SplitEntry.COLUMN_TRANSACTION_UID + " = (SELECT " + TransactionEntry.COLUMN_UID
+                        + " FROM " + TransactionEntry.TABLE_NAME + " WHERE " + TransactionEntry._ID + " = " + rowId + ")",
+                null));
+    }
+
+    /**
+     * Returns the GUIDs of the accounts of the splits matching a where clause
+     * @param where SQL where clause for the splits table
+     * @param whereArgs Arguments of the where clause
+     * @return Set of account GUIDs
+     */
+    private Set<String> getSplitAccountUIDs(String where, String[] whereArgs) {
+        Cursor cursor = mDb.query(true, SplitEntry.TABLE_NAME, new String[]{SplitEntry.COLUMN_ACCOUNT_UID},
+                where, whereArgs, null, null, null, null);
+        Set<String> accountUIDs = new HashSet<>();
+        try {
+            while (cursor.moveToNext()) {
+                accountUIDs.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return accountUIDs;
+    }
+
     /**
 	 * Adds an transaction to the database. 
 	 * If a transaction already exists in the database with the same unique ID, 
 	 * then the record will just be updated instead
 	 * @param transaction {@link Transaction} to be inserted to database
+	 * @see #addRecords(List, UpdateMethod)
 	 */
     @Override
 	public void addRecord(@NonNull Transaction transaction, UpdateMethod updateMethod){
         Log.d(LOG_TAG, "Adding transaction to the db via " + updateMethod.name());
-        mDb.beginTransaction();
+        addRecords(Collections.singletonList(transaction), updateMethod);
+	}
+
+    /**
+     * Adds or updates several transactions with their splits in one database transaction.
+     * <p>As with {@link #addRecord(Transaction, UpdateMethod)}, unbalanced transactions get a split in the
+     * imbalance account of their commodity, and splits which no longer belong to a transaction are deleted.
+     * The imbalance accounts are looked up once per commodity, the splits are written with the cached statements
+     * of the splits adapter, the smallest fractions of their amounts are taken from the commodities of the transactions
+     * and looked up for all accounts at once, and the orphaned splits are deleted with one statement for the whole batch.
+     * One change is published for all transactions.</p>
+     * <p>If writing fails, none of the transactions are written</p>
+     * @param transactionList Transactions to be written
+     * @param updateMethod Method to use for writing the transactions and their splits
+     * @return Number of transactions written
+     */
+    public long addRecords(@NonNull List<Transaction> transactionList, UpdateMethod updateMethod){
+        if (transactionList.isEmpty())
+            return 0;
+
+        List<String> transactionUIDs = new ArrayList<>(transactionList.size());
+        Set<String> accountUIDs = new HashSet<>();
+        Map<String, String> imbalanceAccountUIDs = new HashMap<>();
+        long count = 0;
+        beginTransaction();
         try {
-            Split imbalanceSplit = transaction.createAutoBalanceSplit();
-            if (imbalanceSplit != null){
-                String imbalanceAccountUID = new AccountsDbAdapter(mDb, this)
-                        .getOrCreateImbalanceAccountUID(transaction.getCommodity());
-                imbalanceSplit.setAccountUID(imbalanceAccountUID);
+            Set<String> imbalanceSplitUIDs = new HashSet<>();
+            Map<String, Long> transactionFractions = new HashMap<>(transactionList.size());
+            Set<String> splitAccountUIDs = new HashSet<>();
+            for (Transaction transaction : transactionList) {
+                Commodity commodity = transaction.getCommodity();
+                Split imbalanceSplit = transaction.createAutoBalanceSplit();
+                if (imbalanceSplit != null) {
+                    String imbalanceAccountUID = imbalanceAccountUIDs.get(commodity.getCurrencyCode());
+                    if (imbalanceAccountUID == null) {
+                        imbalanceAccountUID = AdapterRegistry.of(mDb).getAccountsDbAdapter()
+                                .getOrCreateImbalanceAccountUID(commodity);
+                        imbalanceAccountUIDs.put(commodity.getCurrencyCode(), imbalanceAccountUID);
+                    }
+                    imbalanceSplit.setAccountUID(imbalanceAccountUID);
+                    imbalanceSplitUIDs.add(imbalanceSplit.getUID());
+                }
+                transactionFractions.put(transaction.getUID(), (long) commodity.getSmallestFraction());
+                for (Split split : transaction.getSplits()) {
+                    splitAccountUIDs.add(split.getAccountUID());
+                }
             }
-            super.addRecord(transaction, updateMethod);
-
-            Log.d(LOG_TAG, "Adding splits for transaction");
-            ArrayList<String> splitUIDs = new ArrayList<>(transaction.getSplits().size());
-            for (Split split : transaction.getSplits()) {
-                Log.d(LOG_TAG, "Replace transaction split in db");
-                if (imbalanceSplit == split) {
-                    mSplitsDbAdapter.addRecord(split, UpdateMethod.insert);
-                } else {
-                    mSplitsDbAdapter.addRecord(split, updateMethod);
+            mDb.execSQL("CREATE TABLE IF NOT EXISTS " + WRITTEN_TRANSACTIONS_TABLE + " (uid varchar(255) PRIMARY KEY)");
+            mDb.execSQL("CREATE TABLE IF NOT EXISTS " + WRITTEN_SPLITS_TABLE + " (uid varchar(255) PRIMARY KEY)");
+            SQLiteStatement addTransactionUID = mDb.compileStatement(
+                    "INSERT OR IGNORE INTO " + WRITTEN_TRANSACTIONS_TABLE + " VALUES (?)");
+            SQLiteStatement addSplitUID = mDb.compileStatement(
+                    "INSERT OR IGNORE INTO " + WRITTEN_SPLITS_TABLE + " VALUES (?)");
+            mSplitsDbAdapter.beginBatch(transactionFractions, mSplitsDbAdapter.getAccountFractions(splitAccountUIDs));
+            try {
+                for (Transaction transaction : transactionList) {
+                    //the accounts of the splits which are replaced are affected as well
+                    accountUIDs.addAll(getSplitAccountUIDs(SplitEntry.COLUMN_TRANSACTION_UID + " = ?",
+                            new String[]{transaction.getUID()}));
+                    transactionUIDs.add(transaction.getUID());
+                    writeRecord(transaction, updateMethod);
+                    addTransactionUID.bindString(1, transaction.getUID());
+                    addTransactionUID.executeInsert();
+
+                    for (Split split : transaction.getSplits()) {
+                        accountUIDs.add(split.getAccountUID());
+                        mSplitsDbAdapter.writeRecord(split,
+                                imbalanceSplitUIDs.contains(split.getUID()) ? UpdateMethod.insert : updateMethod);
+                        addSplitUID.bindString(1, split.getUID());
+                        addSplitUID.executeInsert();
+                    }
+                    count++;
                 }
-                splitUIDs.add(split.getUID());
+            } finally {
+                mSplitsDbAdapter.endBatch();
+                addTransactionUID.close();
+                addSplitUID.close();
             }
-            Log.d(LOG_TAG, transaction.getSplits().size() + " splits added");
 
             long deleted = mDb.delete(SplitEntry.TABLE_NAME,
-                    SplitEntry.COLUMN_TRANSACTION_UID + " = ? AND "
-                            + SplitEntry.COLUMN_UID + " NOT IN ('" + TextUtils.join("' , '", splitUIDs) + "')",
-                    new String[]{transaction.getUID()});
+                    SplitEntry.COLUMN_TRANSACTION_UID + " IN (SELECT uid FROM " + WRITTEN_TRANSACTIONS_TABLE + ")"
+                            + " AND " + SplitEntry.COLUMN_UID + " NOT IN (SELECT uid FROM " + WRITTEN_SPLITS_TABLE + ")",
+                    null);
             Log.d(LOG_TAG, deleted + " splits deleted");
 
+            //when a split is written, the transaction is modified and no longer exported
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(TransactionEntry.COLUMN_EXPORTED, 0);
+            contentValues.put(TransactionEntry.COLUMN_MODIFIED_AT,
+                    TimestampHelper.getUtcStringFromTimestamp(TimestampHelper.getTimestampFromNow()));
+            mDb.update(TransactionEntry.TABLE_NAME, contentValues,
+                    TransactionEntry.COLUMN_UID + " IN (SELECT " + SplitEntry.COLUMN_TRANSACTION_UID
+                            + " FROM " + SplitEntry.TABLE_NAME + " WHERE " + SplitEntry.COLUMN_UID
+                            + " IN (SELECT uid FROM " + WRITTEN_SPLITS_TABLE + "))",
+                    null);
+
+            mDb.delete(WRITTEN_TRANSACTIONS_TABLE, null, null);
+            mDb.delete(WRITTEN_SPLITS_TABLE, null, null);
             mDb.setTransactionSuccessful();
+            Log.d(LOG_TAG, count + " transactions added");
         } catch (SQLException sqlEx) {
             Log.e(LOG_TAG, sqlEx.getMessage());
             Crashlytics.logException(sqlEx);
+            return 0;
         } finally {
-            mDb.endTransaction();
+            endTransaction();
         }
-	}
+        DatabaseChangeNotifier.notifyChange(mDb,
+                DatabaseChange.ofTransactions(mTableName, transactionUIDs, accountUIDs)
+                        .merge(DatabaseChange.ofTransactions(SplitEntry.TABLE_NAME, transactionUIDs, accountUIDs)));
+        return count;
+    }
 
     /**
      * Adds an several transactions to the database.
@@ -220,6 +410,128 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
         return queryBuilder.query(mDb, projectionIn, selection, selectionArgs, null, null, sortOrder);
     }
 
+    /**
+     * Returns a cursor to all non-template transactions in the account, along with everything needed to display them.
+     * <p>Besides the transaction columns, each row contains the amount of the transaction in the account
+     * ({@link #COLUMN_ACCOUNT_AMOUNT_NUM}, {@link #COLUMN_ACCOUNT_AMOUNT_DENOM}, {@link #COLUMN_ACCOUNT_CURRENCY}), the number of splits ({@link #COLUMN_SPLIT_COUNT}) and the full name of
+     * the other account of simple transactions ({@link #COLUMN_COUNTERPART_FULL_NAME}).
+     * These are computed the same way as {@link #getBalance(String, String)} and
+     * {@link SplitsDbAdapter#getSplitsForTransaction(String)} would, but in the same query</p>
+     * @param accountUID GUID of the account
+     * @return Cursor to the transactions, most recent first
+     * @see #fetchTransactionPageForAccount(String, long, String, int)
+     */
+    public Cursor fetchTransactionsWithAmountsForAccount(String accountUID){
+        return fetchTransactionPageForAccount(accountUID, 0, null, -1);
+    }
+
+    /**
+     * Returns a cursor to one page of the transactions of the account, with the same columns as
+     * {@link #fetchTransactionsWithAmountsForAccount(String)}.
+     * <p>Transactions are sorted by timestamp and GUID, most recent first. A page starts after the last
+     * transaction of the previous page (keyset pagination), so the cost of loading a page does not depend on
+     * how many pages come before it. Accounts with few transactions compared to the whole book are paged
+     * through their splits instead of the transactions of the book.
+     * The amounts and split counts are only computed for the rows of the page.</p>
+     * @param accountUID GUID of the account
+     * @param afterTimestamp Timestamp of the last transaction of the previous page. Ignored for the first page
+     * @param afterUID GUID of the last transaction of the previous page, or {@code null} for the first page
+     * @param pageSize Maximum number of transactions in the page, or -1 for all remaining transactions
+     * @return Cursor to the transactions of the page
+     */
+    public Cursor fetchTransactionPageForAccount(String accountUID, long afterTimestamp,
+                                                 @Nullable String afterUID, int pageSize){
+        String currencyCode = getAccountCurrencyCode(accountUID);
+        int fraction = mCommoditiesDbAdapter.getCommodity(currencyCode).getSmallestFraction();
+        boolean hasDebitNormalBalance = getAccountType(accountUID).hasDebitNormalBalance();
+        List<String> args = new ArrayList<>();
+
+        //the split value is in the transaction currency, the quantity in the account currency.
+        //both are stored in units of the smallest fraction of their currency, debits positive
+        String amount = "CASE WHEN t." + TransactionEntry.COLUMN_CURRENCY + " = ?"
+                + " THEN s." + SplitEntry.COLUMN_VALUE_AMOUNT + " ELSE s." + SplitEntry.COLUMN_QUANTITY_AMOUNT + " END";
+        String sign = hasDebitNormalBalance ? "" : "-";
+        String accountSplits = " FROM " + SplitEntry.TABLE_NAME + " s"
+                + " WHERE s." + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID
+                + " AND s." + SplitEntry.COLUMN_ACCOUNT_UID + " = ?";
+        String transactionSplits = " FROM " + SplitEntry.TABLE_NAME
+                + " WHERE " + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID;
+
+        //a simple transaction is a pair of splits with the same absolute value and opposite types
+        String isPair = "SELECT COUNT(*) = 2 AND MIN(" + SplitEntry.COLUMN_TYPE + ") != MAX(" + SplitEntry.COLUMN_TYPE + ")"
+                + " AND MIN(ABS(" + SplitEntry.COLUMN_VALUE_NUM + ")) = MAX(ABS(" + SplitEntry.COLUMN_VALUE_NUM + "))"
+                + " AND MIN(" + SplitEntry.COLUMN_VALUE_DENOM + ") = MAX(" + SplitEntry.COLUMN_VALUE_DENOM + ")"
+                + transactionSplits;
+        String counterpartName = "SELECT a." + AccountEntry.COLUMN_FULL_NAME
+                + " FROM " + SplitEntry.TABLE_NAME + " s2"
+                + " INNER JOIN " + AccountEntry.TABLE_NAME + " a ON a." + AccountEntry.COLUMN_UID
+                + " = s2." + SplitEntry.COLUMN_ACCOUNT_UID
+                + " WHERE s2." + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID
+                + " AND s2." + SplitEntry.COLUMN_ACCOUNT_UID + " != ? LIMIT 1";
+
+        String columns = "t.*, "
+                + "(SELECT " + sign + "SUM(" + amount + ")" + accountSplits + ") AS " + COLUMN_ACCOUNT_AMOUNT_NUM + ", "
+                + fraction + " AS " + COLUMN_ACCOUNT_AMOUNT_DENOM + ", "
+                + "? AS " + COLUMN_ACCOUNT_CURRENCY + ", "
+                + "(SELECT COUNT(*)" + transactionSplits + ") AS " + COLUMN_SPLIT_COUNT + ", "
+                + "CASE WHEN (" + isPair + ") THEN (" + counterpartName + ") END AS " + COLUMN_COUNTERPART_FULL_NAME;
+        args.add(currencyCode);
+        args.add(accountUID);
+        args.add(currencyCode);
+        args.add(accountUID);
+
+        //the page is selected first, so that the columns above are only computed for its rows
+        String order = TransactionEntry.COLUMN_TIMESTAMP + " DESC, " + TransactionEntry.COLUMN_UID + " DESC";
+        String page;
+        if (pageSize < 0 || isSparseAccount(accountUID, pageSize)) {
+            //start from the splits of the account, then sort their transactions
+            page = "SELECT p.* FROM (SELECT DISTINCT " + SplitEntry.COLUMN_TRANSACTION_UID
+                    + " FROM " + SplitEntry.TABLE_NAME + " WHERE " + SplitEntry.COLUMN_ACCOUNT_UID + " = ?) a"
+                    + " CROSS JOIN " + TransactionEntry.TABLE_NAME + " p ON p." + TransactionEntry.COLUMN_UID
+                    + " = a." + SplitEntry.COLUMN_TRANSACTION_UID
+                    + " WHERE p." + TransactionEntry.COLUMN_TEMPLATE + " = 0";
+        } else {
+            //walk all transactions in page order until the page is full
+            page = "SELECT * FROM " + TransactionEntry.TABLE_NAME + " p"
+                    + " WHERE p." + TransactionEntry.COLUMN_TEMPLATE + " = 0"
+                    + " AND EXISTS (SELECT 1 FROM " + SplitEntry.TABLE_NAME
+                    + " WHERE " + SplitEntry.COLUMN_ACCOUNT_UID + " = ?"
+                    + " AND " + SplitEntry.COLUMN_TRANSACTION_UID + " = p." + TransactionEntry.COLUMN_UID + ")";
+        }
+        args.add(accountUID);
+        if (afterUID != null) {
+            page += " AND p." + TransactionEntry.COLUMN_TIMESTAMP + " <= ?"
+                    + " AND (p." + TransactionEntry.COLUMN_TIMESTAMP + " < ? OR p." + TransactionEntry.COLUMN_UID + " < ?)";
+            args.add(String.valueOf(afterTimestamp));
+            args.add(String.valueOf(afterTimestamp));
+            args.add(afterUID);
+        }
+        page += " ORDER BY " + order + " LIMIT " + pageSize;
+
+        String sql = "SELECT " + columns + " FROM (" + page + ") t ORDER BY " + order;
+        return mDb.rawQuery(sql, args.toArray(new String[args.size()]));
+    }
+
+    /**
+     * Checks if a page of the transactions of the account is found faster through the splits of the account
+     * than by walking all transactions in page order.
+     * <p>Walking visits about {@code pageSize * transactions / accountSplits} transactions per page, while
+     * going through the splits visits and sorts all {@code accountSplits} of them. The splits are only counted
+     * up to the point where walking gets cheaper, so the check does not depend on the size of the account</p>
+     * @param accountUID GUID of the account
+     * @param pageSize Number of transactions in a page
+     * @return {@code true} if the account has few splits compared to the number of transactions
+     */
+    private boolean isSparseAccount(String accountUID, int pageSize) {
+        //the largest row ID is a cheap estimate of the number of transactions
+        long transactionCount = simpleQueryForLong("SELECT IFNULL(MAX(" + TransactionEntry._ID + "), 0) FROM "
+                + TransactionEntry.TABLE_NAME);
+        long maxSplitCount = (long) Math.sqrt((double) pageSize * transactionCount) + 1;
+        long splitCount = simpleQueryForLong("SELECT COUNT(*) FROM (SELECT 1 FROM " + SplitEntry.TABLE_NAME
+                + " WHERE " + SplitEntry.COLUMN_ACCOUNT_UID + " = ? LIMIT ?)", accountUID, maxSplitCount);
+        return splitCount < maxSplitCount;
+    }
+
     /**
      * Returns a cursor to all scheduled transactions which have at least one split in the account
      * <p>This is basically a set of all template transactions for this account</p>
@@ -253,6 +565,8 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
                 + " (SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME + " WHERE "
                 + SplitEntry.COLUMN_ACCOUNT_UID + " = ?)";
         mDb.execSQL(rawDeleteQuery, new String[]{accountUID});
+        //the other splits of the transactions can belong to any account
+        notifyTableChanged(mTableName);
     }
 
     /**
@@ -472,10 +786,8 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
      * @return Number of template transactions
      */
     public long getTemplateTransactionsCount(){
-        String sql = "SELECT COUNT(*) FROM " + TransactionEntry.TABLE_NAME
-                + " WHERE " + TransactionEntry.COLUMN_TEMPLATE + "=1";
-        SQLiteStatement statement = mDb.compileStatement(sql);
-        return statement.simpleQueryForLong();
+        return simpleQueryForLong("SELECT COUNT(*) FROM " + TransactionEntry.TABLE_NAME
+                + " WHERE " + TransactionEntry.COLUMN_TEMPLATE + "=1");
     }
 
     /**
@@ -503,37 +815,251 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
     public long getSplitCount(@NonNull String transactionUID){
         if (transactionUID == null)
             return 0;
-        String sql = "SELECT COUNT(*) FROM " + SplitEntry.TABLE_NAME
-                + " WHERE " + SplitEntry.COLUMN_TRANSACTION_UID + "= '" + transactionUID + "'";
-        SQLiteStatement statement = mDb.compileStatement(sql);
-        return statement.simpleQueryForLong();
+        return simpleQueryForLong("SELECT COUNT(*) FROM " + SplitEntry.TABLE_NAME
+                + " WHERE " + SplitEntry.COLUMN_TRANSACTION_UID + " = ?", transactionUID);
     }
 
     /**
-     * Returns a cursor to transactions whose name (UI: description) start with the <code>prefix</code>
+     * Returns a cursor to transactions whose name (UI: description) contains words starting with the words of the <code>prefix</code>
      * <p>This method is used for autocomplete suggestions when creating new transactions. <br/>
      * The suggestions are either transactions which have at least one split with {@code accountUID} or templates.</p>
-     * @param prefix Starting characters of the transaction name
+     * <p>The descriptions are looked up in the full-text index {@link TransactionSearchEntry}.
+     * There is one suggestion per description, which is its most recent transaction.
+     * Suggestions are ranked by how often the description was used in the account,
+     * weighted down by the time since it was last used (see {@link #SUGGESTION_RECENCY_DAYS}).
+     * Only the {@link #SUGGESTION_CANDIDATE_LIMIT} most recently added transactions matching the prefix are ranked,
+     * so that the cost of a short prefix which matches most transactions is bounded.
+     * The number of uses is returned in the column {@link #COLUMN_SUGGESTION_COUNT}.</p>
+     * @param prefix Starting characters of the transaction name. Nothing is suggested for prefixes
+     *               shorter than {@link #SUGGESTION_MIN_PREFIX_LENGTH}
      * @param accountUID GUID of account within which to search for transactions
      * @return Cursor to the data set containing all matching transactions
      */
     public Cursor fetchTransactionSuggestions(String prefix, String accountUID){
-        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
-        queryBuilder.setTables(TransactionEntry.TABLE_NAME
-                + " INNER JOIN " + SplitEntry.TABLE_NAME + " ON "
-                + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_UID + " = "
-                + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_TRANSACTION_UID);
-        queryBuilder.setDistinct(true);
-        String[] projectionIn = new String[]{TransactionEntry.TABLE_NAME + ".*"};
-        String selection = "(" + SplitEntry.TABLE_NAME + "." + SplitEntry.COLUMN_ACCOUNT_UID + " = ?"
-                + " OR " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TEMPLATE + "=1 )"
-                + " AND " + TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_DESCRIPTION + " LIKE '" + prefix + "%'";
-        String[] selectionArgs = new String[]{accountUID};
-        String sortOrder = TransactionEntry.TABLE_NAME + "." + TransactionEntry.COLUMN_TIMESTAMP + " DESC";
-        String groupBy = TransactionEntry.COLUMN_DESCRIPTION;
-        String limit = Integer.toString(5);
+        List<String> args = new ArrayList<>();
+        String descriptionCondition = "";
+        prefix = prefix.trim();
+        String matchQuery = buildPrefixMatchQuery(TransactionSearchEntry.COLUMN_DESCRIPTION, prefix);
+        if (prefix.length() < SUGGESTION_MIN_PREFIX_LENGTH) { //still query, so that the cursor has the usual columns
+            descriptionCondition = " AND 0";
+        } else if (matchQuery != null) {
+            descriptionCondition = " AND t." + TransactionEntry._ID + " IN (SELECT docid FROM "
+                    + TransactionSearchEntry.TABLE_NAME + " WHERE " + TransactionSearchEntry.TABLE_NAME + " MATCH ?"
+                    + " ORDER BY docid DESC LIMIT " + SUGGESTION_CANDIDATE_LIMIT + ")";
+            args.add(matchQuery);
+        } else { //no words to look up, e.g. only punctuation
+            descriptionCondition = " AND t." + TransactionEntry.COLUMN_DESCRIPTION + " LIKE ?";
+            args.add(prefix + "%");
+        }
+        args.add(accountUID);
+        args.add(String.valueOf(System.currentTimeMillis()));
+
+        String sql = "SELECT t.*, MAX(t." + TransactionEntry.COLUMN_TIMESTAMP + "), "
+                + "COUNT(*) AS " + COLUMN_SUGGESTION_COUNT
+                + " FROM " + TransactionEntry.TABLE_NAME + " t"
+                + " WHERE 1=1" + descriptionCondition
+                + " AND (t." + TransactionEntry.COLUMN_TEMPLATE + " = 1 OR EXISTS (SELECT 1 FROM " + SplitEntry.TABLE_NAME + " s"
+                + " WHERE s." + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID
+                + " AND s." + SplitEntry.COLUMN_ACCOUNT_UID + " = ?))"
+                + " GROUP BY t." + TransactionEntry.COLUMN_DESCRIPTION
+                + " ORDER BY COUNT(*) / (1.0 + (CAST(? AS INTEGER) - MAX(t." + TransactionEntry.COLUMN_TIMESTAMP
+                + ")) / " + (SUGGESTION_RECENCY_DAYS * 24L * 60 * 60 * 1000) + ".0) DESC"
+                + " LIMIT 5";
+        return mDb.rawQuery(sql, args.toArray(new String[args.size()]));
+    }
 
-        return queryBuilder.query(mDb, projectionIn, selection, selectionArgs, groupBy, null, sortOrder, limit);
+    /**
+     * Builds a full-text query which matches the records where a column contains words
+     * starting with every word of the {@code text}.
+     * <p>Only letters and digits are kept from the text, so the query cannot contain any full-text query syntax</p>
+     * @param column Column of {@link TransactionSearchEntry} to search
+     * @param text Text entered by the user
+     * @return Query for the {@code MATCH} operator, or {@code null} if the text contains no words
+     */
+    @Nullable
+    static String buildPrefixMatchQuery(@NonNull String column, @NonNull String text) {
+        StringBuilder query = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            if (query.length() > 0)
+                query.append(' ');
+            query.append(column).append(':').append(word).append('*');
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * Returns the first page of the transactions matching a search query
+     * @param query Text entered by the user
+     * @param filter Restrictions on the returned transactions
+     * @return Cursor to the matching transactions, most recent first
+     * @see #search(String, TransactionSearchFilter, long, String, int)
+     */
+    public Cursor search(@NonNull String query, @NonNull TransactionSearchFilter filter){
+        return search(query, filter, 0, null, SEARCH_PAGE_SIZE);
+    }
+
+    /**
+     * Returns one page of the transactions matching a search query.
+     * <p>Every whitespace-separated term of the query must match the transaction, which is the case when
+     * each of its words starts a word of the description, of the notes or of the memo of a split.
+     * A term which is a number also matches transactions with a split of that absolute amount,
+     * in the transaction currency or in the account currency.</p>
+     * <p>The words are looked up in the full-text indexes {@link TransactionSearchEntry} and
+     * {@link SplitSearchEntry}, and the amounts in the indexes of the split numerators,
+     * so searching does not read every transaction.
+     * Besides the transaction columns, each row contains the account in which the transaction should be
+     * opened ({@link #COLUMN_SEARCH_ACCOUNT_UID}).</p>
+     * <p>Results are sorted and paged like {@link #fetchTransactionPageForAccount(String, long, String, int)}</p>
+     * @param query Text entered by the user. If it contains no terms, all transactions accepted by the filter are returned
+     * @param filter Restrictions on the returned transactions
+     * @param afterTimestamp Timestamp of the last transaction of the previous page. Ignored for the first page
+     * @param afterUID GUID of the last transaction of the previous page, or {@code null} for the first page
+     * @param pageSize Maximum number of transactions in the page, or -1 for all remaining transactions
+     * @return Cursor to the matching transactions of the page
+     */
+    public Cursor search(@NonNull String query, @NonNull TransactionSearchFilter filter,
+                         long afterTimestamp, @Nullable String afterUID, int pageSize){
+        List<String> args = new ArrayList<>();
+        String accountColumn;
+        String accountUID = filter.getAccountUID();
+        if (accountUID != null) {
+            accountColumn = "? AS " + COLUMN_SEARCH_ACCOUNT_UID;
+            args.add(accountUID);
+        } else {
+            accountColumn = "(SELECT " + SplitEntry.COLUMN_ACCOUNT_UID + " FROM " + SplitEntry.TABLE_NAME
+                    + " WHERE " + SplitEntry.COLUMN_TRANSACTION_UID + " = t." + TransactionEntry.COLUMN_UID
+                    + " ORDER BY " + SplitEntry._ID + " LIMIT 1) AS " + COLUMN_SEARCH_ACCOUNT_UID;
+        }
+
+        StringBuilder where = new StringBuilder(filter.isIncludeTemplates()
+                ? "1=1" : "t." + TransactionEntry.COLUMN_TEMPLATE + " = 0");
+        for (String term : query.trim().split("\\s+")) {
+            String condition = buildSearchTermCondition(term, args);
+            if (condition != null)
+                where.append(" AND (").append(condition).append(")");
+        }
+        if (accountUID != null) {
+            where.append(" AND EXISTS (SELECT 1 FROM ").append(SplitEntry.TABLE_NAME).append(" s")
+                    .append(" WHERE s.").append(SplitEntry.COLUMN_TRANSACTION_UID).append(" = t.").append(TransactionEntry.COLUMN_UID)
+                    .append(" AND s.").append(SplitEntry.COLUMN_ACCOUNT_UID).append(" = ?)");
+            args.add(accountUID);
+        }
+        if (filter.getStartTime() != -1) {
+            where.append(" AND t.").append(TransactionEntry.COLUMN_TIMESTAMP).append(" >= ?");
+            args.add(String.valueOf(filter.getStartTime()));
+        }
+        if (filter.getEndTime() != -1) {
+            where.append(" AND t.").append(TransactionEntry.COLUMN_TIMESTAMP).append(" <= ?");
+            args.add(String.valueOf(filter.getEndTime()));
+        }
+        if (afterUID != null) {
+            where.append(" AND t.").append(TransactionEntry.COLUMN_TIMESTAMP).append(" <= ?")
+                    .append(" AND (t.").append(TransactionEntry.COLUMN_TIMESTAMP).append(" < ? OR t.")
+                    .append(TransactionEntry.COLUMN_UID).append(" < ?)");
+            args.add(String.valueOf(afterTimestamp));
+            args.add(String.valueOf(afterTimestamp));
+            args.add(afterUID);
+        }
+
+        String sql = "SELECT t.*, " + accountColumn
+                + " FROM " + TransactionEntry.TABLE_NAME + " t"
+                + " WHERE " + where
+                + " ORDER BY t." + TransactionEntry.COLUMN_TIMESTAMP + " DESC, t." + TransactionEntry.COLUMN_UID + " DESC"
+                + " LIMIT " + pageSize;
+        return mDb.rawQuery(sql, args.toArray(new String[args.size()]));
+    }
+
+    /**
+     * Builds the condition which a transaction must fulfill to match one term of a search query
+     * @param term Term of the query, without whitespace
+     * @param args List to which the arguments of the condition are appended
+     * @return SQL condition on the transactions table aliased {@code t}, or {@code null} if the term matches everything
+     */
+    @Nullable
+    private static String buildSearchTermCondition(@NonNull String term, @NonNull List<String> args) {
+        StringBuilder textCondition = new StringBuilder();
+        for (String word : term.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            if (textCondition.length() > 0)
+                textCondition.append(" AND ");
+            textCondition.append("(t.").append(TransactionEntry._ID).append(" IN (SELECT docid FROM ")
+                    .append(TransactionSearchEntry.TABLE_NAME).append(" WHERE ")
+                    .append(TransactionSearchEntry.TABLE_NAME).append(" MATCH ?)")
+                    .append(" OR t.").append(TransactionEntry._ID).append(" IN (SELECT docid FROM ")
+                    .append(TransactionSearchEntry.TABLE_NAME).append(" WHERE ")
+                    .append(TransactionSearchEntry.TABLE_NAME).append(" MATCH ?)")
+                    .append(" OR t.").append(TransactionEntry.COLUMN_UID).append(" IN (SELECT ")
+                    .append(SplitEntry.COLUMN_TRANSACTION_UID).append(" FROM ").append(SplitEntry.TABLE_NAME)
+                    .append(" WHERE ").append(SplitEntry._ID).append(" IN (SELECT docid FROM ")
+                    .append(SplitSearchEntry.TABLE_NAME).append(" WHERE ")
+                    .append(SplitSearchEntry.TABLE_NAME).append(" MATCH ?)))");
+            args.add(TransactionSearchEntry.COLUMN_DESCRIPTION + ":" + word + "*");
+            args.add(TransactionSearchEntry.COLUMN_NOTES + ":" + word + "*");
+            args.add(SplitSearchEntry.COLUMN_MEMO + ":" + word + "*");
+        }
+
+        String amountCondition = buildSearchAmountCondition(term);
+        if (amountCondition == null)
+            return textCondition.length() == 0 ? null : textCondition.toString();
+        if (textCondition.length() == 0)
+            return amountCondition;
+        return textCondition + " OR " + amountCondition;
+    }
+
+    /**
+     * Builds the condition which matches the transactions with a split whose absolute value or quantity
+     * equals the number in a search term.
+     * <p>The numerators which represent the amount for the denominators 10<sup>n</sup> are listed,
+     * so that the splits can be found with the indexes of the numerator columns,
+     * then the fraction of each split is compared exactly with the amount</p>
+     * @param term Term of the query
+     * @return SQL condition on the transactions table aliased {@code t},
+     * or {@code null} if the term is not a number which can be searched
+     */
+    @Nullable
+    static String buildSearchAmountCondition(@NonNull String term) {
+        if (!term.matches("[-+]?(\\d+([.,]\\d*)?|[.,]\\d+)"))
+            return null;
+        BigDecimal amount = new BigDecimal(term.replace(',', '.')).abs().stripTrailingZeros();
+        if (amount.scale() < 0)
+            amount = amount.setScale(0);
+        if (amount.scale() > MAX_SEARCH_AMOUNT_SCALE || amount.unscaledValue().bitLength() > 62)
+            return null;
+
+        StringBuilder numerators = new StringBuilder();
+        for (int scale = amount.scale(); scale <= MAX_SEARCH_AMOUNT_SCALE; scale++) {
+            long numerator;
+            try {
+                numerator = amount.movePointRight(scale).longValueExact();
+            } catch (ArithmeticException e) { //the larger denominators cannot represent the amount
+                break;
+            }
+            if (numerators.length() > 0)
+                numerators.append(", ");
+            numerators.append(numerator);
+            if (numerator != 0)
+                numerators.append(", ").append(-numerator);
+        }
+
+        long numerator = amount.unscaledValue().longValue();
+        long denominator = BigDecimal.ONE.movePointRight(amount.scale()).longValue();
+        return "t." + TransactionEntry.COLUMN_UID + " IN ("
+                + buildSplitAmountQuery(SplitEntry.COLUMN_VALUE_NUM, SplitEntry.COLUMN_VALUE_DENOM,
+                        numerators, numerator, denominator)
+                + " UNION "
+                + buildSplitAmountQuery(SplitEntry.COLUMN_QUANTITY_NUM, SplitEntry.COLUMN_QUANTITY_DENOM,
+                        numerators, numerator, denominator)
+                + ")";
+    }
+
+    private static String buildSplitAmountQuery(String numColumn, String denomColumn, CharSequence numerators,
+                                                long numerator, long denominator) {
+        return "SELECT " + SplitEntry.COLUMN_TRANSACTION_UID + " FROM " + SplitEntry.TABLE_NAME
+                + " WHERE " + numColumn + " IN (" + numerators + ")"
+                + " AND ABS(" + numColumn + ") * " + denominator + " = " + numerator + " * " + denomColumn;
     }
 
     /**
@@ -578,7 +1104,9 @@ public class TransactionsDbAdapter extends DatabaseAdapter<Transaction> {
      */
     public int deleteAllNonTemplateTransactions(){
         String where = TransactionEntry.COLUMN_TEMPLATE + "=0";
-        return mDb.delete(mTableName, where, null);
+        int count = mDb.delete(mTableName, where, null);
+        notifyTableChanged(mTableName);
+        return count;
     }
 
     /**
@@ -49,16 +49,18 @@ import com.owncloud.android.lib.common.OwnCloudCredentialsFactory;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.resources.files.CreateRemoteFolderOperation;
 import com.owncloud.android.lib.resources.files.FileUtils;
-import com.owncloud.android.lib.resources.files.UploadRemoteFileOperation;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
+import org.gnucash.android.db.adapter.BooksDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.export.ofx.OfxExporter;
 import org.gnucash.android.export.qif.QifExporter;
+import org.gnucash.android.export.upload.ChunkedUploader;
+import org.gnucash.android.export.upload.UploadSpool;
+import org.gnucash.android.export.upload.WebDavChunkTransport;
 import org.gnucash.android.export.xml.GncXmlExporter;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.ui.account.AccountsActivity;
@@ -66,16 +68,26 @@ import org.gnucash.android.ui.account.AccountsListFragment;
 import org.gnucash.android.ui.settings.BackupPreferenceFragment;
 import org.gnucash.android.ui.transaction.TransactionsActivity;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -107,10 +119,31 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
     private ExportParams mExportParams;
 
     // File paths generated by the exporter
-    private List<String> mExportedFiles;
+    private List<String> mExportedFiles = new ArrayList<>();
 
     private Exporter mExporter;
 
+    /**
+     * Destination folder on the ownCloud server
+     */
+    private String mOwnCloudDir;
+
+    /**
+     * Exporters which generated the exported files, when exporting multiple books.
+     * Each book has its own exporter
+     */
+    private final Map<String, Exporter> mExportedFileExporters = new HashMap<>();
+
+    /**
+     * Creates a task which exports the book in {@code db}.
+     * <p>If {@link ExportParams#shouldExportAllBooks()} is set, all books are exported instead.
+     * They are exported concurrently, each from its own database. The export fails if any of the books
+     * fails to export, and all errors are reported together.
+     * Deleting transactions after export is not supported in this mode</p>
+     * @param context Context
+     * @param db Database of the book to export
+     * @see MultiBookExporter
+     */
     public ExportAsyncTask(Context context, SQLiteDatabase db){
         this.mContext = context;
         this.mDb = db;
@@ -139,10 +172,16 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
     @Override
     protected Boolean doInBackground(ExportParams... params) {
         mExportParams = params[0];
-        mExporter = getExporter();
 
         try {
-            mExportedFiles = mExporter.generateExport();
+            if (!mExportParams.shouldExportAllBooks()) {
+                mExporter = getExporter(mDb);
+                if (canExportDirectly())
+                    return exportDirectly();
+                mExportedFiles = mExporter.generateExport();
+            } else {
+                exportBooks();
+            }
         } catch (final Exception e) {
             Log.e(TAG, "Error exporting: " + e.getMessage());
             Crashlytics.logException(e);
@@ -174,6 +213,128 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         return true;
     }
 
+    /**
+     * Checks if the export can be written straight to the export target.
+     * <p>Targets which need a file on disk (sharing, Dropbox, Google Drive) still get the export through a cache file</p>
+     * @return {@code true} if the export can skip the cache file, {@code false} otherwise
+     */
+    private boolean canExportDirectly() {
+        if (!mExporter.supportsDirectExport())
+            return false;
+
+        switch (mExportParams.getExportTarget()) {
+            case URI:
+            case SD_CARD:
+            case OWNCLOUD:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Writes the export straight to the export target, without an intermediate cache file.
+     * <p>Exports to a URI are zipped, just like in {@link #moveExportToUri()}.
+     * A failed export never leaves a partially written file at the destination</p>
+     * @return {@code true} if anything was exported, {@code false} if there was nothing to export
+     * @throws IOException if the export destination could not be written
+     */
+    private boolean exportDirectly() throws IOException {
+        if (mExportParams.getExportTarget() == ExportParams.ExportTarget.OWNCLOUD)
+            return exportDirectlyToOwnCloud();
+
+        if (!mExporter.hasDataToExport())
+            return false;
+
+        String fileName = mExporter.getExportFileName();
+        String destination;
+        if (mExportParams.getExportTarget() == ExportParams.ExportTarget.URI) {
+            Uri exportUri = Uri.parse(mExportParams.getExportLocation());
+            destination = exportUri.toString();
+            Log.i(TAG, "Exporting directly to " + destination);
+            exportDirectlyToUri(exportUri, fileName);
+        } else {
+            destination = Exporter.getExportFolderPath(mExporter.mBookUID) + fileName;
+            Log.i(TAG, "Exporting directly to " + destination);
+            exportDirectlyToFile(new File(destination));
+        }
+        mExportedFiles.add(destination);
+        return true;
+    }
+
+    /**
+     * Writes the export to a temporary file next to {@code destination}, and renames it once it is complete.
+     * <p>An existing file at the destination stays untouched if the export fails</p>
+     * @param destination File to export to
+     * @throws IOException if the file could not be written or renamed
+     */
+    private void exportDirectlyToFile(File destination) throws IOException {
+        File partFile = new File(destination.getPath() + ".part");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(partFile), "UTF-8"))) {
+                mExporter.generateExport(writer);
+            }
+            if (!partFile.renameTo(destination))
+                throw new IOException("Could not rename " + partFile.getPath() + " to " + destination.getPath());
+        } catch (IOException | RuntimeException e) {
+            partFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the zipped export to the document at {@code exportUri}.
+     * <p>Documents cannot be renamed through their URI, so the document is truncated if the export
+     * fails, instead of keeping a partial archive</p>
+     * @param exportUri URI of the document to export to
+     * @param fileName Name of the exported file inside the zip archive
+     * @throws IOException if the document could not be written
+     */
+    private void exportDirectlyToUri(Uri exportUri, String fileName) throws IOException {
+        try {
+            ZipOutputStream zipOutputStream = new ZipOutputStream(mContext.getContentResolver().openOutputStream(exportUri));
+            //closing the writer also finishes the zip archive
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(zipOutputStream, "UTF-8"))) {
+                zipOutputStream.putNextEntry(new ZipEntry(fileName));
+                mExporter.generateExport(writer);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                OutputStream outputStream = mContext.getContentResolver().openOutputStream(exportUri, "wt");
+                if (outputStream != null)
+                    outputStream.close();
+            } catch (IOException truncateException) {
+                Log.e(TAG, "Could not truncate the failed export at " + exportUri, truncateException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Generates the export of all books concurrently.
+     * <p>Each exported file is recorded with the exporter of its book, so that every file is moved to the target</p>
+     * @throws Exporter.ExporterException if the export of any book failed
+     */
+    private void exportBooks() throws Exporter.ExporterException {
+        List<String> bookUIDs = BooksDbAdapter.getInstance().getAllBookUIDs();
+        MultiBookExporter.Result result = new MultiBookExporter().run(bookUIDs, new MultiBookExporter.BookExport() {
+            @Override
+            public void export(@NonNull String bookUID, @NonNull SQLiteDatabase db) throws Exception {
+                Exporter exporter = getExporter(db);
+                List<String> exportedFiles = exporter.generateExport();
+                synchronized (mExportedFileExporters) {
+                    mExportedFiles.addAll(exportedFiles);
+                    for (String exportedFile : exportedFiles) {
+                        mExportedFileExporters.put(exportedFile, exporter);
+                    }
+                }
+            }
+        });
+
+        if (!result.isSuccessful())
+            throw new Exporter.ExporterException(mExportParams, result.getErrorMessage());
+    }
+
     /**
      * Transmits the exported transactions to the designated location, either SD card or third-party application
      * Finishes the activity if the export was starting  in the context of an activity
@@ -186,8 +347,12 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
                 reportSuccess();
 
             if (mExportParams.shouldDeleteTransactionsAfterExport()) {
-                backupAndDeleteTransactions();
-                refreshViews();
+                if (!mExportParams.shouldExportAllBooks()) {
+                    backupAndDeleteTransactions();
+                    refreshViews();
+                } else {
+                    Log.w(TAG, "Deleting transactions is not supported when exporting multiple books");
+                }
             }
         } else {
             if (mContext instanceof Activity) {
@@ -217,19 +382,20 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
 
     /**
      * Returns an exporter corresponding to the user settings.
+     * @param db Database to export
      * @return Object of one of {@link QifExporter}, {@link OfxExporter} or {@link GncXmlExporter}
      */
-    private Exporter getExporter() {
+    private Exporter getExporter(SQLiteDatabase db) {
         switch (mExportParams.getExportFormat()) {
             case QIF:
-                return new QifExporter(mExportParams, mDb);
+                return new QifExporter(mExportParams, db);
 
             case OFX:
-                return new OfxExporter(mExportParams, mDb);
+                return new OfxExporter(mExportParams, db);
 
             case XML:
             default:
-                return new GncXmlExporter(mExportParams, mDb);
+                return new GncXmlExporter(mExportParams, db);
         }
     }
 
@@ -344,7 +510,7 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
 
                 MetadataChangeSet changeSet = new MetadataChangeSet.Builder()
                         .setTitle(exportedFile.getName())
-                        .setMimeType(mExporter.getExportMimeType())
+                        .setMimeType(getExporterOf(exportedFilePath).getExportMimeType())
                         .build();
                 // create a file on root folder
                 DriveFolder.DriveFileResult driveFileResult =
@@ -392,7 +558,77 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
 
     private void moveExportToOwnCloud() throws Exporter.ExporterException {
         Log.i(TAG, "Copying exported file to ownCloud");
+        ChunkedUploader uploader = createOwnCloudUploader();
+
+        for (String exportedFilePath : mExportedFiles) {
+            String fileName = stripPathPart(exportedFilePath);
+            //keep the file out of the export cache, which is purged, until the upload is done
+            File spoolFile = new File(ChunkedUploader.getSpoolFolder(mContext), fileName);
+            if (!new File(exportedFilePath).renameTo(spoolFile))
+                throw new Exporter.ExporterException(mExportParams, "Could not spool " + exportedFilePath);
+
+            try {
+                uploader.upload(UploadSpool.fromFile(spoolFile), getOwnCloudPath(fileName));
+            } catch (IOException e) {
+                throw new Exporter.ExporterException(mExportParams, e);
+            }
+        }
+    }
+
+    /**
+     * Generates the export and uploads it to ownCloud at the same time.
+     * <p>The export is spooled to a local file from which chunks are uploaded as soon as they are complete</p>
+     * @return {@code true} if anything was exported, {@code false} if there was nothing to export
+     * @throws IOException if the spool file could not be written
+     */
+    private boolean exportDirectlyToOwnCloud() throws IOException {
+        if (!mExporter.hasDataToExport())
+            return false;
 
+        final ChunkedUploader uploader = createOwnCloudUploader();
+        String fileName = mExporter.getExportFileName();
+        final String remotePath = getOwnCloudPath(fileName);
+        final UploadSpool spool = new UploadSpool(new File(ChunkedUploader.getSpoolFolder(mContext), fileName));
+
+        Log.i(TAG, "Exporting and uploading to ownCloud: " + remotePath);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Void> upload = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    uploader.upload(spool, remotePath);
+                    return null;
+                }
+            });
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(spool, "UTF-8"))) {
+                mExporter.generateExport(writer);
+            } catch (IOException | RuntimeException e) {
+                spool.abort();
+                throw e;
+            }
+
+            upload.get();
+        } catch (ExecutionException e) {
+            throw new Exporter.ExporterException(mExportParams, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exporter.ExporterException(mExportParams, e);
+        } finally {
+            executor.shutdown();
+        }
+
+        mExportedFiles.add(remotePath);
+        return true;
+    }
+
+    /**
+     * Creates an uploader for the ownCloud server configured by the user, and resumes any uploads
+     * which were interrupted before
+     * @return Uploader for ownCloud
+     * @throws Exporter.ExporterException if ownCloud is not enabled
+     */
+    private ChunkedUploader createOwnCloudUploader() throws Exporter.ExporterException {
         SharedPreferences mPrefs = mContext.getSharedPreferences(mContext.getString(R.string.owncloud_pref), Context.MODE_PRIVATE);
 
         Boolean mOC_sync = mPrefs.getBoolean(mContext.getString(R.string.owncloud_sync), false);
@@ -404,7 +640,7 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         String mOC_server = mPrefs.getString(mContext.getString(R.string.key_owncloud_server), null);
         String mOC_username = mPrefs.getString(mContext.getString(R.string.key_owncloud_username), null);
         String mOC_password = mPrefs.getString(mContext.getString(R.string.key_owncloud_password), null);
-        String mOC_dir = mPrefs.getString(mContext.getString(R.string.key_owncloud_dir), null);
+        mOwnCloudDir = mPrefs.getString(mContext.getString(R.string.key_owncloud_dir), null);
 
         Uri serverUri = Uri.parse(mOC_server);
         OwnCloudClient mClient = OwnCloudClientFactory.createOwnCloudClient(serverUri, this.mContext, true);
@@ -412,26 +648,26 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
                 OwnCloudCredentialsFactory.newBasicCredentials(mOC_username, mOC_password)
         );
 
-        if (mOC_dir.length() != 0) {
+        if (mOwnCloudDir.length() != 0) {
             RemoteOperationResult dirResult = new CreateRemoteFolderOperation(
-                    mOC_dir, true).execute(mClient);
+                    mOwnCloudDir, true).execute(mClient);
             if (!dirResult.isSuccess()) {
                 Log.w(TAG, "Error creating folder (it may happen if it already exists): "
                            + dirResult.getLogMessage());
             }
         }
-        for (String exportedFilePath : mExportedFiles) {
-            String remotePath = mOC_dir + FileUtils.PATH_SEPARATOR + stripPathPart(exportedFilePath);
-            String mimeType = mExporter.getExportMimeType();
-
-            RemoteOperationResult result = new UploadRemoteFileOperation(
-                    exportedFilePath, remotePath, mimeType).execute(mClient);
 
-            if (!result.isSuccess())
-                throw new Exporter.ExporterException(mExportParams, result.getLogMessage());
+        ChunkedUploader uploader = new ChunkedUploader(mContext,
+                new WebDavChunkTransport(mClient, mOC_server, mOC_username));
+        //failures of old uploads are only logged, they must not fail this export
+        int resumed = uploader.resumePendingUploads();
+        if (resumed > 0)
+            Log.i(TAG, String.format("Resumed %d interrupted ownCloud uploads", resumed));
+        return uploader;
+    }
 
-            new File(exportedFilePath).delete();
-        }
+    private String getOwnCloudPath(String fileName) {
+        return mOwnCloudDir + FileUtils.PATH_SEPARATOR + fileName;
     }
 
     /**
@@ -443,11 +679,10 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
     @Deprecated
     private List<String> moveExportToSDCard() throws Exporter.ExporterException {
         Log.i(TAG, "Moving exported file to external storage");
-        new File(Exporter.getExportFolderPath(mExporter.mBookUID));
         List<String> dstFiles = new ArrayList<>();
 
         for (String src: mExportedFiles) {
-            String dst = Exporter.getExportFolderPath(mExporter.mBookUID) + stripPathPart(src);
+            String dst = Exporter.getExportFolderPath(getExporterOf(src).mBookUID) + stripPathPart(src);
             try {
                 moveFile(src, dst);
                 dstFiles.add(dst);
@@ -459,6 +694,16 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         return dstFiles;
     }
 
+    /**
+     * Returns the exporter which generated an exported file
+     * @param exportedFile Path of the exported file
+     * @return Exporter of the book to which the file belongs
+     */
+    private Exporter getExporterOf(String exportedFile) {
+        Exporter exporter = mExportedFileExporters.get(exportedFile);
+        return exporter != null ? exporter : mExporter;
+    }
+
     // "/some/path/filename.ext" -> "filename.ext"
     private String stripPathPart(String fullPathName) {
         return (new File(fullPathName)).getName();
@@ -474,9 +719,10 @@ public class ExportAsyncTask extends AsyncTask<ExportParams, Void, Boolean> {
         List<Transaction> openingBalances = new ArrayList<>();
         boolean preserveOpeningBalances = GnuCashApplication.shouldSaveOpeningBalances(false);
 
-        TransactionsDbAdapter transactionsDbAdapter = new TransactionsDbAdapter(mDb, new SplitsDbAdapter(mDb));
+        AdapterRegistry adapters = AdapterRegistry.of(mDb);
+        TransactionsDbAdapter transactionsDbAdapter = adapters.getTransactionsDbAdapter();
         if (preserveOpeningBalances) {
-            openingBalances = new AccountsDbAdapter(mDb, transactionsDbAdapter).getAllOpeningBalanceTransactions();
+            openingBalances = adapters.getAccountsDbAdapter().getAllOpeningBalanceTransactions();
         }
         transactionsDbAdapter.deleteAllNonTemplateTransactions();
 
@@ -78,6 +78,11 @@ public class ExportParams {
      */
     private String mExportLocation;
 
+    /**
+     * Flag to determine if all books should be exported instead of only the book being exported from
+     */
+    private boolean mExportAllBooks = false;
+
     /**
      * Creates a new set of paramters and specifies the export format
      * @param format Format to use when exporting the transactions
@@ -169,15 +174,32 @@ public class ExportParams {
         mExportLocation = exportLocation;
     }
 
+    /**
+     * Returns flag whether all books should be exported
+     * @return <code>true</code> if all books will be exported, <code>false</code> if only the current book
+     */
+    public boolean shouldExportAllBooks() {
+        return mExportAllBooks;
+    }
+
+    /**
+     * Set flag to export all books instead of only the current book
+     * @param exportAllBooks Set to <code>true</code> if all books should be exported, false if not
+     */
+    public void setExportAllBooks(boolean exportAllBooks) {
+        this.mExportAllBooks = exportAllBooks;
+    }
+
     @Override
     public String toString() {
         return "Export all transactions created since " + TimestampHelper.getUtcStringFromTimestamp(mExportStartTime) + " UTC"
+                + (mExportAllBooks ? " in all books" : "")
                 + " as "+ mExportFormat.name() + " to " + mExportTarget.name() + (mExportLocation != null ? " (" + mExportLocation +")" : "");
     }
 
     /**
      * Returns the export parameters formatted as CSV.
-     * <p>The CSV format is: exportformat;exportTarget;shouldExportAllTransactions;shouldDeleteAllTransactions</p>
+     * <p>The CSV format is: exportformat;exportTarget;exportStartTime;shouldDeleteAllTransactions;exportLocation;shouldExportAllBooks</p>
      * @return String containing CSV format of ExportParams
      */
     public String toCsv(){
@@ -187,7 +209,8 @@ public class ExportParams {
                 + mExportTarget.name() + separator
                 + TimestampHelper.getUtcStringFromTimestamp(mExportStartTime) + separator
                 + Boolean.toString(mDeleteTransactionsAfterExport) + separator
-                + (mExportLocation != null ? mExportLocation : "");
+                + (mExportLocation != null ? mExportLocation : "") + separator
+                + Boolean.toString(mExportAllBooks);
     }
 
     /**
@@ -201,9 +224,12 @@ public class ExportParams {
         params.setExportTarget(ExportTarget.valueOf(tokens[1]));
         params.setExportStartTime(TimestampHelper.getTimestampFromUtcString(tokens[2]));
         params.setDeleteTransactionsAfterExport(Boolean.parseBoolean(tokens[3]));
-        if (tokens.length == 5){
+        if (tokens.length >= 5 && !tokens[4].isEmpty()){
             params.setExportLocation(tokens[4]);
         }
+        if (tokens.length >= 6){ //not present in parameters saved by older versions
+            params.setExportAllBooks(Boolean.parseBoolean(tokens[5]));
+        }
         return params;
     }
 }
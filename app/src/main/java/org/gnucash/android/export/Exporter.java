@@ -29,17 +29,17 @@ import org.gnucash.android.BuildConfig;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
-import org.gnucash.android.db.adapter.BudgetAmountsDbAdapter;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
 import org.gnucash.android.db.adapter.PricesDbAdapter;
-import org.gnucash.android.db.adapter.RecurrenceDbAdapter;
 import org.gnucash.android.db.adapter.ScheduledActionDbAdapter;
 import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 
 import java.io.File;
+import java.io.Writer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -78,8 +78,9 @@ public abstract class Exporter {
 
     /**
      * Cache directory to which files will be first exported before moved to final destination.
-     * <p>There is a different cache dir per export format, which has the name of the export format.<br/>
-     *    The cache dir is cleared every time a new {@link Exporter} is instantiated.
+     * <p>There is a different cache dir per export format and book, named after the export format and the book GUID.<br/>
+     *    The cache dir is cleared every time a new {@link Exporter} is instantiated for the same book,
+     *    so exports of different books can run concurrently.
      *    The files created here are only accessible within this application, and should be copied to SD card before they can be shared
      * </p>
      */
@@ -125,20 +126,20 @@ public abstract class Exporter {
             mDb = GnuCashApplication.getActiveDb();
         } else {
             mDb = db;
-            mSplitsDbAdapter        = new SplitsDbAdapter(db);
-            mTransactionsDbAdapter  = new TransactionsDbAdapter(db, mSplitsDbAdapter);
-            mAccountsDbAdapter      = new AccountsDbAdapter(db, mTransactionsDbAdapter);
-            mPricesDbAdapter        = new PricesDbAdapter(db);
-            mCommoditiesDbAdapter   = new CommoditiesDbAdapter(db);
-            RecurrenceDbAdapter recurrenceDbAdapter = new RecurrenceDbAdapter(db);
-            mBudgetsDbAdapter       = new BudgetsDbAdapter(db, new BudgetAmountsDbAdapter(db), recurrenceDbAdapter);
-            mScheduledActionDbAdapter = new ScheduledActionDbAdapter(db, recurrenceDbAdapter);
+            AdapterRegistry adapters = AdapterRegistry.of(db);
+            mSplitsDbAdapter        = adapters.getSplitsDbAdapter();
+            mTransactionsDbAdapter  = adapters.getTransactionsDbAdapter();
+            mAccountsDbAdapter      = adapters.getAccountsDbAdapter();
+            mPricesDbAdapter        = adapters.getPricesDbAdapter();
+            mCommoditiesDbAdapter   = adapters.getCommoditiesDbAdapter();
+            mBudgetsDbAdapter       = adapters.getBudgetsDbAdapter();
+            mScheduledActionDbAdapter = adapters.getScheduledActionDbAdapter();
         }
 
         mBookUID = new File(mDb.getPath()).getName(); //this depends on the database file always having the name of the book GUID
         mExportCacheFilePath = null;
-        mCacheDir = new File(mContext.getCacheDir(), params.getExportFormat().name());
-        mCacheDir.mkdir();
+        mCacheDir = new File(new File(mContext.getCacheDir(), params.getExportFormat().name()), mBookUID);
+        mCacheDir.mkdirs();
         purgeDirectory(mCacheDir);
     }
 
@@ -159,8 +160,11 @@ public abstract class Exporter {
      * @return String containing the file name
      */
     public static String buildExportFilename(ExportFormat format, String bookName) {
-        return EXPORT_FILENAME_DATE_FORMAT.format(new Date(System.currentTimeMillis()))
-                + "_gnucash_export_" + sanitizeFilename(bookName) + format.getExtension();
+        String timestamp;
+        synchronized (EXPORT_FILENAME_DATE_FORMAT) { //SimpleDateFormat is not thread-safe
+            timestamp = EXPORT_FILENAME_DATE_FORMAT.format(new Date(System.currentTimeMillis()));
+        }
+        return timestamp + "_gnucash_export_" + sanitizeFilename(bookName) + format.getExtension();
     }
 
     /**
@@ -175,7 +179,10 @@ public abstract class Exporter {
             return timeMillis;
         }
         try {
-            Date date = EXPORT_FILENAME_DATE_FORMAT.parse(tokens[0] + "_" + tokens[1]);
+            Date date;
+            synchronized (EXPORT_FILENAME_DATE_FORMAT) {
+                date = EXPORT_FILENAME_DATE_FORMAT.parse(tokens[0] + "_" + tokens[1]);
+            }
             timeMillis = date.getTime();
         } catch (ParseException e) {
             Log.e("Exporter", "Error parsing time from file name: " + e.getMessage());
@@ -190,6 +197,43 @@ public abstract class Exporter {
      */
     public abstract List<String> generateExport() throws ExporterException;
 
+    /**
+     * Generates the export output and writes it to {@code writer} instead of a cache file.
+     * <p>Only supported by exporters for which {@link #supportsDirectExport()} returns {@code true}.
+     * The writer is not closed</p>
+     * @param writer Writer for the export destination
+     * @throws ExporterException if an error occurs during export
+     */
+    public void generateExport(@NonNull Writer writer) throws ExporterException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support direct export");
+    }
+
+    /**
+     * Checks if the exporter can write the export directly to the destination with {@link #generateExport(Writer)}.
+     * <p>Exporters which generate more than one file only support {@link #generateExport()}</p>
+     * @return {@code true} if direct export is supported, {@code false} otherwise
+     */
+    public boolean supportsDirectExport(){
+        return false;
+    }
+
+    /**
+     * Checks if there is anything to export with the current export parameters.
+     * <p>This is used to avoid creating an empty destination before exporting directly to it</p>
+     * @return {@code true} if there is data to export, {@code false} otherwise
+     */
+    public boolean hasDataToExport(){
+        return true;
+    }
+
+    /**
+     * Returns the name of the file generated by the export, without the path
+     * @return File name of the export
+     */
+    public String getExportFileName(){
+        return new File(getExportCacheFilePath()).getName();
+    }
+
     /**
      * Recursively delete all files in a directory
      * @param directory File descriptor for directory
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.export;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.crashlytics.android.Crashlytics;
+
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.adapter.AdapterRegistry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs an export or backup operation for several books concurrently.
+ * <p>Every book is stored in its own database, so the books are exported independently on a bounded
+ * thread pool, each with its own database connection. A failing book does not stop the others,
+ * all errors are collected and reported once every book is done.</p>
+ */
+public class MultiBookExporter {
+
+    public static final String LOG_TAG = "MultiBookExporter";
+
+    /**
+     * Export operation which is run for each book
+     */
+    public interface BookExport {
+        /**
+         * Exports a single book. This method is called from a worker thread
+         * @param bookUID GUID of the book
+         * @param db Open database of the book
+         * @throws Exception if the export of the book failed
+         */
+        void export(@NonNull String bookUID, @NonNull SQLiteDatabase db) throws Exception;
+    }
+
+    /**
+     * Outcome of exporting multiple books
+     */
+    public static class Result {
+        private final List<String> mExportedBookUIDs = new ArrayList<>();
+        private final Map<String, Throwable> mErrors = new LinkedHashMap<>();
+
+        /**
+         * Returns the GUIDs of the books which were exported successfully
+         * @return List of book GUIDs
+         */
+        public List<String> getExportedBookUIDs() {
+            return Collections.unmodifiableList(mExportedBookUIDs);
+        }
+
+        /**
+         * Returns the errors which occurred, keyed by the GUID of the book which failed
+         * @return Map of book GUIDs to errors
+         */
+        public Map<String, Throwable> getErrors() {
+            return Collections.unmodifiableMap(mErrors);
+        }
+
+        /**
+         * Checks if all books were exported successfully
+         * @return {@code true} if no errors occurred, {@code false} otherwise
+         */
+        public boolean isSuccessful() {
+            return mErrors.isEmpty();
+        }
+
+        /**
+         * Builds a single message describing all the errors which occurred
+         * @return Error message, or an empty string if there were no errors
+         */
+        public String getErrorMessage() {
+            StringBuilder message = new StringBuilder();
+            for (Map.Entry<String, Throwable> entry : mErrors.entrySet()) {
+                if (message.length() > 0)
+                    message.append('\n');
+                message.append(entry.getKey()).append(": ").append(entry.getValue().getMessage());
+            }
+            return message.toString();
+        }
+    }
+
+    private final int mMaxThreads;
+
+    /**
+     * Creates an exporter which uses at most as many threads as there are processors
+     */
+    public MultiBookExporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an exporter with a bounded number of threads
+     * @param maxThreads Maximum number of books which are exported at the same time
+     */
+    public MultiBookExporter(int maxThreads) {
+        mMaxThreads = Math.max(1, maxThreads);
+    }
+
+    /**
+     * Runs {@code export} for every book and waits until all of them are done
+     * @param bookUIDs GUIDs of the books to export
+     * @param export Export operation to run for each book
+     * @return Aggregated result of the export
+     */
+    public Result run(@NonNull List<String> bookUIDs, @NonNull final BookExport export) {
+        Result result = new Result();
+        if (bookUIDs.isEmpty())
+            return result;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(mMaxThreads, bookUIDs.size()));
+        Map<String, Future<Void>> futures = new LinkedHashMap<>();
+        try {
+            for (final String bookUID : bookUIDs) {
+                futures.put(bookUID, executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        exportBook(bookUID, export);
+                        return null;
+                    }
+                }));
+            }
+
+            for (Map.Entry<String, Future<Void>> entry : futures.entrySet()) {
+                try {
+                    entry.getValue().get();
+                    result.mExportedBookUIDs.add(entry.getKey());
+                } catch (ExecutionException e) {
+                    result.mErrors.put(entry.getKey(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.mErrors.put(entry.getKey(), e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (result.isSuccessful()) {
+            Log.i(LOG_TAG, String.format("Exported %d books", bookUIDs.size()));
+        } else {
+            Log.e(LOG_TAG, String.format("Export failed for %d of %d books:\n%s",
+                    result.mErrors.size(), bookUIDs.size(), result.getErrorMessage()));
+            for (Throwable error : result.mErrors.values()) {
+                Crashlytics.logException(error);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Opens the database of the book and runs the export on it.
+     * <p>The active book already has an open database which is reused. All other databases are closed
+     * again once the book is exported</p>
+     */
+    private static void exportBook(String bookUID, BookExport export) throws Exception {
+        SQLiteDatabase activeDb = GnuCashApplication.getActiveDb();
+        if (bookUID.equals(new File(activeDb.getPath()).getName())) { //database files are named after the book GUID
+            export.export(bookUID, activeDb);
+            return;
+        }
+
+        DatabaseHelper dbHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        try {
+            export.export(bookUID, db);
+        } finally {
+            AdapterRegistry.release(db);
+            dbHelper.close();
+        }
+    }
+}
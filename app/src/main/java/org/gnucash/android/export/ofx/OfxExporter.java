@@ -19,6 +19,7 @@ package org.gnucash.android.export.ofx;
 
 import android.database.sqlite.SQLiteDatabase;
 import android.preference.PreferenceManager;
+import android.support.annotation.NonNull;
 import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
@@ -42,7 +43,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
@@ -125,11 +125,14 @@ public class OfxExporter extends Exporter{
 	}
 
     /**
-     * Generate OFX export file from the transactions in the database
-     * @return String containing OFX export
-     * @throws ExporterException
+     * Generate OFX export file from the transactions in the database and write it to {@code writer}
+     * <p>The OFX document is built in memory, since the accounts add themselves to it as DOM nodes.
+     * It is serialized straight into the writer though, without another copy as a string</p>
+     * @param writer Writer for the OFX export
+     * @throws ExporterException if the document could not be built
+     * @throws IOException if the export could not be written
      */
-    private String generateOfxExport() throws ExporterException {
+    private void generateOfxExport(Writer writer) throws ExporterException, IOException {
         DocumentBuilderFactory docFactory = DocumentBuilderFactory
                 .newInstance();
         DocumentBuilder docBuilder;
@@ -153,22 +156,19 @@ public class OfxExporter extends Exporter{
 
         PreferencesHelper.setLastExportTime(TimestampHelper.getTimestampFromNow());
 
-        StringWriter stringWriter = new StringWriter();
-        //if we want SGML OFX headers, write first to string and then prepend header
+        //if we want SGML OFX headers, write the header first and then the document without XML declaration
         if (useXmlHeader){
-            write(document, stringWriter, false);
-            return stringWriter.toString();
+            write(document, writer, false);
         } else {
             Node ofxNode = document.getElementsByTagName("OFX").item(0);
-            write(ofxNode, stringWriter, true);
-            return OfxHelper.OFX_SGML_HEADER + '\n' + stringWriter.toString();
+            writer.write(OfxHelper.OFX_SGML_HEADER + '\n');
+            write(ofxNode, writer, true);
         }
     }
 
     @Override
     public List<String> generateExport() throws ExporterException {
-        mAccountsList = mAccountsDbAdapter.getExportableAccounts(mExportParams.getExportStartTime());
-        if (mAccountsList.isEmpty())
+        if (!hasDataToExport())
             return new ArrayList<>(); // Nothing to export, so no files generated
 
         BufferedWriter writer = null;
@@ -176,7 +176,7 @@ public class OfxExporter extends Exporter{
         try {
             File file = new File(getExportCacheFilePath());
             writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
-            writer.write(generateOfxExport());
+            generateExport(writer);
         } catch (IOException e) {
             throw new ExporterException(mExportParams, e);
         } finally {
@@ -195,6 +195,31 @@ public class OfxExporter extends Exporter{
         return exportedFiles;
     }
 
+    @Override
+    public void generateExport(@NonNull Writer writer) throws ExporterException {
+        if (!hasDataToExport())
+            return;
+
+        try {
+            generateOfxExport(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new ExporterException(mExportParams, e);
+        }
+    }
+
+    @Override
+    public boolean supportsDirectExport() {
+        return true;
+    }
+
+    @Override
+    public boolean hasDataToExport() {
+        if (mAccountsList == null)
+            mAccountsList = mAccountsDbAdapter.getExportableAccounts(mExportParams.getExportStartTime());
+        return !mAccountsList.isEmpty();
+    }
+
     /**
      * Writes out the document held in <code>node</code> to <code>outputWriter</code>
      * @param node {@link Node} containing the OFX document structure. Usually the parent node
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.export.upload;
+
+import java.io.IOException;
+
+/**
+ * Server side of a chunked upload.
+ * <p>An upload is identified by a transfer ID. Its chunks are stored on the server under their offset
+ * and are only assembled into the destination file when the upload is finished.</p>
+ */
+public interface ChunkTransport {
+
+    /**
+     * Prepares the server to receive the chunks of an upload
+     * @param transferId ID of the upload
+     * @return {@code true} if a new upload was started, {@code false} if the upload already exists on the server
+     * @throws IOException if the upload could not be started
+     */
+    boolean openUpload(String transferId) throws IOException;
+
+    /**
+     * Uploads one chunk
+     * @param transferId ID of the upload
+     * @param offset Offset of the chunk in the uploaded file
+     * @param data Buffer containing the chunk
+     * @param length Number of bytes of {@code data} to upload
+     * @throws IOException if the chunk could not be uploaded
+     */
+    void uploadChunk(String transferId, long offset, byte[] data, int length) throws IOException;
+
+    /**
+     * Assembles the uploaded chunks into the destination file
+     * @param transferId ID of the upload
+     * @param remotePath Path of the destination file on the server
+     * @param totalLength Total length of the uploaded file
+     * @throws IOException if the upload could not be finished
+     */
+    void finishUpload(String transferId, String remotePath, long totalLength) throws IOException;
+
+    /**
+     * Thrown when the server refuses an upload for a reason which retrying does not fix,
+     * e.g. because the destination folder no longer exists or the credentials are wrong
+     */
+    class RejectedException extends IOException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
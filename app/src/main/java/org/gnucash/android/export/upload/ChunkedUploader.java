@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.export.upload;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Uploads exports in chunks while they are still being generated.
+ * <p>The export is written to an {@link UploadSpool}. Each time a full chunk is available in the spool
+ * it is sent to the server, so uploading runs concurrently with the export.<br>
+ * The offset of the last uploaded chunk is persisted after every chunk. If the upload is interrupted,
+ * the spool file is kept and {@link #resumePendingUploads()} continues the upload from that offset.</p>
+ */
+public class ChunkedUploader {
+
+    public static final String LOG_TAG = "ChunkedUploader";
+
+    /**
+     * Default size of the uploaded chunks in bytes
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Name of the shared preferences file where the state of pending uploads is kept
+     */
+    private static final String PREFERENCES_NAME = "chunked_uploads";
+
+    private static final String KEY_PREFIX_UPLOAD = "upload_";
+
+    /**
+     * Number of times an interrupted upload is resumed before it is given up
+     */
+    public static final int MAX_RESUME_ATTEMPTS = 3;
+
+    /**
+     * Time in milliseconds after which an interrupted upload is given up
+     */
+    public static final long MAX_PENDING_AGE = 7L * 24 * 60 * 60 * 1000;
+
+    private final ChunkTransport mTransport;
+
+    private final SharedPreferences mPreferences;
+
+    private final int mChunkSize;
+
+    /**
+     * Creates an uploader with the default chunk size and upload state storage
+     * @param context Application context
+     * @param transport Transport to the server
+     */
+    public ChunkedUploader(@NonNull Context context, @NonNull ChunkTransport transport) {
+        this(transport, context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an uploader
+     * @param transport Transport to the server
+     * @param preferences Storage for the state of pending uploads
+     * @param chunkSize Size of the uploaded chunks in bytes
+     */
+    public ChunkedUploader(@NonNull ChunkTransport transport, @NonNull SharedPreferences preferences, int chunkSize) {
+        mTransport = transport;
+        mPreferences = preferences;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the folder where uploads are spooled.
+     * Files in this folder are kept until their upload has succeeded
+     * @param context Application context
+     * @return Spool folder
+     */
+    public static File getSpoolFolder(@NonNull Context context) {
+        File folder = new File(context.getFilesDir(), "uploads");
+        if (!folder.exists())
+            folder.mkdirs();
+        return folder;
+    }
+
+    /**
+     * Uploads the contents of the spool to {@code remotePath}.
+     * <p>This method blocks until the spool has been closed and all of it has been uploaded.
+     * If the upload fails, it can be resumed later with {@link #resumePendingUploads()},
+     * unless the spool was aborted</p>
+     * @param spool Spool which is being written by the exporter
+     * @param remotePath Destination path on the server
+     * @throws IOException if the upload failed
+     */
+    public void upload(@NonNull UploadSpool spool, @NonNull String remotePath) throws IOException {
+        PendingUpload upload = new PendingUpload(UUID.randomUUID().toString(),
+                spool.getFile().getAbsolutePath(), remotePath);
+        upload.mCreatedAt = System.currentTimeMillis();
+        save(upload);
+        try {
+            mTransport.openUpload(upload.mTransferId);
+        } catch (IOException e) {
+            keepForResume(upload, spool, e);
+            throw e;
+        }
+        transfer(upload, spool);
+    }
+
+    /**
+     * Continues all uploads which were interrupted after their export was complete.
+     * <p>Uploads whose export never completed are discarded. Failures are logged per upload and never
+     * passed on, so an upload which keeps failing cannot block other uploads. An upload is given up when the
+     * server rejects it, after {@link #MAX_RESUME_ATTEMPTS} failed attempts or once it is older than
+     * {@link #MAX_PENDING_AGE}</p>
+     * @return Number of uploads which were completed
+     */
+    public int resumePendingUploads() {
+        int count = 0;
+        long now = System.currentTimeMillis();
+        for (PendingUpload upload : loadPendingUploads()) {
+            File file = new File(upload.mLocalPath);
+            if (!upload.mLocalComplete || !file.exists()) {
+                Log.w(LOG_TAG, "Discarding incomplete upload to " + upload.mRemotePath);
+                discard(upload);
+                continue;
+            }
+            if (now - upload.mCreatedAt > MAX_PENDING_AGE) {
+                Log.w(LOG_TAG, "Discarding expired upload to " + upload.mRemotePath);
+                discard(upload);
+                continue;
+            }
+
+            Log.i(LOG_TAG, String.format("Resuming upload to %s at offset %d", upload.mRemotePath, upload.mOffset));
+            try {
+                if (mTransport.openUpload(upload.mTransferId)) {
+                    //the server does not have the chunks anymore, so start over
+                    upload.mOffset = 0;
+                    save(upload);
+                }
+                transfer(upload, UploadSpool.fromFile(file));
+                count++;
+            } catch (ChunkTransport.RejectedException e) {
+                Log.e(LOG_TAG, "Giving up upload to " + upload.mRemotePath + ": " + e.getMessage());
+                discard(upload);
+            } catch (IOException e) {
+                upload.mAttempts++;
+                if (upload.mAttempts >= MAX_RESUME_ATTEMPTS) {
+                    Log.e(LOG_TAG, "Giving up upload to " + upload.mRemotePath + " after "
+                            + upload.mAttempts + " attempts: " + e.getMessage());
+                    discard(upload);
+                } else {
+                    Log.w(LOG_TAG, "Resuming upload to " + upload.mRemotePath + " failed: " + e.getMessage());
+                    save(upload);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if there are uploads waiting to be resumed
+     * @return {@code true} if there are pending uploads
+     */
+    public boolean hasPendingUploads() {
+        return !loadPendingUploads().isEmpty();
+    }
+
+    /**
+     * Sends the chunks of the spool from the current offset of the upload, then assembles them on the server
+     */
+    private void transfer(PendingUpload upload, UploadSpool spool) throws IOException {
+        byte[] buffer = new byte[mChunkSize];
+        try (RandomAccessFile file = new RandomAccessFile(spool.getFile(), "r")) {
+            long available;
+            while ((available = spool.awaitAvailable(upload.mOffset, mChunkSize)) > 0) {
+                int length = (int) Math.min(available, mChunkSize);
+                file.seek(upload.mOffset);
+                file.readFully(buffer, 0, length);
+                mTransport.uploadChunk(upload.mTransferId, upload.mOffset, buffer, length);
+                upload.mOffset += length;
+                save(upload);
+            }
+            upload.mLocalComplete = true;
+            save(upload);
+            mTransport.finishUpload(upload.mTransferId, upload.mRemotePath, upload.mOffset);
+        } catch (IOException e) {
+            keepForResume(upload, spool, e);
+            throw e;
+        }
+
+        discard(upload);
+        Log.i(LOG_TAG, String.format("Uploaded %d bytes to %s", upload.mOffset, upload.mRemotePath));
+    }
+
+    /**
+     * Keeps a failed upload for resuming, once the export writing the spool is done.
+     * If the export did not complete or the server rejected the upload, the upload is discarded
+     */
+    private void keepForResume(PendingUpload upload, UploadSpool spool, IOException failure) {
+        if (spool.awaitClosed() && !(failure instanceof ChunkTransport.RejectedException)) {
+            upload.mLocalComplete = true;
+            save(upload);
+        } else {
+            discard(upload);
+        }
+    }
+
+    private void save(PendingUpload upload) {
+        mPreferences.edit().putString(KEY_PREFIX_UPLOAD + upload.mTransferId, upload.toJson()).apply();
+    }
+
+    private void discard(PendingUpload upload) {
+        mPreferences.edit().remove(KEY_PREFIX_UPLOAD + upload.mTransferId).apply();
+        new File(upload.mLocalPath).delete();
+    }
+
+    private List<PendingUpload> loadPendingUploads() {
+        List<PendingUpload> uploads = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : mPreferences.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(KEY_PREFIX_UPLOAD))
+                continue;
+            try {
+                uploads.add(PendingUpload.fromJson(entry.getKey().substring(KEY_PREFIX_UPLOAD.length()),
+                        (String) entry.getValue()));
+            } catch (JSONException e) {
+                Log.e(LOG_TAG, "Dropping unreadable upload state: " + e.getMessage());
+                mPreferences.edit().remove(entry.getKey()).apply();
+            }
+        }
+        return uploads;
+    }
+
+    /**
+     * Persisted state of an upload
+     */
+    private static class PendingUpload {
+        private static final String KEY_LOCAL_PATH = "local_path";
+        private static final String KEY_REMOTE_PATH = "remote_path";
+        private static final String KEY_OFFSET = "offset";
+        private static final String KEY_LOCAL_COMPLETE = "local_complete";
+        private static final String KEY_CREATED_AT = "created_at";
+        private static final String KEY_ATTEMPTS = "attempts";
+
+        final String mTransferId;
+        final String mLocalPath;
+        final String mRemotePath;
+
+        /**
+         * Number of bytes which have been uploaded
+         */
+        long mOffset;
+
+        /**
+         * Whether the export has been completely written to the local file
+         */
+        boolean mLocalComplete;
+
+        /**
+         * Time at which the upload was started, in milliseconds
+         */
+        long mCreatedAt;
+
+        /**
+         * Number of failed attempts to resume the upload
+         */
+        int mAttempts;
+
+        PendingUpload(String transferId, String localPath, String remotePath) {
+            mTransferId = transferId;
+            mLocalPath = localPath;
+            mRemotePath = remotePath;
+        }
+
+        String toJson() {
+            try {
+                return new JSONObject()
+                        .put(KEY_LOCAL_PATH, mLocalPath)
+                        .put(KEY_REMOTE_PATH, mRemotePath)
+                        .put(KEY_OFFSET, mOffset)
+                        .put(KEY_LOCAL_COMPLETE, mLocalComplete)
+                        .put(KEY_CREATED_AT, mCreatedAt)
+                        .put(KEY_ATTEMPTS, mAttempts)
+                        .toString();
+            } catch (JSONException e) {
+                throw new IllegalStateException(e); //only thrown for non-finite numbers
+            }
+        }
+
+        static PendingUpload fromJson(String transferId, String json) throws JSONException {
+            JSONObject object = new JSONObject(json);
+            PendingUpload upload = new PendingUpload(transferId,
+                    object.getString(KEY_LOCAL_PATH), object.getString(KEY_REMOTE_PATH));
+            upload.mOffset = object.getLong(KEY_OFFSET);
+            upload.mLocalComplete = object.getBoolean(KEY_LOCAL_COMPLETE);
+            //state saved by older versions has no age, so it counts as started now
+            upload.mCreatedAt = object.optLong(KEY_CREATED_AT, System.currentTimeMillis());
+            upload.mAttempts = object.optInt(KEY_ATTEMPTS, 0);
+            return upload;
+        }
+    }
+}
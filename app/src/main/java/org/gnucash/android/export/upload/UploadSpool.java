@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.export.upload;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream which spools the export to a local file while it is being uploaded.
+ * <p>The exporter writes to the spool on one thread, while the {@link ChunkedUploader} reads completed
+ * chunks from the file on another thread. The file is kept until the upload succeeds, so that an
+ * interrupted upload can be resumed.</p>
+ */
+public class UploadSpool extends OutputStream {
+
+    private final File mFile;
+
+    private final OutputStream mOutputStream;
+
+    private long mLength;
+
+    private boolean mClosed;
+
+    private boolean mAborted;
+
+    /**
+     * Creates a new spool which writes to {@code file}
+     * @param file Spool file, overwritten if it exists
+     * @throws FileNotFoundException if the file cannot be created
+     */
+    public UploadSpool(@NonNull File file) throws FileNotFoundException {
+        mFile = file;
+        mOutputStream = new FileOutputStream(file);
+    }
+
+    private UploadSpool(File file, long length) {
+        mFile = file;
+        mOutputStream = null;
+        mLength = length;
+        mClosed = true;
+    }
+
+    /**
+     * Creates a spool for a file which has already been completely written
+     * @param file Complete file
+     * @return Closed spool for the file
+     */
+    public static UploadSpool fromFile(@NonNull File file) {
+        return new UploadSpool(file, file.length());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        mOutputStream.write(b, off, len);
+        synchronized (this) {
+            mLength += len;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOutputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (mClosed)
+                return;
+            mClosed = true;
+        }
+        try {
+            mOutputStream.close();
+        } finally {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Marks the spooled output as incomplete, e.g. because the export failed.
+     * The upload of an aborted spool fails and is not resumed
+     */
+    public void abort() {
+        synchronized (this) {
+            mAborted = true;
+        }
+        try {
+            close();
+        } catch (IOException ignored) {
+            //the spool is discarded anyway
+        }
+    }
+
+    /**
+     * Blocks until at least {@code minBytes} bytes are available after {@code offset}, or the spool is closed
+     * @param offset Offset in the spool file
+     * @param minBytes Minimum number of bytes to wait for
+     * @return Number of bytes available after {@code offset}
+     * @throws IOException if the spool was aborted or waiting was interrupted
+     */
+    synchronized long awaitAvailable(long offset, long minBytes) throws IOException {
+        try {
+            while (!mClosed && mLength - offset < minBytes) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for export output");
+        }
+        if (mAborted)
+            throw new IOException("The export was aborted");
+        return mLength - offset;
+    }
+
+    /**
+     * Blocks until the spool is closed
+     * @return {@code true} if the spool was completely written, {@code false} if it was aborted
+     */
+    synchronized boolean awaitClosed() {
+        try {
+            while (!mClosed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !mAborted;
+    }
+
+    /**
+     * Returns the file to which the output is spooled
+     * @return Spool file
+     */
+    public File getFile() {
+        return mFile;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.export.upload;
+
+import android.support.annotation.NonNull;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.InputStreamRequestEntity;
+import org.apache.commons.httpclient.methods.PutMethod;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Locale;
+
+/**
+ * Uploads chunks to an ownCloud/Nextcloud server using the WebDAV chunked upload protocol.
+ * <p>The chunks are stored in the collection {@code remote.php/dav/uploads/<user>/<transfer ID>}, named after
+ * their zero-padded offset. Finishing the upload moves the virtual {@code .file} of the collection to
+ * the destination, which makes the server assemble the chunks.</p>
+ */
+public class WebDavChunkTransport implements ChunkTransport {
+
+    private final HttpClient mClient;
+
+    private final String mUploadsUrl;
+
+    private final String mFilesUrl;
+
+    /**
+     * Creates a transport for a server
+     * @param client HTTP client, which already holds the credentials of the user
+     * @param serverUrl Base URL of the server
+     * @param username Name of the user on the server
+     */
+    public WebDavChunkTransport(@NonNull HttpClient client, @NonNull String serverUrl, @NonNull String username) {
+        mClient = client;
+        String baseUrl = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        mUploadsUrl = baseUrl + "/remote.php/dav/uploads/" + encodePath(username);
+        mFilesUrl = baseUrl + "/remote.php/dav/files/" + encodePath(username);
+    }
+
+    @Override
+    public boolean openUpload(String transferId) throws IOException {
+        int status = execute(new DavMethod("MKCOL", getUploadUrl(transferId)));
+        if (status == HttpStatus.SC_CREATED)
+            return true;
+        if (status == HttpStatus.SC_METHOD_NOT_ALLOWED) //the collection already exists
+            return false;
+        throw failure("Could not start upload " + transferId, status);
+    }
+
+    @Override
+    public void uploadChunk(String transferId, long offset, byte[] data, int length) throws IOException {
+        PutMethod putMethod = new PutMethod(getUploadUrl(transferId) + "/" + String.format(Locale.US, "%015d", offset));
+        putMethod.setRequestEntity(new InputStreamRequestEntity(new ByteArrayInputStream(data, 0, length), length));
+        int status = execute(putMethod);
+        if (status != HttpStatus.SC_OK && status != HttpStatus.SC_CREATED && status != HttpStatus.SC_NO_CONTENT)
+            throw failure("Could not upload chunk at offset " + offset, status);
+    }
+
+    @Override
+    public void finishUpload(String transferId, String remotePath, long totalLength) throws IOException {
+        String path = remotePath.startsWith("/") ? remotePath : "/" + remotePath;
+        DavMethod moveMethod = new DavMethod("MOVE", getUploadUrl(transferId) + "/.file");
+        moveMethod.setRequestHeader("Destination", mFilesUrl + encodePath(path));
+        moveMethod.setRequestHeader("Overwrite", "T");
+        moveMethod.setRequestHeader("OC-Total-Length", String.valueOf(totalLength));
+        int status = execute(moveMethod);
+        if (status != HttpStatus.SC_CREATED && status != HttpStatus.SC_NO_CONTENT)
+            throw failure("Could not assemble upload " + transferId, status);
+    }
+
+    /**
+     * Creates the exception for a failed request.
+     * Client errors mean that the server will not accept the upload, except for those which are temporary
+     * @param message Description of the failed request
+     * @param status HTTP status returned by the server
+     * @return Exception to throw
+     */
+    static IOException failure(String message, int status) {
+        message += ", server returned " + status;
+        boolean temporary = status == HttpStatus.SC_REQUEST_TIMEOUT
+                || status == HttpStatus.SC_LOCKED
+                || status == 429; //too many requests, which HttpStatus does not define
+        if (status >= 400 && status < 500 && !temporary)
+            return new RejectedException(message);
+        return new IOException(message);
+    }
+
+    private String getUploadUrl(String transferId) {
+        return mUploadsUrl + "/" + encodePath(transferId);
+    }
+
+    private int execute(HttpMethod method) throws IOException {
+        try {
+            return mClient.executeMethod(method);
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * URL-encodes each segment of a path, keeping the separators
+     */
+    static String encodePath(String path) {
+        String[] segments = path.split("/", -1);
+        StringBuilder builder = new StringBuilder();
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                if (i > 0)
+                    builder.append('/');
+                builder.append(URLEncoder.encode(segments[i], "UTF-8").replace("+", "%20"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e); //UTF-8 is always supported
+        }
+        return builder.toString();
+    }
+
+    /**
+     * WebDAV method which is not part of HTTP
+     */
+    private static class DavMethod extends EntityEnclosingMethod {
+        private final String mName;
+
+        DavMethod(String name, String uri) {
+            super(uri);
+            mName = name;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.gnucash.android.export.xml;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
@@ -803,12 +805,18 @@ public class GncXmlExporter extends Exporter{
         return exportedFiles;
     }
 
+    @Override
+    public boolean supportsDirectExport() {
+        return true;
+    }
+
     /**
      * Generates an XML export of the database and writes it to the {@code writer} output stream
      * @param writer Output stream
      * @throws ExporterException
      */
-    public void generateExport(Writer writer) throws ExporterException {
+    @Override
+    public void generateExport(@NonNull Writer writer) throws ExporterException {
         try {
             String[] namespaces = new String[]{"gnc", "act", "book", "cd", "cmdty", "price", "slot",
                     "split", "trn", "ts", "sx", "bgt", "recurrence"};
@@ -922,23 +930,8 @@ public class GncXmlExporter extends Exporter{
      * @return {@code true} if backup was successful, {@code false} otherwise
      */
     public static boolean createBackup(String bookUID){
-        OutputStream outputStream;
         try {
-            String backupFile = BookUtils.getBookBackupFileUri(bookUID);
-            if (backupFile != null){
-                outputStream = GnuCashApplication.getAppContext().getContentResolver().openOutputStream(Uri.parse(backupFile));
-            } else { //no Uri set by user, use default location on SD card
-                backupFile = getBackupFilePath(bookUID);
-                outputStream = new FileOutputStream(backupFile);
-            }
-
-            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bufferedOutputStream);
-            OutputStreamWriter writer = new OutputStreamWriter(gzipOutputStream);
-
-            ExportParams params = new ExportParams(ExportFormat.XML);
-            new GncXmlExporter(params).generateExport(writer);
-            writer.close();
+            writeBackup(bookUID, null);
             return true;
         } catch (IOException | ExporterException e) {
             Crashlytics.logException(e);
@@ -947,6 +940,32 @@ public class GncXmlExporter extends Exporter{
         }
     }
 
+    /**
+     * Writes a backup of the book to the default backup location.
+     * <p>Unlike {@link #createBackup(String)}, errors are not handled but passed on to the caller</p>
+     * @param bookUID Unique ID of the book
+     * @param db Open database of the book, or {@code null} to backup the active database
+     * @throws IOException if the backup file could not be written
+     * @throws ExporterException if an error occurred while generating the backup
+     */
+    public static void writeBackup(String bookUID, @Nullable SQLiteDatabase db) throws IOException, ExporterException {
+        OutputStream outputStream;
+        String backupFile = BookUtils.getBookBackupFileUri(bookUID);
+        if (backupFile != null){
+            outputStream = GnuCashApplication.getAppContext().getContentResolver().openOutputStream(Uri.parse(backupFile));
+        } else { //no Uri set by user, use default location on SD card
+            backupFile = getBackupFilePath(bookUID);
+            outputStream = new FileOutputStream(backupFile);
+        }
+
+        BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bufferedOutputStream);
+        try (OutputStreamWriter writer = new OutputStreamWriter(gzipOutputStream)) {
+            ExportParams params = new ExportParams(ExportFormat.XML);
+            new GncXmlExporter(params, db).generateExport(writer);
+        }
+    }
+
     /**
      * Returns the full path of a file to make database backup of the specified book
      * Backups are done in XML format and are zipped (with ".zip" extension).
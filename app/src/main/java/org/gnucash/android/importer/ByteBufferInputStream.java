@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.importer;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream which reads directly from a {@link ByteBuffer}, e.g. a memory-mapped file.
+ * <p>Reads are plain memory copies from the buffer, without any system calls or intermediate buffers</p>
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer mBuffer;
+
+    private int mMark = -1;
+
+    public ByteBufferInputStream(@NonNull ByteBuffer buffer) {
+        mBuffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@NonNull byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (!mBuffer.hasRemaining())
+            return -1;
+        int count = Math.min(len, mBuffer.remaining());
+        mBuffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, mBuffer.remaining()));
+        mBuffer.position(mBuffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return mBuffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mMark = mBuffer.position();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        if (mMark < 0)
+            throw new IOException("Mark not set");
+        mBuffer.position(mMark);
+    }
+}
@@ -18,6 +18,7 @@ package org.gnucash.android.importer;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
 import org.gnucash.android.model.Commodity;
@@ -52,7 +53,7 @@ public class CommoditiesXmlHandler extends DefaultHandler {
         if (db == null){
             mCommoditiesDbAdapter = GnuCashApplication.getCommoditiesDbAdapter();
         } else {
-            mCommoditiesDbAdapter = new CommoditiesDbAdapter(db);
+            mCommoditiesDbAdapter = AdapterRegistry.of(db).getCommoditiesDbAdapter();
         }
         mCommodities = new ArrayList<>();
     }
@@ -83,5 +84,6 @@ public class CommoditiesXmlHandler extends DefaultHandler {
     @Override
     public void endDocument() throws SAXException {
         mCommoditiesDbAdapter.bulkAddRecords(mCommodities, DatabaseAdapter.UpdateMethod.insert);
+        mCommoditiesDbAdapter.loadCommonCommodities();
     }
 }
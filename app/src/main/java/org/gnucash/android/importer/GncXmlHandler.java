@@ -26,15 +26,13 @@ import com.crashlytics.android.Crashlytics;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.DatabaseHelper;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
-import org.gnucash.android.db.adapter.BudgetAmountsDbAdapter;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
 import org.gnucash.android.db.adapter.PricesDbAdapter;
-import org.gnucash.android.db.adapter.RecurrenceDbAdapter;
 import org.gnucash.android.db.adapter.ScheduledActionDbAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.export.xml.GncXmlHelper;
 import org.gnucash.android.model.Account;
@@ -296,13 +294,13 @@ public class GncXmlHandler extends DefaultHandler {
 
         DatabaseHelper databaseHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), mBook.getUID());
         mainDb = databaseHelper.getWritableDatabase();
-        mTransactionsDbAdapter = new TransactionsDbAdapter(mainDb, new SplitsDbAdapter(mainDb));
-        mAccountsDbAdapter = new AccountsDbAdapter(mainDb, mTransactionsDbAdapter);
-        RecurrenceDbAdapter recurrenceDbAdapter = new RecurrenceDbAdapter(mainDb);
-        mScheduledActionsDbAdapter = new ScheduledActionDbAdapter(mainDb, recurrenceDbAdapter);
-        mCommoditiesDbAdapter = new CommoditiesDbAdapter(mainDb);
-        mPricesDbAdapter = new PricesDbAdapter(mainDb);
-        mBudgetsDbAdapter = new BudgetsDbAdapter(mainDb, new BudgetAmountsDbAdapter(mainDb), recurrenceDbAdapter);
+        AdapterRegistry adapters = AdapterRegistry.of(mainDb);
+        mTransactionsDbAdapter = adapters.getTransactionsDbAdapter();
+        mAccountsDbAdapter = adapters.getAccountsDbAdapter();
+        mScheduledActionsDbAdapter = adapters.getScheduledActionDbAdapter();
+        mCommoditiesDbAdapter = adapters.getCommoditiesDbAdapter();
+        mPricesDbAdapter = adapters.getPricesDbAdapter();
+        mBudgetsDbAdapter = adapters.getBudgetsDbAdapter();
 
 
         mContent = new StringBuilder();
@@ -1016,6 +1014,7 @@ public class GncXmlHandler extends DefaultHandler {
         } finally {
             mAccountsDbAdapter.enableForeignKey(true);
             mAccountsDbAdapter.endTransaction();
+            AdapterRegistry.release(mainDb);
             mainDb.close(); //close it after import
         }
     }
@@ -16,6 +16,8 @@
  */
 package org.gnucash.android.importer;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
@@ -28,6 +30,9 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -41,16 +46,22 @@ import javax.xml.parsers.SAXParserFactory;
  */
 public class GncXmlImporter {
 
+    /**
+     * Files up to this size are imported by mapping them into memory
+     */
+    private static final long MAX_MAPPED_FILE_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Size of the buffer used when inflating compressed files
+     */
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Parse GnuCash XML input and populates the database
      * @param gncXmlInputStream InputStream source of the GnuCash XML file
      * @return GUID of the book into which the XML was imported
      */
     public static String parse(InputStream gncXmlInputStream) throws ParserConfigurationException, SAXException, IOException {
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        SAXParser sp = spf.newSAXParser();
-        XMLReader xr = sp.getXMLReader();
-
         BufferedInputStream bos;
         PushbackInputStream pb = new PushbackInputStream( gncXmlInputStream, 2 ); //we need a pushbackstream to look ahead
         byte [] signature = new byte[2];
@@ -61,12 +72,56 @@ public class GncXmlImporter {
         else
             bos = new BufferedInputStream(pb);
 
+        return parseXml(bos);
+    }
+
+    /**
+     * Parse GnuCash XML from a buffer, usually a memory-mapped file, and populates the database.
+     * <p>The parser reads straight from the buffer, or gzip inflation does if the file is compressed.
+     * This avoids the system calls and copies of the buffered stream layers used by {@link #parse(InputStream)}</p>
+     * @param buffer Buffer holding the complete GnuCash XML file
+     * @return GUID of the book into which the XML was imported
+     * @see #map(FileChannel)
+     */
+    public static String parse(@NonNull ByteBuffer buffer) throws ParserConfigurationException, SAXException, IOException {
+        InputStream inputStream = new ByteBufferInputStream(buffer);
+        if (buffer.remaining() >= 2
+                && buffer.get(buffer.position()) == (byte) 0x1f && buffer.get(buffer.position() + 1) == (byte) 0x8b)
+            inputStream = new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE);
+
+        return parseXml(inputStream);
+    }
+
+    /**
+     * Maps a file into memory for importing with {@link #parse(ByteBuffer)}
+     * @param fileChannel Channel of the file to import
+     * @return Read-only buffer with the file contents, or {@code null} if the channel cannot be mapped,
+     * e.g. because it is a pipe or the file is too large. Use {@link #parse(InputStream)} then.
+     */
+    @Nullable
+    public static MappedByteBuffer map(@NonNull FileChannel fileChannel) {
+        try {
+            long size = fileChannel.size();
+            if (size <= 0 || size > MAX_MAPPED_FILE_SIZE)
+                return null;
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            Log.i(GncXmlImporter.class.getSimpleName(), "File cannot be mapped, falling back to streaming: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String parseXml(InputStream inputStream) throws ParserConfigurationException, SAXException, IOException {
+        SAXParserFactory spf = SAXParserFactory.newInstance();
+        SAXParser sp = spf.newSAXParser();
+        XMLReader xr = sp.getXMLReader();
+
         //TODO: Set an error handler which can log errors
         Log.d(GncXmlImporter.class.getSimpleName(), "Start import");
         GncXmlHandler handler = new GncXmlHandler();
         xr.setContentHandler(handler);
         long startTime = System.nanoTime();
-        xr.parse(new InputSource(bos));
+        xr.parse(new InputSource(inputStream));
         long endTime = System.nanoTime();
         Log.d(GncXmlImporter.class.getSimpleName(), String.format("%d ns spent on importing the file", endTime-startTime));
 
@@ -24,6 +24,7 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Build;
+import android.os.ParcelFileDescriptor;
 import android.provider.OpenableColumns;
 import android.util.Log;
 import android.widget.Toast;
@@ -35,8 +36,15 @@ import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
 import org.gnucash.android.ui.util.TaskDelegate;
 import org.gnucash.android.util.BookUtils;
+import org.xml.sax.SAXException;
 
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+
+import javax.xml.parsers.ParserConfigurationException;
 
 /**
  * Imports a GnuCash (desktop) account file and displays a progress dialog.
@@ -77,8 +85,7 @@ public class ImportAsyncTask extends AsyncTask<Uri, Void, Boolean> {
     @Override
     protected Boolean doInBackground(Uri... uris) {
         try {
-            InputStream accountInputStream = mContext.getContentResolver().openInputStream(uris[0]);
-            mImportedBookUID = GncXmlImporter.parse(accountInputStream);
+            mImportedBookUID = importFile(uris[0]);
 
         } catch (Exception exception){
             Log.e(ImportAsyncTask.class.getName(), "" + exception.getMessage());
@@ -142,4 +149,35 @@ public class ImportAsyncTask extends AsyncTask<Uri, Void, Boolean> {
         if (mDelegate != null)
             mDelegate.onTaskComplete();
     }
+
+    /**
+     * Imports the GnuCash XML file at {@code uri}.
+     * <p>Files on local storage are memory-mapped and parsed straight from memory.
+     * Content which is not backed by a file, e.g. from a network provider, is streamed instead</p>
+     * @param uri URI of the file to import
+     * @return GUID of the imported book
+     */
+    private String importFile(Uri uri) throws ParserConfigurationException, SAXException, IOException {
+        ParcelFileDescriptor fileDescriptor = null;
+        try {
+            fileDescriptor = mContext.getContentResolver().openFileDescriptor(uri, "r");
+        } catch (FileNotFoundException e) {
+            Log.i(ImportAsyncTask.class.getName(), "No file descriptor for " + uri + ", streaming the import");
+        }
+
+        if (fileDescriptor != null) {
+            try {
+                //the stream is not closed, closing the descriptor takes care of it
+                FileInputStream fileInputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
+                MappedByteBuffer buffer = GncXmlImporter.map(fileInputStream.getChannel());
+                if (buffer != null)
+                    return GncXmlImporter.parse(buffer);
+            } finally {
+                fileDescriptor.close();
+            }
+        }
+
+        InputStream accountInputStream = mContext.getContentResolver().openInputStream(uri);
+        return GncXmlImporter.parse(accountInputStream);
+    }
 }
@@ -173,19 +173,18 @@ public class Budget extends BaseModel {
      * @return Money sum of all amounts
      */
     public Money getAmountSum(){
-        Money sum = null; //we explicitly allow this null instead of a money instance, because this method should never return null for a budget
+        MoneyAccumulator sum = null; //we explicitly allow this null instead of a money instance, because this method should never return null for a budget
         for (BudgetAmount budgetAmount : mBudgetAmounts) {
+            Money amount = budgetAmount.getAmount();
             if (sum == null){
-                sum = budgetAmount.getAmount();
+                sum = new MoneyAccumulator(amount.getCommodity()).add(amount);
+            } else if (sum.getCommodity().equals(amount.getCommodity())) {
+                sum.add(amount.abs());
             } else {
-                try {
-                    sum = sum.add(budgetAmount.getAmount().abs());
-                } catch (Money.CurrencyMismatchException ex){
-                    Log.i(getClass().getSimpleName(), "Skip some budget amounts with different currency");
-                }
+                Log.i(getClass().getSimpleName(), "Skip some budget amounts with different currency");
             }
         }
-        return sum;
+        return sum == null ? null : sum.toMoney();
     }
 
     /**
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.model;
+
+import android.support.annotation.NonNull;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache of the currency formats used by {@link Money#formattedString(Locale)}.
+ * <p>Creating a currency format loads the locale data and clones its symbols, which is too slow to do for
+ * every amount of a list. The formats are kept by locale, commodity and fraction digits.
+ * {@link DecimalFormat} is not thread-safe, so every thread has its own formats, and formats can be used from
+ * loaders and the UI thread at the same time without locking.</p>
+ */
+final class CurrencyFormatCache {
+
+    /**
+     * Maximum number of formats kept by a thread. There is one format per locale and commodity,
+     * so this is only reached if the locale or the symbols of many commodities are changed
+     */
+    private static final int MAX_FORMATS_PER_THREAD = 64;
+
+    private static final ThreadLocal<CurrencyFormatCache> sCaches = new ThreadLocal<CurrencyFormatCache>() {
+        @Override
+        protected CurrencyFormatCache initialValue() {
+            return new CurrencyFormatCache();
+        }
+    };
+
+    private final Map<Locale, Map<String, CachedFormat>> mFormats = new HashMap<>();
+
+    private int mSize;
+
+    private CurrencyFormatCache() {
+        //only one instance per thread
+    }
+
+    /**
+     * Returns the currency format of a commodity for the calling thread.
+     * The format must not be modified or passed to other threads
+     * @param locale Locale of the format
+     * @param commodity Commodity of the amounts to be formatted
+     * @return Currency format with the symbol and fraction digits of the commodity
+     */
+    static DecimalFormat getFormat(@NonNull Locale locale, @NonNull Commodity commodity) {
+        return sCaches.get().get(locale, commodity);
+    }
+
+    private DecimalFormat get(Locale locale, Commodity commodity) {
+        String symbol;
+        //if we want to show US Dollars for locales which also use Dollars, for example, Canada
+        if (commodity.equals(Commodity.USD) && !locale.equals(Locale.US)) {
+            symbol = "US$";
+        } else {
+            symbol = commodity.getSymbol();
+        }
+        int fractionDigits = commodity.getSmallestFractionDigits();
+
+        Map<String, CachedFormat> localeFormats = mFormats.get(locale);
+        if (localeFormats == null) {
+            localeFormats = new HashMap<>();
+            mFormats.put(locale, localeFormats);
+        }
+        CachedFormat cachedFormat = localeFormats.get(commodity.getCurrencyCode());
+        if (cachedFormat != null && cachedFormat.mFractionDigits == fractionDigits
+                && cachedFormat.mSymbol.equals(symbol)) //the symbol of a commodity can be changed
+            return cachedFormat.mFormat;
+
+        if (cachedFormat == null && ++mSize > MAX_FORMATS_PER_THREAD) {
+            mFormats.clear();
+            mSize = 1;
+            localeFormats = new HashMap<>();
+            mFormats.put(locale, localeFormats);
+        }
+        cachedFormat = new CachedFormat(createFormat(locale, symbol, fractionDigits), symbol, fractionDigits);
+        localeFormats.put(commodity.getCurrencyCode(), cachedFormat);
+        return cachedFormat.mFormat;
+    }
+
+    private static DecimalFormat createFormat(Locale locale, String symbol, int fractionDigits) {
+        DecimalFormat currencyFormat = (DecimalFormat) NumberFormat.getCurrencyInstance(locale);
+        DecimalFormatSymbols decimalFormatSymbols = currencyFormat.getDecimalFormatSymbols();
+        decimalFormatSymbols.setCurrencySymbol(symbol);
+        currencyFormat.setDecimalFormatSymbols(decimalFormatSymbols);
+        currencyFormat.setMinimumFractionDigits(fractionDigits);
+        currencyFormat.setMaximumFractionDigits(fractionDigits);
+        return currencyFormat;
+    }
+
+    private static class CachedFormat {
+        final DecimalFormat mFormat;
+        final String mSymbol;
+        final int mFractionDigits;
+
+        CachedFormat(DecimalFormat format, String symbol, int fractionDigits) {
+            mFormat = format;
+            mSymbol = symbol;
+            mFractionDigits = fractionDigits;
+        }
+    }
+}
@@ -25,9 +25,6 @@ import com.crashlytics.android.Crashlytics;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
 import java.util.Currency;
 import java.util.Locale;
 
@@ -262,28 +259,14 @@ public final class Money implements Comparable<Money>{
 	/**
 	 * Returns a string representation of the Money object formatted according to 
 	 * the <code>locale</code> and includes the currency symbol. 
-	 * The output precision is limited to the number of fractional digits supported by the currency
+	 * The output precision is limited to the number of fractional digits supported by the currency.
+	 * <p>This method can be called from any thread</p>
 	 * @param locale Locale to use when formatting the object
 	 * @return String containing formatted Money representation
 	 */
     public String formattedString(Locale locale){
-
-		NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(locale);
-
-		String symbol;
-		//if we want to show US Dollars for locales which also use Dollars, for example, Canada
-		if (mCommodity.equals(Commodity.USD) && !locale.equals(Locale.US)) {
-			symbol = "US$";
-		} else {
-			symbol = mCommodity.getSymbol();
-		}
-		DecimalFormatSymbols decimalFormatSymbols = ((DecimalFormat)currencyFormat).getDecimalFormatSymbols();
-		decimalFormatSymbols.setCurrencySymbol(symbol);
-		((DecimalFormat)currencyFormat).setDecimalFormatSymbols(decimalFormatSymbols);
-		currencyFormat.setMinimumFractionDigits(mCommodity.getSmallestFractionDigits());
-		currencyFormat.setMaximumFractionDigits(mCommodity.getSmallestFractionDigits());
-
-		return currencyFormat.format(asDouble());
+		//the formats are cached, and the amount is formatted exactly instead of as a double
+		return CurrencyFormatCache.getFormat(locale, mCommodity).format(mAmount);
 /*
 // 	old currency formatting code
 		NumberFormat formatter = NumberFormat.getInstance(locale);
@@ -497,7 +480,7 @@ public final class Money implements Comparable<Money>{
 		return mAmount.compareTo(BigDecimal.ZERO) == 0;
 	}
 
-	public class CurrencyMismatchException extends IllegalArgumentException{
+	public static class CurrencyMismatchException extends IllegalArgumentException{
 		@Override
 		public String getMessage() {
 			return "Cannot perform operation on Money instances with different currencies";
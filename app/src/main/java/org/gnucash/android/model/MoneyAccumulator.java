@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.model;
+
+import android.support.annotation.NonNull;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Mutable sum of money amounts in one commodity, for adding up many amounts without creating objects.
+ * <p>Amounts are added as GnuCash fractions (numerator and denominator). The sum is kept as a {@code long}
+ * numerator over the least common denominator of the amounts added so far, which is exact for the
+ * denominators of the database. Only if the numerator or denominator would overflow, the sum continues
+ * as a {@link BigDecimal}. The sum is only rounded to the fraction digits of the commodity by {@link #toMoney()},
+ * so for amounts which have no more digits than the commodity, the result is the same as adding up
+ * {@link Money} objects.</p>
+ * <p>Instances are not thread-safe. Sums computed in different threads can be combined with
+ * {@link #add(MoneyAccumulator)}.</p>
+ */
+public final class MoneyAccumulator {
+
+    /**
+     * Powers of ten which fit into a {@code long}, by exponent
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Commodity mCommodity;
+
+    private long mNumerator;
+
+    private long mDenominator = 1;
+
+    /**
+     * Sum of the amounts once the fraction overflowed, {@code null} until then
+     */
+    private BigDecimal mOverflowSum;
+
+    /**
+     * Creates an accumulator with a sum of zero
+     * @param commodity Commodity of the amounts
+     */
+    public MoneyAccumulator(@NonNull Commodity commodity) {
+        mCommodity = commodity;
+    }
+
+    /**
+     * Returns the commodity of the amounts
+     * @return Commodity of the sum
+     */
+    public Commodity getCommodity() {
+        return mCommodity;
+    }
+
+    /**
+     * Adds an amount given as a fraction
+     * @param numerator Numerator of the amount
+     * @param denominator Denominator of the amount. It may only be 0 if the numerator is 0
+     * @return This accumulator
+     */
+    public MoneyAccumulator add(long numerator, long denominator) {
+        if (numerator == 0)
+            return this;
+        if (denominator <= 0)
+            throw new IllegalArgumentException("Invalid denominator " + denominator + " for amount " + numerator);
+        if (mOverflowSum != null) {
+            mOverflowSum = mOverflowSum.add(toBigDecimal(numerator, denominator));
+            return this;
+        }
+
+        if (denominator == mDenominator) {
+            long sum = numerator + mNumerator;
+            if (((numerator ^ sum) & (mNumerator ^ sum)) >= 0) { //no overflow if the sign of the sum is that of an addend
+                mNumerator = sum;
+                return this;
+            }
+        } else {
+            long gcd = gcd(mDenominator, denominator);
+            long ownFactor = denominator / gcd;
+            long otherFactor = mDenominator / gcd;
+            if (!multiplyOverflows(mDenominator, ownFactor)
+                    && !multiplyOverflows(mNumerator, ownFactor)
+                    && !multiplyOverflows(numerator, otherFactor)) {
+                long ownNumerator = mNumerator * ownFactor;
+                long otherNumerator = numerator * otherFactor;
+                long sum = ownNumerator + otherNumerator;
+                if (((ownNumerator ^ sum) & (otherNumerator ^ sum)) >= 0) {
+                    mNumerator = sum;
+                    mDenominator *= ownFactor;
+                    return this;
+                }
+            }
+        }
+
+        mOverflowSum = toBigDecimal(mNumerator, mDenominator).add(toBigDecimal(numerator, denominator));
+        return this;
+    }
+
+    /**
+     * Subtracts an amount given as a fraction
+     * @param numerator Numerator of the amount
+     * @param denominator Denominator of the amount. It may only be 0 if the numerator is 0
+     * @return This accumulator
+     */
+    public MoneyAccumulator subtract(long numerator, long denominator) {
+        if (numerator == Long.MIN_VALUE) //cannot be negated
+            return add(Long.MAX_VALUE, denominator).add(1, denominator);
+        return add(-numerator, denominator);
+    }
+
+    /**
+     * Adds a money amount
+     * @param amount Amount in the commodity of the accumulator
+     * @return This accumulator
+     * @throws Money.CurrencyMismatchException if the amount is in another commodity
+     */
+    public MoneyAccumulator add(@NonNull Money amount) {
+        return add(amount, false);
+    }
+
+    /**
+     * Subtracts a money amount
+     * @param amount Amount in the commodity of the accumulator
+     * @return This accumulator
+     * @throws Money.CurrencyMismatchException if the amount is in another commodity
+     */
+    public MoneyAccumulator subtract(@NonNull Money amount) {
+        return add(amount, true);
+    }
+
+    private MoneyAccumulator add(Money amount, boolean negate) {
+        if (!mCommodity.equals(amount.getCommodity()))
+            throw new Money.CurrencyMismatchException();
+
+        BigDecimal value = amount.asBigDecimal();
+        BigInteger unscaledValue = value.unscaledValue();
+        int scale = value.scale();
+        if (unscaledValue.bitLength() < Long.SIZE && scale >= 0 && scale < POWERS_OF_TEN.length) {
+            long numerator = unscaledValue.longValue();
+            return negate ? subtract(numerator, POWERS_OF_TEN[scale]) : add(numerator, POWERS_OF_TEN[scale]);
+        }
+
+        BigDecimal sum = asBigDecimal();
+        mOverflowSum = negate ? sum.subtract(value) : sum.add(value);
+        return this;
+    }
+
+    /**
+     * Adds the sum of another accumulator
+     * @param other Accumulator of the same commodity
+     * @return This accumulator
+     * @throws Money.CurrencyMismatchException if the accumulator has another commodity
+     */
+    public MoneyAccumulator add(@NonNull MoneyAccumulator other) {
+        if (!mCommodity.equals(other.mCommodity))
+            throw new Money.CurrencyMismatchException();
+        if (other.mOverflowSum == null)
+            return add(other.mNumerator, other.mDenominator);
+        mOverflowSum = asBigDecimal().add(other.mOverflowSum);
+        return this;
+    }
+
+    /**
+     * Checks if the sum is zero
+     * @return {@code true} if the sum is zero
+     */
+    public boolean isZero() {
+        return mOverflowSum == null ? mNumerator == 0 : mOverflowSum.signum() == 0;
+    }
+
+    /**
+     * Checks if the sum no longer fits into a {@code long} fraction and is kept as a {@link BigDecimal}
+     * @return {@code true} if the sum overflowed
+     */
+    public boolean hasOverflowed() {
+        return mOverflowSum != null;
+    }
+
+    /**
+     * Returns the sum without rounding. Only sums with a denominator which is not a power of ten
+     * are rounded to the precision of {@link MathContext#DECIMAL128}
+     * @return Sum of the amounts
+     */
+    public BigDecimal asBigDecimal() {
+        return mOverflowSum != null ? mOverflowSum : toBigDecimal(mNumerator, mDenominator);
+    }
+
+    /**
+     * Returns the sum as a money amount, rounded to the fraction digits of the commodity
+     * @return Sum of the amounts
+     */
+    public Money toMoney() {
+        return new Money(asBigDecimal(), mCommodity);
+    }
+
+    /**
+     * Converts a fraction to a decimal. Powers of ten are converted exactly,
+     * other denominators with the precision of {@link MathContext#DECIMAL128}
+     */
+    private static BigDecimal toBigDecimal(long numerator, long denominator) {
+        for (int scale = 0; scale < POWERS_OF_TEN.length; scale++) {
+            if (POWERS_OF_TEN[scale] == denominator)
+                return BigDecimal.valueOf(numerator, scale);
+        }
+        return BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), MathContext.DECIMAL128);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * Checks if the product of a number and a positive factor overflows
+     */
+    private static boolean multiplyOverflows(long value, long factor) {
+        return value > Long.MAX_VALUE / factor || value < Long.MIN_VALUE / factor;
+    }
+}
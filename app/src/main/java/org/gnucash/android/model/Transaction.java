@@ -294,7 +294,7 @@ public class Transaction extends BaseModel{
         String accountCurrencyCode = accountsDbAdapter.getAccountCurrencyCode(accountUID);
 
         boolean isDebitAccount = accountType.hasDebitNormalBalance();
-        Money balance = Money.createZeroInstance(accountCurrencyCode);
+        MoneyAccumulator balance = new MoneyAccumulator(Commodity.getInstance(accountCurrencyCode));
         for (Split split : splitList) {
             if (!split.getAccountUID().equals(accountUID))
                 continue;
@@ -305,21 +305,13 @@ public class Transaction extends BaseModel{
                 absAmount = split.getQuantity().abs();
             }
             boolean isDebitSplit = split.getType() == TransactionType.DEBIT;
-            if (isDebitAccount) {
-                if (isDebitSplit) {
-                    balance = balance.add(absAmount);
-                } else {
-                    balance = balance.subtract(absAmount);
-                }
+            if (isDebitAccount == isDebitSplit) {
+                balance.add(absAmount);
             } else {
-                if (isDebitSplit) {
-                    balance = balance.subtract(absAmount);
-                } else {
-                    balance = balance.add(absAmount);
-                }
+                balance.subtract(absAmount);
             }
         }
-        return balance;
+        return balance.toMoney();
     }
 
     /**
@@ -33,7 +33,6 @@ import org.gnucash.android.model.Money;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.model.TransactionType;
-import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -104,8 +103,6 @@ public class TransactionRecorder extends BroadcastReceiver {
         }
 
 		TransactionsDbAdapter.getInstance().addRecord(transaction, DatabaseAdapter.UpdateMethod.insert);
-		
-		WidgetConfigurationActivity.updateAllWidgets(context);
 	}
 
 }
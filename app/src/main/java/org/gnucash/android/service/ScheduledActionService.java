@@ -18,11 +18,10 @@ package org.gnucash.android.service;
 
 import android.app.IntentService;
 import android.content.ContentValues;
-import android.content.Context;
 import android.content.Intent;
 import android.database.sqlite.SQLiteDatabase;
-import android.net.Uri;
 import android.os.PowerManager;
+import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
@@ -31,30 +30,24 @@ import com.crashlytics.android.Crashlytics;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.DatabaseHelper;
 import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
-import org.gnucash.android.db.adapter.RecurrenceDbAdapter;
 import org.gnucash.android.db.adapter.ScheduledActionDbAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.export.ExportAsyncTask;
-import org.gnucash.android.export.ExportFormat;
 import org.gnucash.android.export.ExportParams;
+import org.gnucash.android.export.MultiBookExporter;
 import org.gnucash.android.export.xml.GncXmlExporter;
 import org.gnucash.android.model.Book;
 import org.gnucash.android.model.ScheduledAction;
 import org.gnucash.android.model.Transaction;
-import org.gnucash.android.util.BookUtils;
 
-import java.io.BufferedOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Service for running scheduled events.
@@ -84,10 +77,11 @@ public class ScheduledActionService extends IntentService {
             BooksDbAdapter booksDbAdapter = BooksDbAdapter.getInstance();
             List<Book> books = booksDbAdapter.getAllRecords();
             for (Book book : books) { //// TODO: 20.04.2017 Retrieve only the book UIDs with new method
-                DatabaseHelper dbHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), book.getUID());
-                SQLiteDatabase db = dbHelper.getWritableDatabase();
-                RecurrenceDbAdapter recurrenceDbAdapter = new RecurrenceDbAdapter(db);
-                ScheduledActionDbAdapter scheduledActionDbAdapter = new ScheduledActionDbAdapter(db, recurrenceDbAdapter);
+                //the active book is processed with the database and adapters which are used by the app
+                boolean isActiveBook = book.getUID().equals(booksDbAdapter.getActiveBookUID());
+                SQLiteDatabase db = isActiveBook ? GnuCashApplication.getActiveDb()
+                        : new DatabaseHelper(GnuCashApplication.getAppContext(), book.getUID()).getWritableDatabase();
+                ScheduledActionDbAdapter scheduledActionDbAdapter = AdapterRegistry.of(db).getScheduledActionDbAdapter();
 
                 List<ScheduledAction> scheduledActions = scheduledActionDbAdapter.getAllEnabledScheduledActions();
                 Log.i(LOG_TAG, String.format("Processing %d total scheduled actions for Book: %s",
@@ -95,8 +89,10 @@ public class ScheduledActionService extends IntentService {
                 processScheduledActions(scheduledActions, db);
 
                 //close all databases except the currently active database
-                if (!db.getPath().equals(GnuCashApplication.getActiveDb().getPath()))
+                if (!isActiveBook) {
+                    AdapterRegistry.release(db);
                     db.close();
+                }
             }
 
             Log.i(LOG_TAG, "Completed service @ " + java.text.DateFormat.getDateTimeInstance().format(new Date()));
@@ -222,7 +218,7 @@ public class ScheduledActionService extends IntentService {
     private static int executeTransactions(ScheduledAction scheduledAction, SQLiteDatabase db) {
         int executionCount = 0;
         String actionUID = scheduledAction.getActionUID();
-        TransactionsDbAdapter transactionsDbAdapter = new TransactionsDbAdapter(db, new SplitsDbAdapter(db));
+        TransactionsDbAdapter transactionsDbAdapter = AdapterRegistry.of(db).getTransactionsDbAdapter();
         Transaction trxnTemplate = null;
         try {
             trxnTemplate = transactionsDbAdapter.getRecord(actionUID);
@@ -256,7 +252,7 @@ public class ScheduledActionService extends IntentService {
             transactionTime = scheduledAction.computeNextCountBasedScheduledExecutionTime();
         }
 
-        transactionsDbAdapter.bulkAddRecords(transactions, DatabaseAdapter.UpdateMethod.insert);
+        transactionsDbAdapter.addRecords(transactions, DatabaseAdapter.UpdateMethod.insert);
         // Be nice and restore the parameter's original state to avoid confusing the callers
         scheduledAction.setExecutionCount(previousExecutionCount);
         return executionCount;
@@ -264,31 +260,16 @@ public class ScheduledActionService extends IntentService {
 
     /**
      * Perform an automatic backup of all books in the database.
-     * This method is run everytime the service is executed
+     * This method is run everytime the service is executed.
+     * <p>Each book lives in its own database, so the books are backed up concurrently</p>
      */
     private static void autoBackup(){
-        BooksDbAdapter booksDbAdapter = BooksDbAdapter.getInstance();
-        List<String> bookUIDs = booksDbAdapter.getAllBookUIDs();
-        Context context = GnuCashApplication.getAppContext();
-
-        for (String bookUID : bookUIDs) {
-            String backupFile = BookUtils.getBookBackupFileUri(bookUID);
-            if (backupFile == null){
-                GncXmlExporter.createBackup();
-                continue;
-            }
-
-            try (BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(context.getContentResolver().openOutputStream(Uri.parse(backupFile)))){
-                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bufferedOutputStream);
-                OutputStreamWriter writer = new OutputStreamWriter(gzipOutputStream);
-                ExportParams params = new ExportParams(ExportFormat.XML);
-                new GncXmlExporter(params).generateExport(writer);
-                writer.close();
-            } catch (IOException ex) {
-                Log.e(LOG_TAG, "Auto backup failed for book " + bookUID);
-                ex.printStackTrace();
-                Crashlytics.logException(ex);
+        List<String> bookUIDs = BooksDbAdapter.getInstance().getAllBookUIDs();
+        new MultiBookExporter().run(bookUIDs, new MultiBookExporter.BookExport() {
+            @Override
+            public void export(@NonNull String bookUID, @NonNull SQLiteDatabase db) throws Exception {
+                GncXmlExporter.writeBackup(bookUID, db);
             }
-        }
+        }); //errors are logged and reported by the exporter
     }
 }
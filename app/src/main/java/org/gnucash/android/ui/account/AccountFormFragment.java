@@ -23,13 +23,12 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.database.Cursor;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.design.widget.TextInputLayout;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.widget.SimpleCursorAdapter;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.text.Editable;
@@ -53,6 +52,7 @@ import android.widget.EditText;
 import android.widget.Spinner;
 
 import org.gnucash.android.R;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
@@ -67,12 +67,15 @@ import org.gnucash.android.ui.colorpicker.ColorSquare;
 import org.gnucash.android.ui.common.UxArgument;
 import org.gnucash.android.ui.settings.PreferenceActivity;
 import org.gnucash.android.util.CommoditiesCursorAdapter;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -134,11 +137,6 @@ public class AccountFormFragment extends Fragment {
      */
     private String mAccountUID = null;
 
-    /**
-     * Cursor which will hold set of eligible parent accounts
-     */
-	private Cursor mParentAccountCursor;
-
     /**
      * List of all descendant Account UIDs, if we are modifying an account
      * null if creating a new account
@@ -146,10 +144,10 @@ public class AccountFormFragment extends Fragment {
     private List<String> mDescendantAccountUIDs;
 
     /**
-     * SimpleCursorAdapter for the parent account spinner
-     * @see QualifiedAccountNameCursorAdapter
+     * Adapter for the parent account spinner
+     * @see QualifiedAccountNameAdapter
      */
-	private SimpleCursorAdapter mParentAccountCursorAdapter;
+	private QualifiedAccountNameAdapter mParentAccountAdapter;
 
     /**
      * Spinner for parent account list
@@ -189,9 +187,9 @@ public class AccountFormFragment extends Fragment {
     @BindView(R.id.checkbox_placeholder_account) CheckBox mPlaceholderCheckBox;
 
     /**
-     * Cursor adapter which binds to the spinner for default transfer account
+     * Adapter which binds to the spinner for default transfer account
      */
-    private SimpleCursorAdapter mDefaultTransferAccountCursorAdapter;
+    private QualifiedAccountNameAdapter mDefaultTransferAccountAdapter;
 
     /**
      * Flag indicating if double entry transactions are enabled
@@ -480,8 +478,8 @@ public class AccountFormFragment extends Fragment {
             return;
         }
 
-        for (int pos = 0; pos < mParentAccountCursorAdapter.getCount(); pos++) {
-            if (mParentAccountCursorAdapter.getItemId(pos) == parentAccountId){
+        for (int pos = 0; pos < mParentAccountAdapter.getCount(); pos++) {
+            if (mParentAccountAdapter.getItemId(pos) == parentAccountId){
                 mParentCheckBox.setChecked(true);
                 mParentAccountSpinner.setEnabled(true);
                 mParentAccountSpinner.setSelection(pos, true);
@@ -501,8 +499,8 @@ public class AccountFormFragment extends Fragment {
         } else
             return;
 
-        for (int pos = 0; pos < mDefaultTransferAccountCursorAdapter.getCount(); pos++) {
-            if (mDefaultTransferAccountCursorAdapter.getItemId(pos) == defaultTransferAccountId) {
+        for (int pos = 0; pos < mDefaultTransferAccountAdapter.getCount(); pos++) {
+            if (mDefaultTransferAccountAdapter.getItemId(pos) == defaultTransferAccountId) {
                 mDefaultTransferAccountSpinner.setSelection(pos);
                 break;
             }
@@ -568,21 +566,21 @@ public class AccountFormFragment extends Fragment {
      * Initializes the default transfer account spinner with eligible accounts
      */
     private void loadDefaultTransferAccountList(){
-        String condition = DatabaseSchema.AccountEntry.COLUMN_UID + " != '" + mAccountUID + "' " //when creating a new account mAccountUID is null, so don't use whereArgs
-                + " AND " + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + "=0"
-                + " AND " + DatabaseSchema.AccountEntry.COLUMN_HIDDEN + "=0"
-                + " AND " + DatabaseSchema.AccountEntry.COLUMN_TYPE + " != ?";
-
-        Cursor defaultTransferAccountCursor = mAccountsDbAdapter.fetchAccountsOrderedByFullName(condition,
-                new String[]{AccountType.ROOT.name()});
+        List<AccountsSnapshot.Entry> accounts = AccountsSnapshot.getInstance().select(new AccountsSnapshot.Filter() {
+            @Override
+            public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                return !account.getUID().equals(mAccountUID) //when creating a new account mAccountUID is null
+                        && !account.isPlaceholder()
+                        && AccountsSnapshot.VISIBLE_ACCOUNTS.accept(account);
+            }
+        }, false);
 
         if (mDefaultTransferAccountSpinner.getCount() <= 0) {
             setDefaultTransferAccountInputsVisible(false);
         }
 
-        mDefaultTransferAccountCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(),
-                defaultTransferAccountCursor);
-        mDefaultTransferAccountSpinner.setAdapter(mDefaultTransferAccountCursorAdapter);
+        mDefaultTransferAccountAdapter = new QualifiedAccountNameAdapter(getActivity(), accounts);
+        mDefaultTransferAccountSpinner.setAdapter(mDefaultTransferAccountAdapter);
     }
 
     /**
@@ -591,28 +589,30 @@ public class AccountFormFragment extends Fragment {
      * @param accountType AccountType of account whose allowed parent list is to be loaded
      */
 	private void loadParentAccountList(AccountType accountType){
-        String condition = DatabaseSchema.SplitEntry.COLUMN_TYPE + " IN ("
-                + getAllowedParentAccountTypes(accountType) + ") AND " + DatabaseSchema.AccountEntry.COLUMN_HIDDEN + "!=1 ";
+        final Set<AccountType> allowedTypes = getAllowedParentAccountTypes(accountType);
+        final Set<String> excludedAccountUIDs = new HashSet<>();
 
         if (mAccount != null){  //if editing an account
             mDescendantAccountUIDs = mAccountsDbAdapter.getDescendantAccountUIDs(mAccount.getUID(), null, null);
             String rootAccountUID = mAccountsDbAdapter.getOrCreateGnuCashRootAccountUID();
-            List<String> descendantAccountUIDs = new ArrayList<>(mDescendantAccountUIDs);
-            if (rootAccountUID != null)
-                descendantAccountUIDs.add(rootAccountUID);
             // limit cyclic account hierarchies.
-            condition += " AND (" + DatabaseSchema.AccountEntry.COLUMN_UID + " NOT IN ( '"
-                    + TextUtils.join("','", descendantAccountUIDs) + "','" + mAccountUID + "' ) )";
+            excludedAccountUIDs.addAll(mDescendantAccountUIDs);
+            if (rootAccountUID != null)
+                excludedAccountUIDs.add(rootAccountUID);
+            excludedAccountUIDs.add(mAccountUID);
         }
 
-        //if we are reloading the list, close the previous cursor first
-        if (mParentAccountCursor != null)
-            mParentAccountCursor.close();
-
-		mParentAccountCursor = mAccountsDbAdapter.fetchAccountsOrderedByFullName(condition, null);
+		List<AccountsSnapshot.Entry> accounts = AccountsSnapshot.getInstance().select(new AccountsSnapshot.Filter() {
+            @Override
+            public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                return allowedTypes.contains(account.getAccountType())
+                        && !account.isHidden()
+                        && !excludedAccountUIDs.contains(account.getUID());
+            }
+        }, false);
         final View view = getView();
         assert view != null;
-        if (mParentAccountCursor.getCount() <= 0){
+        if (accounts.isEmpty()){
             mParentCheckBox.setChecked(false); //disable before hiding, else we can still read it when saving
             view.findViewById(R.id.layout_parent_account).setVisibility(View.GONE);
             view.findViewById(R.id.label_parent_account).setVisibility(View.GONE);
@@ -621,26 +621,24 @@ public class AccountFormFragment extends Fragment {
             view.findViewById(R.id.label_parent_account).setVisibility(View.VISIBLE);
         }
 
-		mParentAccountCursorAdapter = new QualifiedAccountNameCursorAdapter(
-				getActivity(), mParentAccountCursor);
-		mParentAccountSpinner.setAdapter(mParentAccountCursorAdapter);
+		mParentAccountAdapter = new QualifiedAccountNameAdapter(getActivity(), accounts);
+		mParentAccountSpinner.setAdapter(mParentAccountAdapter);
 	}
 
     /**
-     * Returns a comma separated list of account types which can be parent accounts for the specified <code>type</code>.
-     * The strings in the list are the {@link org.gnucash.android.model.AccountType#name()}s of the different types.
+     * Returns the account types which can be parent accounts for the specified <code>type</code>.
      * @param type {@link org.gnucash.android.model.AccountType}
-     * @return String comma separated list of account types
+     * @return Set of allowed parent account types
      */
-    private String getAllowedParentAccountTypes(AccountType type) {
+    private Set<AccountType> getAllowedParentAccountTypes(AccountType type) {
 
         switch (type) {
             case EQUITY:
-                return "'" + AccountType.EQUITY.name() + "'";
+                return EnumSet.of(AccountType.EQUITY);
 
             case INCOME:
             case EXPENSE:
-                return "'" + AccountType.EXPENSE.name() + "', '" + AccountType.INCOME.name() + "'";
+                return EnumSet.of(AccountType.EXPENSE, AccountType.INCOME);
 
             case CASH:
             case BANK:
@@ -651,37 +649,19 @@ public class AccountFormFragment extends Fragment {
             case RECEIVABLE:
             case CURRENCY:
             case STOCK:
-            case MUTUAL: {
-                List<String> accountTypeStrings = getAccountTypeStringList();
-                accountTypeStrings.remove(AccountType.EQUITY.name());
-                accountTypeStrings.remove(AccountType.EXPENSE.name());
-                accountTypeStrings.remove(AccountType.INCOME.name());
-                accountTypeStrings.remove(AccountType.ROOT.name());
-                return "'" + TextUtils.join("','", accountTypeStrings) + "'";
-            }
+            case MUTUAL:
+                return EnumSet.complementOf(EnumSet.of(
+                        AccountType.EQUITY, AccountType.EXPENSE, AccountType.INCOME, AccountType.ROOT));
 
             case TRADING:
-                return "'" + AccountType.TRADING.name() + "'";
+                return EnumSet.of(AccountType.TRADING);
 
             case ROOT:
             default:
-                return Arrays.toString(AccountType.values()).replaceAll("\\[|]", "");
+                return EnumSet.allOf(AccountType.class);
         }
     }
 
-    /**
-     * Returns a list of all the available {@link org.gnucash.android.model.AccountType}s as strings
-     * @return String list of all account types
-     */
-    private List<String> getAccountTypeStringList(){
-        String[] accountTypes = Arrays.toString(AccountType.values()).replaceAll("\\[|]", "").split(",");
-        List<String> accountTypesList = new ArrayList<>();
-        for (String accountType : accountTypes) {
-            accountTypesList.add(accountType.trim());
-        }
-
-        return accountTypesList;
-    }
     /**
      * Loads the list of account types into the account type selector spinner
      */
@@ -713,16 +693,6 @@ public class AccountFormFragment extends Fragment {
         }
 	}
 	
-	@Override
-	public void onDestroy() {
-		super.onDestroy();
-		if (mParentAccountCursor != null)
-			mParentAccountCursor.close();
-        if (mDefaultTransferAccountCursorAdapter != null) {
-            mDefaultTransferAccountCursorAdapter.getCursor().close();
-        }
-	}
-
     /**
      * Reads the fields from the account form and saves as a new account
      */
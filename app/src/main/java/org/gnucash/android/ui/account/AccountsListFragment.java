@@ -23,10 +23,13 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Configuration;
 import android.database.Cursor;
+import android.database.CursorWrapper;
 import android.graphics.Color;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager.LoaderCallbacks;
 import android.support.v4.content.Loader;
@@ -39,6 +42,7 @@ import android.support.v7.widget.PopupMenu;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -51,6 +55,8 @@ import android.widget.TextView;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.AccountsSnapshot;
+import org.gnucash.android.db.DatabaseChange;
 import org.gnucash.android.db.DatabaseCursorLoader;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
@@ -61,11 +67,18 @@ import org.gnucash.android.model.Money;
 import org.gnucash.android.ui.common.FormActivity;
 import org.gnucash.android.ui.common.Refreshable;
 import org.gnucash.android.ui.common.UxArgument;
-import org.gnucash.android.ui.util.AccountBalanceTask;
+import org.gnucash.android.ui.transaction.TransactionsActivity;
 import org.gnucash.android.ui.util.CursorRecyclerAdapter;
+import org.gnucash.android.ui.util.RowVersions;
 import org.gnucash.android.ui.util.widget.EmptyRecyclerView;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -129,6 +142,25 @@ public class AccountsListFragment extends Fragment implements
      */
     private String mCurrentFilter;
 
+    /**
+     * Time in milliseconds after the last key stroke before the account filter is applied
+     */
+    private static final long FILTER_DELAY = 200;
+
+    private final Handler mHandler = new Handler();
+
+    /**
+     * Filter which was typed but not yet applied
+     */
+    private String mPendingFilter;
+
+    private final Runnable mApplyFilter = new Runnable() {
+        @Override
+        public void run() {
+            applyFilter(mPendingFilter);
+        }
+    };
+
     /**
      * Search view for searching accounts
      */
@@ -320,6 +352,7 @@ public class AccountsListFragment extends Fragment implements
     @Override
     public void onDestroy() {
         super.onDestroy();
+        mHandler.removeCallbacks(mApplyFilter);
         if (mAccountRecyclerAdapter != null)
             mAccountRecyclerAdapter.swapCursor(null);
     }
@@ -343,18 +376,26 @@ public class AccountsListFragment extends Fragment implements
         Bundle arguments = getArguments();
         String accountUID = arguments == null ? null : arguments.getString(UxArgument.PARENT_ACCOUNT_UID);
 
+        AccountsCursorLoader loader;
         if (mCurrentFilter != null){
-            return new AccountsCursorLoader(getActivity(), mCurrentFilter);
+            loader = new AccountsCursorLoader(getActivity(), mCurrentFilter);
         } else {
-            return new AccountsCursorLoader(this.getActivity(), accountUID, mDisplayMode);
+            loader = new AccountsCursorLoader(this.getActivity(), accountUID, mDisplayMode);
         }
+        loader.setDisplayedRows(mAccountRecyclerAdapter.getRows());
+        return loader;
     }
 
     @Override
     public void onLoadFinished(Loader<Cursor> loaderCursor, Cursor cursor) {
         Log.d(TAG, "Accounts loader finished. Swapping in cursor");
-        mAccountRecyclerAdapter.swapCursor(cursor);
-        mAccountRecyclerAdapter.notifyDataSetChanged();
+        AccountsCursor accountsCursor = (AccountsCursor) cursor;
+        if (accountsCursor == null || accountsCursor.getDiff() == null) {
+            mAccountRecyclerAdapter.swapCursor(cursor);
+        } else {
+            mAccountRecyclerAdapter.swapCursor(cursor, accountsCursor.getDiff(), mAccountRecyclerAdapter.getRows());
+        }
+        ((AccountsCursorLoader) loaderCursor).setDisplayedRows(mAccountRecyclerAdapter.getRows());
     }
 
     @Override
@@ -371,17 +412,28 @@ public class AccountsListFragment extends Fragment implements
 
     @Override
     public boolean onQueryTextChange(String newText) {
-        String newFilter = !TextUtils.isEmpty(newText) ? newText : null;
+        mPendingFilter = !TextUtils.isEmpty(newText) ? newText : null;
+        mHandler.removeCallbacks(mApplyFilter);
+        if (mPendingFilter == null) //show all accounts again without delay
+            applyFilter(null);
+        else
+            mHandler.postDelayed(mApplyFilter, FILTER_DELAY);
+        return true;
+    }
 
+    /**
+     * Reloads the list with the accounts matching a filter, unless the filter is already applied
+     * @param newFilter Account name filter, or {@code null} to show the accounts without filter
+     */
+    private void applyFilter(@Nullable String newFilter) {
         if (mCurrentFilter == null && newFilter == null) {
-            return true;
+            return;
         }
         if (mCurrentFilter != null && mCurrentFilter.equals(newFilter)) {
-            return true;
+            return;
         }
         mCurrentFilter = newFilter;
         getLoaderManager().restartLoader(0, null, this);
-        return true;
     }
 
     @Override
@@ -397,6 +449,8 @@ public class AccountsListFragment extends Fragment implements
      * database asynchronously.
      * <p>By default it loads only top-level accounts (accounts which have no parent or have GnuCash ROOT account as parent.
      * By submitting a parent account ID in the constructor parameter, it will load child accounts of that parent.</p>
+     * <p>The loader is reloaded when the accounts change, or when transactions of the loaded accounts
+     * or their sub-accounts change.</p>
      * <p>Class must be static because the Android loader framework requires it to be so</p>
      * @author Ngewi Fet <ngewif@gmail.com>
      */
@@ -405,6 +459,16 @@ public class AccountsListFragment extends Fragment implements
         private String mFilter;
         private DisplayMode mDisplayMode = DisplayMode.TOP_LEVEL;
 
+        /**
+         * GUIDs of the loaded accounts and their descendants, whose balances are displayed
+         */
+        private volatile Set<String> mCoveredAccountUIDs = Collections.emptySet();
+
+        /**
+         * Rows currently displayed in the list, which the changes of the loaded accounts are computed from
+         */
+        private volatile RowVersions mDisplayedRows;
+
         /**
          * Initializes the loader to load accounts from the database.
          * If the <code>parentAccountId <= 0</code> then only top-level accounts are loaded.
@@ -421,6 +485,7 @@ public class AccountsListFragment extends Fragment implements
         /**
          * Initializes the loader with a filter for account names.
          * Only accounts whose name match the filter will be loaded.
+         * The accounts are looked up in the {@link AccountsSnapshot#getNameIndex() index of account names}
          * @param context Application context
          * @param filter Account name filter string
          */
@@ -435,10 +500,8 @@ public class AccountsListFragment extends Fragment implements
             Cursor cursor;
 
             if (mFilter != null){
-                cursor = ((AccountsDbAdapter)mDatabaseAdapter)
-                        .fetchAccounts(DatabaseSchema.AccountEntry.COLUMN_HIDDEN + "= 0 AND "
-                                + DatabaseSchema.AccountEntry.COLUMN_NAME + " LIKE '%" + mFilter + "%'",
-                                null, null);
+                AccountsSnapshot snapshot = AccountsSnapshot.getCurrentInstance();
+                cursor = snapshot.toCursor(snapshot.getNameIndex().search(mFilter));
             } else {
                 if (mParentAccountUID != null && mParentAccountUID.length() > 0)
                     cursor = ((AccountsDbAdapter) mDatabaseAdapter).fetchSubAccounts(mParentAccountUID);
@@ -459,9 +522,205 @@ public class AccountsListFragment extends Fragment implements
 
             }
 
-            if (cursor != null)
-                registerContentObserver(cursor);
-            return cursor;
+            if (cursor == null)
+                return null;
+
+            registerContentObserver(cursor);
+            AccountsCursor accountsCursor = new AccountsCursor(cursor, mDisplayedRows);
+            mCoveredAccountUIDs = accountsCursor.getCoveredAccountUIDs();
+            return accountsCursor;
+        }
+
+        /**
+         * Sets the rows displayed in the list. The next loaded accounts are compared with them,
+         * so that only the changed rows are updated
+         * @param rows Displayed rows, or {@code null} if nothing is displayed yet
+         */
+        void setDisplayedRows(@Nullable RowVersions rows) {
+            mDisplayedRows = rows;
+        }
+
+        @Override
+        protected boolean isAffectedBy(@NonNull DatabaseChange change) {
+            if (change.affectsTable(DatabaseSchema.AccountEntry.TABLE_NAME)) {
+                //the index may not have been notified yet, and the filter must not be applied to a stale index
+                AccountsSnapshot.invalidateCache();
+                return true;
+            }
+            if (change.affectsTable(DatabaseSchema.BudgetEntry.TABLE_NAME)
+                    || change.affectsTable(DatabaseSchema.BudgetAmountEntry.TABLE_NAME))
+                return true;
+
+            if (!change.affectsTable(DatabaseSchema.TransactionEntry.TABLE_NAME)
+                    && !change.affectsTable(DatabaseSchema.SplitEntry.TABLE_NAME))
+                return false;
+
+            //the recent accounts are ordered by their latest transaction
+            if (mFilter == null && TextUtils.isEmpty(mParentAccountUID) && mDisplayMode == DisplayMode.RECENT)
+                return true;
+            return change.affectsAnyAccount(mCoveredAccountUIDs);
+        }
+    }
+
+    /**
+     * Cursor to the accounts of the list, with the data of each row which is not stored in the accounts table.
+     * <p>The sub-account counts, balances and budget progress of all accounts are computed in the loader thread
+     * when the cursor is created, so that binding a row does not need to access the database.
+     * The balances of all accounts are computed together in one batch.</p>
+     * <p>The versions of the rows, and the changes from the rows displayed before, are computed as well,
+     * so that the list only binds the rows which changed.</p>
+     */
+    static final class AccountsCursor extends CursorWrapper {
+        private final Map<String, Integer> mSubAccountCounts;
+        private final Map<String, Money> mBalances;
+        private final Map<String, Integer> mBudgetProgress = new HashMap<>();
+        private final Set<String> mCoveredAccountUIDs = new HashSet<>();
+        private final RowVersions mRows;
+        private final RowVersions.Diff mDiff;
+
+        /**
+         * Creates the cursor and computes the data of its rows
+         * @param cursor Cursor to the accounts
+         * @param displayedRows Rows displayed in the list before, or {@code null} to not compute the changes
+         */
+        AccountsCursor(Cursor cursor, @Nullable RowVersions displayedRows) {
+            super(cursor);
+            List<String> accountUIDs = new ArrayList<>(cursor.getCount());
+            int uidColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID);
+            while (cursor.moveToNext()) {
+                accountUIDs.add(cursor.getString(uidColumn));
+            }
+            cursor.moveToPosition(-1);
+
+            AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
+            mSubAccountCounts = accountsDbAdapter.getSubAccountCounts(accountUIDs);
+            mBalances = accountsDbAdapter.getAccountBalances(accountUIDs, -1, System.currentTimeMillis());
+            for (String accountUID : accountUIDs) {
+                mCoveredAccountUIDs.add(accountUID);
+                mCoveredAccountUIDs.addAll(accountsDbAdapter.getDescendantAccountUIDs(accountUID, null, null));
+            }
+
+            //the progress is only shown for accounts in exactly one budget. The balances of the accounts
+            //are computed in one batch per budget period, which is usually the same for all budgets
+            Map<String, List<Budget>> accountsBudgets = BudgetsDbAdapter.getInstance().getAccountsBudgets(accountUIDs);
+            Map<String, Budget> accountBudget = new HashMap<>();
+            Map<Pair<Long, Long>, List<String>> periodAccountUIDs = new HashMap<>();
+            for (Map.Entry<String, List<Budget>> entry : accountsBudgets.entrySet()) {
+                if (entry.getValue().size() != 1)
+                    continue;
+                Budget budget = entry.getValue().get(0);
+                Pair<Long, Long> period = Pair.create(budget.getStartofCurrentPeriod(), budget.getEndOfCurrentPeriod());
+                List<String> periodAccounts = periodAccountUIDs.get(period);
+                if (periodAccounts == null) {
+                    periodAccounts = new ArrayList<>();
+                    periodAccountUIDs.put(period, periodAccounts);
+                }
+                periodAccounts.add(entry.getKey());
+                accountBudget.put(entry.getKey(), budget);
+            }
+            for (Map.Entry<Pair<Long, Long>, List<String>> entry : periodAccountUIDs.entrySet()) {
+                Map<String, Money> periodBalances = accountsDbAdapter.getAccountBalances(entry.getValue(),
+                        entry.getKey().first, entry.getKey().second);
+                for (String accountUID : entry.getValue()) {
+                    Money balance = periodBalances.get(accountUID);
+                    if (balance == null)
+                        continue;
+                    Budget budget = accountBudget.get(accountUID);
+                    double budgetProgress = balance.divide(budget.getAmount(accountUID)).asBigDecimal().doubleValue() * 100;
+                    mBudgetProgress.put(accountUID, (int) budgetProgress);
+                }
+            }
+
+            mRows = readRows(cursor);
+            mDiff = displayedRows == null ? null : displayedRows.diff(mRows);
+        }
+
+        /**
+         * Reads the versions of the rows. Everything which is bound to a row is part of its version,
+         * because the modification time of an account has a resolution of one second
+         * and does not change with the balance
+         */
+        private RowVersions readRows(Cursor cursor) {
+            RowVersions.Builder rows = new RowVersions.Builder(cursor.getCount());
+            int idColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry._ID);
+            int uidColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID);
+            int modifiedColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_MODIFIED_AT);
+            int nameColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_NAME);
+            int colorColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_COLOR_CODE);
+            int favoriteColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_FAVORITE);
+            int placeholderColumn = cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER);
+            while (cursor.moveToNext()) {
+                String accountUID = cursor.getString(uidColumn);
+                Money balance = mBalances.get(accountUID);
+                rows.add(accountUID,
+                        cursor.getLong(idColumn),
+                        cursor.getString(modifiedColumn),
+                        cursor.getString(nameColumn),
+                        cursor.getString(colorColumn),
+                        cursor.getInt(favoriteColumn),
+                        cursor.getInt(placeholderColumn),
+                        getSubAccountCount(accountUID),
+                        balance == null ? null : balance.asBigDecimal() + balance.getCommodity().getCurrencyCode(),
+                        mBudgetProgress.get(accountUID));
+            }
+            cursor.moveToPosition(-1);
+            return rows.build();
+        }
+
+        /**
+         * Returns the versions of the rows of the cursor
+         * @return Rows of the cursor
+         */
+        RowVersions getRows() {
+            return mRows;
+        }
+
+        /**
+         * Returns the changes from the rows which were displayed when the cursor was loaded
+         * @return Changes of the rows, or {@code null} if they were not computed
+         */
+        @Nullable
+        RowVersions.Diff getDiff() {
+            return mDiff;
+        }
+
+        /**
+         * Returns the GUIDs of the accounts in the cursor and of all their descendants,
+         * which are included in the displayed balances
+         * @return Set of account GUIDs
+         */
+        Set<String> getCoveredAccountUIDs() {
+            return Collections.unmodifiableSet(mCoveredAccountUIDs);
+        }
+
+        /**
+         * Returns the number of direct sub-accounts of the account
+         * @param accountUID GUID of the account
+         * @return Number of sub-accounts
+         */
+        int getSubAccountCount(String accountUID) {
+            Integer count = mSubAccountCounts.get(accountUID);
+            return count == null ? 0 : count;
+        }
+
+        /**
+         * Returns the balance of the account including its sub-accounts
+         * @param accountUID GUID of the account
+         * @return Balance of the account, or {@code null} if it could not be computed
+         */
+        @Nullable
+        Money getBalance(String accountUID) {
+            return mBalances.get(accountUID);
+        }
+
+        /**
+         * Returns the progress of the budget of the account in the current period, in percent
+         * @param accountUID GUID of the account
+         * @return Budget progress, or {@code null} if the account does not have exactly one budget
+         */
+        @Nullable
+        Integer getBudgetProgress(String accountUID) {
+            return mBudgetProgress.get(accountUID);
         }
     }
 
@@ -470,6 +729,27 @@ public class AccountsListFragment extends Fragment implements
 
         public AccountRecyclerAdapter(Cursor cursor){
            super(cursor);
+           setHasStableIds(true);
+        }
+
+        /**
+         * Returns the versions of the displayed rows
+         * @return Displayed rows, or {@code null} if no accounts are displayed
+         */
+        @Nullable
+        RowVersions getRows() {
+            Cursor cursor = getCursor();
+            return cursor == null ? null : ((AccountsCursor) cursor).getRows();
+        }
+
+        /**
+         * Returns an ID derived from the GUID of the account, which stays the same when the account is replaced
+         * @see RowVersions#stableId(String)
+         */
+        @Override
+        public long getItemId(int position) {
+            RowVersions rows = getRows();
+            return rows == null ? RecyclerView.NO_ID : rows.getStableId(position);
         }
 
         @Override
@@ -483,11 +763,12 @@ public class AccountsListFragment extends Fragment implements
         @Override
         public void onBindViewHolderCursor(final AccountViewHolder holder, final Cursor cursor) {
             final String accountUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID));
+            AccountsCursor accountsCursor = (AccountsCursor) cursor;
             mAccountsDbAdapter = AccountsDbAdapter.getInstance();
-            holder.accoundId = mAccountsDbAdapter.getID(accountUID);
+            holder.accoundId = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry._ID));
 
             holder.accountName.setText(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_NAME)));
-            int subAccountCount = mAccountsDbAdapter.getSubAccountCount(accountUID);
+            int subAccountCount = accountsCursor.getSubAccountCount(accountUID);
             if (subAccountCount > 0) {
                 holder.description.setVisibility(View.VISIBLE);
                 String text = getResources().getQuantityString(R.plurals.label_sub_accounts, subAccountCount, subAccountCount);
@@ -496,15 +777,17 @@ public class AccountsListFragment extends Fragment implements
                 holder.description.setVisibility(View.GONE);
 
             // add a summary of transactions to the account view
-
-                // Make sure the balance task is truly multithread
-            new AccountBalanceTask(holder.accountBalance).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, accountUID);
+            Money balance = accountsCursor.getBalance(accountUID);
+            if (balance != null)
+                TransactionsActivity.displayBalance(holder.accountBalance, balance);
+            else
+                holder.accountBalance.setText(null);
 
             String accountColor = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_COLOR_CODE));
             int colorCode = accountColor == null ? Color.TRANSPARENT : Color.parseColor(accountColor);
             holder.colorStripView.setBackgroundColor(colorCode);
 
-            boolean isPlaceholderAccount = mAccountsDbAdapter.isPlaceholderAccount(accountUID);
+            boolean isPlaceholderAccount = cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER)) == 1;
             if (isPlaceholderAccount) {
                 holder.createTransaction.setVisibility(View.GONE);
             } else {
@@ -521,21 +804,16 @@ public class AccountsListFragment extends Fragment implements
                 });
             }
 
-            List<Budget> budgets = BudgetsDbAdapter.getInstance().getAccountBudgets(accountUID);
-            //TODO: include fetch only active budgets
-            if (budgets.size() == 1){
-                Budget budget = budgets.get(0);
-                Money balance = mAccountsDbAdapter.getAccountBalance(accountUID, budget.getStartofCurrentPeriod(), budget.getEndOfCurrentPeriod());
-                double budgetProgress = balance.divide(budget.getAmount(accountUID)).asBigDecimal().doubleValue() * 100;
-
+            Integer budgetProgress = accountsCursor.getBudgetProgress(accountUID);
+            if (budgetProgress != null){
                 holder.budgetIndicator.setVisibility(View.VISIBLE);
-                holder.budgetIndicator.setProgress((int) budgetProgress);
+                holder.budgetIndicator.setProgress(budgetProgress);
             } else {
                 holder.budgetIndicator.setVisibility(View.GONE);
             }
 
 
-            if (mAccountsDbAdapter.isFavoriteAccount(accountUID)){
+            if (cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_FAVORITE)) == 1){
                 holder.favoriteStatus.setImageResource(R.drawable.ic_star_black_24dp);
             } else {
                 holder.favoriteStatus.setImageResource(R.drawable.ic_star_border_black_24dp);
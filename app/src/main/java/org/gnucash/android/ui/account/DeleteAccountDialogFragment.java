@@ -15,12 +15,10 @@
  */
 package org.gnucash.android.ui.account;
 
-import android.database.Cursor;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.DialogFragment;
-import android.support.v4.widget.SimpleCursorAdapter;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -32,16 +30,19 @@ import android.widget.TextView;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
-import org.gnucash.android.model.AccountType;
 import org.gnucash.android.ui.common.Refreshable;
 import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Delete confirmation dialog for accounts.
@@ -138,36 +139,35 @@ public class DeleteAccountDialogFragment extends DialogFragment {
         AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
         List<String> descendantAccountUIDs = accountsDbAdapter.getDescendantAccountUIDs(mOriginAccountUID, null, null);
 
-        String currencyCode = accountsDbAdapter.getCurrencyCode(mOriginAccountUID);
-        AccountType accountType = accountsDbAdapter.getAccountType(mOriginAccountUID);
-
-        String transactionDeleteConditions = "(" + DatabaseSchema.AccountEntry.COLUMN_UID + " != ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_CURRENCY               + " = ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_TYPE         + " = ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + " = 0 AND "
-                + DatabaseSchema.AccountEntry.COLUMN_UID + " NOT IN ('" + TextUtils.join("','", descendantAccountUIDs) + "')"
-                + ")";
-        Cursor cursor = accountsDbAdapter.fetchAccountsOrderedByFullName(transactionDeleteConditions,
-                new String[]{mOriginAccountUID, currencyCode, accountType.name()});
-
-        SimpleCursorAdapter mCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), cursor);
-        mTransactionsDestinationAccountSpinner.setAdapter(mCursorAdapter);
+        AccountsSnapshot snapshot = AccountsSnapshot.getInstance();
+        final AccountsSnapshot.Entry originAccount = snapshot.getAccount(mOriginAccountUID);
+        final Set<String> excludedAccountUIDs = new HashSet<>(descendantAccountUIDs);
+        excludedAccountUIDs.add(mOriginAccountUID);
 
         //target accounts for transactions and accounts have different conditions
-        String accountMoveConditions = "(" + DatabaseSchema.AccountEntry.COLUMN_UID + " != ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_CURRENCY               + " = ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_TYPE         + " = ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_UID + " NOT IN ('" + TextUtils.join("','", descendantAccountUIDs) + "')"
-                + ")";
-        cursor = accountsDbAdapter.fetchAccountsOrderedByFullName(accountMoveConditions,
-                new String[]{mOriginAccountUID, currencyCode, accountType.name()});
-        mCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), cursor);
-        mAccountsDestinationAccountSpinner.setAdapter(mCursorAdapter);
+        List<AccountsSnapshot.Entry> accountMoveTargets = snapshot.select(new AccountsSnapshot.Filter() {
+            @Override
+            public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                return !excludedAccountUIDs.contains(account.getUID())
+                        && account.getCurrencyCode().equals(originAccount.getCurrencyCode())
+                        && account.getAccountType() == originAccount.getAccountType();
+            }
+        }, false);
+        List<AccountsSnapshot.Entry> transactionMoveTargets = new ArrayList<>();
+        for (AccountsSnapshot.Entry account : accountMoveTargets) {
+            if (!account.isPlaceholder())
+                transactionMoveTargets.add(account);
+        }
+
+        mTransactionsDestinationAccountSpinner.setAdapter(
+                new QualifiedAccountNameAdapter(getActivity(), transactionMoveTargets));
+        mAccountsDestinationAccountSpinner.setAdapter(
+                new QualifiedAccountNameAdapter(getActivity(), accountMoveTargets));
 
         setListeners();
 
         //this comes after the listeners because of some useful bindings done there
-        if (cursor.getCount() == 0){
+        if (accountMoveTargets.isEmpty()){
             mMoveAccountsRadioButton.setEnabled(false);
             mMoveAccountsRadioButton.setChecked(false);
             mDeleteAccountsRadioButton.setChecked(true);
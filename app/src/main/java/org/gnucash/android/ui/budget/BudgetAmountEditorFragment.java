@@ -17,7 +17,6 @@ package org.gnucash.android.ui.budget;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.database.Cursor;
 import android.inputmethodservice.KeyboardView;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
@@ -38,14 +37,13 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import org.gnucash.android.R;
-import org.gnucash.android.db.DatabaseSchema;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.model.BudgetAmount;
 import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
 import org.gnucash.android.ui.common.UxArgument;
 import org.gnucash.android.ui.util.widget.CalculatorEditText;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -59,10 +57,8 @@ import butterknife.ButterKnife;
  */
 public class BudgetAmountEditorFragment extends Fragment {
 
-    private Cursor mAccountCursor;
-    private QualifiedAccountNameCursorAdapter mAccountCursorAdapter;
+    private QualifiedAccountNameAdapter mAccountAdapter;
     private List<View> mBudgetAmountViews = new ArrayList<>();
-    private AccountsDbAdapter mAccountsDbAdapter;
 
     @BindView(R.id.budget_amount_layout)    LinearLayout mBudgetAmountTableLayout;
     @BindView(R.id.calculator_keyboard)     KeyboardView mKeyboardView;
@@ -83,12 +79,6 @@ public class BudgetAmountEditorFragment extends Fragment {
         return view;
     }
 
-    @Override
-    public void onCreate(@Nullable Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
-    }
-
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -198,14 +188,8 @@ public class BudgetAmountEditorFragment extends Fragment {
      * Loads the accounts in the spinner
      */
     private void setupAccountSpinnerAdapter(){
-        String conditions = "(" + DatabaseSchema.AccountEntry.COLUMN_HIDDEN + " = 0 )";
-
-        if (mAccountCursor != null) {
-            mAccountCursor.close();
-        }
-        mAccountCursor = mAccountsDbAdapter.fetchAccountsOrderedByFavoriteAndFullName(conditions, null);
-
-        mAccountCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), mAccountCursor);
+        mAccountAdapter = new QualifiedAccountNameAdapter(getActivity(),
+                AccountsSnapshot.getInstance().select(AccountsSnapshot.VISIBLE_ACCOUNTS, true));
     }
 
     /**
@@ -220,7 +204,7 @@ public class BudgetAmountEditorFragment extends Fragment {
             if (amountValue == null)
                 continue;
             Money amount = new Money(amountValue, Commodity.DEFAULT_COMMODITY);
-            String accountUID = mAccountsDbAdapter.getUID(viewHolder.budgetAccountSpinner.getSelectedItemId());
+            String accountUID = mAccountAdapter.getUID(viewHolder.budgetAccountSpinner.getSelectedItemPosition());
             BudgetAmount budgetAmount = new BudgetAmount(amount, accountUID);
             budgetAmounts.add(budgetAmount);
         }
@@ -243,12 +227,12 @@ public class BudgetAmountEditorFragment extends Fragment {
             itemView.setTag(this);
 
             amountEditText.bindListeners(mKeyboardView);
-            budgetAccountSpinner.setAdapter(mAccountCursorAdapter);
+            budgetAccountSpinner.setAdapter(mAccountAdapter);
 
             budgetAccountSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
                 @Override
                 public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                    String currencyCode = mAccountsDbAdapter.getCurrencyCode(mAccountsDbAdapter.getUID(id));
+                    String currencyCode = mAccountAdapter.getItem(position).getCurrencyCode();
                     Commodity commodity = Commodity.getInstance(currencyCode);
                     currencySymbolTextView.setText(commodity.getSymbol());
                 }
@@ -270,7 +254,7 @@ public class BudgetAmountEditorFragment extends Fragment {
 
         public void bindViews(BudgetAmount budgetAmount){
             amountEditText.setValue(budgetAmount.getAmount().asBigDecimal());
-            budgetAccountSpinner.setSelection(mAccountCursorAdapter.getPosition(budgetAmount.getAccountUID()));
+            budgetAccountSpinner.setSelection(mAccountAdapter.getPosition(budgetAmount.getAccountUID()));
         }
     }
 }
@@ -44,6 +44,7 @@ import com.github.mikephil.charting.data.BarDataSet;
 import com.github.mikephil.charting.data.BarEntry;
 
 import org.gnucash.android.R;
+import org.gnucash.android.db.BookSnapshot;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
@@ -209,8 +210,12 @@ public class BudgetDetailFragment extends Fragment implements Refreshable {
             holder.budgetAccount.setText(accountsDbAdapter.getAccountFullName(budgetAmount.getAccountUID()));
             holder.budgetAmount.setText(projectedAmount.formattedString());
 
-            Money spentAmount = accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(),
-                    mBudget.getStartofCurrentPeriod(), mBudget.getEndOfCurrentPeriod());
+            BookSnapshot snapshot = BookSnapshot.getCachedInstance();
+            Money spentAmount = snapshot != null
+                    ? snapshot.getAccountBalance(budgetAmount.getAccountUID(),
+                            mBudget.getStartofCurrentPeriod(), mBudget.getEndOfCurrentPeriod())
+                    : accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(),
+                            mBudget.getStartofCurrentPeriod(), mBudget.getEndOfCurrentPeriod());
 
             holder.budgetSpent.setText(spentAmount.abs().formattedString());
             holder.budgetLeft.setText(projectedAmount.subtract(spentAmount.abs()).formattedString());
@@ -247,6 +252,7 @@ public class BudgetDetailFragment extends Fragment implements Refreshable {
             // FIXME: 25.10.15 chart is broken
 
             AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
+            BookSnapshot snapshot = BookSnapshot.getCachedInstance();
 
             List<BarEntry> barEntries = new ArrayList<>();
             List<String> xVals = new ArrayList<>();
@@ -257,8 +263,11 @@ public class BudgetDetailFragment extends Fragment implements Refreshable {
             int periods = mBudget.getRecurrence().getNumberOfPeriods(budgetPeriods); //// FIXME: 15.08.2016 why do we need number of periods
 
             for (int periodNum = 1; periodNum <= periods; periodNum++) {
-                BigDecimal amount = accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(),
-                        mBudget.getStartOfPeriod(periodNum), mBudget.getEndOfPeriod(periodNum))
+                long start = mBudget.getStartOfPeriod(periodNum);
+                long end = mBudget.getEndOfPeriod(periodNum);
+                BigDecimal amount = (snapshot != null
+                        ? snapshot.getAccountBalance(budgetAmount.getAccountUID(), start, end)
+                        : accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(), start, end))
                         .asBigDecimal();
 
                 if (amount.equals(BigDecimal.ZERO))
@@ -18,7 +18,6 @@ package org.gnucash.android.ui.budget;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.database.Cursor;
 import android.inputmethodservice.KeyboardView;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
@@ -45,8 +44,7 @@ import com.codetroopers.betterpickers.recurrencepicker.EventRecurrenceFormatter;
 import com.codetroopers.betterpickers.recurrencepicker.RecurrencePickerDialogFragment;
 
 import org.gnucash.android.R;
-import org.gnucash.android.db.DatabaseSchema;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
 import org.gnucash.android.model.Budget;
@@ -60,7 +58,7 @@ import org.gnucash.android.ui.transaction.TransactionFormFragment;
 import org.gnucash.android.ui.util.RecurrenceParser;
 import org.gnucash.android.ui.util.RecurrenceViewClickListener;
 import org.gnucash.android.ui.util.widget.CalculatorEditText;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -99,8 +97,7 @@ public class BudgetFormFragment extends Fragment implements RecurrencePickerDial
     private Budget mBudget;
     private Calendar mStartDate;
     private ArrayList<BudgetAmount> mBudgetAmounts;
-    private AccountsDbAdapter mAccountsDbAdapter;
-    private QualifiedAccountNameCursorAdapter mAccountsCursorAdapter;
+    private QualifiedAccountNameAdapter mAccountsAdapter;
 
     @Nullable
     @Override
@@ -120,10 +117,8 @@ public class BudgetFormFragment extends Fragment implements RecurrencePickerDial
         mBudgetsDbAdapter = BudgetsDbAdapter.getInstance();
         mStartDate = Calendar.getInstance();
         mBudgetAmounts = new ArrayList<>();
-        String conditions = "(" + DatabaseSchema.AccountEntry.COLUMN_HIDDEN + " = 0 )";
-        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
-        Cursor accountCursor = mAccountsDbAdapter.fetchAccountsOrderedByFavoriteAndFullName(conditions, null);
-        mAccountsCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), accountCursor);
+        mAccountsAdapter = new QualifiedAccountNameAdapter(getActivity(),
+                AccountsSnapshot.getInstance().select(AccountsSnapshot.VISIBLE_ACCOUNTS, true));
     }
 
     @Override
@@ -132,7 +127,7 @@ public class BudgetFormFragment extends Fragment implements RecurrencePickerDial
 
         setHasOptionsMenu(true);
 
-        mBudgetAccountSpinner.setAdapter(mAccountsCursorAdapter);
+        mBudgetAccountSpinner.setAdapter(mAccountsAdapter);
         String budgetUID = getArguments().getString(UxArgument.BUDGET_UID);
         if (budgetUID != null){ //if we are editing the budget
             initViews(mBudget = mBudgetsDbAdapter.getRecord(budgetUID));
@@ -179,7 +174,7 @@ public class BudgetFormFragment extends Fragment implements RecurrencePickerDial
         if (mBudgetAmounts.isEmpty()){ //has not been set in budget amounts editor
             ArrayList<BudgetAmount> budgetAmounts = new ArrayList<>();
             Money amount = new Money(value, Commodity.DEFAULT_COMMODITY);
-            String accountUID = mAccountsDbAdapter.getUID(mBudgetAccountSpinner.getSelectedItemId());
+            String accountUID = mAccountsAdapter.getUID(mBudgetAccountSpinner.getSelectedItemPosition());
             BudgetAmount budgetAmount = new BudgetAmount(amount, accountUID);
             budgetAmounts.add(budgetAmount);
             return budgetAmounts;
@@ -355,7 +350,7 @@ public class BudgetFormFragment extends Fragment implements RecurrencePickerDial
             if (!mBudgetAmounts.isEmpty()) {
                 BudgetAmount budgetAmount = mBudgetAmounts.get(0);
                 mBudgetAmountInput.setValue(budgetAmount.getAmount().asBigDecimal());
-                mBudgetAccountSpinner.setSelection(mAccountsCursorAdapter.getPosition(budgetAmount.getAccountUID()));
+                mBudgetAccountSpinner.setSelection(mAccountsAdapter.getPosition(budgetAmount.getAccountUID()));
             }
         }
     }
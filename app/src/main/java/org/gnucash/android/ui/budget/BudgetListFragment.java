@@ -45,6 +45,7 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import org.gnucash.android.R;
+import org.gnucash.android.db.BookSnapshot;
 import org.gnucash.android.db.DatabaseCursorLoader;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
@@ -223,10 +224,14 @@ public class BudgetListFragment extends Fragment implements Refreshable,
             holder.budgetRecurrence.setText(budget.getRecurrence().getRepeatString() + " - "
                     + budget.getRecurrence().getDaysLeftInCurrentPeriod() + " days left");
 
+            BookSnapshot snapshot = BookSnapshot.getCachedInstance();
             BigDecimal spentAmountValue = BigDecimal.ZERO;
             for (BudgetAmount budgetAmount : budget.getCompactedBudgetAmounts()) {
-                Money balance = accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(),
-                        budget.getStartofCurrentPeriod(), budget.getEndOfCurrentPeriod());
+                Money balance = snapshot != null
+                        ? snapshot.getAccountBalance(budgetAmount.getAccountUID(),
+                                budget.getStartofCurrentPeriod(), budget.getEndOfCurrentPeriod())
+                        : accountsDbAdapter.getAccountBalance(budgetAmount.getAccountUID(),
+                                budget.getStartofCurrentPeriod(), budget.getEndOfCurrentPeriod());
                 spentAmountValue = spentAmountValue.add(balance.asBigDecimal());
             }
 
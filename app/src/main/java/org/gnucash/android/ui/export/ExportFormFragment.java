@@ -108,6 +108,11 @@ public class ExportFormFragment extends Fragment implements
 	 */
 	@BindView(R.id.checkbox_post_export_delete) CheckBox mDeleteAllCheckBox;
 
+	/**
+	 * Checkbox for exporting all books instead of only the active book
+	 */
+	@BindView(R.id.checkbox_export_all_books) CheckBox mExportAllBooksCheckBox;
+
     /**
      * Text view for showing warnings based on chosen export format
      */
@@ -288,6 +293,7 @@ public class ExportFormFragment extends Fragment implements
 		exportParameters.setExportTarget(mExportTarget);
 		exportParameters.setExportLocation(mExportUri != null ? mExportUri.toString() : null);
 		exportParameters.setDeleteTransactionsAfterExport(mDeleteAllCheckBox.isChecked());
+		exportParameters.setExportAllBooks(mExportAllBooksCheckBox.isChecked());
 
 		Log.i(TAG, "Commencing async export of transactions");
 		new ExportAsyncTask(getActivity(), GnuCashApplication.getActiveDb()).execute(exportParameters);
@@ -445,6 +451,18 @@ public class ExportFormFragment extends Fragment implements
 		mExportAllSwitch.setChecked(sharedPrefs.getBoolean(getString(R.string.key_export_all_transactions), false));
 		mDeleteAllCheckBox.setChecked(sharedPrefs.getBoolean(getString(R.string.key_delete_transactions_after_export), false));
 
+		//transactions are not deleted when exporting all books
+		mExportAllBooksCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+			@Override
+			public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+				if (isChecked)
+					mDeleteAllCheckBox.setChecked(false);
+				mDeleteAllCheckBox.setEnabled(!isChecked);
+			}
+		});
+		if (BooksDbAdapter.getInstance().getRecordsCount() > 1)
+			mExportAllBooksCheckBox.setVisibility(View.VISIBLE);
+
 		mRecurrenceTextView.setOnClickListener(new RecurrenceViewClickListener((AppCompatActivity) getActivity(), mRecurrenceRule, this));
 
 		//this part (setting the export format) must come after the recurrence view bindings above
@@ -25,7 +25,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.support.v4.widget.SimpleCursorAdapter;
 import android.support.v7.preference.PreferenceManager;
@@ -40,10 +39,12 @@ import android.widget.Spinner;
 import android.widget.Toast;
 
 import org.gnucash.android.R;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.BookDbHelper;
-import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.DatabaseChange;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.Book;
@@ -54,8 +55,9 @@ import org.gnucash.android.ui.common.FormActivity;
 import org.gnucash.android.ui.common.UxArgument;
 import org.gnucash.android.ui.settings.PreferenceActivity;
 import org.gnucash.android.ui.transaction.TransactionsActivity;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
+import java.util.List;
 import java.util.Locale;
 import java.util.prefs.Preferences;
 
@@ -78,7 +80,7 @@ public class WidgetConfigurationActivity extends Activity {
 	@BindView(R.id.btn_cancel) Button mCancelButton;
 
 
-	private SimpleCursorAdapter mAccountsCursorAdapter;
+	private QualifiedAccountNameAdapter mAccountsAdapter;
 
 
 	@Override
@@ -111,17 +113,17 @@ public class WidgetConfigurationActivity extends Activity {
 		mBooksSpinner.setSelection(position);
 
 		mAccountsDbAdapter = AccountsDbAdapter.getInstance();
-		Cursor cursor = mAccountsDbAdapter.fetchAllRecordsOrderedByFullName();
+		List<AccountsSnapshot.Entry> accounts = AccountsSnapshot.getInstance()
+				.select(AccountsSnapshot.VISIBLE_ACCOUNTS, false);
 		
-		if (cursor.getCount() <= 0){
+		if (accounts.isEmpty()){
 			Toast.makeText(this, R.string.error_no_accounts, Toast.LENGTH_LONG).show();
 			finish();
 		}
 
-		mAccountsCursorAdapter = new QualifiedAccountNameCursorAdapter(this, cursor);
-		//without this line, the app crashes when a user tries to select an account
-		mAccountsCursorAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-		mAccountsSpinner.setAdapter(mAccountsCursorAdapter);
+		mAccountsAdapter = new QualifiedAccountNameAdapter(this, accounts);
+		mAccountsAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+		mAccountsSpinner.setAdapter(mAccountsAdapter);
 
 		boolean passcodeEnabled = PreferenceManager.getDefaultSharedPreferences(getApplicationContext())
 				.getBoolean(UxArgument.ENABLED_PASSCODE, false);
@@ -138,12 +140,11 @@ public class WidgetConfigurationActivity extends Activity {
 			@Override
 			public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
 				Book book = BooksDbAdapter.getInstance().getRecord(id);
-				SQLiteDatabase db = new DatabaseHelper(WidgetConfigurationActivity.this, book.getUID()).getWritableDatabase();
-				mAccountsDbAdapter = new AccountsDbAdapter(db);
+				mAccountsDbAdapter = AdapterRegistry.of(BookDbHelper.getDatabase(book.getUID())).getAccountsDbAdapter();
 
-				Cursor cursor = mAccountsDbAdapter.fetchAllRecordsOrderedByFullName();
-				mAccountsCursorAdapter.swapCursor(cursor);
-				mAccountsCursorAdapter.notifyDataSetChanged();
+				AccountsSnapshot snapshot = book.getUID().equals(BooksDbAdapter.getInstance().getActiveBookUID())
+						? AccountsSnapshot.getInstance() : AccountsSnapshot.build(mAccountsDbAdapter, book.getUID());
+				mAccountsAdapter.swapAccounts(snapshot.select(AccountsSnapshot.VISIBLE_ACCOUNTS, false));
 			}
 
 			@Override
@@ -170,7 +171,7 @@ public class WidgetConfigurationActivity extends Activity {
 				}
 
 				String bookUID = BooksDbAdapter.getInstance().getUID(mBooksSpinner.getSelectedItemId());
-				String accountUID = mAccountsDbAdapter.getUID(mAccountsSpinner.getSelectedItemId());
+				String accountUID = mAccountsAdapter.getUID(mAccountsSpinner.getSelectedItemPosition());
 				boolean hideAccountBalance = mHideAccountBalance.isChecked();
 				
 				configureWidget(WidgetConfigurationActivity.this, mAppWidgetId, bookUID, accountUID, hideAccountBalance);
@@ -262,7 +263,7 @@ public class WidgetConfigurationActivity extends Activity {
 			return;
 		}
 
-		AccountsDbAdapter accountsDbAdapter = new AccountsDbAdapter(BookDbHelper.getDatabase(bookUID));
+		AccountsDbAdapter accountsDbAdapter = AdapterRegistry.of(BookDbHelper.getDatabase(bookUID)).getAccountsDbAdapter();
 
 		final Account account;
         try {
@@ -351,4 +352,59 @@ public class WidgetConfigurationActivity extends Activity {
 			}
 		}).start();
 	}
+
+	/**
+	 * Updates the widgets which display an account affected by a change of the database.
+	 * <p>The balance displayed in a widget includes the sub-accounts, so a widget is also updated
+	 * when the change affects a descendant of its account</p>
+	 * @param context Application context
+	 * @param change Change of the database
+	 */
+	public static void updateWidgets(final Context context, final DatabaseChange change){
+		if (!change.affectsTable(DatabaseSchema.TransactionEntry.TABLE_NAME)
+				&& !change.affectsTable(DatabaseSchema.SplitEntry.TABLE_NAME)
+				&& !change.affectsTable(DatabaseSchema.AccountEntry.TABLE_NAME)
+				&& !change.affectsTable(DatabaseSchema.PriceEntry.TABLE_NAME))
+			return;
+
+		AppWidgetManager widgetManager = AppWidgetManager.getInstance(context);
+		ComponentName componentName = new ComponentName(context, TransactionAppWidgetProvider.class);
+		final int[] appWidgetIds = widgetManager.getAppWidgetIds(componentName);
+		if (appWidgetIds == null || appWidgetIds.length == 0)
+			return;
+
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (final int widgetId : appWidgetIds) {
+					if (isWidgetAffected(context, widgetId, change))
+						updateWidget(context, widgetId);
+				}
+			}
+		}).start();
+	}
+
+	/**
+	 * Checks if the account displayed in a widget, or one of its descendants, is affected by a change
+	 * @param context Application context
+	 * @param appWidgetId ID of the widget
+	 * @param change Change of the database
+	 * @return {@code true} if the widget has to be updated
+	 */
+	private static boolean isWidgetAffected(Context context, int appWidgetId, DatabaseChange change){
+		if (change.affectsAllAccounts())
+			return true;
+
+		SharedPreferences preferences = context.getSharedPreferences("widget:" + appWidgetId, MODE_PRIVATE);
+		String bookUID = preferences.getString(UxArgument.BOOK_UID, null);
+		String accountUID = preferences.getString(UxArgument.SELECTED_ACCOUNT_UID, null);
+		if (bookUID == null || accountUID == null) //not yet migrated, let the update take care of it
+			return true;
+
+		if (change.affectsAccount(accountUID))
+			return true;
+
+		AccountsDbAdapter accountsDbAdapter = AdapterRegistry.of(BookDbHelper.getDatabase(bookUID)).getAccountsDbAdapter();
+		return change.affectsAnyAccount(accountsDbAdapter.getDescendantAccountUIDs(accountUID, null, null));
+	}
 }
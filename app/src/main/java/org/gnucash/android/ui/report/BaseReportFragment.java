@@ -38,14 +38,20 @@ import com.github.mikephil.charting.listener.OnChartValueSelectedListener;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.BookSnapshot;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
 import org.gnucash.android.ui.common.Refreshable;
 import org.joda.time.LocalDateTime;
 import org.joda.time.Months;
 import org.joda.time.Years;
 
+import java.util.Collections;
+import java.util.List;
+
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
@@ -107,6 +113,12 @@ public abstract class BaseReportFragment extends Fragment implements
 
     private AsyncTask<Void, Void, Void> mReportGenerator;
 
+    /**
+     * Snapshot of the splits from which the balances of the report are computed,
+     * or {@code null} if they are read from the database
+     */
+    protected BookSnapshot mBookSnapshot;
+
     /**
      * Return the title of this report
      * @return Title string identifier
@@ -284,6 +296,7 @@ public abstract class BaseReportFragment extends Fragment implements
 
             @Override
             protected Void doInBackground(Void... params) {
+                mBookSnapshot = BookSnapshot.getInstance();
                 generateReport();
                 return null;
             }
@@ -308,6 +321,57 @@ public abstract class BaseReportFragment extends Fragment implements
         refresh();
     }
 
+    /**
+     * Returns the balance of several accounts within a time range, from the book snapshot if there is one
+     * @see AccountsDbAdapter#getAccountsBalance(List, long, long)
+     */
+    protected Money getAccountsBalance(List<String> accountUIDList, long startTimestamp, long endTimestamp) {
+        return mBookSnapshot != null
+                ? mBookSnapshot.getAccountsBalance(accountUIDList, startTimestamp, endTimestamp)
+                : AccountsDbAdapter.getInstance().getAccountsBalance(accountUIDList, startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Returns the balances of several accounts for several time ranges, each computed like
+     * {@link #getAccountsBalance(List, long, long)} for the account alone
+     * @return Balances indexed by account and then by time range
+     * @see BookSnapshot#getAccountsBalances(List, long[], long[])
+     */
+    protected Money[][] getAccountsBalances(List<String> accountUIDList, long[] startTimestamps, long[] endTimestamps) {
+        if (mBookSnapshot != null)
+            return mBookSnapshot.getAccountsBalances(accountUIDList, startTimestamps, endTimestamps);
+
+        AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
+        Money[][] balances = new Money[accountUIDList.size()][startTimestamps.length];
+        for (int i = 0; i < balances.length; i++) {
+            for (int j = 0; j < startTimestamps.length; j++) {
+                balances[i][j] = accountsDbAdapter.getAccountsBalance(
+                        Collections.singletonList(accountUIDList.get(i)), startTimestamps[j], endTimestamps[j]);
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Returns the balance of the accounts of some types within a time range, from the book snapshot if there is one
+     * @see AccountsDbAdapter#getAccountBalance(List, long, long)
+     */
+    protected Money getAccountBalance(List<AccountType> accountTypes, long startTimestamp, long endTimestamp) {
+        return mBookSnapshot != null
+                ? mBookSnapshot.getAccountBalance(accountTypes, startTimestamp, endTimestamp)
+                : AccountsDbAdapter.getInstance().getAccountBalance(accountTypes, startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Returns the balance of an account including its sub-accounts, from the book snapshot if there is one
+     * @see AccountsDbAdapter#getAccountBalance(String, long, long)
+     */
+    protected Money getAccountBalance(String accountUID, long startTimestamp, long endTimestamp) {
+        return mBookSnapshot != null
+                ? mBookSnapshot.getAccountBalance(accountUID, startTimestamp, endTimestamp)
+                : AccountsDbAdapter.getInstance().getAccountBalance(accountUID, startTimestamp, endTimestamp);
+    }
+
     @Override
     public void onGroupingUpdated(ReportsActivity.GroupInterval groupInterval) {
         if (mGroupInterval != groupInterval) {
@@ -162,12 +162,12 @@ public class ReportsOverviewFragment extends BaseReportFragment {
         accountTypes.add(AccountType.ASSET);
         accountTypes.add(AccountType.CASH);
         accountTypes.add(AccountType.BANK);
-        mAssetsBalance = mAccountsDbAdapter.getAccountBalance(accountTypes, -1, System.currentTimeMillis());
+        mAssetsBalance = getAccountBalance(accountTypes, -1, System.currentTimeMillis());
 
         accountTypes.clear();
         accountTypes.add(AccountType.LIABILITY);
         accountTypes.add(AccountType.CREDIT);
-        mLiabilitiesBalance = mAccountsDbAdapter.getAccountBalance(accountTypes, -1, System.currentTimeMillis());
+        mLiabilitiesBalance = getAccountBalance(accountTypes, -1, System.currentTimeMillis());
     }
 
     /**
@@ -185,7 +185,7 @@ public class ReportsOverviewFragment extends BaseReportFragment {
 
                 long start = new LocalDate().minusMonths(2).dayOfMonth().withMinimumValue().toDate().getTime();
                 long end = new LocalDate().plusDays(1).toDate().getTime();
-                double balance = mAccountsDbAdapter.getAccountsBalance(
+                double balance = getAccountsBalance(
                         Collections.singletonList(account.getUID()), start, end).asDouble();
                 if (balance > 0) {
                     dataSet.addEntry(new Entry((float) balance, dataSet.getEntryCount()));
@@ -103,8 +103,8 @@ public class BalanceSheetFragment extends BaseReportFragment {
 
     @Override
     protected void generateReport() {
-        mAssetsBalance = mAccountsDbAdapter.getAccountBalance(mAssetAccountTypes, -1, System.currentTimeMillis());
-        mLiabilitiesBalance = mAccountsDbAdapter.getAccountBalance(mLiabilityAccountTypes, -1, System.currentTimeMillis());
+        mAssetsBalance = getAccountBalance(mAssetAccountTypes, -1, System.currentTimeMillis());
+        mLiabilitiesBalance = getAccountBalance(mLiabilityAccountTypes, -1, System.currentTimeMillis());
     }
 
     @Override
@@ -138,7 +138,7 @@ public class BalanceSheetFragment extends BaseReportFragment {
         while (cursor.moveToNext()){
             String accountUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_UID));
             String name = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.AccountEntry.COLUMN_NAME));
-            Money balance = mAccountsDbAdapter.getAccountBalance(accountUID);
+            Money balance = getAccountBalance(accountUID, -1, -1);
             View view = inflater.inflate(R.layout.row_balance_sheet, tableLayout, false);
             ((TextView)view.findViewById(R.id.account_name)).setText(name);
             TextView balanceTextView = (TextView) view.findViewById(R.id.account_balance);
@@ -157,7 +157,7 @@ public class BalanceSheetFragment extends BaseReportFragment {
         TextView accountBalance = (TextView) totalView.findViewById(R.id.account_balance);
         accountBalance.setTextSize(16);
         accountBalance.setTypeface(null, Typeface.BOLD);
-        TransactionsActivity.displayBalance(accountBalance, mAccountsDbAdapter.getAccountBalance(accountTypes, -1, System.currentTimeMillis()));
+        TransactionsActivity.displayBalance(accountBalance, getAccountBalance(accountTypes, -1, System.currentTimeMillis()));
 
         tableLayout.addView(totalView);
     }
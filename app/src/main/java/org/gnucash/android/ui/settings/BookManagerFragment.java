@@ -19,7 +19,6 @@ package org.gnucash.android.ui.settings;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.ListFragment;
@@ -45,13 +44,11 @@ import android.widget.TextView;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.BookDbHelper;
 import org.gnucash.android.db.DatabaseCursorLoader;
-import org.gnucash.android.db.DatabaseHelper;
 import org.gnucash.android.db.DatabaseSchema.BookEntry;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
-import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.ui.account.AccountsActivity;
 import org.gnucash.android.ui.common.Refreshable;
 import org.gnucash.android.util.BookUtils;
@@ -105,6 +102,13 @@ public class BookManagerFragment extends ListFragment implements
         refresh();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        //the statistics of the other books are no longer needed
+        BookDbHelper.closeDatabases();
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.book_list_actions, menu);
@@ -284,14 +288,11 @@ public class BookManagerFragment extends ListFragment implements
         }
 
         private void setStatisticsText(View view, String bookUID) {
-            DatabaseHelper dbHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
-            SQLiteDatabase db = dbHelper.getReadableDatabase();
-            TransactionsDbAdapter trnAdapter = new TransactionsDbAdapter(db, new SplitsDbAdapter(db));
-            int transactionCount = (int) trnAdapter.getRecordsCount();
+            AdapterRegistry adapters = AdapterRegistry.of(BookDbHelper.getDatabase(bookUID));
+            int transactionCount = (int) adapters.getTransactionsDbAdapter().getRecordsCount();
             String transactionStats = getResources().getQuantityString(R.plurals.book_transaction_stats, transactionCount, transactionCount);
 
-            AccountsDbAdapter accountsDbAdapter = new AccountsDbAdapter(db, trnAdapter);
-            int accountsCount = (int) accountsDbAdapter.getRecordsCount();
+            int accountsCount = (int) adapters.getAccountsDbAdapter().getRecordsCount();
             String accountStats = getResources().getQuantityString(R.plurals.book_account_stats, accountsCount, accountsCount);
             String stats = accountStats + ", " + transactionStats;
             TextView statsText = (TextView) view.findViewById(R.id.secondary_text);
@@ -28,7 +28,6 @@ import android.widget.Toast;
 import org.gnucash.android.R;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.export.xml.GncXmlExporter;
-import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 
 /**
  * Confirmation dialog for deleting all accounts from the system.
@@ -55,7 +54,6 @@ public class DeleteAllAccountsConfirmationDialog extends DialogFragment {
                                 GncXmlExporter.createBackup();
                                 AccountsDbAdapter.getInstance().deleteAllRecords();
                                 Toast.makeText(context, R.string.toast_all_accounts_deleted, Toast.LENGTH_SHORT).show();
-                                WidgetConfigurationActivity.updateAllWidgets(context);
                             }
                         }
                 )
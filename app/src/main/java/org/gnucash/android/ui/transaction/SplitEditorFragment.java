@@ -18,11 +18,10 @@ package org.gnucash.android.ui.transaction;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.res.Configuration;
-import android.database.Cursor;
 import android.inputmethodservice.KeyboardView;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
-import android.support.v4.widget.SimpleCursorAdapter;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.text.Editable;
@@ -47,7 +46,7 @@ import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 
 import org.gnucash.android.R;
-import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
 import org.gnucash.android.model.AccountType;
@@ -63,7 +62,7 @@ import org.gnucash.android.ui.transaction.dialog.TransferFundsDialogFragment;
 import org.gnucash.android.ui.util.widget.CalculatorEditText;
 import org.gnucash.android.ui.util.widget.CalculatorKeyboard;
 import org.gnucash.android.ui.util.widget.TransactionTypeSwitch;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -84,8 +83,8 @@ public class SplitEditorFragment extends Fragment {
     @BindView(R.id.imbalance_textview)  TextView mImbalanceTextView;
 
     private AccountsDbAdapter mAccountsDbAdapter;
-    private Cursor mCursor;
-    private SimpleCursorAdapter mCursorAdapter;
+    private List<AccountsSnapshot.Entry> mAccounts;
+    private QualifiedAccountNameAdapter mAccountsAdapter;
     private List<View> mSplitItemViewList;
     private String mAccountUID;
     private Commodity mCommodity;
@@ -216,11 +215,12 @@ public class SplitEditorFragment extends Fragment {
         mAccountUID = ((FormActivity) getActivity()).getCurrentAccountUID();
         mBaseAmount = new BigDecimal(args.getString(UxArgument.AMOUNT_STRING));
 
-        String conditions = "("
-                + DatabaseSchema.AccountEntry.COLUMN_HIDDEN + " = 0 AND "
-                + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + " = 0"
-                + ")";
-        mCursor = mAccountsDbAdapter.fetchAccountsOrderedByFullName(conditions, null);
+        mAccounts = AccountsSnapshot.getInstance().select(new AccountsSnapshot.Filter() {
+            @Override
+            public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                return !account.isPlaceholder() && AccountsSnapshot.VISIBLE_ACCOUNTS.accept(account);
+            }
+        }, false);
         mCommodity = CommoditiesDbAdapter.getInstance().getCommodity(mAccountsDbAdapter.getCurrencyCode(mAccountUID));
     }
 
@@ -278,7 +278,7 @@ public class SplitEditorFragment extends Fragment {
                 splitMemoEditText.setText(split.getMemo());
                 splitUidTextView.setText(split.getUID());
                 String splitAccountUID = split.getAccountUID();
-                setSelectedTransferAccount(mAccountsDbAdapter.getID(splitAccountUID), accountsSpinner);
+                setSelectedTransferAccount(splitAccountUID, accountsSpinner);
                 splitTypeSwitch.setAccountType(mAccountsDbAdapter.getAccountType(splitAccountUID));
                 splitTypeSwitch.setChecked(split.getType());
             }
@@ -325,23 +325,20 @@ public class SplitEditorFragment extends Fragment {
 
     /**
      * Updates the spinner to the selected transfer account
-     * @param accountId Database ID of the transfer account
+     * @param accountUID GUID of the transfer account
      */
-    private void setSelectedTransferAccount(long accountId, final Spinner accountsSpinner){
-        for (int pos = 0; pos < mCursorAdapter.getCount(); pos++) {
-            if (mCursorAdapter.getItemId(pos) == accountId){
-                accountsSpinner.setSelection(pos);
-                break;
-            }
-        }
+    private void setSelectedTransferAccount(String accountUID, final Spinner accountsSpinner){
+        int position = mAccountsAdapter.getPosition(accountUID);
+        if (position >= 0)
+            accountsSpinner.setSelection(position);
     }
     /**
      * Updates the list of possible transfer accounts.
      * Only accounts with the same currency can be transferred to
      */
     private void updateTransferAccountsList(Spinner transferAccountSpinner){
-        mCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), mCursor);
-        transferAccountSpinner.setAdapter(mCursorAdapter);
+        mAccountsAdapter = new QualifiedAccountNameAdapter(getActivity(), mAccounts);
+        transferAccountSpinner.setAdapter(mAccountsAdapter);
     }
 
     /**
@@ -427,9 +424,8 @@ public class SplitEditorFragment extends Fragment {
             for (View splitItem : mSplitItemViewList) {
                 SplitViewHolder viewHolder = (SplitViewHolder) splitItem.getTag();
                 BigDecimal amount = viewHolder.getAmountValue().abs();
-                long accountId = viewHolder.accountsSpinner.getSelectedItemId();
-                boolean hasDebitNormalBalance = AccountsDbAdapter.getInstance()
-                        .getAccountType(accountId).hasDebitNormalBalance();
+                AccountsSnapshot.Entry account = (AccountsSnapshot.Entry) viewHolder.accountsSpinner.getSelectedItem();
+                boolean hasDebitNormalBalance = account.getAccountType().hasDebitNormalBalance();
 
                 if (viewHolder.splitTypeSwitch.isChecked()) {
                     if (hasDebitNormalBalance)
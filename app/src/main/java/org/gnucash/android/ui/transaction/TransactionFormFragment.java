@@ -26,6 +26,8 @@ import android.inputmethodservice.KeyboardView;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager.LoaderCallbacks;
+import android.support.v4.content.Loader;
 import android.support.v4.widget.SimpleCursorAdapter;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
@@ -57,7 +59,6 @@ import com.codetroopers.betterpickers.recurrencepicker.EventRecurrenceFormatter;
 import com.codetroopers.betterpickers.recurrencepicker.RecurrencePickerDialogFragment;
 
 import org.gnucash.android.R;
-import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.CommoditiesDbAdapter;
@@ -75,14 +76,13 @@ import org.gnucash.android.model.Transaction;
 import org.gnucash.android.model.TransactionType;
 import org.gnucash.android.ui.common.FormActivity;
 import org.gnucash.android.ui.common.UxArgument;
-import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 import org.gnucash.android.ui.settings.PreferenceActivity;
 import org.gnucash.android.ui.transaction.dialog.TransferFundsDialogFragment;
 import org.gnucash.android.ui.util.RecurrenceParser;
 import org.gnucash.android.ui.util.RecurrenceViewClickListener;
 import org.gnucash.android.ui.util.widget.CalculatorEditText;
 import org.gnucash.android.ui.util.widget.TransactionTypeSwitch;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
 
 import java.math.BigDecimal;
 import java.text.DateFormat;
@@ -119,12 +119,13 @@ public class TransactionFormFragment extends Fragment implements
 	/**
 	 * Adapter for transfer account spinner
 	 */
-	private QualifiedAccountNameCursorAdapter mAccountCursorAdapter;
+	private QualifiedAccountNameAdapter mAccountAdapter;
 
 	/**
-	 * Cursor for transfer account spinner
+	 * Data of the form, which is loaded in the background.
+	 * It is {@code null} until the loader has finished
 	 */
-	private Cursor mCursor;
+	private TransactionFormLoader.FormData mFormData;
 
     /**
 	 * Transaction to be created/updated
@@ -302,16 +303,47 @@ public class TransactionFormFragment extends Fragment implements
         mAccountUID = getArguments().getString(UxArgument.SELECTED_ACCOUNT_UID);
         assert(mAccountUID != null);
 		mAccountsDbAdapter = AccountsDbAdapter.getInstance();
-        mAccountType = mAccountsDbAdapter.getAccountType(mAccountUID);
-
-        String transactionUID = getArguments().getString(UxArgument.SELECTED_TRANSACTION_UID);
 		mTransactionsDbAdapter = TransactionsDbAdapter.getInstance();
-		if (transactionUID != null) {
-            mTransaction = mTransactionsDbAdapter.getRecord(transactionUID);
-        }
 
         setListeners();
-        //updateTransferAccountsList must only be called after initializing mAccountsDbAdapter
+
+        ActionBar actionBar = ((AppCompatActivity) getActivity()).getSupportActionBar();
+        assert actionBar != null;
+        boolean isEditing = getArguments().getString(UxArgument.SELECTED_TRANSACTION_UID) != null;
+        actionBar.setTitle(isEditing ? R.string.title_edit_transaction : R.string.title_add_transaction);
+
+        getLoaderManager().initLoader(0, null, new LoaderCallbacks<TransactionFormLoader.FormData>() {
+            @Override
+            public Loader<TransactionFormLoader.FormData> onCreateLoader(int id, Bundle args) {
+                return new TransactionFormLoader(getActivity(), mAccountUID,
+                        getArguments().getString(UxArgument.SELECTED_TRANSACTION_UID),
+                        getArguments().getString(UxArgument.SCHEDULED_ACTION_UID));
+            }
+
+            @Override
+            public void onLoadFinished(Loader<TransactionFormLoader.FormData> loader, TransactionFormLoader.FormData data) {
+                if (mFormData == null) //the form is only initialized once, later results would overwrite the input
+                    initializeForm(data);
+            }
+
+            @Override
+            public void onLoaderReset(Loader<TransactionFormLoader.FormData> loader) {
+                //the form keeps its data
+            }
+        });
+
+        getActivity().getWindow().setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_VISIBLE);
+	}
+
+    /**
+     * Initializes the views of the form with the data from the {@link TransactionFormLoader}
+     * @param formData Data of the form
+     */
+    private void initializeForm(TransactionFormLoader.FormData formData) {
+        mFormData = formData;
+        mAccountType = formData.getAccountType();
+        mTransaction = formData.getTransaction();
+
         updateTransferAccountsList();
         mTransferAccountSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             /**
@@ -329,7 +361,7 @@ public class TransactionFormFragment extends Fragment implements
                 if (mSplitsList.size() == 2) { //when handling simple transfer to one account
                     for (Split split : mSplitsList) {
                         if (!split.getAccountUID().equals(mAccountUID)) {
-                            split.setAccountUID(mAccountsDbAdapter.getUID(id));
+                            split.setAccountUID(getSelectedTransferAccountUID());
                         }
                         // else case is handled when saving the transactions
                     }
@@ -347,21 +379,13 @@ public class TransactionFormFragment extends Fragment implements
             }
         });
 
-        ActionBar actionBar = ((AppCompatActivity) getActivity()).getSupportActionBar();
-        assert actionBar != null;
-//        actionBar.setSubtitle(mAccountsDbAdapter.getFullyQualifiedAccountName(mAccountUID));
-
         if (mTransaction == null) {
-            actionBar.setTitle(R.string.title_add_transaction);
             initalizeViews();
             initTransactionNameAutocomplete();
         } else {
-            actionBar.setTitle(R.string.title_edit_transaction);
 			initializeViewsWithTransaction();
             mEditMode = true;
 		}
-
-        getActivity().getWindow().setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_VISIBLE);
 	}
 
     /**
@@ -487,14 +511,14 @@ public class TransactionFormFragment extends Fragment implements
             for (Split split : mTransaction.getSplits()) {
                 //two splits, one belongs to this account and the other to another account
                 if (mUseDoubleEntry && !split.getAccountUID().equals(mAccountUID)) {
-                    setSelectedTransferAccount(mAccountsDbAdapter.getID(split.getAccountUID()));
+                    setSelectedTransferAccount(split.getAccountUID());
                 }
             }
         } else {
                 setDoubleEntryViewsVisibility(View.GONE);
         }
 
-		String currencyCode = mTransactionsDbAdapter.getAccountCurrencyCode(mAccountUID);
+		String currencyCode = mFormData.getAccountCurrencyCode();
 		Commodity accountCommodity = Commodity.getInstance(currencyCode);
 		mCurrencyTextView.setText(accountCommodity.getSymbol());
 
@@ -502,9 +526,8 @@ public class TransactionFormFragment extends Fragment implements
         mAmountEditText.setCommodity(commodity);
 
         mSaveTemplateCheckbox.setChecked(mTransaction.isTemplate());
-        String scheduledActionUID = getArguments().getString(UxArgument.SCHEDULED_ACTION_UID);
-        if (scheduledActionUID != null && !scheduledActionUID.isEmpty()) {
-            ScheduledAction scheduledAction = ScheduledActionDbAdapter.getInstance().getRecord(scheduledActionUID);
+        ScheduledAction scheduledAction = mFormData.getScheduledAction();
+        if (scheduledAction != null) {
             mRecurrenceRule = scheduledAction.getRuleString();
             mEventRecurrence.parse(mRecurrenceRule);
             mRecurrenceTextView.setText(scheduledAction.getRepeatString());
@@ -544,47 +567,25 @@ public class TransactionFormFragment extends Fragment implements
 		String typePref = PreferenceActivity.getActiveBookSharedPreferences().getString(getString(R.string.key_default_transaction_type), "DEBIT");
         mTransactionTypeSwitch.setChecked(TransactionType.valueOf(typePref));
 
-		String code = GnuCashApplication.getDefaultCurrencyCode();
-		if (mAccountUID != null){
-			code = mTransactionsDbAdapter.getAccountCurrencyCode(mAccountUID);
-		}
-
-		Commodity commodity = Commodity.getInstance(code);
+		Commodity commodity = Commodity.getInstance(mFormData.getAccountCurrencyCode());
         mCurrencyTextView.setText(commodity.getSymbol());
         mAmountEditText.setCommodity(commodity);
 
         if (mUseDoubleEntry){
-            String currentAccountUID = mAccountUID;
-            long defaultTransferAccountID;
-            String rootAccountUID = mAccountsDbAdapter.getOrCreateGnuCashRootAccountUID();
-            do {
-                defaultTransferAccountID = mAccountsDbAdapter.getDefaultTransferAccountID(mAccountsDbAdapter.getID(currentAccountUID));
-                if (defaultTransferAccountID > 0) {
-                    setSelectedTransferAccount(defaultTransferAccountID);
-                    break; //we found a parent with default transfer setting
-                }
-                currentAccountUID = mAccountsDbAdapter.getParentAccountUID(currentAccountUID);
-            } while (!currentAccountUID.equals(rootAccountUID));
+            //the default transfer account of the account or of the nearest parent which has one
+            String defaultTransferAccountUID = mFormData.getDefaultTransferAccountUID();
+            if (defaultTransferAccountUID != null)
+                setSelectedTransferAccount(defaultTransferAccountUID);
         }
 	}
 
     /**
-     * Updates the list of possible transfer accounts.
-     * Only accounts with the same currency can be transferred to
+     * Updates the list of possible transfer accounts from the accounts loaded with the form.
+     * The account of the form, placeholder accounts and the root account are not listed
      */
 	private void updateTransferAccountsList(){
-		String conditions = "(" + DatabaseSchema.AccountEntry.COLUMN_UID + " != ?"
-                            + " AND " + DatabaseSchema.AccountEntry.COLUMN_TYPE + " != ?"
-                            + " AND " + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + " = 0"
-                            + ")";
-
-        if (mCursor != null) {
-            mCursor.close();
-        }
-		mCursor = mAccountsDbAdapter.fetchAccountsOrderedByFavoriteAndFullName(conditions, new String[]{mAccountUID, AccountType.ROOT.name()});
-
-        mAccountCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), mCursor);
-		mTransferAccountSpinner.setAdapter(mAccountCursorAdapter);
+        mAccountAdapter = new QualifiedAccountNameAdapter(getActivity(), mFormData.getTransferAccounts());
+		mTransferAccountSpinner.setAdapter(mAccountAdapter);
 	}
 
     /**
@@ -677,14 +678,22 @@ public class TransactionFormFragment extends Fragment implements
 
     /**
      * Updates the spinner to the selected transfer account
-     * @param accountId Database ID of the transfer account
+     * @param accountUID GUID of the transfer account
      */
-	private void setSelectedTransferAccount(long accountId){
-        int position = mAccountCursorAdapter.getPosition(mAccountsDbAdapter.getUID(accountId));
+	private void setSelectedTransferAccount(String accountUID){
+        int position = mAccountAdapter.getPosition(accountUID);
         if (position >= 0)
             mTransferAccountSpinner.setSelection(position);
 	}
 
+    /**
+     * Returns the account selected in the transfer account spinner
+     * @return GUID of the transfer account, or {@code null} if no account is selected
+     */
+    private String getSelectedTransferAccountUID(){
+        return mAccountAdapter.getUID(mTransferAccountSpinner.getSelectedItemPosition());
+    }
+
     /**
      * Returns a list of splits based on the input in the transaction form.
      * This only gets the splits from the simple view, and not those from the Split Editor.
@@ -852,9 +861,6 @@ public class TransactionFormFragment extends Fragment implements
             mAccountsDbAdapter.endTransaction();
         }
 
-        //update widgets, if any
-		WidgetConfigurationActivity.updateAllWidgets(getActivity().getApplicationContext());
-
 		finish(Activity.RESULT_OK);
 	}
 
@@ -891,13 +897,6 @@ public class TransactionFormFragment extends Fragment implements
     }
 
 
-    @Override
-	public void onDestroyView() {
-		super.onDestroyView();
-		if (mCursor != null)
-			mCursor.close();
-	}
-
 	@Override
 	public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
 		inflater.inflate(R.menu.default_save_actions, menu);
@@ -915,6 +914,8 @@ public class TransactionFormFragment extends Fragment implements
                 return true;
 
 		case R.id.menu_save:
+            if (mFormData == null) //the form is still loading
+                return true;
             if (canSave()){
                 saveNewTransaction();
             } else {
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.ui.transaction;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.content.AsyncTaskLoader;
+import android.util.Log;
+
+import org.gnucash.android.db.AccountsSnapshot;
+import org.gnucash.android.db.adapter.ScheduledActionDbAdapter;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.ScheduledAction;
+import org.gnucash.android.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Loads the data needed by the {@link TransactionFormFragment} in the background.
+ * <p>The accounts are taken from the cached {@link AccountsSnapshot}, so only the edited transaction
+ * and its scheduled action are read from the database each time the form is opened.</p>
+ */
+public class TransactionFormLoader extends AsyncTaskLoader<TransactionFormLoader.FormData> {
+
+    private static final String LOG_TAG = "TransactionFormLoader";
+
+    private final String mAccountUID;
+
+    private final String mTransactionUID;
+
+    private final String mScheduledActionUID;
+
+    private FormData mData;
+
+    /**
+     * Creates the loader
+     * @param context Application context
+     * @param accountUID GUID of the account for which the form is opened
+     * @param transactionUID GUID of the edited transaction, or {@code null} when creating a new transaction.
+     *                       If the transaction does not exist anymore, the form creates a new transaction
+     * @param scheduledActionUID GUID of the scheduled action of the transaction, or {@code null}
+     */
+    public TransactionFormLoader(Context context, @NonNull String accountUID,
+                          @Nullable String transactionUID, @Nullable String scheduledActionUID) {
+        super(context);
+        mAccountUID = accountUID;
+        mTransactionUID = transactionUID;
+        mScheduledActionUID = scheduledActionUID;
+    }
+
+    @Override
+    public FormData loadInBackground() {
+        AccountsSnapshot accounts = AccountsSnapshot.getCurrentInstance();
+        if (accounts.getAccount(mAccountUID) == null) { //the account was added before the change was delivered
+            AccountsSnapshot.invalidateCache();
+            accounts = AccountsSnapshot.getCurrentInstance();
+        }
+
+        Transaction transaction = null;
+        if (mTransactionUID != null) {
+            try {
+                transaction = TransactionsDbAdapter.getInstance().getRecord(mTransactionUID);
+            } catch (IllegalArgumentException e) { //deleted, e.g. by a scheduled action or another device
+                Log.w(LOG_TAG, "Transaction " + mTransactionUID + " does not exist anymore");
+            }
+        }
+
+        ScheduledAction scheduledAction = null;
+        if (mScheduledActionUID != null && !mScheduledActionUID.isEmpty()) {
+            try {
+                scheduledAction = ScheduledActionDbAdapter.getInstance().getRecord(mScheduledActionUID);
+            } catch (IllegalArgumentException e) {
+                Log.w(LOG_TAG, "Scheduled action " + mScheduledActionUID + " does not exist anymore");
+            }
+        }
+
+        return new FormData(accounts, mAccountUID, transaction, scheduledAction);
+    }
+
+    @Override
+    public void deliverResult(FormData data) {
+        mData = data;
+        if (isStarted())
+            super.deliverResult(data);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mData != null)
+            deliverResult(mData);
+        if (takeContentChanged() || mData == null)
+            forceLoad();
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        mData = null;
+    }
+
+    /**
+     * Data of the transaction form. It does not access the database, so it can be used in the main thread
+     */
+    public static final class FormData {
+        private final AccountsSnapshot mAccounts;
+        private final AccountsSnapshot.Entry mAccount;
+        private final Transaction mTransaction;
+        private final ScheduledAction mScheduledAction;
+
+        FormData(@NonNull AccountsSnapshot accounts, @NonNull String accountUID,
+                 @Nullable Transaction transaction, @Nullable ScheduledAction scheduledAction) {
+            mAccounts = accounts;
+            mAccount = accounts.getAccount(accountUID);
+            if (mAccount == null)
+                throw new IllegalArgumentException("Account " + accountUID + " does not exist");
+            mTransaction = transaction;
+            mScheduledAction = scheduledAction;
+        }
+
+        /**
+         * Returns the type of the account for which the form is opened
+         * @return Account type
+         */
+        public AccountType getAccountType() {
+            return mAccount.getAccountType();
+        }
+
+        /**
+         * Returns the currency code of the account for which the form is opened
+         * @return ISO 4217 currency code
+         */
+        public String getAccountCurrencyCode() {
+            return mAccount.getCurrencyCode();
+        }
+
+        /**
+         * Returns the edited transaction
+         * @return Transaction, or {@code null} if a new transaction is created
+         */
+        @Nullable
+        public Transaction getTransaction() {
+            return mTransaction;
+        }
+
+        /**
+         * Returns the scheduled action of the edited transaction
+         * @return Scheduled action, or {@code null} if the transaction is not scheduled
+         */
+        @Nullable
+        public ScheduledAction getScheduledAction() {
+            return mScheduledAction;
+        }
+
+        /**
+         * Returns the accounts which can be selected as transfer account, ordered by favorite and full name.
+         * The root account, placeholder accounts and the account of the form are excluded
+         * @return Transfer accounts
+         */
+        public List<AccountsSnapshot.Entry> getTransferAccounts() {
+            return mAccounts.select(new AccountsSnapshot.Filter() {
+                @Override
+                public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                    return account != mAccount && !account.isPlaceholder()
+                            && account.getAccountType() != AccountType.ROOT;
+                }
+            }, true);
+        }
+
+        /**
+         * Returns the default transfer account of the account of the form,
+         * or of its nearest ancestor which has a default transfer account
+         * @return GUID of the default transfer account, or {@code null} if there is none
+         */
+        @Nullable
+        public String getDefaultTransferAccountUID() {
+            AccountsSnapshot.Entry account = mAccount;
+            while (account != null && account.getAccountType() != AccountType.ROOT) {
+                String defaultTransferAccountUID = account.getDefaultTransferAccountUID();
+                if (defaultTransferAccountUID != null && mAccounts.getAccount(defaultTransferAccountUID) != null)
+                    return defaultTransferAccountUID;
+                account = account.getParentUID() == null ? null : mAccounts.getAccount(account.getParentUID());
+            }
+            return null;
+        }
+    }
+}
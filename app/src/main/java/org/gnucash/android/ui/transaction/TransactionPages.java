@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.ui.transaction;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.ui.util.RowVersions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transactions of an account which are loaded from the database one page at a time.
+ * <p>Pages are fetched with {@link TransactionsDbAdapter#fetchTransactionPageForAccount(String, long, String, int)},
+ * starting after the last transaction of the previous page. Only the most recently used pages are kept open,
+ * older pages are closed and have to be queried again with {@link #queryPage(int)} when they are needed.
+ * The keys where pages start are kept for all pages, so any page can be queried again directly.</p>
+ * <p>The {@link RowVersions versions} of all loaded transactions are kept as well, so that the list can
+ * find out which rows changed when the transactions are loaded again.</p>
+ * <p>Querying pages is thread-safe and should be done in the background.
+ * All other methods must be called from the same (UI) thread, once the pages are handed over to it.</p>
+ */
+class TransactionPages {
+
+    /**
+     * Number of transactions in a page
+     */
+    static final int PAGE_SIZE = 200;
+
+    /**
+     * Maximum number of pages which are kept in memory
+     */
+    static final int MAX_PAGES = 5;
+
+    private final TransactionsDbAdapter mTransactionsDbAdapter;
+
+    private final String mAccountUID;
+
+    private final int mPageSize;
+
+    private final int mMaxPages;
+
+    /**
+     * Pages in memory by page index, in least recently used order
+     */
+    private final LinkedHashMap<Integer, Cursor> mPages;
+
+    /**
+     * Keys of the last transaction of every page which has been loaded, by page index
+     */
+    private final List<PageKey> mPageEndKeys = new ArrayList<>();
+
+    /**
+     * Cursor of the first page, which is owned by the loader and must not be closed here
+     */
+    private final Cursor mFirstPage;
+
+    private int mCount;
+
+    /**
+     * Versions of all transactions loaded so far, including those no longer in memory
+     */
+    private RowVersions mRows = RowVersions.EMPTY;
+
+    private boolean mEndReached;
+
+    /**
+     * Creates the pages of an account
+     * @param transactionsDbAdapter Adapter used for querying the pages
+     * @param accountUID GUID of the account
+     * @param firstPage Cursor to the first page. It is not closed by this object
+     */
+    TransactionPages(@NonNull TransactionsDbAdapter transactionsDbAdapter, @NonNull String accountUID,
+                     @NonNull Cursor firstPage) {
+        this(transactionsDbAdapter, accountUID, firstPage, PAGE_SIZE, MAX_PAGES);
+    }
+
+    TransactionPages(@NonNull TransactionsDbAdapter transactionsDbAdapter, @NonNull String accountUID,
+                     @NonNull Cursor firstPage, int pageSize, int maxPages) {
+        mTransactionsDbAdapter = transactionsDbAdapter;
+        mAccountUID = accountUID;
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+        mPages = new LinkedHashMap<>(maxPages + 1, 0.75f, true);
+        mFirstPage = firstPage;
+        addPage(0, firstPage);
+    }
+
+    /**
+     * Queries the first page of the transactions of an account
+     * @param transactionsDbAdapter Adapter used for the query
+     * @param accountUID GUID of the account
+     * @return Cursor to the first page
+     */
+    static Cursor queryFirstPage(@NonNull TransactionsDbAdapter transactionsDbAdapter, @NonNull String accountUID) {
+        return transactionsDbAdapter.fetchTransactionPageForAccount(accountUID, 0, null, PAGE_SIZE);
+    }
+
+    /**
+     * Loads the pages following the last loaded page, until at least a number of transactions are loaded
+     * or all transactions are loaded. Only the most recently loaded pages are kept in memory.
+     * <p>This is used for loading as many transactions as the list displayed before it was reloaded.
+     * It queries the database, so it must be called in the background, before the pages are handed over
+     * to the UI thread</p>
+     * @param count Minimum number of transactions
+     */
+    void loadPages(int count) {
+        while (hasMore() && mCount < count) {
+            int pageIndex = getNextPageIndex();
+            addPage(pageIndex, queryPage(pageIndex));
+        }
+    }
+
+    /**
+     * Returns the GUID of the account of the transactions
+     * @return GUID of the account
+     */
+    String getAccountUID() {
+        return mAccountUID;
+    }
+
+    /**
+     * Returns the versions of all transactions loaded so far, including those no longer in memory
+     * @return Rows of the loaded transactions
+     */
+    RowVersions getRows() {
+        return mRows;
+    }
+
+    /**
+     * Returns the number of transactions in all pages loaded so far, including those no longer in memory
+     * @return Number of transactions
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Checks if there are more transactions after the last loaded page
+     * @return {@code true} if {@link #getNextPageIndex()} can be queried
+     */
+    boolean hasMore() {
+        return !mEndReached;
+    }
+
+    /**
+     * Returns the index of the page after the last loaded page
+     * @return Page index
+     */
+    int getNextPageIndex() {
+        return mPageEndKeys.size();
+    }
+
+    /**
+     * Returns the index of the page containing a transaction
+     * @param position Position of the transaction
+     * @return Page index
+     */
+    int getPageIndex(int position) {
+        return position / mPageSize;
+    }
+
+    /**
+     * Moves the cursor of the page containing a transaction to that transaction
+     * @param position Position of the transaction in the list
+     * @return Cursor at the transaction, or {@code null} if its page is not in memory and has to be queried
+     */
+    @Nullable
+    Cursor moveToPosition(int position) {
+        Cursor cursor = mPages.get(getPageIndex(position));
+        if (cursor == null || !cursor.moveToPosition(position % mPageSize))
+            return null;
+        return cursor;
+    }
+
+    /**
+     * Queries a page from the database. The page has to be added with {@link #addPage(int, Cursor)} afterwards.
+     * <p>This method only reads the keys of the pages which are already loaded, so it can run in a background thread</p>
+     * @param pageIndex Index of a page which was loaded before, or {@link #getNextPageIndex()}
+     * @return Cursor to the page
+     */
+    Cursor queryPage(int pageIndex) {
+        if (pageIndex == 0)
+            return queryFirstPage(mTransactionsDbAdapter, mAccountUID);
+
+        PageKey after;
+        synchronized (mPageEndKeys) {
+            after = mPageEndKeys.get(pageIndex - 1);
+        }
+        return mTransactionsDbAdapter.fetchTransactionPageForAccount(mAccountUID, after.mTimestamp, after.mUID, mPageSize);
+    }
+
+    /**
+     * Adds a queried page. If more than the maximum number of pages are in memory,
+     * the least recently used page is closed
+     * @param pageIndex Index of the page
+     * @param cursor Cursor to the page
+     * @return {@code true} if the page extends the list, {@code false} if it was loaded before
+     */
+    boolean addPage(int pageIndex, @NonNull Cursor cursor) {
+        Cursor previous = mPages.put(pageIndex, cursor);
+        if (previous != null && previous != cursor)
+            release(previous);
+
+        boolean isNewPage = pageIndex == getNextPageIndex();
+        if (isNewPage) {
+            int count = cursor.getCount();
+            mCount += count;
+            mEndReached = count < mPageSize;
+            mRows = mRows.append(readRows(cursor));
+            if (cursor.moveToLast()) {
+                synchronized (mPageEndKeys) {
+                    mPageEndKeys.add(new PageKey(
+                            cursor.getLong(cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_TIMESTAMP)),
+                            cursor.getString(cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_UID))));
+                }
+            }
+        }
+
+        Iterator<Map.Entry<Integer, Cursor>> iterator = mPages.entrySet().iterator();
+        while (mPages.size() > mMaxPages && iterator.hasNext()) {
+            Map.Entry<Integer, Cursor> eldest = iterator.next();
+            if (eldest.getKey() == pageIndex)
+                continue;
+            iterator.remove();
+            release(eldest.getValue());
+        }
+        return isNewPage;
+    }
+
+    /**
+     * Reads the versions of the transactions of a page.
+     * Everything which is bound to a row is part of its version, because the modification time
+     * of a transaction has a resolution of one second and does not cover the names of other accounts
+     */
+    private static RowVersions readRows(Cursor cursor) {
+        RowVersions.Builder rows = new RowVersions.Builder(cursor.getCount());
+        int idColumn = cursor.getColumnIndexOrThrow(TransactionEntry._ID);
+        int uidColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_UID);
+        int modifiedColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_MODIFIED_AT);
+        int descriptionColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_DESCRIPTION);
+        int timestampColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_TIMESTAMP);
+        int amountNumColumn = cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_NUM);
+        int amountDenomColumn = cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_DENOM);
+        int splitCountColumn = cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SPLIT_COUNT);
+        int counterpartColumn = cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_COUNTERPART_FULL_NAME);
+        for (int position = 0; cursor.moveToPosition(position); position++) {
+            rows.add(cursor.getString(uidColumn),
+                    cursor.getLong(idColumn),
+                    cursor.getString(modifiedColumn),
+                    cursor.getString(descriptionColumn),
+                    cursor.getLong(timestampColumn),
+                    cursor.getLong(amountNumColumn),
+                    cursor.getLong(amountDenomColumn),
+                    cursor.getInt(splitCountColumn),
+                    cursor.getString(counterpartColumn));
+        }
+        return rows.build();
+    }
+
+    /**
+     * Returns the number of pages which are currently in memory
+     * @return Number of open pages
+     */
+    int getPagesInMemory() {
+        return mPages.size();
+    }
+
+    /**
+     * Closes all pages, except the first page which is owned by the loader
+     */
+    void close() {
+        for (Cursor cursor : mPages.values()) {
+            release(cursor);
+        }
+        mPages.clear();
+    }
+
+    private void release(Cursor cursor) {
+        if (cursor != mFirstPage)
+            cursor.close();
+    }
+
+    /**
+     * Sort key of a transaction, where a page ends
+     */
+    private static class PageKey {
+        final long mTimestamp;
+        final String mUID;
+
+        PageKey(long timestamp, String uid) {
+            mTimestamp = timestamp;
+            mUID = uid;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.ui.transaction;
+
+import android.content.Intent;
+import android.database.Cursor;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.view.MenuItemCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.support.v7.widget.Toolbar;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.gnucash.android.R;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
+import org.gnucash.android.db.adapter.TransactionSearchFilter;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.ui.common.UxArgument;
+import org.gnucash.android.ui.passcode.PasscodeLockActivity;
+import org.gnucash.android.ui.util.widget.EmptyRecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Activity for searching the descriptions, notes, split memos and amounts of transactions.
+ * <p>The search is run while the query is typed, and further pages of results are loaded
+ * as the list is scrolled. If an account is passed with {@link UxArgument#SELECTED_ACCOUNT_UID},
+ * only transactions of that account are searched.</p>
+ * @see TransactionsDbAdapter#search(String, TransactionSearchFilter)
+ */
+public class TransactionSearchActivity extends PasscodeLockActivity implements SearchView.OnQueryTextListener {
+
+    /**
+     * Time in milliseconds after the last key stroke before the search is run
+     */
+    private static final long SEARCH_DELAY = 300;
+
+    /**
+     * Number of results before the end of the list at which the next page is loaded
+     */
+    private static final int PREFETCH_DISTANCE = TransactionsDbAdapter.SEARCH_PAGE_SIZE / 4;
+
+    private final Handler mHandler = new Handler();
+
+    private final List<SearchResult> mResults = new ArrayList<>();
+
+    private final SearchResultAdapter mAdapter = new SearchResultAdapter();
+
+    private TransactionSearchFilter mFilter;
+
+    private String mQuery = "";
+
+    /**
+     * Incremented for every new query, so that pages of previous queries are discarded
+     */
+    private int mSearchGeneration;
+
+    private boolean mHasMore;
+
+    private boolean mLoading;
+
+    private final Runnable mSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startSearch();
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_transaction_search);
+
+        Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        getSupportActionBar().setTitle(R.string.menu_search_transactions);
+
+        mFilter = new TransactionSearchFilter()
+                .setAccountUID(getIntent().getStringExtra(UxArgument.SELECTED_ACCOUNT_UID));
+
+        EmptyRecyclerView recyclerView = (EmptyRecyclerView) findViewById(R.id.search_results);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(mAdapter);
+        recyclerView.setEmptyView(findViewById(R.id.empty_view));
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.transaction_search_actions, menu);
+        SearchView searchView = (SearchView) MenuItemCompat.getActionView(menu.findItem(R.id.menu_search));
+        searchView.setIconifiedByDefault(false);
+        searchView.setQueryHint(getString(R.string.menu_search_transactions));
+        searchView.setQuery(mQuery, false);
+        searchView.setOnQueryTextListener(this);
+        searchView.requestFocus();
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        mQuery = query.trim();
+        mHandler.removeCallbacks(mSearchRunnable);
+        startSearch();
+        return true;
+    }
+
+    @Override
+    public boolean onQueryTextChange(String newText) {
+        String query = newText.trim();
+        if (query.equals(mQuery))
+            return true;
+        mQuery = query;
+        mHandler.removeCallbacks(mSearchRunnable);
+        mHandler.postDelayed(mSearchRunnable, SEARCH_DELAY);
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        mHandler.removeCallbacks(mSearchRunnable);
+        mSearchGeneration++;
+        super.onDestroy();
+    }
+
+    /**
+     * Clears the results and loads the first page of results for the current query
+     */
+    private void startSearch() {
+        mSearchGeneration++;
+        mResults.clear();
+        mAdapter.notifyDataSetChanged();
+        mLoading = false;
+        mHasMore = !mQuery.isEmpty();
+        if (mHasMore)
+            loadNextPage();
+    }
+
+    /**
+     * Queries the page after the last loaded result in the background and appends it to the results.
+     * Nothing is done if a page is already being loaded
+     */
+    private void loadNextPage() {
+        if (mLoading || !mHasMore)
+            return;
+        mLoading = true;
+
+        final int generation = mSearchGeneration;
+        final String query = mQuery;
+        SearchResult last = mResults.isEmpty() ? null : mResults.get(mResults.size() - 1);
+        final long afterTimestamp = last == null ? 0 : last.mTimestamp;
+        final String afterUID = last == null ? null : last.mTransactionUID;
+
+        new AsyncTask<Void, Void, List<SearchResult>>() {
+            @Override
+            protected List<SearchResult> doInBackground(Void... params) {
+                Cursor cursor = TransactionsDbAdapter.getInstance().search(query, mFilter,
+                        afterTimestamp, afterUID, TransactionsDbAdapter.SEARCH_PAGE_SIZE);
+                List<SearchResult> page = new ArrayList<>(cursor.getCount());
+                try {
+                    int uidColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_UID);
+                    int descriptionColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_DESCRIPTION);
+                    int timestampColumn = cursor.getColumnIndexOrThrow(TransactionEntry.COLUMN_TIMESTAMP);
+                    int accountColumn = cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SEARCH_ACCOUNT_UID);
+                    while (cursor.moveToNext()) {
+                        page.add(new SearchResult(cursor.getString(uidColumn), cursor.getString(descriptionColumn),
+                                cursor.getLong(timestampColumn), cursor.getString(accountColumn)));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return page;
+            }
+
+            @Override
+            protected void onPostExecute(List<SearchResult> page) {
+                if (generation != mSearchGeneration) //the query changed in the meantime
+                    return;
+                mLoading = false;
+                mHasMore = page.size() == TransactionsDbAdapter.SEARCH_PAGE_SIZE;
+                int oldCount = mResults.size();
+                mResults.addAll(page);
+                mAdapter.notifyItemRangeInserted(oldCount, page.size());
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    /**
+     * Opens the details of a transaction of the results
+     * @param result Search result
+     */
+    private void openTransaction(SearchResult result) {
+        Intent intent = new Intent(this, TransactionDetailActivity.class);
+        intent.putExtra(UxArgument.SELECTED_TRANSACTION_UID, result.mTransactionUID);
+        intent.putExtra(UxArgument.SELECTED_ACCOUNT_UID, result.mAccountUID);
+        startActivity(intent);
+    }
+
+    /**
+     * Transaction found by the search, with what is needed for displaying and opening it
+     */
+    private static class SearchResult {
+        final String mTransactionUID;
+        final String mDescription;
+        final long mTimestamp;
+        final String mAccountUID;
+
+        SearchResult(String transactionUID, String description, long timestamp, String accountUID) {
+            mTransactionUID = transactionUID;
+            mDescription = description;
+            mTimestamp = timestamp;
+            mAccountUID = accountUID;
+        }
+    }
+
+    private class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.ViewHolder> {
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.list_item_search_result, parent, false);
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            if (position >= mResults.size() - PREFETCH_DISTANCE)
+                loadNextPage();
+
+            SearchResult result = mResults.get(position);
+            holder.primaryText.setText(result.mDescription);
+            holder.secondaryText.setText(
+                    TransactionsActivity.getPrettyDateFormat(TransactionSearchActivity.this, result.mTimestamp));
+        }
+
+        @Override
+        public int getItemCount() {
+            return mResults.size();
+        }
+
+        class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+            final TextView primaryText;
+            final TextView secondaryText;
+
+            ViewHolder(View itemView) {
+                super(itemView);
+                primaryText = (TextView) itemView.findViewById(R.id.primary_text);
+                secondaryText = (TextView) itemView.findViewById(R.id.secondary_text);
+                itemView.setOnClickListener(this);
+            }
+
+            @Override
+            public void onClick(View v) {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION)
+                    openTransaction(mResults.get(position));
+            }
+        }
+    }
+}
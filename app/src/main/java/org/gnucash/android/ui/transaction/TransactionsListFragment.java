@@ -20,7 +20,10 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.res.Configuration;
 import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager.LoaderCallbacks;
@@ -43,25 +46,23 @@ import android.widget.TextView;
 
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseChange;
 import org.gnucash.android.db.DatabaseCursorLoader;
 import org.gnucash.android.db.DatabaseSchema;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.DatabaseAdapter;
-import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.model.Money;
-import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
 import org.gnucash.android.ui.common.FormActivity;
 import org.gnucash.android.ui.common.Refreshable;
 import org.gnucash.android.ui.common.UxArgument;
-import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 import org.gnucash.android.ui.settings.PreferenceActivity;
 import org.gnucash.android.ui.transaction.dialog.BulkMoveDialogFragment;
-import org.gnucash.android.ui.util.CursorRecyclerAdapter;
+import org.gnucash.android.ui.util.RowVersions;
 import org.gnucash.android.ui.util.widget.EmptyRecyclerView;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -85,6 +86,17 @@ public class TransactionsListFragment extends Fragment implements
 	private boolean mUseCompactView = false;
 
 	private TransactionRecyclerAdapter mTransactionRecyclerAdapter;
+
+	/**
+	 * Transactions which are displayed in the list, loaded page by page
+	 */
+	private TransactionPages mTransactionPages;
+
+	/**
+	 * Indices of the pages which are currently being queried
+	 */
+	private final Set<Integer> mPagesLoading = new HashSet<>();
+
 	@BindView(R.id.transaction_recycler_view) EmptyRecyclerView mRecyclerView;
 
 
@@ -137,7 +149,7 @@ public class TransactionsListFragment extends Fragment implements
 		aBar.setDisplayShowTitleEnabled(false);
 		aBar.setDisplayHomeAsUpEnabled(true);
 
-		mTransactionRecyclerAdapter = new TransactionRecyclerAdapter(null);
+		mTransactionRecyclerAdapter = new TransactionRecyclerAdapter();
 		mRecyclerView.setAdapter(mTransactionRecyclerAdapter);
 
 		setHasOptionsMenu(true);		
@@ -195,7 +207,7 @@ public class TransactionsListFragment extends Fragment implements
 			case R.id.menu_compact_trn_view:
 				item.setChecked(!item.isChecked());
 				mUseCompactView = !mUseCompactView;
-				refresh();
+				mTransactionRecyclerAdapter.notifyDataSetChanged(); //the view types of all rows changed
 				return true;
 			default:
                 return super.onOptionsItemSelected(item);
@@ -205,51 +217,200 @@ public class TransactionsListFragment extends Fragment implements
 	@Override
 	public Loader<Cursor> onCreateLoader(int arg0, Bundle arg1) {
 		Log.d(LOG_TAG, "Creating transactions loader");
-		return new TransactionsCursorLoader(getActivity(), mAccountUID);
+		TransactionsCursorLoader loader = new TransactionsCursorLoader(getActivity(), mAccountUID);
+		if (mTransactionPages != null && mTransactionPages.getAccountUID().equals(mAccountUID))
+			loader.setDisplayedRows(mTransactionPages.getRows());
+		return loader;
 	}
 
 	@Override
 	public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
-		Log.d(LOG_TAG, "Transactions loader finished. Swapping in cursor");
-		mTransactionRecyclerAdapter.swapCursor(cursor);
-		mTransactionRecyclerAdapter.notifyDataSetChanged();
+		TransactionsCursor transactions = (TransactionsCursor) cursor;
+		if (transactions != null && transactions.getPages() == mTransactionPages)
+			return; //the loader delivered the transactions again when it was started
+
+		Log.d(LOG_TAG, "Transactions loader finished. Swapping in the transactions");
+		if (transactions == null)
+			swapTransactionPages(null, null);
+		else
+			swapTransactionPages(transactions.getPages(), transactions.getDiff());
+		updateDisplayedRows(loader);
 	}
 
 	@Override
 	public void onLoaderReset(Loader<Cursor> loader) {
 		Log.d(LOG_TAG, "Resetting transactions loader");
-		mTransactionRecyclerAdapter.swapCursor(null);
+		swapTransactionPages(null, null);
+	}
+
+	/**
+	 * Replaces the transactions displayed in the list and closes the pages of the previous ones.
+	 * <p>If the changes from the displayed transactions are known, only the rows which changed are updated</p>
+	 * @param transactionPages New transactions, or {@code null} to clear the list
+	 * @param diff Changes from the displayed rows to the new transactions, or {@code null} to update all rows
+	 */
+	private void swapTransactionPages(@Nullable TransactionPages transactionPages, @Nullable RowVersions.Diff diff) {
+		RowVersions displayedRows = null;
+		if (mTransactionPages != null) {
+			displayedRows = mTransactionPages.getRows();
+			mTransactionPages.close();
+		}
+		mPagesLoading.clear();
+		mTransactionPages = transactionPages;
+		if (diff == null)
+			mTransactionRecyclerAdapter.notifyDataSetChanged();
+		else
+			diff.dispatchUpdatesTo(mTransactionRecyclerAdapter, displayedRows);
+	}
+
+	/**
+	 * Tells the loader which rows the list displays, so that it only reports the rows which changed when it reloads
+	 * @param loader Transactions loader, or {@code null} if there is none
+	 */
+	private void updateDisplayedRows(@Nullable Loader<Cursor> loader) {
+		if (loader != null)
+			((TransactionsCursorLoader) loader).setDisplayedRows(
+					mTransactionPages == null ? null : mTransactionPages.getRows());
 	}
 
 	/**
-	 * {@link DatabaseCursorLoader} for loading transactions asynchronously from the database
+	 * Queries a page of transactions in the background and adds it to the list.
+	 * Nothing is done if the page is already being loaded
+	 * @param transactionPages Transactions to which the page belongs
+	 * @param pageIndex Index of the page
+	 */
+	private void loadPage(final TransactionPages transactionPages, final int pageIndex) {
+		if (!mPagesLoading.add(pageIndex))
+			return;
+
+		new AsyncTask<Void, Void, Cursor>() {
+			@Override
+			protected Cursor doInBackground(Void... params) {
+				return transactionPages.queryPage(pageIndex);
+			}
+
+			@Override
+			protected void onPostExecute(Cursor cursor) {
+				if (transactionPages != mTransactionPages) { //the list was reloaded in the meantime
+					cursor.close();
+					return;
+				}
+				mPagesLoading.remove(pageIndex);
+				int oldCount = transactionPages.getCount();
+				if (transactionPages.addPage(pageIndex, cursor)) {
+					mTransactionRecyclerAdapter.notifyItemRangeInserted(oldCount, transactionPages.getCount() - oldCount);
+					updateDisplayedRows(getLoaderManager().getLoader(0));
+				} else
+					mTransactionRecyclerAdapter.notifyItemRangeChanged(pageIndex * TransactionPages.PAGE_SIZE, cursor.getCount());
+			}
+		}.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+	}
+
+	/**
+	 * {@link DatabaseCursorLoader} for loading the first page of transactions asynchronously from the database.
+	 * Opening an account takes the same time regardless of the number of its transactions.
+	 * The following pages are loaded as the list is scrolled.
+	 * <p>The loader is reloaded when transactions with splits in the account change, or when accounts change.
+	 * When it is reloaded, it loads as many transactions as the list displays and computes which rows changed,
+	 * so that the list keeps its position and only the changed rows are bound again.</p>
 	 * @author Ngewi Fet <ngewif@gmail.com>
+	 * @see TransactionPages
 	 */
 	protected static class TransactionsCursorLoader extends DatabaseCursorLoader {
 		private String accountUID;
+
+		/**
+		 * Rows displayed by the list, which the next load is compared to
+		 */
+		private volatile RowVersions mDisplayedRows;
 		
 		public TransactionsCursorLoader(Context context, String accountUID) {
 			super(context);			
 			this.accountUID = accountUID;
 		}
+
+		/**
+		 * Sets the rows which the list displays
+		 * @param displayedRows Displayed rows, or {@code null} if the list does not display these transactions
+		 */
+		void setDisplayedRows(@Nullable RowVersions displayedRows) {
+			mDisplayedRows = displayedRows;
+		}
 		
 		@Override
 		public Cursor loadInBackground() {
 			mDatabaseAdapter = TransactionsDbAdapter.getInstance();
-			Cursor c = ((TransactionsDbAdapter) mDatabaseAdapter).fetchAllTransactionsForAccount(accountUID);
-			if (c != null)
-				registerContentObserver(c);
-			return c;
-		}		
+			TransactionsDbAdapter transactionsDbAdapter = (TransactionsDbAdapter) mDatabaseAdapter;
+			Cursor c = TransactionPages.queryFirstPage(transactionsDbAdapter, accountUID);
+			registerContentObserver(c);
+
+			TransactionPages transactionPages = new TransactionPages(transactionsDbAdapter, accountUID, c);
+			RowVersions displayedRows = mDisplayedRows;
+			RowVersions.Diff diff = null;
+			if (displayedRows != null) {
+				transactionPages.loadPages(displayedRows.size());
+				diff = displayedRows.diff(transactionPages.getRows());
+			}
+			return new TransactionsCursor(c, transactionPages, diff);
+		}
+
+		@Override
+		protected boolean isAffectedBy(@NonNull DatabaseChange change) {
+			//the names of the other accounts are displayed with the transactions
+			if (change.affectsTable(DatabaseSchema.AccountEntry.TABLE_NAME))
+				return true;
+			return (change.affectsTable(DatabaseSchema.TransactionEntry.TABLE_NAME)
+					|| change.affectsTable(DatabaseSchema.SplitEntry.TABLE_NAME))
+					&& change.affectsAccount(accountUID);
+		}
+	}
+
+	/**
+	 * Cursor to the first page of transactions, with the pages built from it by the loader.
+	 * Closing it closes all pages
+	 */
+	private static class TransactionsCursor extends CursorWrapper {
+		private final TransactionPages mPages;
+		private final RowVersions.Diff mDiff;
+
+		TransactionsCursor(Cursor firstPage, TransactionPages pages, @Nullable RowVersions.Diff diff) {
+			super(firstPage);
+			mPages = pages;
+			mDiff = diff;
+		}
+
+		TransactionPages getPages() {
+			return mPages;
+		}
+
+		/**
+		 * Returns the changes from the rows displayed when the transactions were loaded
+		 * @return Changes of the rows, or {@code null} if the list did not display these transactions
+		 */
+		@Nullable
+		RowVersions.Diff getDiff() {
+			return mDiff;
+		}
+
+		@Override
+		public void close() {
+			mPages.close();
+			super.close();
+		}
 	}
 
-	public class TransactionRecyclerAdapter extends CursorRecyclerAdapter<TransactionRecyclerAdapter.ViewHolder>{
+	public class TransactionRecyclerAdapter extends RecyclerView.Adapter<TransactionRecyclerAdapter.ViewHolder>{
 
 		public static final int ITEM_TYPE_COMPACT 	= 0x111;
 		public static final int ITEM_TYPE_FULL		= 0x100;
 
-		public TransactionRecyclerAdapter(Cursor cursor) {
-			super(cursor);
+		/**
+		 * The next page is loaded when a transaction this close to the end of the list is displayed
+		 */
+		private static final int PREFETCH_DISTANCE = TransactionPages.PAGE_SIZE / 4;
+
+		public TransactionRecyclerAdapter() {
+			setHasStableIds(true);
 		}
 
 		@Override
@@ -266,14 +427,50 @@ public class TransactionsListFragment extends Fragment implements
 		}
 
 		@Override
-		public void onBindViewHolderCursor(ViewHolder holder, Cursor cursor) {
+		public int getItemCount() {
+			return mTransactionPages == null ? 0 : mTransactionPages.getCount();
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return mTransactionPages == null ? RecyclerView.NO_ID : mTransactionPages.getRows().getStableId(position);
+		}
+
+		@Override
+		public void onBindViewHolder(ViewHolder holder, int position) {
+			TransactionPages transactionPages = mTransactionPages;
+			if (transactionPages.hasMore() && position >= transactionPages.getCount() - PREFETCH_DISTANCE)
+				loadPage(transactionPages, transactionPages.getNextPageIndex());
+
+			Cursor cursor = transactionPages.moveToPosition(position);
+			if (cursor == null) { //the page was evicted from memory, show an empty row until it is loaded again
+				bindPlaceholder(holder);
+				loadPage(transactionPages, transactionPages.getPageIndex(position));
+				return;
+			}
+			bindTransaction(holder, cursor);
+		}
+
+		private void bindPlaceholder(ViewHolder holder) {
+			holder.transactionId = -1;
+			holder.primaryText.setText(null);
+			holder.secondaryText.setText(null);
+			holder.transactionAmount.setText(null);
+			if (holder.transactionDate != null)
+				holder.transactionDate.setText(null);
+			holder.itemView.setOnClickListener(null);
+		}
+
+		private void bindTransaction(ViewHolder holder, Cursor cursor) {
 			holder.transactionId = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry._ID));
 
 			String description = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_DESCRIPTION));
 			holder.primaryText.setText(description);
 
 			final String transactionUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID));
-			Money amount = mTransactionsDbAdapter.getBalance(transactionUID, mAccountUID);
+			Money amount = new Money(cursor.getLong(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_NUM)),
+					cursor.getLong(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_DENOM)),
+					cursor.getString(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_CURRENCY)));
 			TransactionsActivity.displayBalance(holder.transactionAmount, amount);
 
 			long dateMillis = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_TIMESTAMP));
@@ -291,20 +488,17 @@ public class TransactionsListFragment extends Fragment implements
 				holder.secondaryText.setText(dateText);
 			} else {
 
-				List<Split> splits = SplitsDbAdapter.getInstance().getSplitsForTransaction(transactionUID);
+				int splitCount = cursor.getInt(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SPLIT_COUNT));
 				String text = "";
 
-				if (splits.size() == 2 && splits.get(0).isPairOf(splits.get(1))) {
-					for (Split split : splits) {
-						if (!split.getAccountUID().equals(mAccountUID)) {
-							text = AccountsDbAdapter.getInstance().getFullyQualifiedAccountName(split.getAccountUID());
-							break;
-						}
-					}
+				if (splitCount == 2) {
+					String counterpartName = cursor.getString(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_COUNTERPART_FULL_NAME));
+					if (counterpartName != null)
+						text = counterpartName;
 				}
 
-				if (splits.size() > 2) {
-					text = splits.size() + " splits";
+				if (splitCount > 2) {
+					text = splitCount + " splits";
 				}
 				holder.secondaryText.setText(text);
 				holder.transactionDate.setText(dateText);
@@ -355,7 +549,6 @@ public class TransactionsListFragment extends Fragment implements
 				switch (item.getItemId()) {
 					case R.id.context_menu_delete:
 						mTransactionsDbAdapter.deleteRecord(transactionId);
-						WidgetConfigurationActivity.updateAllWidgets(getActivity());
 						refresh();
 						return true;
 
@@ -16,10 +16,9 @@
 
 package org.gnucash.android.ui.transaction.dialog;
 
-import android.database.Cursor;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
-import android.support.v4.widget.SimpleCursorAdapter;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,14 +28,15 @@ import android.widget.Spinner;
 import android.widget.Toast;
 
 import org.gnucash.android.R;
-import org.gnucash.android.db.DatabaseSchema;
-import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.ui.common.Refreshable;
 import org.gnucash.android.ui.common.UxArgument;
 import org.gnucash.android.ui.homescreen.WidgetConfigurationActivity;
 import org.gnucash.android.ui.transaction.TransactionsActivity;
-import org.gnucash.android.util.QualifiedAccountNameCursorAdapter;
+import org.gnucash.android.util.QualifiedAccountNameAdapter;
+
+import java.util.List;
 
 /**
  * Dialog fragment for moving transactions from one account to another
@@ -69,6 +69,11 @@ public class BulkMoveDialogFragment extends DialogFragment {
 	 */
 	String mOriginAccountUID = null;
 
+	/**
+	 * Adapter of the accounts to which the transactions can be moved
+	 */
+	QualifiedAccountNameAdapter mDestinationAccountAdapter;
+
 	/**
 	 * Create new instance of the bulk move dialog
 	 * @param transactionIds Array of transaction database record IDs
@@ -119,17 +124,21 @@ public class BulkMoveDialogFragment extends DialogFragment {
 				mTransactionIds.length);
 		getDialog().setTitle(title);
 
-        AccountsDbAdapter accountsDbAdapter = AccountsDbAdapter.getInstance();
-        String conditions = "(" + DatabaseSchema.AccountEntry.COLUMN_UID    + " != ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_CURRENCY               + " = ? AND "
-                + DatabaseSchema.AccountEntry.COLUMN_HIDDEN         + " = 0 AND "
-                + DatabaseSchema.AccountEntry.COLUMN_PLACEHOLDER + " = 0"
-                + ")";
-		Cursor cursor = accountsDbAdapter.fetchAccountsOrderedByFullName(conditions,
-                new String[]{mOriginAccountUID, accountsDbAdapter.getCurrencyCode(mOriginAccountUID)});
-
-		SimpleCursorAdapter mCursorAdapter = new QualifiedAccountNameCursorAdapter(getActivity(), cursor);
-		mDestinationAccountSpinner.setAdapter(mCursorAdapter);
+        AccountsSnapshot snapshot = AccountsSnapshot.getInstance();
+        AccountsSnapshot.Entry originAccount = snapshot.getAccount(mOriginAccountUID);
+        final String currencyCode = originAccount == null ? null : originAccount.getCurrencyCode();
+		List<AccountsSnapshot.Entry> accounts = snapshot.select(new AccountsSnapshot.Filter() {
+            @Override
+            public boolean accept(@NonNull AccountsSnapshot.Entry account) {
+                return !account.getUID().equals(mOriginAccountUID)
+                        && account.getCurrencyCode().equals(currencyCode)
+                        && !account.isHidden()
+                        && !account.isPlaceholder();
+            }
+        }, false);
+
+		mDestinationAccountAdapter = new QualifiedAccountNameAdapter(getActivity(), accounts);
+		mDestinationAccountSpinner.setAdapter(mDestinationAccountAdapter);
 		setListeners();
 	}
 	
@@ -153,8 +162,11 @@ public class BulkMoveDialogFragment extends DialogFragment {
 					dismiss();
 				}
 
-				long dstAccountId = mDestinationAccountSpinner.getSelectedItemId();
-				String dstAccountUID = AccountsDbAdapter.getInstance().getUID(dstAccountId);
+				String dstAccountUID = mDestinationAccountAdapter.getUID(mDestinationAccountSpinner.getSelectedItemPosition());
+				if (dstAccountUID == null) { //there is no account to move to
+					dismiss();
+					return;
+				}
 				TransactionsDbAdapter trxnAdapter = TransactionsDbAdapter.getInstance();
 				if (!trxnAdapter.getAccountCurrencyCode(dstAccountUID).equals(trxnAdapter.getAccountCurrencyCode(mOriginAccountUID))) {
 					Toast.makeText(getActivity(), R.string.toast_incompatible_currency, Toast.LENGTH_LONG).show();
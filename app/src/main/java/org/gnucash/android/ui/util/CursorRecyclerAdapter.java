@@ -28,6 +28,7 @@ import android.database.ContentObserver;
 import android.database.Cursor;
 import android.database.DataSetObserver;
 import android.os.Handler;
+import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.widget.Filter;
 import android.widget.FilterQueryProvider;
@@ -164,6 +165,28 @@ public abstract class CursorRecyclerAdapter<VH
      * Cursor, null is also returned.
      */
     public Cursor swapCursor(Cursor newCursor) {
+        return swapCursor(newCursor, true);
+    }
+
+    /**
+     * Swap in a new Cursor like {@link #swapCursor(Cursor)}, but only notify the observers
+     * about the rows which changed between the old and the new cursor.
+     * The old Cursor is <em>not</em> closed.
+     *
+     * @param newCursor The new cursor to be used.
+     * @param diff Changes from the rows of the old cursor to the rows of the new cursor
+     * @param displayedRows Rows of the old cursor. If they are not the rows the diff was computed from,
+     *                      the observers are notified that all rows changed
+     * @return Returns the previously set Cursor, or null if there was not one.
+     * @see RowVersions
+     */
+    public Cursor swapCursor(@NonNull Cursor newCursor, @NonNull RowVersions.Diff diff, RowVersions displayedRows) {
+        Cursor oldCursor = swapCursor(newCursor, false);
+        diff.dispatchUpdatesTo(this, displayedRows);
+        return oldCursor;
+    }
+
+    private Cursor swapCursor(Cursor newCursor, boolean notify) {
         if (newCursor == mCursor) {
             return null;
         }
@@ -179,7 +202,8 @@ public abstract class CursorRecyclerAdapter<VH
             mRowIDColumn = newCursor.getColumnIndexOrThrow("_id");
             mDataValid = true;
             // notify the observers about the new cursor
-            notifyDataSetChanged();
+            if (notify)
+                notifyDataSetChanged();
         } else {
             mRowIDColumn = -1;
             mDataValid = false;
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.ui.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+
+import org.gnucash.android.util.HashHelper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Identities and versions of the rows of a list, for updating only the rows of a {@link RecyclerView} which changed.
+ * <p>A row is identified by the GUID of its record, which also gives its stable item ID.
+ * The version of a row is built from the modification time of the record and the values displayed in the row,
+ * so it changes whenever the row has to be bound again.</p>
+ * <p>Instances are immutable, so they can be built and compared in a background thread,
+ * e.g. by a loader, and the result applied in the main thread with {@link Diff#dispatchUpdatesTo}.</p>
+ */
+public final class RowVersions {
+
+    /**
+     * Rows of an empty list
+     */
+    public static final RowVersions EMPTY = new RowVersions(new String[0], new String[0]);
+
+    private final String[] mUIDs;
+    private final String[] mVersions;
+
+    private RowVersions(String[] uids, String[] versions) {
+        mUIDs = uids;
+        mVersions = versions;
+    }
+
+    /**
+     * Returns the number of rows
+     * @return Number of rows
+     */
+    public int size() {
+        return mUIDs.length;
+    }
+
+    /**
+     * Returns the GUID of the record of a row
+     * @param position Position of the row
+     * @return GUID of the record
+     */
+    public String getUID(int position) {
+        return mUIDs[position];
+    }
+
+    /**
+     * Returns the stable item ID of a row, which is derived from the GUID of its record
+     * @param position Position of the row
+     * @return Stable item ID, or {@link RecyclerView#NO_ID} if there is no row at the position
+     */
+    public long getStableId(int position) {
+        if (position < 0 || position >= mUIDs.length)
+            return RecyclerView.NO_ID;
+        return stableId(mUIDs[position]);
+    }
+
+    /**
+     * Returns the stable item ID for a record.
+     * <p>Records may be replaced in the database, which changes their row ID but not their GUID,
+     * so the ID is a 64-bit FNV-1a hash of the GUID</p>
+     * @param uid GUID of the record
+     * @return Item ID
+     */
+    public static long stableId(@NonNull String uid) {
+        long hash = HashHelper.fnv1a64(uid);
+        return hash == RecyclerView.NO_ID ? 0 : hash;
+    }
+
+    /**
+     * Returns these rows followed by other rows
+     * @param rows Rows to be appended
+     * @return New rows
+     */
+    public RowVersions append(@NonNull RowVersions rows) {
+        if (rows.size() == 0)
+            return this;
+        if (size() == 0)
+            return rows;
+        String[] uids = Arrays.copyOf(mUIDs, mUIDs.length + rows.mUIDs.length);
+        String[] versions = Arrays.copyOf(mVersions, mVersions.length + rows.mVersions.length);
+        System.arraycopy(rows.mUIDs, 0, uids, mUIDs.length, rows.mUIDs.length);
+        System.arraycopy(rows.mVersions, 0, versions, mVersions.length, rows.mVersions.length);
+        return new RowVersions(uids, versions);
+    }
+
+    /**
+     * Computes the changes from these rows to newer rows.
+     * This may take some time for long lists and should be done in a background thread
+     * @param newRows Rows of the new data of the list
+     * @return Changes between the rows
+     */
+    public Diff diff(@NonNull final RowVersions newRows) {
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return mUIDs.length;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newRows.mUIDs.length;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return mUIDs[oldItemPosition].equals(newRows.mUIDs[newItemPosition]);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return mVersions[oldItemPosition].equals(newRows.mVersions[newItemPosition]);
+            }
+        }, false); //the lists are sorted, rows only move when their sort key changes
+        return new Diff(this, newRows, result);
+    }
+
+    /**
+     * Changes between the rows of two versions of a list
+     */
+    public static final class Diff {
+        private final RowVersions mOldRows;
+        private final RowVersions mNewRows;
+        private final DiffUtil.DiffResult mResult;
+
+        private Diff(RowVersions oldRows, RowVersions newRows, DiffUtil.DiffResult result) {
+            mOldRows = oldRows;
+            mNewRows = newRows;
+            mResult = result;
+        }
+
+        /**
+         * Returns the rows of the new version of the list
+         * @return New rows
+         */
+        public RowVersions getNewRows() {
+            return mNewRows;
+        }
+
+        /**
+         * Notifies an adapter about the changed rows.
+         * <p>The changes can only be dispatched if the adapter still displays the rows the diff was computed from.
+         * Otherwise, e.g. if the list was extended while the diff was computed, the adapter is notified that
+         * all rows changed</p>
+         * @param adapter Adapter of the list, which already returns the new data
+         * @param displayedRows Rows which were displayed before the new data was set
+         * @return {@code true} if only the changed rows were notified
+         */
+        public boolean dispatchUpdatesTo(@NonNull RecyclerView.Adapter adapter, @Nullable RowVersions displayedRows) {
+            if (displayedRows != mOldRows) {
+                adapter.notifyDataSetChanged();
+                return false;
+            }
+            mResult.dispatchUpdatesTo(adapter);
+            return true;
+        }
+    }
+
+    /**
+     * Collects the rows of a list
+     */
+    public static final class Builder {
+        private final List<String> mUIDs;
+        private final List<String> mVersions;
+
+        public Builder(int expectedSize) {
+            mUIDs = new ArrayList<>(expectedSize);
+            mVersions = new ArrayList<>(expectedSize);
+        }
+
+        /**
+         * Adds a row
+         * @param uid GUID of the record of the row
+         * @param versionParts Values which make up the version of the row, e.g. the modification time
+         *                     and the displayed values. {@code null} values are allowed
+         * @return This builder
+         */
+        public Builder add(@NonNull String uid, Object... versionParts) {
+            StringBuilder version = new StringBuilder();
+            for (Object part : versionParts) {
+                version.append(part).append('\u001f'); //unit separator, so that parts cannot run into each other
+            }
+            mUIDs.add(uid);
+            mVersions.add(version.toString());
+            return this;
+        }
+
+        public RowVersions build() {
+            if (mUIDs.isEmpty())
+                return EMPTY;
+            return new RowVersions(mUIDs.toArray(new String[mUIDs.size()]),
+                    mVersions.toArray(new String[mVersions.size()]));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.util;
+
+import android.support.annotation.NonNull;
+
+import org.gnucash.android.db.AccountsSnapshot;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory index for filtering accounts by a part of their name, without querying the database.
+ * <p>The names and full names are split into trigrams (substrings of three characters), and every trigram
+ * is mapped to the sorted positions of the accounts containing it. A filter only has to check the accounts
+ * which contain all trigrams of the filter text. Shorter filters are checked against every name.</p>
+ * <p>The index of the accounts of the active book is kept with the {@link AccountsSnapshot}.
+ * Instances are immutable and can be used from any thread.</p>
+ */
+public final class AccountNameIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final String[] mUIDs;
+    private final String[] mNames;
+    private final String[] mFullNames;
+    private final Map<String, int[]> mNameGrams;
+    private final Map<String, int[]> mFullNameGrams;
+
+    /**
+     * Builds the index of some accounts
+     * @param uids GUIDs of the accounts, in the order in which filtered accounts are returned
+     * @param names Names of the accounts
+     * @param fullNames Full names of the accounts
+     */
+    public AccountNameIndex(@NonNull List<String> uids, @NonNull List<String> names, @NonNull List<String> fullNames) {
+        if (uids.size() != names.size() || uids.size() != fullNames.size())
+            throw new IllegalArgumentException("Each account must have a name and a full name");
+        mUIDs = uids.toArray(new String[uids.size()]);
+        mNames = normalize(names);
+        mFullNames = normalize(fullNames);
+        mNameGrams = buildGrams(mNames);
+        mFullNameGrams = buildGrams(mFullNames);
+    }
+
+    private static String[] normalize(List<String> texts) {
+        String[] normalized = new String[texts.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            String text = texts.get(i);
+            normalized[i] = text == null ? "" : text.toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    private static Map<String, int[]> buildGrams(String[] texts) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < texts.length; i++) {
+            String text = texts[i];
+            for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+                String gram = text.substring(start, start + GRAM_LENGTH);
+                List<Integer> list = positions.get(gram);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    positions.put(gram, list);
+                }
+                if (list.isEmpty() || list.get(list.size() - 1) != i) //a gram may occur several times in a name
+                    list.add(i);
+            }
+        }
+
+        Map<String, int[]> grams = new HashMap<>(positions.size());
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            grams.put(entry.getKey(), array);
+        }
+        return grams;
+    }
+
+    /**
+     * Returns the number of accounts in the index
+     * @return Number of accounts
+     */
+    public int size() {
+        return mUIDs.length;
+    }
+
+    /**
+     * Returns the accounts whose name contains the filter text, ignoring case.
+     * If the filter contains the account separator, full names are searched instead of names
+     * @param filter Filter text
+     * @return GUIDs of the matching accounts, in the order of the index
+     */
+    public List<String> search(@NonNull String filter) {
+        String text = filter.toLowerCase(Locale.ROOT);
+        if (text.isEmpty())
+            return Collections.unmodifiableList(Arrays.asList(mUIDs));
+
+        boolean useFullNames = text.contains(AccountsDbAdapter.ACCOUNT_NAME_SEPARATOR);
+        String[] texts = useFullNames ? mFullNames : mNames;
+        List<String> result = new ArrayList<>();
+        if (text.length() < GRAM_LENGTH) {
+            for (int i = 0; i < texts.length; i++) {
+                if (texts[i].contains(text))
+                    result.add(mUIDs[i]);
+            }
+            return result;
+        }
+
+        for (int position : findCandidates(useFullNames ? mFullNameGrams : mNameGrams, text)) {
+            if (texts[position].contains(text)) //the grams may occur at different places in the name
+                result.add(mUIDs[position]);
+        }
+        return result;
+    }
+
+    /**
+     * Intersects the positions of all grams of the text, starting with the rarest gram
+     */
+    private static int[] findCandidates(Map<String, int[]> grams, String text) {
+        List<int[]> postings = new ArrayList<>();
+        for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+            int[] positions = grams.get(text.substring(start, start + GRAM_LENGTH));
+            if (positions == null)
+                return NO_POSITIONS;
+            postings.add(positions);
+        }
+
+        int[] candidates = postings.get(0);
+        for (int[] positions : postings) {
+            if (positions.length < candidates.length)
+                candidates = positions;
+        }
+        for (int[] positions : postings) {
+            if (positions != candidates)
+                candidates = intersect(candidates, positions);
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
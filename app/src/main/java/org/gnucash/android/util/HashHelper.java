@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.util;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Non-cryptographic hashes for keeping compact keys of records in memory
+ */
+public final class HashHelper {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Should be not instantiated.
+     */
+    private HashHelper() {}
+
+    /**
+     * Returns the 64-bit FNV-1a hash of the characters of {@code value}, e.g. of a GUID
+     * @param value String to hash
+     * @return Hash of the string
+     */
+    public static long fnv1a64(@NonNull String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
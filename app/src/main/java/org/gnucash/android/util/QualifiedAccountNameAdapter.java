@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2013 - 2014 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.util;
+
+import android.content.Context;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import org.gnucash.android.R;
+import org.gnucash.android.db.AccountsSnapshot;
+
+import java.util.List;
+
+/**
+ * Spinner adapter which displays the fully qualified account names instead of just the simple names.
+ * <p>The fully qualified account name includes the parent hierarchy.
+ * The accounts are taken from an {@link AccountsSnapshot}, so the adapter does not hold a database cursor.
+ * The item IDs are the database record IDs of the accounts.</p>
+ *
+ * @author Ngewi Fet <ngewif@gmail.com>
+ */
+public class QualifiedAccountNameAdapter extends BaseAdapter {
+
+    private final LayoutInflater mInflater;
+
+    @LayoutRes
+    private final int mItemResource;
+
+    @LayoutRes
+    private int mDropDownItemResource = R.layout.account_spinner_dropdown_item;
+
+    private List<AccountsSnapshot.Entry> mAccounts;
+
+    /**
+     * Initialize the adapter for account names using default spinner views
+     * @param context Application context
+     * @param accounts Accounts to be listed, in display order
+     */
+    public QualifiedAccountNameAdapter(Context context, @NonNull List<AccountsSnapshot.Entry> accounts) {
+        this(context, accounts, android.R.layout.simple_spinner_item);
+    }
+
+    /**
+     * Overloaded constructor. Specifies the view to use for displaying selected spinner text
+     * @param context Application context
+     * @param accounts Accounts to be listed, in display order
+     * @param selectedSpinnerItem Layout resource for selected item text
+     */
+    public QualifiedAccountNameAdapter(Context context, @NonNull List<AccountsSnapshot.Entry> accounts,
+                                       @LayoutRes int selectedSpinnerItem) {
+        mInflater = LayoutInflater.from(context);
+        mItemResource = selectedSpinnerItem;
+        mAccounts = accounts;
+    }
+
+    /**
+     * Sets the layout of the items of the drop down list
+     * @param resource Layout resource with a text view {@code android.R.id.text1}
+     */
+    public void setDropDownViewResource(@LayoutRes int resource) {
+        mDropDownItemResource = resource;
+    }
+
+    /**
+     * Replaces the listed accounts
+     * @param accounts Accounts to be listed, in display order
+     */
+    public void swapAccounts(@NonNull List<AccountsSnapshot.Entry> accounts) {
+        mAccounts = accounts;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return mAccounts.size();
+    }
+
+    @Override
+    public AccountsSnapshot.Entry getItem(int position) {
+        return mAccounts.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mAccounts.get(position).getId();
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return bindView(position, convertView, parent, mItemResource);
+    }
+
+    @Override
+    public View getDropDownView(int position, View convertView, ViewGroup parent) {
+        return bindView(position, convertView, parent, mDropDownItemResource);
+    }
+
+    private View bindView(int position, View convertView, ViewGroup parent, @LayoutRes int resource) {
+        View view = convertView != null ? convertView : mInflater.inflate(resource, parent, false);
+        TextView textView = (TextView) view.findViewById(android.R.id.text1);
+        AccountsSnapshot.Entry account = getItem(position);
+        textView.setText(account.getFullName());
+        textView.setEllipsize(TextUtils.TruncateAt.MIDDLE);
+
+        if (account.isFavorite()) {
+            textView.setCompoundDrawablesWithIntrinsicBounds(0,0,R.drawable.ic_star_black_18dp,0);
+        } else {
+            textView.setCompoundDrawablesWithIntrinsicBounds(0,0,0,0);
+        }
+        return view;
+    }
+
+    /**
+     * Returns the position of a given account in the adapter
+     * @param accountUID GUID of the account
+     * @return Position of the account or -1 if the account is not found
+     */
+    public int getPosition(@NonNull String accountUID){
+        for (int pos = 0; pos < mAccounts.size(); pos++) {
+            if (mAccounts.get(pos).getUID().equals(accountUID)){
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the GUID of the account at a position
+     * @param position Position in the adapter
+     * @return GUID of the account, or {@code null} if the position is not valid, e.g. nothing is selected
+     */
+    @Nullable
+    public String getUID(int position) {
+        if (position < 0 || position >= mAccounts.size())
+            return null;
+        return mAccounts.get(position).getUID();
+    }
+}
@@ -21,6 +21,7 @@ import org.assertj.core.data.Index;
 import org.gnucash.android.BuildConfig;
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.AccountsSnapshot;
 import org.gnucash.android.db.DatabaseHelper;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
@@ -35,6 +36,7 @@ import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.importer.GncXmlImporter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.BaseModel;
 import org.gnucash.android.model.Budget;
 import org.gnucash.android.model.BudgetAmount;
 import org.gnucash.android.model.Commodity;
@@ -59,6 +61,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -351,6 +354,57 @@ public class AccountsDbAdapterTest{
         assertThat(balance).isEqualTo(expectedBalance);
     }
 
+    @Test
+    public void shouldComputeBalancesOfSeveralAccountsAtOnce(){
+        Account parent = new Account("Parent", Commodity.USD);
+        parent.setAccountType(AccountType.ASSET);
+        Account child = new Account("Child", Commodity.USD);
+        child.setAccountType(AccountType.ASSET);
+        child.setParentUID(parent.getUID());
+        Account income = new Account("Income", Commodity.USD);
+        income.setAccountType(AccountType.INCOME);
+        mAccountsDbAdapter.addRecord(parent);
+        mAccountsDbAdapter.addRecord(child);
+        mAccountsDbAdapter.addRecord(income);
+
+        Transaction transaction = new Transaction("Salary");
+        Split split = new Split(new Money("1500", "USD"), child.getUID());
+        split.setType(TransactionType.DEBIT);
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(income.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        transaction = new Transaction("Interest");
+        split = new Split(new Money("2.37", "USD"), parent.getUID());
+        split.setType(TransactionType.DEBIT);
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(income.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        List<String> accountUIDs = new ArrayList<>();
+        accountUIDs.add(parent.getUID());
+        accountUIDs.add(child.getUID());
+        accountUIDs.add(income.getUID());
+        Map<String, Money> balances = mAccountsDbAdapter.getAccountBalances(accountUIDs, -1, -1);
+
+        assertThat(balances.get(parent.getUID())).isEqualTo(new Money("1502.37", "USD"));
+        for (String accountUID : accountUIDs) {
+            assertThat(balances.get(accountUID)).isEqualTo(mAccountsDbAdapter.getAccountBalance(accountUID));
+        }
+
+        Map<String, Integer> subAccountCounts = mAccountsDbAdapter.getSubAccountCounts(accountUIDs);
+        assertThat(subAccountCounts.get(parent.getUID())).isEqualTo(1);
+        assertThat(subAccountCounts).doesNotContainKey(child.getUID());
+
+        //more accounts than are bound in one query
+        List<String> manyAccountUIDs = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            manyAccountUIDs.add(BaseModel.generateUID());
+        }
+        manyAccountUIDs.add(parent.getUID());
+        assertThat(mAccountsDbAdapter.getSubAccountCounts(manyAccountUIDs)).containsOnlyKeys(parent.getUID());
+    }
+
     /**
      * Test creating an account hierarchy by specifying fully qualified name
      */
@@ -517,6 +571,72 @@ public class AccountsDbAdapterTest{
         System.out.println("Default currency is now: " + Commodity.DEFAULT_COMMODITY);
     }
 
+    @Test
+    public void snapshotShouldListVisibleAccountsByFullNameAndFavorite(){
+        Account bravo = new Account(BRAVO_ACCOUNT_NAME);
+        bravo.setFavorite(true);
+        Account alpha = new Account(ALPHA_ACCOUNT_NAME);
+        Account alphaChild = new Account("Child");
+        alphaChild.setParentUID(alpha.getUID());
+        alphaChild.setPlaceHolderFlag(true);
+        Account hidden = new Account("Hidden");
+        hidden.setHidden(true);
+        mAccountsDbAdapter.addRecord(bravo);
+        mAccountsDbAdapter.addRecord(alpha);
+        mAccountsDbAdapter.addRecord(alphaChild);
+        mAccountsDbAdapter.addRecord(hidden);
+
+        AccountsSnapshot snapshot = AccountsSnapshot.build(mAccountsDbAdapter,
+                BooksDbAdapter.getInstance().getActiveBookUID());
+
+        List<String> names = new ArrayList<>();
+        for (AccountsSnapshot.Entry account : snapshot.select(AccountsSnapshot.VISIBLE_ACCOUNTS, false)) {
+            names.add(account.getFullName());
+        }
+        assertThat(names).containsExactly(ALPHA_ACCOUNT_NAME, ALPHA_ACCOUNT_NAME + ":Child", BRAVO_ACCOUNT_NAME);
+
+        names.clear();
+        for (AccountsSnapshot.Entry account : snapshot.select(AccountsSnapshot.VISIBLE_ACCOUNTS, true)) {
+            names.add(account.getFullName());
+        }
+        assertThat(names).containsExactly(BRAVO_ACCOUNT_NAME, ALPHA_ACCOUNT_NAME, ALPHA_ACCOUNT_NAME + ":Child");
+
+        AccountsSnapshot.Entry child = snapshot.getAccount(alphaChild.getUID());
+        assertThat(child).isNotNull();
+        assertThat(child.isPlaceholder()).isTrue();
+        assertThat(child.getParentUID()).isEqualTo(alpha.getUID());
+        assertThat(child.getId()).isEqualTo(mAccountsDbAdapter.getID(alphaChild.getUID()));
+        assertThat(snapshot.getAccount(hidden.getUID()).isHidden()).isTrue();
+    }
+
+    @Test
+    public void cachedLookupsShouldReturnCurrentValues(){
+        Account parent = new Account(ALPHA_ACCOUNT_NAME, Commodity.EUR);
+        parent.setAccountType(AccountType.ASSET);
+        mAccountsDbAdapter.addRecord(parent);
+        assertThat(mAccountsDbAdapter.getSubAccountCount(parent.getUID())).isEqualTo(0);
+        assertThat(mAccountsDbAdapter.getAccountType(parent.getUID())).isEqualTo(AccountType.ASSET);
+
+        Account child = new Account(BRAVO_ACCOUNT_NAME);
+        child.setParentUID(parent.getUID());
+        mAccountsDbAdapter.addRecord(child);
+        parent.setAccountType(AccountType.BANK);
+        parent.setName("Checking");
+        mAccountsDbAdapter.addRecord(parent, DatabaseAdapter.UpdateMethod.update);
+
+        long id = mAccountsDbAdapter.getID(child.getUID());
+        assertThat(mAccountsDbAdapter.getUID(id)).isEqualTo(child.getUID());
+        assertThat(mAccountsDbAdapter.getSubAccountCount(parent.getUID())).isEqualTo(1);
+        assertThat(mAccountsDbAdapter.getAccountType(parent.getUID())).isEqualTo(AccountType.BANK);
+        assertThat(mAccountsDbAdapter.getAccountName(parent.getUID())).isEqualTo("Checking");
+        assertThat(mAccountsDbAdapter.getAccountCurrencyCode(parent.getUID())).isEqualTo("EUR");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cachedLookupOfMissingRecordShouldThrowException(){
+        mAccountsDbAdapter.getAccountType("non-existent-account");
+    }
+
     /**
      * Loads the default accounts from file resource
      */
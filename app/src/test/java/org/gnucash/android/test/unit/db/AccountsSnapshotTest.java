@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.db;
+
+import android.database.Cursor;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsSnapshot;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.BaseModel;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the snapshot of the accounts of a book
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class AccountsSnapshotTest {
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+
+    @Before
+    public void setUp() {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        AccountsSnapshot.invalidateCache();
+    }
+
+    @After
+    public void tearDown() {
+        mAccountsDbAdapter.deleteAllRecords();
+        AccountsSnapshot.invalidateCache();
+    }
+
+    @Test
+    public void cursorShouldHaveTheRowsOfTheAccountsTable() {
+        Account wallet = new Account("Wallet", Commodity.USD);
+        wallet.setColor("#1469EB");
+        wallet.setFavorite(true);
+        Account bank = new Account("Bank", Commodity.USD);
+        bank.setPlaceHolderFlag(true);
+        mAccountsDbAdapter.addRecord(wallet);
+        mAccountsDbAdapter.addRecord(bank);
+
+        AccountsSnapshot snapshot = AccountsSnapshot.getCurrentInstance();
+        Cursor cursor = snapshot.toCursor(Arrays.asList(wallet.getUID(), BaseModel.generateUID(), bank.getUID()));
+        Cursor expected = mAccountsDbAdapter.fetchAccounts(AccountEntry.COLUMN_UID + " IN (?, ?)",
+                new String[]{wallet.getUID(), bank.getUID()}, null);
+        try {
+            assertThat(cursor.getCount()).isEqualTo(2);
+            while (expected.moveToNext()) {
+                assertThat(cursor.moveToNext()).isTrue();
+                for (String column : AccountsSnapshot.CURSOR_COLUMNS) {
+                    assertThat(cursor.getString(cursor.getColumnIndexOrThrow(column)))
+                            .as(column)
+                            .isEqualTo(expected.getString(expected.getColumnIndexOrThrow(column)));
+                }
+            }
+        } finally {
+            cursor.close();
+            expected.close();
+        }
+    }
+
+    @Test
+    public void shouldReadTheAccountsAgainAfterChanges() {
+        Account wallet = new Account("Wallet", Commodity.USD);
+        mAccountsDbAdapter.addRecord(wallet);
+        AccountsSnapshot previous = AccountsSnapshot.getCurrentInstance();
+        assertThat(previous.getAccount(wallet.getUID())).isNotNull();
+        assertThat(AccountsSnapshot.getInstance().getAccount(wallet.getUID())).isNotNull();
+
+        Account bank = new Account("Bank", Commodity.USD);
+        mAccountsDbAdapter.addRecord(bank);
+        AccountsSnapshot.invalidateCache(); //in case the change was not delivered yet
+
+        //the previous snapshot is never modified, and may still be served until the new one is read
+        assertThat(previous.getAccount(bank.getUID())).isNull();
+        assertThat(AccountsSnapshot.getInstance()).isNotNull();
+
+        AccountsSnapshot current = AccountsSnapshot.getCurrentInstance();
+        assertThat(current.getAccount(bank.getUID())).isNotNull();
+        assertThat(AccountsSnapshot.getInstance().getAccount(bank.getUID())).isNotNull();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.db;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.AdapterRegistry;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.model.Book;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the sharing of database adapters through the {@link AdapterRegistry}
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class AdapterRegistryTest {
+
+    @Test
+    public void shouldShareTheAdaptersOfADatabase(){
+        SQLiteDatabase activeDb = GnuCashApplication.getActiveDb();
+        AdapterRegistry registry = AdapterRegistry.of(activeDb);
+
+        assertThat(AdapterRegistry.of(activeDb)).isSameAs(registry);
+        assertThat(registry.getAccountsDbAdapter()).isSameAs(AccountsDbAdapter.getInstance());
+        assertThat(registry.getTransactionsDbAdapter()).isSameAs(TransactionsDbAdapter.getInstance());
+        assertThat(registry.getAccountsDbAdapter()).isSameAs(registry.getAccountsDbAdapter());
+    }
+
+    @Test
+    public void shouldCreateNewAdaptersAfterTheDatabaseIsClosed(){
+        String bookUID = new Book().getUID();
+        DatabaseHelper databaseHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        AdapterRegistry registry = AdapterRegistry.of(db);
+        assertThat(registry.getDatabase()).isSameAs(db);
+        assertThat(registry.getAccountsDbAdapter()).isNotSameAs(AccountsDbAdapter.getInstance());
+        databaseHelper.close();
+
+        SQLiteDatabase reopenedDb = databaseHelper.getWritableDatabase();
+        assertThat(AdapterRegistry.of(reopenedDb)).isNotSameAs(registry);
+        databaseHelper.close();
+        GnuCashApplication.getAppContext().deleteDatabase(bookUID);
+    }
+
+    @Test
+    public void shouldDropTheRegistryOfAReleasedDatabase(){
+        String bookUID = new Book().getUID();
+        DatabaseHelper databaseHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        AdapterRegistry registry = AdapterRegistry.of(db);
+        long accountCount = registry.getAccountsDbAdapter().getRecordsCount(); //compiles a cached statement
+
+        AdapterRegistry.release(db);
+        AdapterRegistry newRegistry = AdapterRegistry.of(db);
+        assertThat(newRegistry).isNotSameAs(registry);
+        assertThat(newRegistry.getAccountsDbAdapter().getRecordsCount()).isEqualTo(accountCount);
+
+        AdapterRegistry.release(db);
+        databaseHelper.close();
+        GnuCashApplication.getAppContext().deleteDatabase(bookUID);
+    }
+}
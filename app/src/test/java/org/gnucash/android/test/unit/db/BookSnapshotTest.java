@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.db;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.BookSnapshot;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.BooksDbAdapter;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests that balances computed from a {@link BookSnapshot} are the same as those read from the database
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class BookSnapshotTest {
+
+    private static final long JANUARY = 1483228800000L; //2017-01-01
+    private static final long FEBRUARY = 1485907200000L; //2017-02-01
+    private static final long MARCH = 1488326400000L; //2017-03-01
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+    private SQLiteDatabase mDb;
+    private String mBookUID;
+
+    private Account mAssets;
+    private Account mChecking;
+    private Account mExpenses;
+    private Account mGroceries;
+
+    @Before
+    public void setUp() {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        mTransactionsDbAdapter = TransactionsDbAdapter.getInstance();
+        mDb = GnuCashApplication.getActiveDb();
+        mBookUID = BooksDbAdapter.getInstance().getActiveBookUID();
+
+        mAssets = new Account("Assets", Commodity.USD);
+        mAssets.setAccountType(AccountType.ASSET);
+        mChecking = new Account("Checking", Commodity.USD);
+        mChecking.setAccountType(AccountType.BANK);
+        mChecking.setParentUID(mAssets.getUID());
+        mExpenses = new Account("Expenses", Commodity.USD);
+        mExpenses.setAccountType(AccountType.EXPENSE);
+        mGroceries = new Account("Groceries", Commodity.USD);
+        mGroceries.setAccountType(AccountType.EXPENSE);
+        mGroceries.setParentUID(mExpenses.getUID());
+        mAccountsDbAdapter.addRecord(mAssets);
+        mAccountsDbAdapter.addRecord(mChecking);
+        mAccountsDbAdapter.addRecord(mExpenses);
+        mAccountsDbAdapter.addRecord(mGroceries);
+
+        addTransaction("Salary", JANUARY, new Money("2500", "USD"), mChecking, mAssets);
+        addTransaction("Food", JANUARY + 1000, new Money("45.37", "USD"), mGroceries, mChecking);
+        addTransaction("Rent", FEBRUARY, new Money("800", "USD"), mExpenses, mChecking);
+        addTransaction("Food", MARCH, new Money("12.5", "USD"), mGroceries, mChecking);
+    }
+
+    private Transaction addTransaction(String description, long time, Money amount, Account debit, Account credit) {
+        Transaction transaction = new Transaction(description);
+        transaction.setTime(time);
+        Split split = new Split(amount, debit.getUID());
+        split.setType(TransactionType.DEBIT);
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(credit.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+        return transaction;
+    }
+
+    private void assertSameBalances(BookSnapshot snapshot) {
+        for (Account account : new Account[]{mAssets, mChecking, mExpenses, mGroceries}) {
+            assertThat(snapshot.getAccountBalance(account.getUID(), -1, -1))
+                    .isEqualTo(mAccountsDbAdapter.getAccountBalance(account.getUID()));
+            assertThat(snapshot.getAccountBalance(account.getUID(), JANUARY, FEBRUARY))
+                    .isEqualTo(mAccountsDbAdapter.getAccountBalance(account.getUID(), JANUARY, FEBRUARY));
+            assertThat(snapshot.getAccountsBalance(Collections.singletonList(account.getUID()), FEBRUARY, -1))
+                    .isEqualTo(mAccountsDbAdapter.getAccountsBalance(Collections.singletonList(account.getUID()), FEBRUARY, -1));
+        }
+
+        List<AccountType> accountTypes = new ArrayList<>();
+        accountTypes.add(AccountType.ASSET);
+        accountTypes.add(AccountType.BANK);
+        assertThat(snapshot.getAccountBalance(accountTypes, -1, MARCH))
+                .isEqualTo(mAccountsDbAdapter.getAccountBalance(accountTypes, -1, MARCH));
+    }
+
+    @Test
+    public void shouldComputeTheSameBalancesAsTheDatabase() {
+        BookSnapshot snapshot = BookSnapshot.build(mDb, mBookUID);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getSplitCount()).isEqualTo(8);
+        assertThat(snapshot.getAccountBalance(mExpenses.getUID(), -1, -1)).isEqualTo(new Money("857.87", "USD"));
+        assertSameBalances(snapshot);
+    }
+
+    @Test
+    public void shouldApplyChangedAndDeletedTransactions() {
+        BookSnapshot snapshot = BookSnapshot.build(mDb, mBookUID);
+        assertThat(snapshot).isNotNull();
+
+        Transaction added = addTransaction("Books", FEBRUARY + 1000, new Money("30.10", "USD"), mExpenses, mChecking);
+        Transaction deleted = addTransaction("Refund", MARCH, new Money("5", "USD"), mChecking, mGroceries);
+        mTransactionsDbAdapter.deleteRecord(deleted.getUID());
+
+        BookSnapshot refreshed = snapshot.refresh(mDb, Collections.singletonList(added.getUID()));
+
+        assertThat(refreshed).isNotNull();
+        assertThat(refreshed.getSplitCount()).isEqualTo(10);
+        assertSameBalances(refreshed);
+        //the old snapshot is not modified
+        assertThat(snapshot.getSplitCount()).isEqualTo(8);
+        assertThat(snapshot.getAccountBalance(mExpenses.getUID(), -1, -1)).isEqualTo(new Money("857.87", "USD"));
+    }
+
+    @Test
+    public void shouldComputeBalancesOfAccountsAndPeriodsAtOnce() {
+        BookSnapshot snapshot = BookSnapshot.build(mDb, mBookUID);
+        assertThat(snapshot).isNotNull();
+
+        List<String> accountUIDs = new ArrayList<>();
+        accountUIDs.add(mGroceries.getUID());
+        accountUIDs.add(mChecking.getUID());
+        accountUIDs.add(mExpenses.getUID());
+        long[] starts = {-1, JANUARY, FEBRUARY, MARCH};
+        long[] ends = {-1, FEBRUARY - 1, MARCH - 1, -1};
+
+        Money[][] balances = snapshot.getAccountsBalances(accountUIDs, starts, ends);
+
+        assertThat(balances).hasSize(3);
+        for (int i = 0; i < accountUIDs.size(); i++) {
+            for (int j = 0; j < starts.length; j++) {
+                assertThat(balances[i][j]).isEqualTo(mAccountsDbAdapter.getAccountsBalance(
+                        Collections.singletonList(accountUIDs.get(i)), starts[j], ends[j]));
+            }
+        }
+        assertThat(balances[0][1]).isEqualTo(new Money("45.37", "USD"));
+    }
+
+    @Test
+    public void partitionedBalancesShouldEqualTheSerialBalances() {
+        for (int i = 0; i < 50; i++) {
+            addTransaction("Food", JANUARY + i * 86400000L, new Money(i + ".13", "USD"), mGroceries, mChecking);
+        }
+        BookSnapshot snapshot = BookSnapshot.build(mDb, mBookUID);
+        assertThat(snapshot).isNotNull();
+
+        List<String> accountUIDs = new ArrayList<>();
+        accountUIDs.add(mGroceries.getUID());
+        accountUIDs.add(mChecking.getUID());
+        accountUIDs.add(mExpenses.getUID());
+        long[] starts = {-1, JANUARY, FEBRUARY, MARCH};
+        long[] ends = {-1, FEBRUARY - 1, MARCH - 1, -1};
+
+        Money[][] serial = snapshot.getAccountsBalances(accountUIDs, starts, ends, 1);
+        for (int partitionCount : new int[]{2, 3, 7, 200}) {
+            Money[][] balances = snapshot.getAccountsBalances(accountUIDs, starts, ends, partitionCount);
+            for (int i = 0; i < serial.length; i++) {
+                assertThat(balances[i]).as("%d partitions", partitionCount).containsExactly(serial[i]);
+            }
+        }
+        assertThat(serial[0][0]).isEqualTo(new Money("1289.37", "USD"));
+    }
+
+    @After
+    public void tearDown() {
+        BookSnapshot.release();
+        mAccountsDbAdapter.deleteAllRecords();
+    }
+}
@@ -23,6 +23,7 @@ import org.gnucash.android.db.adapter.BudgetAmountsDbAdapter;
 import org.gnucash.android.db.adapter.BudgetsDbAdapter;
 import org.gnucash.android.db.adapter.RecurrenceDbAdapter;
 import org.gnucash.android.model.Account;
+import org.gnucash.android.model.BaseModel;
 import org.gnucash.android.model.Budget;
 import org.gnucash.android.model.BudgetAmount;
 import org.gnucash.android.model.Money;
@@ -39,6 +40,7 @@ import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -132,6 +134,24 @@ public class BudgetsDbAdapterTest {
         assertThat(mBudgetsDbAdapter.getAccountBudgets(mSecondAccount.getUID())).hasSize(1);
     }
 
+    @Test
+    public void testGetAccountsBudgets(){
+        mBudgetsDbAdapter.bulkAddRecords(bulkCreateBudgets());
+
+        //more accounts than are bound in one query
+        List<String> accountUIDs = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            accountUIDs.add(BaseModel.generateUID());
+        }
+        accountUIDs.add(mAccount.getUID());
+        accountUIDs.add(mSecondAccount.getUID());
+
+        Map<String, List<Budget>> accountsBudgets = mBudgetsDbAdapter.getAccountsBudgets(accountUIDs);
+        assertThat(accountsBudgets).hasSize(2);
+        assertThat(accountsBudgets.get(mAccount.getUID())).hasSize(2);
+        assertThat(accountsBudgets.get(mSecondAccount.getUID())).hasSize(1);
+    }
+
     @NonNull
     private List<Budget> bulkCreateBudgets() {
         List<Budget> budgets = new ArrayList<>();
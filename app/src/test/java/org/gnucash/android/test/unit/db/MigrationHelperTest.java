@@ -15,8 +15,24 @@
  */
 package org.gnucash.android.test.unit.db;
 
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
 import org.gnucash.android.BuildConfig;
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.DatabaseHelper;
+import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.DatabaseSchema.AccountEntry;
+import org.gnucash.android.db.DatabaseSchema.SplitEntry;
+import org.gnucash.android.db.DatabaseSchema.TransactionEntry;
 import org.gnucash.android.db.MigrationHelper;
+import org.gnucash.android.db.adapter.AdapterRegistry;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.Book;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Transaction;
 import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
 import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
 import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
@@ -25,10 +41,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
+import java.io.File;
 import java.sql.Timestamp;
 import java.util.TimeZone;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
 
 @RunWith(GnucashTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
@@ -61,4 +79,207 @@ public class MigrationHelperTest {
         assertThat(TimestampHelper.getUtcStringFromTimestamp(result))
                 .isEqualTo(unixBillenniumUtcString);
     }
+
+    @Test
+    public void upgradeToVersion21ShouldComputeTheSplitAmounts() {
+        String bookUID = new Book().getUID();
+        DatabaseHelper databaseHelper = new DatabaseHelper(GnuCashApplication.getAppContext(), bookUID);
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        try {
+            AdapterRegistry adapters = AdapterRegistry.of(db);
+            Commodity dollar = adapters.getCommoditiesDbAdapter().getCommodity("USD");
+            Account dollars = new Account("Dollars", dollar);
+            Account yen = new Account("Yen", adapters.getCommoditiesDbAdapter().getCommodity("JPY"));
+            adapters.getAccountsDbAdapter().addRecord(dollars);
+            adapters.getAccountsDbAdapter().addRecord(yen);
+            Transaction transaction = new Transaction("Exchange");
+            transaction.setCommodity(dollar);
+            adapters.getTransactionsDbAdapter().addRecord(transaction);
+            Transaction largeTransaction = new Transaction("Large");
+            largeTransaction.setCommodity(dollar);
+            adapters.getTransactionsDbAdapter().addRecord(largeTransaction);
+            AdapterRegistry.release(db);
+
+            //the splits table and the views of version 20, before the amount columns were added
+            db.execSQL("DROP VIEW trans_extra_info");
+            db.execSQL("DROP VIEW trans_split_acct");
+            db.execSQL("DROP TABLE " + SplitEntry.TABLE_NAME);
+            db.execSQL("CREATE TABLE " + SplitEntry.TABLE_NAME + " ("
+                    + SplitEntry._ID                    + " integer primary key autoincrement, "
+                    + SplitEntry.COLUMN_UID             + " varchar(255) not null UNIQUE, "
+                    + SplitEntry.COLUMN_MEMO            + " text, "
+                    + SplitEntry.COLUMN_TYPE            + " varchar(255) not null, "
+                    + SplitEntry.COLUMN_VALUE_NUM       + " integer not null, "
+                    + SplitEntry.COLUMN_VALUE_DENOM     + " integer not null, "
+                    + SplitEntry.COLUMN_QUANTITY_NUM    + " integer not null, "
+                    + SplitEntry.COLUMN_QUANTITY_DENOM  + " integer not null, "
+                    + SplitEntry.COLUMN_ACCOUNT_UID     + " varchar(255) not null, "
+                    + SplitEntry.COLUMN_TRANSACTION_UID + " varchar(255) not null, "
+                    + SplitEntry.COLUMN_RECONCILE_STATE + " varchar(1) not null default 'n', "
+                    + SplitEntry.COLUMN_RECONCILE_DATE  + " timestamp not null default current_timestamp, "
+                    + SplitEntry.COLUMN_CREATED_AT      + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + SplitEntry.COLUMN_MODIFIED_AT     + " TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            insertVersion20Split(db, "exact", "DEBIT", 1234, 100, 1234, 100, dollars, transaction);
+            insertVersion20Split(db, "finer", "CREDIT", 12340, 1000, 12340, 1000, dollars, transaction);
+            insertVersion20Split(db, "half", "DEBIT", 5, 8, 2011, 20, yen, transaction);
+            insertVersion20Split(db, "third", "CREDIT", 1, 3, 1, 2, yen, transaction);
+            insertVersion20Split(db, "invalid", "DEBIT", 7, 0, 3, 0, dollars, transaction);
+            //beyond the 53 bits of precision of a double
+            insertVersion20Split(db, "large", "DEBIT", 9007199254740993L, 1000, 9007199254740993L, 1000, dollars, largeTransaction);
+            insertVersion20Split(db, "overflow", "CREDIT", Long.MAX_VALUE, 1, 1, 1, dollars, largeTransaction);
+
+            databaseHelper.onUpgrade(db, 20, 21);
+
+            //values in cents and quantities in cents or yen, rounded half away from zero
+            assertSplitAmounts(db, "exact", 1234, 1234);
+            assertSplitAmounts(db, "finer", -1234, -1234);
+            assertSplitAmounts(db, "half", 63, 101);
+            assertSplitAmounts(db, "third", -33, -1);
+            assertSplitAmounts(db, "invalid", 0, 0);
+            assertSplitAmounts(db, "large", 900719925474099L, 900719925474099L);
+            //amounts out of range are set to 0
+            assertSplitAmounts(db, "overflow", 0, 0);
+
+            Cursor cursor = db.rawQuery("SELECT splits_value_amount, splits_quantity_amount"
+                    + " FROM trans_split_acct WHERE splits_uid = ?", new String[]{"half"});
+            try {
+                assertThat(cursor.moveToFirst()).isTrue();
+                assertThat(cursor.getLong(0)).isEqualTo(63);
+                assertThat(cursor.getLong(1)).isEqualTo(101);
+            } finally {
+                cursor.close();
+            }
+            cursor = db.rawQuery("SELECT trans_split_count, trans_acct_balance FROM trans_extra_info"
+                    + " WHERE trans_acct_t_uid = ?", new String[]{transaction.getUID()});
+            try {
+                assertThat(cursor.getCount()).isEqualTo(1);
+                assertThat(cursor.moveToFirst()).isTrue();
+                assertThat(cursor.getLong(0)).isEqualTo(5);
+                assertThat(cursor.getDouble(1)).isEqualTo(0.30, offset(1e-9)); //1234 - 1234 + 63 - 33 + 0 cents
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            AdapterRegistry.release(db);
+            databaseHelper.close();
+            GnuCashApplication.getAppContext().deleteDatabase(bookUID);
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion7ShouldKeepTheSplits() {
+        Context context = GnuCashApplication.getAppContext();
+        String bookUID = new Book().getUID();
+        File databaseFile = context.getDatabasePath(bookUID);
+        databaseFile.getParentFile().mkdirs();
+
+        //version 7 had no commodities yet, the accounts and transactions were later rebuilt from backup tables
+        SQLiteDatabase oldDb = SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+        try {
+            oldDb.execSQL("CREATE TABLE " + AccountEntry.TABLE_NAME + " ("
+                    + AccountEntry._ID                      + " integer primary key autoincrement, "
+                    + AccountEntry.COLUMN_UID               + " varchar(255) not null UNIQUE, "
+                    + AccountEntry.COLUMN_NAME              + " varchar(255) not null, "
+                    + AccountEntry.COLUMN_TYPE              + " varchar(255) not null, "
+                    + AccountEntry.COLUMN_CURRENCY          + " varchar(255) not null, "
+                    + AccountEntry.COLUMN_COLOR_CODE        + " varchar(255), "
+                    + AccountEntry.COLUMN_FAVORITE          + " tinyint default 0, "
+                    + AccountEntry.COLUMN_FULL_NAME         + " varchar(255), "
+                    + AccountEntry.COLUMN_PLACEHOLDER       + " tinyint default 0, "
+                    + AccountEntry.COLUMN_PARENT_ACCOUNT_UID + " varchar(255), "
+                    + AccountEntry.COLUMN_DEFAULT_TRANSFER_ACCOUNT_UID + " varchar(255))");
+            oldDb.execSQL("CREATE TABLE " + TransactionEntry.TABLE_NAME + " ("
+                    + TransactionEntry._ID                  + " integer primary key autoincrement, "
+                    + TransactionEntry.COLUMN_UID           + " varchar(255) not null UNIQUE, "
+                    + TransactionEntry.COLUMN_DESCRIPTION   + " varchar(255), "
+                    + TransactionEntry.COLUMN_NOTES         + " text, "
+                    + TransactionEntry.COLUMN_TIMESTAMP     + " integer not null, "
+                    + TransactionEntry.COLUMN_EXPORTED      + " tinyint default 0, "
+                    + TransactionEntry.COLUMN_CURRENCY      + " varchar(255) not null, "
+                    + "recurrence_period integer default 0)");
+            oldDb.execSQL("CREATE TABLE " + SplitEntry.TABLE_NAME + " ("
+                    + SplitEntry._ID                        + " integer primary key autoincrement, "
+                    + SplitEntry.COLUMN_UID                 + " varchar(255) not null UNIQUE, "
+                    + SplitEntry.COLUMN_MEMO                + " text, "
+                    + SplitEntry.COLUMN_TYPE                + " varchar(255) not null, "
+                    + "amount varchar(255) not null, "
+                    + SplitEntry.COLUMN_ACCOUNT_UID         + " varchar(255) not null, "
+                    + SplitEntry.COLUMN_TRANSACTION_UID     + " varchar(255) not null, "
+                    + "FOREIGN KEY (" + SplitEntry.COLUMN_ACCOUNT_UID + ") REFERENCES " + AccountEntry.TABLE_NAME + " (" + AccountEntry.COLUMN_UID + ") ON DELETE CASCADE, "
+                    + "FOREIGN KEY (" + SplitEntry.COLUMN_TRANSACTION_UID + ") REFERENCES " + TransactionEntry.TABLE_NAME + " (" + TransactionEntry.COLUMN_UID + ") ON DELETE CASCADE)");
+            oldDb.execSQL("INSERT INTO " + AccountEntry.TABLE_NAME + " ("
+                    + AccountEntry.COLUMN_UID + ", " + AccountEntry.COLUMN_NAME + ", " + AccountEntry.COLUMN_TYPE + ", "
+                    + AccountEntry.COLUMN_CURRENCY + ", " + AccountEntry.COLUMN_FULL_NAME + ") VALUES "
+                    + "('cash', 'Cash', 'CASH', 'USD', 'Cash'), ('food', 'Food', 'EXPENSE', 'USD', 'Food')");
+            oldDb.execSQL("INSERT INTO " + TransactionEntry.TABLE_NAME + " ("
+                    + TransactionEntry.COLUMN_UID + ", " + TransactionEntry.COLUMN_DESCRIPTION + ", "
+                    + TransactionEntry.COLUMN_TIMESTAMP + ", " + TransactionEntry.COLUMN_CURRENCY + ") VALUES "
+                    + "('lunch', 'Lunch', 1400000000000, 'USD')");
+            oldDb.execSQL("INSERT INTO " + SplitEntry.TABLE_NAME + " ("
+                    + SplitEntry.COLUMN_UID + ", " + SplitEntry.COLUMN_TYPE + ", amount, "
+                    + SplitEntry.COLUMN_ACCOUNT_UID + ", " + SplitEntry.COLUMN_TRANSACTION_UID + ") VALUES "
+                    + "('paid', 'CREDIT', '12.5', 'cash', 'lunch'), ('eaten', 'DEBIT', '12.5', 'food', 'lunch')");
+            oldDb.setVersion(7);
+        } finally {
+            oldDb.close();
+        }
+
+        DatabaseHelper databaseHelper = new DatabaseHelper(context, bookUID);
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        try {
+            assertThat(db.getVersion()).isEqualTo(DatabaseSchema.DATABASE_VERSION);
+            assertSplitAmounts(db, "paid", -1250, -1250);
+            assertSplitAmounts(db, "eaten", 1250, 1250);
+
+            //the foreign keys are enforced once the upgrade is done, and still reference the rebuilt tables
+            Cursor cursor = db.rawQuery("PRAGMA foreign_keys", null);
+            try {
+                assertThat(cursor.moveToFirst()).isTrue();
+                assertThat(cursor.getInt(0)).isEqualTo(1);
+            } finally {
+                cursor.close();
+            }
+            cursor = db.rawQuery("PRAGMA foreign_key_list(" + SplitEntry.TABLE_NAME + ")", null);
+            try {
+                while (cursor.moveToNext()) {
+                    assertThat(cursor.getString(cursor.getColumnIndexOrThrow("table")))
+                            .isIn(AccountEntry.TABLE_NAME, TransactionEntry.TABLE_NAME);
+                }
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            AdapterRegistry.release(db);
+            databaseHelper.close();
+            context.deleteDatabase(bookUID);
+        }
+    }
+
+    private static void insertVersion20Split(SQLiteDatabase db, String uid, String type,
+                                             long valueNum, long valueDenom, long quantityNum, long quantityDenom,
+                                             Account account, Transaction transaction) {
+        ContentValues values = new ContentValues();
+        values.put(SplitEntry.COLUMN_UID, uid);
+        values.put(SplitEntry.COLUMN_TYPE, type);
+        values.put(SplitEntry.COLUMN_VALUE_NUM, valueNum);
+        values.put(SplitEntry.COLUMN_VALUE_DENOM, valueDenom);
+        values.put(SplitEntry.COLUMN_QUANTITY_NUM, quantityNum);
+        values.put(SplitEntry.COLUMN_QUANTITY_DENOM, quantityDenom);
+        values.put(SplitEntry.COLUMN_ACCOUNT_UID, account.getUID());
+        values.put(SplitEntry.COLUMN_TRANSACTION_UID, transaction.getUID());
+        db.insertOrThrow(SplitEntry.TABLE_NAME, null, values);
+    }
+
+    private static void assertSplitAmounts(SQLiteDatabase db, String uid, long valueAmount, long quantityAmount) {
+        Cursor cursor = db.query(SplitEntry.TABLE_NAME,
+                new String[]{SplitEntry.COLUMN_VALUE_AMOUNT, SplitEntry.COLUMN_QUANTITY_AMOUNT},
+                SplitEntry.COLUMN_UID + " = ?", new String[]{uid}, null, null, null);
+        try {
+            assertThat(cursor.moveToFirst()).isTrue();
+            assertThat(cursor.getLong(0)).as("value amount of %s", uid).isEqualTo(valueAmount);
+            assertThat(cursor.getLong(1)).as("quantity amount of %s", uid).isEqualTo(quantityAmount);
+        } finally {
+            cursor.close();
+        }
+    }
 }
\ No newline at end of file
@@ -15,17 +15,25 @@
  */
 package org.gnucash.android.test.unit.db;
 
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 
 import org.gnucash.android.BuildConfig;
+import org.gnucash.android.app.GnuCashApplication;
+import org.gnucash.android.db.BookSnapshot;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
 import org.gnucash.android.db.DatabaseSchema;
+import org.gnucash.android.db.adapter.BooksDbAdapter;
+import org.gnucash.android.db.adapter.DatabaseAdapter;
 import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
+import org.gnucash.android.model.Commodity;
 import org.gnucash.android.model.Money;
 import org.gnucash.android.model.Split;
 import org.gnucash.android.model.Transaction;
+import org.gnucash.android.model.TransactionType;
 import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
 import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
 import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
@@ -35,7 +43,13 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -120,8 +134,197 @@ public class SplitsDbAdapterTest {
         assertThat(Boolean.parseBoolean(isExported)).isFalse();
     }
 
+    /**
+     * Reads may use another connection than writes, so the views used by the queries must not be temporary
+     */
+    @Test
+    public void viewsShouldBeAvailableToOtherConnections(){
+        Transaction transaction = new Transaction("");
+        Split split = new Split(new Money("4.20", "USD"), mAccount.getUID());
+        transaction.addSplit(split);
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        SQLiteDatabase readDb = SQLiteDatabase.openDatabase(GnuCashApplication.getActiveDb().getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            Cursor cursor = readDb.rawQuery("SELECT trans_split_count FROM trans_extra_info WHERE trans_acct_t_uid = ?",
+                    new String[]{transaction.getUID()});
+            try {
+                assertThat(cursor.moveToFirst()).isTrue();
+                assertThat(cursor.getInt(0)).isEqualTo(1);
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            readDb.close();
+        }
+    }
+
+    /**
+     * The amount columns hold the signed amounts in units of the smallest fraction of their commodities
+     */
+    @Test
+    public void shouldStoreSignedAmountsInUnitsOfTheSmallestFraction(){
+        Account yenAccount = new Account("Yen account", Commodity.getInstance("JPY"));
+        mAccountsDbAdapter.addRecord(yenAccount);
+
+        Transaction transaction = new Transaction("");
+        transaction.setCommodity(Commodity.getInstance("USD"));
+        Split debit = new Split(new Money("12.34", "USD"), mAccount.getUID());
+        debit.setType(TransactionType.DEBIT);
+        transaction.addSplit(debit);
+        Split credit = new Split(new Money("12.34", "USD"), new Money("1500", "JPY"), yenAccount.getUID());
+        credit.setType(TransactionType.CREDIT);
+        transaction.addSplit(credit);
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        Cursor cursor = GnuCashApplication.getActiveDb().rawQuery("SELECT "
+                + DatabaseSchema.SplitEntry.COLUMN_VALUE_AMOUNT + ", " + DatabaseSchema.SplitEntry.COLUMN_QUANTITY_AMOUNT
+                + " FROM " + DatabaseSchema.SplitEntry.TABLE_NAME + " WHERE " + DatabaseSchema.SplitEntry.COLUMN_UID + " IN (?, ?)"
+                + " ORDER BY " + DatabaseSchema.SplitEntry.COLUMN_VALUE_AMOUNT + " DESC",
+                new String[]{debit.getUID(), credit.getUID()});
+        try {
+            assertThat(cursor.moveToNext()).isTrue();
+            assertThat(cursor.getLong(0)).isEqualTo(1234);
+            assertThat(cursor.getLong(1)).isEqualTo(1234);
+            assertThat(cursor.moveToNext()).isTrue();
+            assertThat(cursor.getLong(0)).isEqualTo(-1234);
+            assertThat(cursor.getLong(1)).isEqualTo(-1500);
+        } finally {
+            cursor.close();
+        }
+
+        assertThat(mSplitsDbAdapter.computeSplitBalance(Collections.singletonList(yenAccount.getUID()), "JPY", true))
+                .isEqualTo(new Money("-1500", "JPY"));
+    }
+
+    /**
+     * Balances must be the exact sums of the quantities, rounded only once to the smallest fraction
+     * of the account commodity, even when the quantities of the splits of an account have different denominators
+     */
+    @Test
+    public void balancesShouldBeExactSumsOfQuantitiesWithMixedDenominators(){
+        for (long seed : new long[]{1, 42, 20170101}) {
+            assertBalancesOfRandomSplits(seed);
+        }
+    }
+
+    @Test
+    public void quantitiesFinerThanTheAccountFractionShouldBeAddedUpExactly(){
+        Account dollarAccount = new Account("USD account", Commodity.getInstance("USD"));
+        Account yenAccount = new Account("JPY account", Commodity.getInstance("JPY"));
+        mAccountsDbAdapter.addRecord(dollarAccount);
+        mAccountsDbAdapter.addRecord(yenAccount);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            Transaction transaction = new Transaction("Transaction " + t);
+            transaction.setCommodity(Commodity.getInstance("USD"));
+            Money value = new Money("1", "USD");
+            Split debit = new Split(value, new Money("0.125", "KWD"), dollarAccount.getUID());
+            debit.setType(TransactionType.DEBIT);
+            transaction.addSplit(debit);
+            Split credit = new Split(value, new Money("0.50", "USD"), yenAccount.getUID());
+            credit.setType(TransactionType.CREDIT);
+            transaction.addSplit(credit);
+            transactions.add(transaction);
+        }
+        mTransactionsDbAdapter.addRecords(transactions, DatabaseAdapter.UpdateMethod.insert);
+
+        //rounding each split would give 0.26 and -2 half up, or 0.24 and 0 half even
+        Money dollarBalance = new Money("0.25", "USD");
+        Money yenBalance = new Money("-1", "JPY");
+        assertThat(mSplitsDbAdapter.computeSplitBalance(Collections.singletonList(dollarAccount.getUID()), "USD", true))
+                .isEqualTo(dollarBalance);
+        assertThat(mSplitsDbAdapter.computeSplitBalance(Collections.singletonList(yenAccount.getUID()), "JPY", true))
+                .isEqualTo(yenBalance);
+        BookSnapshot snapshot = BookSnapshot.build(GnuCashApplication.getActiveDb(),
+                BooksDbAdapter.getInstance().getActiveBookUID());
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getAccountBalance(dollarAccount.getUID(), -1, -1)).isEqualTo(dollarBalance);
+        assertThat(snapshot.getAccountBalance(yenAccount.getUID(), -1, -1)).isEqualTo(yenBalance);
+        Map<String, Money> sums = mSplitsDbAdapter.computeSplitSumsPerAccount(-1, -1);
+        assertThat(sums.get(dollarAccount.getUID())).isEqualTo(dollarBalance);
+        assertThat(sums.get(yenAccount.getUID())).isEqualTo(yenBalance);
+    }
+
+    /**
+     * Writes random transactions between accounts in currencies with different smallest fractions,
+     * with quantities in any of the currencies, and checks the balances of the accounts
+     * @param seed Seed of the random transactions
+     */
+    private void assertBalancesOfRandomSplits(long seed){
+        Random random = new Random(seed);
+        String[] currencyCodes = {"JPY", "USD", "KWD"}; //smallest fractions 1, 100 and 1000
+        Account[] accounts = new Account[currencyCodes.length];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Account(currencyCodes[i] + " account", Commodity.getInstance(currencyCodes[i]));
+            mAccountsDbAdapter.addRecord(accounts[i]);
+        }
+
+        final long start = 1483228800000L; //2017-01-01
+        final long year = 365L * 24 * 60 * 60 * 1000;
+        long rangeStart = start + (long) (random.nextDouble() * year);
+        long rangeEnd = rangeStart + (long) (random.nextDouble() * (start + year - rangeStart));
+        BigDecimal[] totals = new BigDecimal[accounts.length];
+        BigDecimal[] rangeTotals = new BigDecimal[accounts.length];
+        Arrays.fill(totals, BigDecimal.ZERO);
+        Arrays.fill(rangeTotals, BigDecimal.ZERO);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int t = 0; t < 200; t++) {
+            Transaction transaction = new Transaction("Transaction " + t);
+            transaction.setCommodity(Commodity.getInstance("USD"));
+            transaction.setTime(start + (long) (random.nextDouble() * year));
+            Money value = new Money(BigDecimal.valueOf(1 + random.nextInt(1000000), 2), Commodity.getInstance("USD"));
+            int debitAccount = random.nextInt(accounts.length);
+            int creditAccount = (debitAccount + 1 + random.nextInt(accounts.length - 1)) % accounts.length;
+            for (TransactionType type : TransactionType.values()) {
+                int account = type == TransactionType.DEBIT ? debitAccount : creditAccount;
+                //any commodity, including those with more fraction digits than that of the account
+                Commodity quantityCommodity = Commodity.getInstance(currencyCodes[random.nextInt(currencyCodes.length)]);
+                BigDecimal quantity = BigDecimal.valueOf(1 + random.nextInt(10000000),
+                        quantityCommodity.getSmallestFractionDigits());
+                Split split = new Split(value, new Money(quantity, quantityCommodity), accounts[account].getUID());
+                split.setType(type);
+                transaction.addSplit(split);
+
+                BigDecimal signedQuantity = type == TransactionType.DEBIT ? quantity : quantity.negate();
+                totals[account] = totals[account].add(signedQuantity);
+                if (transaction.getTimeMillis() >= rangeStart && transaction.getTimeMillis() <= rangeEnd)
+                    rangeTotals[account] = rangeTotals[account].add(signedQuantity);
+            }
+            transactions.add(transaction);
+        }
+        mTransactionsDbAdapter.addRecords(transactions, DatabaseAdapter.UpdateMethod.insert);
+
+        BookSnapshot snapshot = BookSnapshot.build(GnuCashApplication.getActiveDb(),
+                BooksDbAdapter.getInstance().getActiveBookUID());
+        assertThat(snapshot).isNotNull();
+        Map<String, Money> rangeSums = mSplitsDbAdapter.computeSplitSumsPerAccount(rangeStart, rangeEnd);
+        for (int i = 0; i < accounts.length; i++) {
+            Commodity commodity = Commodity.getInstance(currencyCodes[i]);
+            List<String> accountUIDs = Collections.singletonList(accounts[i].getUID());
+            Money total = new Money(totals[i], commodity);
+            Money rangeTotal = new Money(rangeTotals[i], commodity);
+            String description = "account " + currencyCodes[i] + " with seed " + seed;
+
+            assertThat(mSplitsDbAdapter.computeSplitBalance(accountUIDs, currencyCodes[i], true))
+                    .as(description).isEqualTo(total);
+            assertThat(mSplitsDbAdapter.computeSplitBalance(accountUIDs, currencyCodes[i], true, rangeStart, rangeEnd))
+                    .as(description).isEqualTo(rangeTotal);
+            Money rangeSum = rangeSums.get(accounts[i].getUID());
+            assertThat(rangeSum == null ? Money.createZeroInstance(currencyCodes[i]) : rangeSum)
+                    .as(description).isEqualTo(rangeTotal);
+            assertThat(snapshot.getAccountBalance(accounts[i].getUID(), -1, -1)).as(description).isEqualTo(total);
+            assertThat(snapshot.getAccountBalance(accounts[i].getUID(), rangeStart, rangeEnd))
+                    .as(description).isEqualTo(rangeTotal);
+        }
+    }
+
     @After
     public void tearDown(){
+        BookSnapshot.release();
         mAccountsDbAdapter.deleteAllRecords();
     }
 }
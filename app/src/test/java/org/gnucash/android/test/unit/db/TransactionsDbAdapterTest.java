@@ -15,10 +15,18 @@
  */
 package org.gnucash.android.test.unit.db;
 
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
 import org.assertj.core.data.Index;
 import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.DatabaseChange;
+import org.gnucash.android.db.DatabaseChangeNotifier;
+import org.gnucash.android.db.DatabaseSchema;
 import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.DatabaseAdapter;
 import org.gnucash.android.db.adapter.SplitsDbAdapter;
+import org.gnucash.android.db.adapter.TransactionSearchFilter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.Commodity;
@@ -33,8 +41,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
 
@@ -145,6 +155,365 @@ public class TransactionsDbAdapterTest {
 		assertThat(savedBalance.getCommodity()).isEqualTo(secondSplitAmount.getCommodity());
 	}
 
+	@Test
+	public void shouldFetchTransactionAmountsWithTransactions(){
+		Transaction simple = new Transaction("Simple");
+		simple.setTime(System.currentTimeMillis());
+		Split split = new Split(new Money("12.34", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		simple.addSplit(split);
+		simple.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(simple);
+
+		Transaction multi = new Transaction("Multi");
+		multi.setTime(System.currentTimeMillis() - 10000);
+		multi.addSplit(new Split(new Money("4.99", DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID()));
+		multi.addSplit(new Split(new Money("3.50", DEFAULT_CURRENCY.getCurrencyCode()), bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(multi);
+
+		Cursor cursor = mTransactionsDbAdapter.fetchTransactionsWithAmountsForAccount(alphaAccount.getUID());
+		try {
+			assertThat(cursor.getCount()).isEqualTo(2);
+			String[] uids = {simple.getUID(), multi.getUID()};
+			for (String uid : uids) {
+				assertThat(cursor.moveToNext()).isTrue();
+				assertThat(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID))).isEqualTo(uid);
+				Money balance = mTransactionsDbAdapter.getBalance(uid, alphaAccount.getUID());
+				Money amount = new Money(
+						cursor.getLong(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_NUM)),
+						cursor.getLong(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_AMOUNT_DENOM)),
+						cursor.getString(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_ACCOUNT_CURRENCY)));
+				assertThat(amount).isEqualTo(balance);
+			}
+
+			cursor.moveToFirst();
+			assertThat(cursor.getInt(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SPLIT_COUNT))).isEqualTo(2);
+			assertThat(cursor.getString(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_COUNTERPART_FULL_NAME)))
+					.isEqualTo(mAccountsDbAdapter.getAccountFullName(bravoAccount.getUID()));
+
+			cursor.moveToLast(); //the multi split transaction was balanced on save
+			assertThat(cursor.getInt(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SPLIT_COUNT))).isEqualTo(3);
+			assertThat(cursor.isNull(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_COUNTERPART_FULL_NAME))).isTrue();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	@Test
+	public void shouldFetchTransactionsPageByPage(){
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < 7; i++) {
+			Transaction transaction = new Transaction("Transaction " + i);
+			transaction.setTime(time - (i / 2) * 1000); //pairs of transactions with the same time
+			Split split = new Split(new Money(String.valueOf(i + 1), DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+			transaction.addSplit(split);
+			transaction.addSplit(split.createPair(bravoAccount.getUID()));
+			mTransactionsDbAdapter.addRecord(transaction);
+		}
+
+		List<String> allUIDs = fetchAllTransactionUIDs(alphaAccount.getUID());
+		assertThat(allUIDs).hasSize(7);
+		assertThat(fetchTransactionUIDsPageByPage(alphaAccount.getUID(), 3, 3))
+				.containsExactly(allUIDs.toArray(new String[allUIDs.size()]));
+	}
+
+	@Test
+	public void shouldFetchTransactionsOfSparseAccountsPageByPage(){
+		Account charlieAccount = new Account("Charlie");
+		mAccountsDbAdapter.addRecord(charlieAccount);
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < 60; i++) {
+			Transaction transaction = new Transaction("Transaction " + i);
+			transaction.setTime(time - (i / 2) * 1000);
+			Split split = new Split(new Money(String.valueOf(i + 1), DEFAULT_CURRENCY.getCurrencyCode()),
+					i % 10 == 0 ? alphaAccount.getUID() : charlieAccount.getUID());
+			transaction.addSplit(split);
+			transaction.addSplit(split.createPair(bravoAccount.getUID()));
+			mTransactionsDbAdapter.addRecord(transaction);
+		}
+
+		List<String> allUIDs = fetchAllTransactionUIDs(alphaAccount.getUID());
+		assertThat(allUIDs).hasSize(6);
+		assertThat(fetchTransactionUIDsPageByPage(alphaAccount.getUID(), 4, 2))
+				.containsExactly(allUIDs.toArray(new String[allUIDs.size()]));
+	}
+
+	private List<String> fetchAllTransactionUIDs(String accountUID){
+		List<String> transactionUIDs = new ArrayList<>();
+		Cursor cursor = mTransactionsDbAdapter.fetchTransactionsWithAmountsForAccount(accountUID);
+		try {
+			while (cursor.moveToNext()) {
+				transactionUIDs.add(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID)));
+			}
+		} finally {
+			cursor.close();
+		}
+		return transactionUIDs;
+	}
+
+	private List<String> fetchTransactionUIDsPageByPage(String accountUID, int pageSize, int expectedPageCount){
+		List<String> pagedUIDs = new ArrayList<>();
+		long lastTimestamp = 0;
+		String lastUID = null;
+		int pageCount = 0;
+		int rowCount;
+		do {
+			Cursor cursor = mTransactionsDbAdapter.fetchTransactionPageForAccount(accountUID, lastTimestamp, lastUID, pageSize);
+			rowCount = cursor.getCount();
+			while (cursor.moveToNext()) {
+				lastTimestamp = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_TIMESTAMP));
+				lastUID = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID));
+				pagedUIDs.add(lastUID);
+			}
+			cursor.close();
+			pageCount++;
+		} while (rowCount == pageSize);
+
+		assertThat(pageCount).isEqualTo(expectedPageCount);
+		return pagedUIDs;
+	}
+
+	@Test
+	public void shouldPublishOneChangeForTheAccountsOfATransaction(){
+		Account charlieAccount = new Account("Charlie");
+		mAccountsDbAdapter.addRecord(charlieAccount);
+
+		final List<DatabaseChange> changes = new ArrayList<>();
+		DatabaseChange.Listener listener = new DatabaseChange.Listener() {
+			@Override
+			public void onDatabaseChanged(@NonNull DatabaseChange change) {
+				changes.add(change);
+			}
+		};
+		Transaction transaction = new Transaction("Notified");
+		Split split = new Split(new Money(BigDecimal.TEN, DEFAULT_CURRENCY), alphaAccount.getUID());
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+
+		ShadowLooper.pauseMainLooper();
+		DatabaseChangeNotifier.registerListener(listener);
+		try {
+			mTransactionsDbAdapter.addRecord(transaction);
+			ShadowLooper.runUiThreadTasks();
+		} finally {
+			DatabaseChangeNotifier.unregisterListener(listener);
+			ShadowLooper.unPauseMainLooper();
+		}
+
+		assertThat(changes).hasSize(1);
+		DatabaseChange change = changes.get(0);
+		assertThat(change.affectsTable(DatabaseSchema.TransactionEntry.TABLE_NAME)).isTrue();
+		assertThat(change.affectsAllAccounts()).isFalse();
+		assertThat(change.getAccountUIDs()).containsOnly(alphaAccount.getUID(), bravoAccount.getUID());
+		assertThat(change.affectsAccount(charlieAccount.getUID())).isFalse();
+		assertThat(change.getTransactionUIDs()).contains(transaction.getUID());
+	}
+
+	@Test
+	public void shouldOnlyPublishChangesOfCommittedTransactions(){
+		final List<DatabaseChange> changes = new ArrayList<>();
+		DatabaseChange.Listener listener = new DatabaseChange.Listener() {
+			@Override
+			public void onDatabaseChanged(@NonNull DatabaseChange change) {
+				changes.add(change);
+			}
+		};
+		Transaction committed = new Transaction("Committed");
+		Split split = new Split(new Money(BigDecimal.TEN, DEFAULT_CURRENCY), alphaAccount.getUID());
+		committed.addSplit(split);
+		committed.addSplit(split.createPair(bravoAccount.getUID()));
+		Transaction rolledBack = new Transaction("Rolled back");
+		rolledBack.addSplit(new Split(new Money(BigDecimal.ONE, DEFAULT_CURRENCY), alphaAccount.getUID()));
+
+		ShadowLooper.pauseMainLooper();
+		DatabaseChangeNotifier.registerListener(listener);
+		try {
+			mTransactionsDbAdapter.beginTransaction();
+			try {
+				mTransactionsDbAdapter.addRecord(committed);
+				ShadowLooper.runUiThreadTasks();
+				assertThat(changes).isEmpty();
+				mTransactionsDbAdapter.setTransactionSuccessful();
+			} finally {
+				mTransactionsDbAdapter.endTransaction();
+			}
+			ShadowLooper.runUiThreadTasks();
+			assertThat(changes).hasSize(1);
+			assertThat(changes.get(0).getTransactionUIDs()).contains(committed.getUID());
+
+			mTransactionsDbAdapter.beginTransaction();
+			try {
+				mTransactionsDbAdapter.addRecord(rolledBack);
+			} finally {
+				mTransactionsDbAdapter.endTransaction();
+			}
+			ShadowLooper.runUiThreadTasks();
+		} finally {
+			DatabaseChangeNotifier.unregisterListener(listener);
+			ShadowLooper.unPauseMainLooper();
+		}
+
+		assertThat(changes).hasSize(1);
+		assertThat(mTransactionsDbAdapter.getRecordsCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldWriteBatchesOfTransactions(){
+		Transaction updated = new Transaction("Updated");
+		Split removedSplit = new Split(new Money(BigDecimal.TEN, DEFAULT_CURRENCY), alphaAccount.getUID());
+		updated.addSplit(removedSplit);
+		updated.addSplit(removedSplit.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(updated);
+		assertThat(mSplitsDbAdapter.getSplitsForTransaction(updated.getUID())).hasSize(2);
+
+		List<Transaction> transactions = new ArrayList<>();
+		updated.getSplits().remove(removedSplit);
+		transactions.add(updated);
+		Commodity euro = Commodity.getInstance("EUR");
+		for (int i = 0; i < 3; i++) {
+			Transaction transaction = new Transaction("Unbalanced " + i);
+			transaction.setCommodity(i == 2 ? euro : DEFAULT_CURRENCY);
+			transaction.addSplit(new Split(new Money(BigDecimal.ONE, transaction.getCommodity()), alphaAccount.getUID()));
+			transactions.add(transaction);
+		}
+
+		assertThat(mTransactionsDbAdapter.addRecords(transactions, DatabaseAdapter.UpdateMethod.replace)).isEqualTo(4);
+
+		//the removed split was deleted and an imbalance split was added instead
+		List<Split> splits = mSplitsDbAdapter.getSplitsForTransaction(updated.getUID());
+		assertThat(splits).hasSize(2);
+		assertThat(splits).doesNotContain(removedSplit);
+		String imbalanceAccountUID = mAccountsDbAdapter.getImbalanceAccountUID(DEFAULT_CURRENCY);
+		assertThat(mSplitsDbAdapter.getSplitsForTransactionInAccount(
+				transactions.get(1).getUID(), imbalanceAccountUID)).hasSize(1);
+		assertThat(mSplitsDbAdapter.getSplitsForTransactionInAccount(
+				transactions.get(2).getUID(), imbalanceAccountUID)).hasSize(1);
+		assertThat(mSplitsDbAdapter.getSplitsForTransactionInAccount(
+				transactions.get(3).getUID(), mAccountsDbAdapter.getImbalanceAccountUID(euro))).hasSize(1);
+		assertThat(mTransactionsDbAdapter.getRecordsCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldRankSuggestionsByFrequencyAndRecency(){
+		long day = 24L * 60 * 60 * 1000;
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 4; i++) {
+			addSuggestionTransaction("Coffee shop", alphaAccount, now - 30 * day - i);
+		}
+		Transaction beans = addSuggestionTransaction("Coffee beans", alphaAccount, now);
+		addSuggestionTransaction("Cafe", alphaAccount, now);
+		Account charlieAccount = new Account("Charlie");
+		mAccountsDbAdapter.addRecord(charlieAccount);
+		addSuggestionTransaction("Iced coffee", charlieAccount, now);
+
+		assertThat(getSuggestions("cof")).containsExactly("Coffee shop", "Coffee beans");
+		assertThat(getSuggestions("coffee sh")).containsExactly("Coffee shop");
+		assertThat(getSuggestions("tea")).isEmpty();
+		//too short to be useful
+		assertThat(getSuggestions("c")).isEmpty();
+		assertThat(getSuggestions(" c ")).isEmpty();
+		assertThat(getSuggestions("")).isEmpty();
+		assertThat(getSuggestions("ca")).containsExactly("Cafe");
+
+		mTransactionsDbAdapter.updateRecord(beans.getUID(), DatabaseSchema.TransactionEntry.COLUMN_DESCRIPTION, "Tea");
+		assertThat(getSuggestions("cof")).containsExactly("Coffee shop");
+		assertThat(getSuggestions("tea")).containsExactly("Tea");
+
+		mTransactionsDbAdapter.deleteRecord(beans.getUID());
+		assertThat(getSuggestions("tea")).isEmpty();
+	}
+
+	private Transaction addSuggestionTransaction(String description, Account account, long time){
+		Transaction transaction = new Transaction(description);
+		transaction.setTime(time);
+		Split split = new Split(new Money(BigDecimal.TEN, DEFAULT_CURRENCY), account.getUID());
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(transaction);
+		return transaction;
+	}
+
+	private List<String> getSuggestions(String prefix){
+		List<String> descriptions = new ArrayList<>();
+		Cursor cursor = mTransactionsDbAdapter.fetchTransactionSuggestions(prefix, alphaAccount.getUID());
+		try {
+			while (cursor.moveToNext()) {
+				descriptions.add(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_DESCRIPTION)));
+			}
+		} finally {
+			cursor.close();
+		}
+		return descriptions;
+	}
+
+	@Test
+	public void shouldSearchDescriptionsNotesMemosAndAmounts(){
+		long time = System.currentTimeMillis();
+		Transaction groceries = addSearchTransaction("Weekly groceries", null, "Apples and pears", "12.50", time);
+		Transaction rent = addSearchTransaction("Rent", "Paid late", null, "950", time - 1000);
+		Transaction lunch = addSearchTransaction("Lunch", null, null, "12.05", time - 2000);
+
+		assertThat(search("groc", new TransactionSearchFilter())).containsExactly(groceries.getUID());
+		assertThat(search("late", new TransactionSearchFilter())).containsExactly(rent.getUID());
+		assertThat(search("pear", new TransactionSearchFilter())).containsExactly(groceries.getUID());
+		assertThat(search("12.5", new TransactionSearchFilter())).containsExactly(groceries.getUID());
+		assertThat(search("950.00", new TransactionSearchFilter())).containsExactly(rent.getUID());
+		assertThat(search("12", new TransactionSearchFilter())).isEmpty();
+		assertThat(search("weekly 12.50", new TransactionSearchFilter())).containsExactly(groceries.getUID());
+		assertThat(search("weekly rent", new TransactionSearchFilter())).isEmpty();
+		assertThat(search("", new TransactionSearchFilter()))
+				.containsExactly(groceries.getUID(), rent.getUID(), lunch.getUID());
+		assertThat(search("", new TransactionSearchFilter().setTimePeriod(time - 1500, -1)))
+				.containsExactly(groceries.getUID(), rent.getUID());
+
+		Account charlieAccount = new Account("Charlie");
+		mAccountsDbAdapter.addRecord(charlieAccount);
+		assertThat(search("rent", new TransactionSearchFilter().setAccountUID(charlieAccount.getUID()))).isEmpty();
+
+		lunch.getSplits().get(0).setMemo("Pears");
+		mTransactionsDbAdapter.addRecord(lunch);
+		assertThat(search("pear", new TransactionSearchFilter())).containsExactly(groceries.getUID(), lunch.getUID());
+
+		mTransactionsDbAdapter.deleteRecord(groceries.getUID());
+		assertThat(search("pear", new TransactionSearchFilter())).containsExactly(lunch.getUID());
+
+		Cursor cursor = mTransactionsDbAdapter.search("", new TransactionSearchFilter(), time - 1000, rent.getUID(), 1);
+		try {
+			assertThat(cursor.getCount()).isEqualTo(1);
+			cursor.moveToFirst();
+			assertThat(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID)))
+					.isEqualTo(lunch.getUID());
+			assertThat(cursor.getString(cursor.getColumnIndexOrThrow(TransactionsDbAdapter.COLUMN_SEARCH_ACCOUNT_UID)))
+					.isEqualTo(alphaAccount.getUID());
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private Transaction addSearchTransaction(String description, String notes, String memo, String amount, long time){
+		Transaction transaction = new Transaction(description);
+		transaction.setNote(notes);
+		transaction.setTime(time);
+		Split split = new Split(new Money(amount, DEFAULT_CURRENCY.getCurrencyCode()), alphaAccount.getUID());
+		split.setMemo(memo);
+		transaction.addSplit(split);
+		transaction.addSplit(split.createPair(bravoAccount.getUID()));
+		mTransactionsDbAdapter.addRecord(transaction);
+		return transaction;
+	}
+
+	private List<String> search(String query, TransactionSearchFilter filter){
+		List<String> uids = new ArrayList<>();
+		Cursor cursor = mTransactionsDbAdapter.search(query, filter);
+		try {
+			while (cursor.moveToNext()) {
+				uids.add(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseSchema.TransactionEntry.COLUMN_UID)));
+			}
+		} finally {
+			cursor.close();
+		}
+		return uids;
+	}
+
 	@After
 	public void tearDown() throws Exception {
 		mAccountsDbAdapter.deleteAllRecords();
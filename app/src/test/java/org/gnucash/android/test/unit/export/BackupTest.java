@@ -15,14 +15,19 @@
  */
 package org.gnucash.android.test.unit.export;
 
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
 import org.gnucash.android.BuildConfig;
 import org.gnucash.android.R;
 import org.gnucash.android.app.GnuCashApplication;
 import org.gnucash.android.db.BookDbHelper;
 import org.gnucash.android.db.adapter.BooksDbAdapter;
+import org.gnucash.android.export.ExportAsyncTask;
 import org.gnucash.android.export.ExportFormat;
 import org.gnucash.android.export.ExportParams;
 import org.gnucash.android.export.Exporter;
+import org.gnucash.android.export.MultiBookExporter;
 import org.gnucash.android.export.xml.GncXmlExporter;
 import org.gnucash.android.importer.GncXmlImporter;
 import org.gnucash.android.test.unit.db.AccountsDbAdapterTest;
@@ -37,6 +42,7 @@ import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -73,6 +79,74 @@ public class BackupTest {
 
     }
 
+    @Test
+    public void shouldExportXmlDirectlyToWriter(){
+        Exporter exporter = new GncXmlExporter(new ExportParams(ExportFormat.XML));
+        assertThat(exporter.supportsDirectExport()).isTrue();
+
+        StringWriter writer = new StringWriter();
+        exporter.generateExport(writer);
+        assertThat(writer.toString()).startsWith("<?xml").contains("gnc-v2");
+        assertThat(exporter.getExportFileName()).endsWith(ExportFormat.XML.getExtension());
+    }
+
+    @Test
+    public void shouldBackupAllBooksConcurrently(){
+        loadDefaultAccounts(); //creates a second book
+        List<String> bookUIDs = BooksDbAdapter.getInstance().getAllBookUIDs();
+        assertThat(bookUIDs.size()).isGreaterThan(1);
+
+        MultiBookExporter.Result result = new MultiBookExporter(2).run(bookUIDs, new MultiBookExporter.BookExport() {
+            @Override
+            public void export(@NonNull String bookUID, @NonNull SQLiteDatabase db) throws Exception {
+                GncXmlExporter.writeBackup(bookUID, db);
+            }
+        });
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getExportedBookUIDs()).containsExactly(bookUIDs.toArray(new String[bookUIDs.size()]));
+        for (String bookUID : bookUIDs) {
+            assertThat(new File(Exporter.getBackupFolderPath(bookUID)).listFiles()).isNotEmpty();
+        }
+    }
+
+    @Test
+    public void shouldExportEveryBookWhenExportingAllBooks() throws Exception {
+        loadDefaultAccounts(); //creates a second book
+        List<String> bookUIDs = BooksDbAdapter.getInstance().getAllBookUIDs();
+        assertThat(bookUIDs.size()).isGreaterThan(1);
+
+        ExportParams params = new ExportParams(ExportFormat.XML);
+        params.setExportTarget(ExportParams.ExportTarget.SD_CARD);
+        params.setExportAllBooks(true);
+        ExportParams parsedParams = ExportParams.parseCsv(params.toCsv());
+        assertThat(parsedParams.shouldExportAllBooks()).isTrue();
+
+        Boolean result = new ExportAsyncTask(GnuCashApplication.getAppContext(), GnuCashApplication.getActiveDb())
+                .execute(parsedParams).get();
+
+        assertThat(result).isTrue();
+        for (String bookUID : bookUIDs) {
+            assertThat(new File(Exporter.getExportFolderPath(bookUID)).listFiles()).hasSize(1);
+        }
+    }
+
+    @Test
+    public void shouldReportFailedBooksTogether(){
+        List<String> bookUIDs = BooksDbAdapter.getInstance().getAllBookUIDs();
+        MultiBookExporter.Result result = new MultiBookExporter().run(bookUIDs, new MultiBookExporter.BookExport() {
+            @Override
+            public void export(@NonNull String bookUID, @NonNull SQLiteDatabase db) throws Exception {
+                throw new IOException("Disk full");
+            }
+        });
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getExportedBookUIDs()).isEmpty();
+        assertThat(result.getErrors()).hasSize(bookUIDs.size());
+        assertThat(result.getErrorMessage()).contains("Disk full");
+    }
+
     /**
      * Loads the default accounts from file resource
      */
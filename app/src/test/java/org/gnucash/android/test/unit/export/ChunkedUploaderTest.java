@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.export;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.export.upload.ChunkedUploader;
+import org.gnucash.android.export.upload.UploadSpool;
+import org.gnucash.android.export.upload.WebDavChunkTransport;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests the chunked upload of exports against a local WebDAV stand-in server
+ */
+@RunWith(GnucashTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class ChunkedUploaderTest {
+
+    private static final int CHUNK_SIZE = 64;
+
+    private WebDavStandIn mServer;
+    private SharedPreferences mPreferences;
+    private File mSpoolFolder;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new WebDavStandIn();
+        mPreferences = RuntimeEnvironment.application.getSharedPreferences("test_uploads", Context.MODE_PRIVATE);
+        mSpoolFolder = ChunkedUploader.getSpoolFolder(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        mPreferences.edit().clear().commit();
+    }
+
+    @Test
+    public void shouldUploadWhileExportIsWritten() throws Exception {
+        final ChunkedUploader uploader = createUploader();
+        final UploadSpool spool = new UploadSpool(new File(mSpoolFolder, "export.xml"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Void> upload = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                uploader.upload(spool, "/GnuCash/export.xml");
+                return null;
+            }
+        });
+
+        byte[] content = generateContent(10 * CHUNK_SIZE + 17);
+        for (int i = 0; i < content.length; i += 50) {
+            spool.write(content, i, Math.min(50, content.length - i));
+        }
+        spool.close();
+        upload.get();
+        executor.shutdown();
+
+        assertThat(mServer.getFile("/GnuCash/export.xml")).isEqualTo(content);
+        assertThat(mServer.mPutCount).isEqualTo(11);
+        assertThat(uploader.hasPendingUploads()).isFalse();
+        assertThat(spool.getFile()).doesNotExist();
+    }
+
+    @Test
+    public void shouldResumeInterruptedUpload() throws Exception {
+        byte[] content = generateContent(5 * CHUNK_SIZE);
+        File file = new File(mSpoolFolder, "backup.xml");
+        UploadSpool spool = new UploadSpool(file);
+        spool.write(content);
+        spool.close();
+
+        mServer.mFailPutAt = 3;
+        ChunkedUploader uploader = createUploader();
+        try {
+            uploader.upload(UploadSpool.fromFile(file), "/backup.xml");
+            fail("Upload should have failed");
+        } catch (IOException e) {
+            assertThat(uploader.hasPendingUploads()).isTrue();
+        }
+        assertThat(file).exists();
+
+        mServer.mFailPutAt = -1;
+        assertThat(createUploader().resumePendingUploads()).isEqualTo(1);
+        assertThat(mServer.getFile("/backup.xml")).isEqualTo(content);
+        //two chunks uploaded, one failed, then the remaining three
+        assertThat(mServer.mPutCount).isEqualTo(6);
+        assertThat(uploader.hasPendingUploads()).isFalse();
+    }
+
+    @Test
+    public void shouldGiveUpRejectedUploadWithoutFailingNewUploads() throws Exception {
+        createInterruptedUpload("rejected.xml");
+
+        mServer.mFailPutAt = -1;
+        mServer.mPutStatus = 409; //e.g. the destination folder was deleted
+        ChunkedUploader uploader = createUploader();
+        assertThat(uploader.resumePendingUploads()).isEqualTo(0);
+        assertThat(uploader.hasPendingUploads()).isFalse();
+        assertThat(new File(mSpoolFolder, "rejected.xml")).doesNotExist();
+
+        mServer.mPutStatus = 0;
+        byte[] content = generateContent(2 * CHUNK_SIZE);
+        File file = new File(mSpoolFolder, "new.xml");
+        UploadSpool spool = new UploadSpool(file);
+        spool.write(content);
+        spool.close();
+        uploader.upload(UploadSpool.fromFile(file), "/new.xml");
+        assertThat(mServer.getFile("/new.xml")).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldGiveUpUploadAfterMaxResumeAttempts() throws Exception {
+        createInterruptedUpload("flaky.xml");
+
+        mServer.mFailPutAt = -1;
+        mServer.mPutStatus = 503;
+        ChunkedUploader uploader = createUploader();
+        for (int i = 1; i < ChunkedUploader.MAX_RESUME_ATTEMPTS; i++) {
+            assertThat(uploader.resumePendingUploads()).isEqualTo(0);
+            assertThat(uploader.hasPendingUploads()).isTrue();
+        }
+        assertThat(uploader.resumePendingUploads()).isEqualTo(0);
+        assertThat(uploader.hasPendingUploads()).isFalse();
+        assertThat(new File(mSpoolFolder, "flaky.xml")).doesNotExist();
+    }
+
+    @Test
+    public void shouldDiscardUploadOfAbortedExport() throws Exception {
+        ChunkedUploader uploader = createUploader();
+        UploadSpool spool = new UploadSpool(new File(mSpoolFolder, "aborted.xml"));
+        spool.write(generateContent(CHUNK_SIZE / 2));
+        spool.abort();
+
+        try {
+            uploader.upload(spool, "/aborted.xml");
+            fail("Upload of an aborted export should fail");
+        } catch (IOException e) {
+            assertThat(uploader.hasPendingUploads()).isFalse();
+        }
+        assertThat(mServer.getFile("/aborted.xml")).isNull();
+    }
+
+    /**
+     * Creates a pending upload whose second chunk failed to upload
+     */
+    private void createInterruptedUpload(String fileName) throws IOException {
+        File file = new File(mSpoolFolder, fileName);
+        UploadSpool spool = new UploadSpool(file);
+        spool.write(generateContent(3 * CHUNK_SIZE));
+        spool.close();
+
+        mServer.mFailPutAt = mServer.mPutCount + 2;
+        ChunkedUploader uploader = createUploader();
+        try {
+            uploader.upload(UploadSpool.fromFile(file), "/" + fileName);
+            fail("Upload should have failed");
+        } catch (IOException e) {
+            assertThat(uploader.hasPendingUploads()).isTrue();
+        }
+    }
+
+    private ChunkedUploader createUploader() {
+        HttpClient client = new HttpClient();
+        WebDavChunkTransport transport = new WebDavChunkTransport(client, mServer.getUrl(), "user");
+        return new ChunkedUploader(transport, mPreferences, CHUNK_SIZE);
+    }
+
+    private static byte[] generateContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        return content;
+    }
+
+    /**
+     * Minimal in-memory server implementing the parts of the WebDAV chunked upload protocol used by the app
+     */
+    private static class WebDavStandIn implements HttpHandler {
+        private static final String FILES = "/remote.php/dav/files/user";
+
+        private final HttpServer mHttpServer;
+        private final Map<String, TreeMap<String, byte[]>> mUploads = new TreeMap<>();
+        private final Map<String, byte[]> mFiles = new TreeMap<>();
+        int mPutCount = 0;
+        int mFailPutAt = -1;
+        /**
+         * Status returned for every PUT, if not 0
+         */
+        int mPutStatus = 0;
+
+        WebDavStandIn() throws IOException {
+            mHttpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            mHttpServer.createContext("/", this);
+            mHttpServer.start();
+        }
+
+        String getUrl() {
+            return "http://127.0.0.1:" + mHttpServer.getAddress().getPort();
+        }
+
+        synchronized byte[] getFile(String path) {
+            return mFiles.get(path);
+        }
+
+        void stop() {
+            mHttpServer.stop(0);
+        }
+
+        @Override
+        public synchronized void handle(HttpExchange exchange) throws IOException {
+            String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), "UTF-8");
+            byte[] body = readAll(exchange.getRequestBody());
+            int status;
+            switch (exchange.getRequestMethod()) {
+                case "MKCOL":
+                    if (mUploads.containsKey(path)) {
+                        status = 405;
+                    } else {
+                        mUploads.put(path, new TreeMap<String, byte[]>());
+                        status = 201;
+                    }
+                    break;
+
+                case "PUT":
+                    mPutCount++;
+                    String collection = path.substring(0, path.lastIndexOf('/'));
+                    if (mPutCount == mFailPutAt) {
+                        status = 503;
+                    } else if (mPutStatus != 0) {
+                        status = mPutStatus;
+                    } else if (!mUploads.containsKey(collection)) {
+                        status = 409;
+                    } else {
+                        mUploads.get(collection).put(path.substring(path.lastIndexOf('/') + 1), body);
+                        status = 201;
+                    }
+                    break;
+
+                case "MOVE":
+                    String upload = path.substring(0, path.lastIndexOf("/.file"));
+                    String destination = URLDecoder.decode(exchange.getRequestHeaders().getFirst("Destination"), "UTF-8");
+                    TreeMap<String, byte[]> chunks = mUploads.remove(upload);
+                    if (chunks == null) {
+                        status = 404;
+                    } else {
+                        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+                        for (byte[] chunk : chunks.values()) {
+                            assembled.write(chunk);
+                        }
+                        mFiles.put(destination.substring(destination.indexOf(FILES) + FILES.length()),
+                                assembled.toByteArray());
+                        status = 201;
+                    }
+                    break;
+
+                default:
+                    status = 405;
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        }
+
+        private static byte[] readAll(InputStream inputStream) throws IOException {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+}
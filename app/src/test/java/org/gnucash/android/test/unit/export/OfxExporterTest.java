@@ -47,6 +47,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import java.io.File;
+import java.io.StringWriter;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -85,6 +86,23 @@ public class OfxExporterTest {
         assertThat(exporter.generateExport()).isEmpty();
     }
 
+    /**
+     * When there is nothing to export, a direct export should not write anything
+     */
+    @Test
+    public void testDirectExportWithNoTransactions_shouldNotWriteAnything(){
+        ExportParams exportParameters = new ExportParams(ExportFormat.OFX);
+        exportParameters.setExportStartTime(TimestampHelper.getTimestampFromEpochZero());
+        exportParameters.setExportTarget(ExportParams.ExportTarget.URI);
+        OfxExporter exporter = new OfxExporter(exportParameters, mDb);
+
+        assertThat(exporter.supportsDirectExport()).isTrue();
+        assertThat(exporter.hasDataToExport()).isFalse();
+        StringWriter writer = new StringWriter();
+        exporter.generateExport(writer);
+        assertThat(writer.toString()).isEmpty();
+    }
+
     /**
      * Test that OFX files are generated
      */
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.importer;
+
+import org.gnucash.android.importer.ByteBufferInputStream;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * Tests for reading from a buffer with a {@link ByteBufferInputStream}
+ */
+public class ByteBufferInputStreamTest {
+
+    @Test
+    public void shouldReadTheRemainingBytesOfTheBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, (byte) 0xff, 4, 5});
+        buffer.position(1);
+        InputStream inputStream = new ByteBufferInputStream(buffer);
+
+        assertThat(inputStream.available()).isEqualTo(4);
+        assertThat(inputStream.read()).isEqualTo(2);
+        assertThat(inputStream.read()).isEqualTo(0xff);
+
+        byte[] bytes = new byte[4];
+        assertThat(inputStream.read(bytes, 1, 3)).isEqualTo(2);
+        assertThat(bytes).containsExactly(0, 4, 5, 0);
+        assertThat(inputStream.read()).isEqualTo(-1);
+        assertThat(inputStream.read(bytes, 0, 4)).isEqualTo(-1);
+        assertThat(inputStream.read(bytes, 0, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldResetToTheMark() throws IOException {
+        InputStream inputStream = new ByteBufferInputStream(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+        assertThat(inputStream.skip(1)).isEqualTo(1);
+        inputStream.mark(2);
+        assertThat(inputStream.read()).isEqualTo(2);
+        assertThat(inputStream.skip(10)).isEqualTo(2);
+
+        inputStream.reset();
+        assertThat(inputStream.read()).isEqualTo(2);
+    }
+
+    @Test
+    public void resetWithoutMarkShouldFail() {
+        InputStream inputStream = new ByteBufferInputStream(ByteBuffer.wrap(new byte[]{1, 2}));
+        try {
+            inputStream.reset();
+            fail("Reset without mark should fail");
+        } catch (IOException e) {
+            assertThat(e).hasMessage("Mark not set");
+        }
+    }
+}
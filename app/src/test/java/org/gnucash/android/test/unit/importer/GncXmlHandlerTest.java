@@ -26,6 +26,7 @@ import org.gnucash.android.db.adapter.SplitsDbAdapter;
 import org.gnucash.android.db.adapter.TransactionsDbAdapter;
 import org.gnucash.android.export.xml.GncXmlHelper;
 import org.gnucash.android.importer.GncXmlHandler;
+import org.gnucash.android.importer.GncXmlImporter;
 import org.gnucash.android.model.Account;
 import org.gnucash.android.model.AccountType;
 import org.gnucash.android.model.Money;
@@ -44,9 +45,15 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
 import java.text.ParseException;
+import java.util.zip.GZIPOutputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -374,4 +381,38 @@ public class GncXmlHandlerTest {
         //assertThat(split2.getQuantity()).isEqualTo(new Money("20", "USD"));
         assertThat(split2.isPairOf(split1)).isTrue();
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests importing plain and compressed files through a memory-mapped buffer
+     */
+    @Test
+    public void importFromMappedFile() throws Exception {
+        File xmlFile = File.createTempFile("accountsImport", ".xml");
+        File gzipFile = File.createTempFile("accountsImport", ".gnucash");
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("accountsImport.xml");
+             OutputStream xmlOutputStream = new FileOutputStream(xmlFile);
+             OutputStream gzipOutputStream = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                xmlOutputStream.write(buffer, 0, read);
+                gzipOutputStream.write(buffer, 0, read);
+            }
+        }
+
+        for (File file : new File[]{xmlFile, gzipFile}) {
+            try (FileInputStream fileInputStream = new FileInputStream(file)) {
+                MappedByteBuffer mappedBuffer = GncXmlImporter.map(fileInputStream.getChannel());
+                assertThat(mappedBuffer).isNotNull();
+
+                String bookUID = GncXmlImporter.parse(mappedBuffer);
+                setUpDbAdapters(bookUID);
+                assertThat(mAccountsDbAdapter.getRecordsCount()).isEqualTo(5);
+                assertThat(mAccountsDbAdapter.getRecord("dae686a1636addc0dae1ae670701aa4a").getName())
+                        .isEqualTo("Cash in Wallet");
+            }
+        }
+        xmlFile.delete();
+        gzipFile.delete();
+    }
+}
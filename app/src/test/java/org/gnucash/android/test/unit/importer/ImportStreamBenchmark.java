@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.importer;
+
+import org.gnucash.android.importer.ByteBufferInputStream;
+import org.gnucash.android.importer.GncXmlImporter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares feeding the XML parser through the buffered stream layers of {@link GncXmlImporter#parse(InputStream)}
+ * and from a memory-mapped file, as {@link GncXmlImporter#parse(java.nio.ByteBuffer)} does.
+ * <p>Only the reading and parsing is timed, not the database inserts of the import.
+ * The benchmark is skipped unless the tests are run with {@code -Dgnucash.benchmark=true}</p>
+ */
+public class ImportStreamBenchmark {
+
+    private static final int TRANSACTION_COUNT = 100000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private File mXmlFile;
+    private File mGzipFile;
+    private SAXParser mParser;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Boolean.getBoolean("gnucash.benchmark"));
+
+        mXmlFile = File.createTempFile("benchmark", ".xml");
+        mGzipFile = File.createTempFile("benchmark", ".gnucash");
+        writeXml(new FileOutputStream(mXmlFile));
+        writeXml(new GZIPOutputStream(new FileOutputStream(mGzipFile)));
+        mParser = SAXParserFactory.newInstance().newSAXParser();
+    }
+
+    @After
+    public void tearDown() {
+        if (mXmlFile != null)
+            mXmlFile.delete();
+        if (mGzipFile != null)
+            mGzipFile.delete();
+    }
+
+    @Test
+    public void readXml() throws Exception {
+        compare(mXmlFile);
+    }
+
+    @Test
+    public void readCompressedXml() throws Exception {
+        compare(mGzipFile);
+    }
+
+    private void compare(final File file) throws Exception {
+        assertThat(parseMapped(file)).isEqualTo(TRANSACTION_COUNT);
+        assertThat(parseStream(file)).isEqualTo(TRANSACTION_COUNT);
+
+        long streamNanos = measure(new Benchmark() {
+            @Override
+            public void run() throws Exception {
+                parseStream(file);
+            }
+        });
+        long mappedNanos = measure(new Benchmark() {
+            @Override
+            public void run() throws Exception {
+                parseMapped(file);
+            }
+        });
+
+        System.out.println(String.format("%s (%d bytes)", file.getName(), file.length()));
+        System.out.println(String.format("Buffered stream: %8.2f ms", streamNanos / 1e6));
+        System.out.println(String.format("Mapped buffer:   %8.2f ms", mappedNanos / 1e6));
+    }
+
+    /**
+     * Parses the file through the same stream layers as {@link GncXmlImporter#parse(InputStream)}
+     */
+    private int parseStream(File file) throws Exception {
+        try (PushbackInputStream pb = new PushbackInputStream(new FileInputStream(file), 2)) {
+            byte[] signature = new byte[2];
+            pb.read(signature);
+            pb.unread(signature);
+            InputStream inputStream;
+            if (signature[0] == (byte) 0x1f && signature[1] == (byte) 0x8b)
+                inputStream = new BufferedInputStream(new GZIPInputStream(pb));
+            else
+                inputStream = new BufferedInputStream(pb);
+            return parse(inputStream);
+        }
+    }
+
+    /**
+     * Parses the file from a memory-mapped buffer, like {@link GncXmlImporter#parse(java.nio.ByteBuffer)}
+     */
+    private int parseMapped(File file) throws Exception {
+        try (FileInputStream fileInputStream = new FileInputStream(file)) {
+            MappedByteBuffer buffer = GncXmlImporter.map(fileInputStream.getChannel());
+            assertThat(buffer).isNotNull();
+            InputStream inputStream = new ByteBufferInputStream(buffer);
+            if (buffer.get(0) == (byte) 0x1f && buffer.get(1) == (byte) 0x8b)
+                inputStream = new GZIPInputStream(inputStream, 64 * 1024);
+            return parse(inputStream);
+        }
+    }
+
+    /**
+     * Parses the XML with a handler which only counts the transactions
+     * @return Number of transactions in the XML
+     */
+    private int parse(InputStream inputStream) throws Exception {
+        final int[] count = {0};
+        mParser.reset();
+        mParser.getXMLReader().setContentHandler(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("gnc:transaction".equals(qName))
+                    count[0]++;
+            }
+        });
+        mParser.getXMLReader().parse(new InputSource(inputStream));
+        return count[0];
+    }
+
+    private static void writeXml(OutputStream outputStream) throws IOException {
+        try (Writer writer = new OutputStreamWriter(outputStream, "UTF-8")) {
+            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n<gnc-v2>\n");
+            for (int i = 0; i < TRANSACTION_COUNT; i++) {
+                writer.write("<gnc:transaction version=\"2.0.0\">\n"
+                        + "  <trn:id type=\"guid\">" + String.format("%032x", i) + "</trn:id>\n"
+                        + "  <trn:description>Transaction " + i + "</trn:description>\n"
+                        + "  <trn:splits>\n"
+                        + "    <trn:split><split:value>" + i + "/100</split:value></trn:split>\n"
+                        + "    <trn:split><split:value>-" + i + "/100</split:value></trn:split>\n"
+                        + "  </trn:splits>\n"
+                        + "</gnc:transaction>\n");
+            }
+            writer.write("</gnc-v2>\n");
+        }
+    }
+
+    private interface Benchmark {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs a benchmark and returns the average time of the measured iterations in nanoseconds
+     */
+    private static long measure(Benchmark benchmark) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
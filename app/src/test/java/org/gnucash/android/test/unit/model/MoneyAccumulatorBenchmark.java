@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.model;
+
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.MoneyAccumulator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares adding up split amounts with {@link Money#add(Money)} and with a {@link MoneyAccumulator},
+ * the way the split balances are computed.
+ * <p>Each benchmark is run a few times to warm up the JIT, then timed over several iterations.
+ * It is skipped unless the tests are run with {@code -Dgnucash.benchmark=true}</p>
+ */
+public class MoneyAccumulatorBenchmark {
+
+    private static final int SPLIT_COUNT = 1000000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private long[] mNumerators;
+    private long[] mDenominators;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("gnucash.benchmark"));
+
+        Random random = new Random(1);
+        mNumerators = new long[SPLIT_COUNT];
+        mDenominators = new long[SPLIT_COUNT];
+        for (int i = 0; i < SPLIT_COUNT; i++) {
+            mNumerators[i] = random.nextInt(2000000) - 1000000;
+            mDenominators[i] = random.nextInt(10) == 0 ? 10 : 100; //some amounts were saved with another denominator
+        }
+    }
+
+    @Test
+    public void addSplits() {
+        Money expected = addWithMoney();
+        assertThat(addWithAccumulator()).isEqualTo(expected);
+
+        long moneyNanos = measure(new Runnable() {
+            @Override
+            public void run() {
+                addWithMoney();
+            }
+        });
+        long accumulatorNanos = measure(new Runnable() {
+            @Override
+            public void run() {
+                addWithAccumulator();
+            }
+        });
+
+        System.out.println(String.format("Money.add:           %8.2f ms per %d splits", moneyNanos / 1e6, SPLIT_COUNT));
+        System.out.println(String.format("MoneyAccumulator.add: %8.2f ms per %d splits", accumulatorNanos / 1e6, SPLIT_COUNT));
+    }
+
+    private Money addWithMoney() {
+        Money total = Money.createZeroInstance("USD");
+        for (int i = 0; i < SPLIT_COUNT; i++) {
+            total = total.add(new Money(mNumerators[i], mDenominators[i], "USD"));
+        }
+        return total;
+    }
+
+    private Money addWithAccumulator() {
+        MoneyAccumulator total = new MoneyAccumulator(Commodity.USD);
+        for (int i = 0; i < SPLIT_COUNT; i++) {
+            total.add(mNumerators[i], mDenominators[i]);
+        }
+        return total.toMoney();
+    }
+
+    /**
+     * Runs a benchmark and returns the average time of the measured iterations in nanoseconds
+     */
+    private static long measure(Runnable benchmark) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
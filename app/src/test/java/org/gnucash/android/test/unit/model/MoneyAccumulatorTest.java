@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.model;
+
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.MoneyAccumulator;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for adding up amounts with a {@link MoneyAccumulator}
+ */
+public class MoneyAccumulatorTest {
+
+    @Test
+    public void shouldAddFractionsWithDifferentDenominators() {
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.USD)
+                .add(1050, 100)
+                .add(-25, 10)
+                .add(1, 1000)
+                .subtract(3, 1);
+
+        assertThat(sum.hasOverflowed()).isFalse();
+        assertThat(sum.asBigDecimal()).isEqualByComparingTo("5.001");
+        assertThat(sum.toMoney()).isEqualTo(new Money("5.00", "USD"));
+    }
+
+    @Test
+    public void shouldGiveTheSameResultAsAddingMoney() {
+        Random random = new Random(42);
+        Money expected = Money.createZeroInstance("EUR");
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.EUR);
+        for (int i = 0; i < 1000; i++) {
+            Money amount = new Money(random.nextInt(2000000) - 1000000, 100, "EUR");
+            if (random.nextBoolean()) {
+                expected = expected.add(amount);
+                sum.add(amount);
+            } else {
+                expected = expected.subtract(amount);
+                sum.subtract(amount);
+            }
+        }
+        assertThat(sum.toMoney()).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldContinueAsBigDecimalWhenTheNumeratorOverflows() {
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.USD)
+                .add(Long.MAX_VALUE, 100)
+                .add(Long.MAX_VALUE, 100);
+
+        assertThat(sum.hasOverflowed()).isTrue();
+        BigDecimal max = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+        assertThat(sum.asBigDecimal()).isEqualByComparingTo(max.add(max));
+
+        sum.subtract(Long.MAX_VALUE, 100).subtract(Long.MAX_VALUE, 100).add(5, 1);
+        assertThat(sum.asBigDecimal()).isEqualByComparingTo("5");
+        assertThat(sum.toMoney()).isEqualTo(new Money("5", "USD"));
+    }
+
+    @Test
+    public void shouldContinueAsBigDecimalWhenTheCommonDenominatorOverflows() {
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.USD)
+                .add(1, 1000000000000000000L)
+                .add(1, 11);
+
+        assertThat(sum.hasOverflowed()).isTrue();
+        assertThat(sum.toMoney()).isEqualTo(new Money("0.09", "USD"));
+    }
+
+    @Test
+    public void shouldNegateTheSmallestNumerator() {
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.JPY).subtract(Long.MIN_VALUE, 1);
+
+        assertThat(sum.asBigDecimal()).isEqualByComparingTo(BigDecimal.valueOf(Long.MIN_VALUE).negate());
+    }
+
+    @Test
+    public void shouldCombineAccumulators() {
+        MoneyAccumulator first = new MoneyAccumulator(Commodity.USD).add(250, 100);
+        MoneyAccumulator second = new MoneyAccumulator(Commodity.USD).add(Long.MAX_VALUE, 1).add(1, 1);
+
+        first.add(second);
+
+        assertThat(first.hasOverflowed()).isTrue();
+        assertThat(first.asBigDecimal())
+                .isEqualByComparingTo(BigDecimal.valueOf(Long.MAX_VALUE).add(new BigDecimal("3.50")));
+    }
+
+    @Test
+    public void zeroAmountsShouldBeIgnored() {
+        MoneyAccumulator sum = new MoneyAccumulator(Commodity.USD).add(0, 0);
+
+        assertThat(sum.isZero()).isTrue();
+        assertThat(sum.toMoney().isAmountZero()).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidDenominators() {
+        new MoneyAccumulator(Commodity.USD).add(1, 0);
+    }
+
+    @Test(expected = Money.CurrencyMismatchException.class)
+    public void shouldRejectOtherCurrencies() {
+        new MoneyAccumulator(Commodity.USD).add(new Money("1", "EUR"));
+    }
+}
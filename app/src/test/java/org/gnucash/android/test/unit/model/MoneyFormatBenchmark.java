@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.model;
+
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how many list rows per second can format their amount with {@link Money#formattedString(Locale)},
+ * compared to creating a currency format for every row.
+ * <p>Each benchmark is run a few times to warm up the JIT, then timed over several iterations.
+ * It is skipped unless the tests are run with {@code -Dgnucash.benchmark=true}</p>
+ */
+public class MoneyFormatBenchmark {
+
+    private static final int ROW_COUNT = 100000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private Money[] mAmounts;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Boolean.getBoolean("gnucash.benchmark"));
+
+        Random random = new Random(1);
+        mAmounts = new Money[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            mAmounts[i] = new Money(random.nextInt(2000000) - 1000000, 100, random.nextBoolean() ? "EUR" : "USD");
+        }
+    }
+
+    @Test
+    public void formatRows() {
+        for (Money amount : mAmounts) {
+            assertThat(amount.formattedString(Locale.GERMANY)).isEqualTo(formatWithNewFormat(amount, Locale.GERMANY));
+        }
+
+        long newFormatNanos = measure(new Runnable() {
+            @Override
+            public void run() {
+                for (Money amount : mAmounts) {
+                    formatWithNewFormat(amount, Locale.GERMANY);
+                }
+            }
+        });
+        long cachedFormatNanos = measure(new Runnable() {
+            @Override
+            public void run() {
+                for (Money amount : mAmounts) {
+                    amount.formattedString(Locale.GERMANY);
+                }
+            }
+        });
+
+        System.out.println(String.format("New format per row: %,12.0f rows/s", ROW_COUNT * 1e9 / newFormatNanos));
+        System.out.println(String.format("Cached format:      %,12.0f rows/s", ROW_COUNT * 1e9 / cachedFormatNanos));
+    }
+
+    /**
+     * Formats an amount the way it was done before the formats were cached
+     */
+    private static String formatWithNewFormat(Money amount, Locale locale) {
+        Commodity commodity = amount.getCommodity();
+        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(locale);
+        String symbol = commodity.equals(Commodity.USD) && !locale.equals(Locale.US) ? "US$" : commodity.getSymbol();
+        DecimalFormatSymbols decimalFormatSymbols = ((DecimalFormat) currencyFormat).getDecimalFormatSymbols();
+        decimalFormatSymbols.setCurrencySymbol(symbol);
+        ((DecimalFormat) currencyFormat).setDecimalFormatSymbols(decimalFormatSymbols);
+        currencyFormat.setMinimumFractionDigits(commodity.getSmallestFractionDigits());
+        currencyFormat.setMaximumFractionDigits(commodity.getSmallestFractionDigits());
+        return currencyFormat.format(amount.asDouble());
+    }
+
+    /**
+     * Runs a benchmark and returns the average time of the measured iterations in nanoseconds
+     */
+    private static long measure(Runnable benchmark) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            benchmark.run();
+        }
+        return (System.nanoTime() - start) / MEASUREMENT_ITERATIONS;
+    }
+}
@@ -28,8 +28,14 @@ import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -169,6 +175,59 @@ public class MoneyTest{
 		assertEquals("9.75", some.asString());
 	}
 
+	@Test
+	public void formattedString_shouldFormatTheExactAmount(){
+		//the amount cannot be represented exactly as a double
+		Money money = new Money("90071992547409.93", CURRENCY_CODE);
+		String symbol = money.getCommodity().getSymbol();
+		assertThat(money.formattedString(Locale.US)).isEqualTo(symbol + "90,071,992,547,409.93");
+	}
+
+	@Test
+	public void formattedString_shouldUseTheCurrentSymbolOfTheCommodity(){
+		Commodity commodity = new Commodity("Test", "TST", 100);
+		Money money = new Money(new BigDecimal("1.50"), commodity);
+		assertThat(money.formattedString(Locale.US)).isEqualTo("TST1.50");
+
+		commodity.setLocalSymbol("T$");
+		assertThat(money.formattedString(Locale.US)).isEqualTo("T$1.50");
+	}
+
+	@Test
+	public void formattedString_shouldBeThreadSafe() throws Exception {
+		final List<Money> amounts = new ArrayList<>();
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Money money = new Money(i * 1234567L, 100, CURRENCY_CODE);
+			amounts.add(money);
+			expected.add(money.formattedString(Locale.GERMANY));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int thread = 0; thread < 4; thread++) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int round = 0; round < 10; round++) {
+							for (int i = 0; i < amounts.size(); i++) {
+								if (!amounts.get(i).formattedString(Locale.GERMANY).equals(expected.get(i)))
+									return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertThat(result.get()).isTrue();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	public void validateImmutability(){
 		assertEquals(mHashcode, mMoneyInEur.hashCode());
 		assertEquals(amountString, mMoneyInEur.toPlainString());
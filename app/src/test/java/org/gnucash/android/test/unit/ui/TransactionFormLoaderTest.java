@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gnucash.android.test.unit.ui;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.db.AccountsSnapshot;
+import org.gnucash.android.db.adapter.AccountsDbAdapter;
+import org.gnucash.android.db.adapter.TransactionsDbAdapter;
+import org.gnucash.android.model.Account;
+import org.gnucash.android.model.AccountType;
+import org.gnucash.android.model.BaseModel;
+import org.gnucash.android.model.Commodity;
+import org.gnucash.android.model.Money;
+import org.gnucash.android.model.Split;
+import org.gnucash.android.model.Transaction;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.gnucash.android.ui.transaction.TransactionFormLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for loading the data of the transaction form
+ */
+@RunWith(GnucashTestRunner.class) //package is required so that resources can be found in dev mode
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class TransactionFormLoaderTest {
+
+    private AccountsDbAdapter mAccountsDbAdapter;
+    private TransactionsDbAdapter mTransactionsDbAdapter;
+
+    private Account mParentAccount;
+    private Account mAccount;
+    private Account mTransferAccount;
+    private Account mPlaceholderAccount;
+
+    @Before
+    public void setUp() {
+        mAccountsDbAdapter = AccountsDbAdapter.getInstance();
+        mTransactionsDbAdapter = TransactionsDbAdapter.getInstance();
+
+        mTransferAccount = new Account("Groceries", Commodity.USD);
+        mTransferAccount.setAccountType(AccountType.EXPENSE);
+        mPlaceholderAccount = new Account("Expenses", Commodity.USD);
+        mPlaceholderAccount.setAccountType(AccountType.EXPENSE);
+        mPlaceholderAccount.setPlaceHolderFlag(true);
+        mParentAccount = new Account("Assets", Commodity.USD);
+        mParentAccount.setAccountType(AccountType.ASSET);
+        mParentAccount.setDefaultTransferAccountUID(mTransferAccount.getUID());
+        mAccount = new Account("Wallet", Commodity.USD);
+        mAccount.setAccountType(AccountType.CASH);
+        mAccount.setParentUID(mParentAccount.getUID());
+
+        mAccountsDbAdapter.addRecord(mTransferAccount);
+        mAccountsDbAdapter.addRecord(mPlaceholderAccount);
+        mAccountsDbAdapter.addRecord(mParentAccount);
+        mAccountsDbAdapter.addRecord(mAccount);
+        AccountsSnapshot.invalidateCache();
+    }
+
+    @After
+    public void tearDown() {
+        mAccountsDbAdapter.deleteAllRecords();
+        AccountsSnapshot.invalidateCache();
+    }
+
+    @Test
+    public void shouldLoadTheEditedTransactionWithItsSplits() {
+        Transaction transaction = new Transaction("Bread");
+        Split split = new Split(new Money("4.20", "USD"), mAccount.getUID());
+        transaction.addSplit(split);
+        transaction.addSplit(split.createPair(mTransferAccount.getUID()));
+        mTransactionsDbAdapter.addRecord(transaction);
+
+        TransactionFormLoader.FormData formData = load(transaction.getUID());
+
+        Transaction loadedTransaction = formData.getTransaction();
+        assertThat(loadedTransaction).isNotNull();
+        assertThat(loadedTransaction.getUID()).isEqualTo(transaction.getUID());
+        assertThat(loadedTransaction.getDescription()).isEqualTo("Bread");
+        assertThat(loadedTransaction.getSplits()).hasSize(2);
+        assertThat(loadedTransaction.getSplits()).containsAll(transaction.getSplits());
+        assertThat(formData.getScheduledAction()).isNull();
+        assertAccountData(formData);
+    }
+
+    @Test
+    public void shouldLoadOnlyTheAccountsForNewTransactions() {
+        TransactionFormLoader.FormData formData = load(null);
+
+        assertThat(formData.getTransaction()).isNull();
+        assertThat(formData.getScheduledAction()).isNull();
+        assertAccountData(formData);
+    }
+
+    @Test
+    public void shouldCreateNewTransactionIfTheEditedOneDoesNotExist() {
+        TransactionFormLoader.FormData formData = load(BaseModel.generateUID());
+
+        assertThat(formData.getTransaction()).isNull();
+        assertAccountData(formData);
+    }
+
+    @Test
+    public void shouldSeeAccountsAddedAfterTheSnapshotWasCached() {
+        AccountsSnapshot.getInstance();
+        Account account = new Account("New account", Commodity.USD);
+        mAccountsDbAdapter.addRecord(account);
+
+        TransactionFormLoader.FormData formData = new TransactionFormLoader(RuntimeEnvironment.application,
+                account.getUID(), null, null).loadInBackground();
+        assertThat(formData.getAccountCurrencyCode()).isEqualTo("USD");
+    }
+
+    private TransactionFormLoader.FormData load(String transactionUID) {
+        return new TransactionFormLoader(RuntimeEnvironment.application, mAccount.getUID(), transactionUID, null)
+                .loadInBackground();
+    }
+
+    /**
+     * Checks the account data which the form needs for {@link #mAccount}
+     */
+    private void assertAccountData(TransactionFormLoader.FormData formData) {
+        assertThat(formData.getAccountType()).isEqualTo(AccountType.CASH);
+        assertThat(formData.getAccountCurrencyCode()).isEqualTo("USD");
+        //inherited from the parent account
+        assertThat(formData.getDefaultTransferAccountUID()).isEqualTo(mTransferAccount.getUID());
+
+        List<String> transferAccountUIDs = new ArrayList<>();
+        for (AccountsSnapshot.Entry account : formData.getTransferAccounts()) {
+            assertThat(account.getAccountType()).isNotEqualTo(AccountType.ROOT);
+            transferAccountUIDs.add(account.getUID());
+        }
+        assertThat(transferAccountUIDs).contains(mTransferAccount.getUID(), mParentAccount.getUID())
+                .doesNotContain(mAccount.getUID(), mPlaceholderAccount.getUID());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.util;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.gnucash.android.util.AccountNameIndex;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(GnucashTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class AccountNameIndexTest {
+
+    private AccountNameIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new AccountNameIndex(
+                Arrays.asList("assets", "checking", "expenses", "groceries", "car", "insurance"),
+                Arrays.asList("Assets", "Checking Account", "Expenses", "Groceries", "Car", "Car Insurance"),
+                Arrays.asList("Assets", "Assets:Checking Account", "Expenses", "Expenses:Groceries",
+                        "Expenses:Car", "Expenses:Car:Car Insurance"));
+    }
+
+    @Test
+    public void shouldFindAccountsContainingTheFilter() {
+        assertThat(mIndex.search("ACC")).containsExactly("checking");
+        assertThat(mIndex.search("car")).containsExactly("car", "insurance");
+        assertThat(mIndex.search("es")).containsExactly("assets", "expenses", "groceries");
+        assertThat(mIndex.search("sur")).containsExactly("insurance");
+        assertThat(mIndex.search("carb")).isEmpty();
+        assertThat(mIndex.search("")).hasSize(6);
+    }
+
+    @Test
+    public void shouldSearchFullNamesWhenTheFilterContainsTheSeparator() {
+        assertThat(mIndex.search("expenses:")).containsExactly("groceries", "car", "insurance");
+        assertThat(mIndex.search("car:car")).containsExactly("insurance");
+    }
+
+    @Test
+    public void shouldMatchALinearScanOnLargeCharts() {
+        List<String> uids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            uids.add(String.valueOf(i));
+            names.add(String.format(Locale.US, "Account %04d %s", i, Integer.toHexString(i * 7919)));
+        }
+        AccountNameIndex index = new AccountNameIndex(uids, names, names);
+
+        for (String filter : new String[]{"12", "0 1", "count 19", "ab", "3f2", "unt 0"}) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).toLowerCase(Locale.ROOT).contains(filter))
+                    expected.add(uids.get(i));
+            }
+            assertThat(index.search(filter)).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.util;
+
+import org.gnucash.android.util.HashHelper;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashHelperTest {
+
+    @Test
+    public void shouldComputeTheFnv1a64Hash() {
+        assertThat(HashHelper.fnv1a64("")).isEqualTo(0xcbf29ce484222325L);
+        assertThat(HashHelper.fnv1a64("a")).isEqualTo(0xaf63dc4c8601ec8cL);
+        assertThat(HashHelper.fnv1a64("foobar")).isEqualTo(0x85944171f73967e8L);
+    }
+}
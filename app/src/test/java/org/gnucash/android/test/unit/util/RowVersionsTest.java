@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 Ngewi Fet <ngewif@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gnucash.android.test.unit.util;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.gnucash.android.BuildConfig;
+import org.gnucash.android.test.unit.testutil.GnucashTestRunner;
+import org.gnucash.android.test.unit.testutil.ShadowCrashlytics;
+import org.gnucash.android.test.unit.testutil.ShadowUserVoice;
+import org.gnucash.android.ui.util.RowVersions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(GnucashTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, packageName = "org.gnucash.android", shadows = {ShadowCrashlytics.class, ShadowUserVoice.class})
+public class RowVersionsTest {
+
+    @Test
+    public void stableIdShouldOnlyDependOnTheUID() {
+        RowVersions rows = new RowVersions.Builder(2).add("a", 1L, "x").add("b", 2L, "y").build();
+        RowVersions replaced = new RowVersions.Builder(1).add("a", 5L, "z").build();
+
+        assertThat(rows.getStableId(0)).isEqualTo(replaced.getStableId(0));
+        assertThat(rows.getStableId(0)).isEqualTo(RowVersions.stableId("a"));
+        assertThat(rows.getStableId(0)).isNotEqualTo(rows.getStableId(1));
+        assertThat(rows.getStableId(2)).isEqualTo(RecyclerView.NO_ID);
+    }
+
+    @Test
+    public void shouldOnlyDispatchChangedRows() {
+        RowVersions oldRows = new RowVersions.Builder(4)
+                .add("a", 1L, "Groceries").add("b", 2L, "Rent").add("c", 3L, "Fuel").add("d", 4L, "Salary").build();
+        RowVersions newRows = new RowVersions.Builder(3)
+                .add("a", 1L, "Groceries").add("b", 2L, "Rent and electricity").add("d", 4L, "Salary").build();
+
+        RecordingAdapter adapter = new RecordingAdapter();
+        RowVersions.Diff diff = oldRows.diff(newRows);
+
+        assertThat(diff.dispatchUpdatesTo(adapter, oldRows)).isTrue();
+        assertThat(adapter.mEvents).containsOnly("changed 1+1", "removed 2+1");
+    }
+
+    @Test
+    public void shouldNotDispatchAnythingIfNothingChanged() {
+        RowVersions oldRows = new RowVersions.Builder(2).add("a", 1L, null).add("b", 2L, "Rent").build();
+        RowVersions newRows = new RowVersions.Builder(2).add("a", 1L, null).add("b", 2L, "Rent").build();
+
+        RecordingAdapter adapter = new RecordingAdapter();
+        assertThat(oldRows.diff(newRows).dispatchUpdatesTo(adapter, oldRows)).isTrue();
+        assertThat(adapter.mEvents).isEmpty();
+    }
+
+    @Test
+    public void shouldUpdateAllRowsIfDisplayedRowsChangedInTheMeantime() {
+        RowVersions oldRows = new RowVersions.Builder(1).add("a", 1L).build();
+        RowVersions extendedRows = oldRows.append(new RowVersions.Builder(1).add("b", 2L).build());
+        RowVersions newRows = new RowVersions.Builder(1).add("a", 2L).build();
+
+        RecordingAdapter adapter = new RecordingAdapter();
+        assertThat(oldRows.diff(newRows).dispatchUpdatesTo(adapter, extendedRows)).isFalse();
+        assertThat(adapter.mEvents).containsExactly("all changed");
+    }
+
+    @Test
+    public void versionPartsShouldNotRunIntoEachOther() {
+        RowVersions oldRows = new RowVersions.Builder(1).add("a", "ab", "c").build();
+        RowVersions newRows = new RowVersions.Builder(1).add("a", "a", "bc").build();
+
+        RecordingAdapter adapter = new RecordingAdapter();
+        oldRows.diff(newRows).dispatchUpdatesTo(adapter, oldRows);
+        assertThat(adapter.mEvents).containsExactly("changed 0+1");
+    }
+
+    /**
+     * Adapter which records the notifications it receives
+     */
+    private static class RecordingAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        final List<String> mEvents = new ArrayList<>();
+
+        RecordingAdapter() {
+            registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    mEvents.add("all changed");
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                    mEvents.add("changed " + positionStart + "+" + itemCount);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    mEvents.add("inserted " + positionStart + "+" + itemCount);
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    mEvents.add("removed " + positionStart + "+" + itemCount);
+                }
+            });
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    }
+}